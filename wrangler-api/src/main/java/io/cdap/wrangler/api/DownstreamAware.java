@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.api;
+
+import java.util.List;
+
+/**
+ * Optional interface of a {@link Directive} adapting itself to the directives that follow it in a recipe, such as
+ * a parser only extracting the columns that are kept afterwards.
+ */
+public interface DownstreamAware {
+  /**
+   * This method is called once all the directives of the recipe are initialized, before any of them is executed.
+   *
+   * @param directives following the directive in the recipe, in order
+   */
+  void downstream(List<Directive> directives);
+}
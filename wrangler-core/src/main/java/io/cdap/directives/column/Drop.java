@@ -62,6 +62,13 @@ public class Drop implements Directive, Lineage {
     columns = cols.value();
   }
 
+  /**
+   * @return names of the columns dropped.
+   */
+  public List<String> getColumns() {
+    return columns;
+  }
+
   @Override
   public void destroy() {
     // no-op
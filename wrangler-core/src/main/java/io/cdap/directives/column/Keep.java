@@ -66,6 +66,13 @@ public class Keep implements Directive, Lineage {
     }
   }
 
+  /**
+   * @return names of the columns kept.
+   */
+  public Set<String> getColumns() {
+    return keep;
+  }
+
   @Override
   public void destroy() {
     // no-op
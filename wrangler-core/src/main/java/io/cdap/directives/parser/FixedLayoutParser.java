@@ -0,0 +1,288 @@
+/*
+ *  Copyright © 2024 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package io.cdap.directives.parser;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.wrangler.api.Arguments;
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ErrorRowException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Optional;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.annotations.Categories;
+import io.cdap.wrangler.api.lineage.Lineage;
+import io.cdap.wrangler.api.lineage.Many;
+import io.cdap.wrangler.api.lineage.Mutation;
+import io.cdap.wrangler.api.parser.ColumnName;
+import io.cdap.wrangler.api.parser.Numeric;
+import io.cdap.wrangler.api.parser.Text;
+import io.cdap.wrangler.api.parser.TextList;
+import io.cdap.wrangler.api.parser.TokenType;
+import io.cdap.wrangler.api.parser.UsageDefinition;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A Fixed length Parser Stage for records having one or more layouts.
+ *
+ * <p>When more than one layout is specified, the layout of each record is chosen by the value of the
+ * discriminator field found at a fixed offset of the record. Values can hold several consecutive records,
+ * each producing a row. Trailing whitespace, such as a line terminator, is ignored, while any other trailing data
+ * shorter than a record makes the row an error.</p>
+ */
+@Plugin(type = Directive.TYPE)
+@Name(FixedLayoutParser.NAME)
+@Categories(categories = { "parser"})
+@Description("Parses fixed-length records having one or more layouts chosen by a discriminator field.")
+public final class FixedLayoutParser implements Directive, Lineage {
+  public static final String NAME = "parse-as-fixed-layout";
+  private String col;
+  private FixedLengthLayout[] layouts;
+  // Keys of the layouts encoded with the charset, used for matching byte[] records.
+  private byte[][] keys;
+  private int discriminatorOffset;
+  private int discriminatorWidth;
+  // Length of the shortest layout, no record can start in trailing data shorter than it.
+  private int minLength;
+  private Charset charset;
+
+  @Override
+  public UsageDefinition define() {
+    UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
+    builder.define("column", TokenType.COLUMN_NAME);
+    builder.define("layout", TokenType.TEXT_LIST);
+    builder.define("offset", TokenType.NUMERIC, Optional.TRUE);
+    builder.define("width", TokenType.NUMERIC, Optional.TRUE);
+    builder.define("charset", TokenType.TEXT, Optional.TRUE);
+    return builder.build();
+  }
+
+  @Override
+  public void initialize(Arguments args) throws DirectiveParseException {
+    this.col = ((ColumnName) args.value("column")).value();
+    List<String> specifications = ((TextList) args.value("layout")).value();
+    this.layouts = new FixedLengthLayout[specifications.size()];
+    this.minLength = Integer.MAX_VALUE;
+    for (int i = 0; i < layouts.length; i++) {
+      try {
+        layouts[i] = FixedLengthLayout.compile(specifications.get(i));
+      } catch (IllegalArgumentException e) {
+        throw new DirectiveParseException(NAME, e.getMessage(), e);
+      }
+      minLength = Math.min(minLength, layouts[i].getLength());
+    }
+
+    if (args.contains("offset") != args.contains("width")) {
+      throw new DirectiveParseException(
+        NAME, "Both the offset and the width of the discriminator field should be specified.");
+    }
+    if (args.contains("offset")) {
+      this.discriminatorOffset = ((Numeric) args.value("offset")).value().intValue();
+      this.discriminatorWidth = ((Numeric) args.value("width")).value().intValue();
+      if (discriminatorOffset < 0 || discriminatorWidth <= 0) {
+        throw new DirectiveParseException(
+          NAME, String.format("Discriminator offset %d and width %d are invalid.",
+                              discriminatorOffset, discriminatorWidth));
+      }
+    } else if (layouts.length > 1) {
+      throw new DirectiveParseException(
+        NAME, "The offset and width of the discriminator field are required when multiple layouts are specified.");
+    }
+
+    try {
+      this.charset = args.contains("charset") ?
+        Charset.forName(((Text) args.value("charset")).value()) : StandardCharsets.UTF_8;
+    } catch (IllegalArgumentException e) {
+      throw new DirectiveParseException(NAME, e.getMessage(), e);
+    }
+
+    if (discriminatorWidth > 0) {
+      this.keys = new byte[layouts.length][];
+      for (int i = 0; i < layouts.length; i++) {
+        String key = layouts[i].getKey();
+        if (key == null || key.length() != discriminatorWidth) {
+          throw new DirectiveParseException(
+            NAME, String.format("Layout %d should have a key of %d characters matching the discriminator field, " +
+                                  "specified as '<key>=<fields>'.", i + 1, discriminatorWidth));
+        }
+        keys[i] = key.getBytes(charset);
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+    // no-op
+  }
+
+  @Override
+  public List<Row> execute(List<Row> rows, ExecutorContext context)
+    throws DirectiveExecutionException, ErrorRowException {
+    List<Row> results = new ArrayList<>();
+    for (Row row : rows) {
+      int idx = row.find(col);
+      if (idx == -1) {
+        continue;
+      }
+      Object object = row.getValue(idx);
+      if (object == null) {
+        throw new DirectiveExecutionException(
+          NAME, String.format("Column '%s' has null value. It should be a non-null 'String' or 'byte[]'.", col));
+      }
+
+      int mark = results.size();
+      try {
+        if (object instanceof String) {
+          parse((String) object, row, results);
+        } else if (object instanceof byte[]) {
+          parse((byte[]) object, row, results);
+        } else {
+          throw new DirectiveExecutionException(
+            NAME, String.format("Column '%s' has invalid type '%s'. It should be of type 'String' or 'byte[]'.",
+                                col, object.getClass().getSimpleName()));
+        }
+      } catch (IllegalArgumentException e) {
+        // Rows of the records already parsed from this value are discarded along with it.
+        results.subList(mark, results.size()).clear();
+        throw new ErrorRowException(NAME, e.getMessage(), 2);
+      }
+    }
+    return results;
+  }
+
+  private void parse(String data, Row row, List<Row> results) {
+    int length = data.length();
+    int start = 0;
+    while (start < length) {
+      FixedLengthLayout layout = start + minLength > length ? null : layout(data, start);
+      if (layout == null || start + layout.getLength() > length) {
+        if (start == 0 || !data.substring(start).trim().isEmpty()) {
+          throw incomplete(start, length);
+        }
+        break;
+      }
+      // A value holding a single record is parsed in place, without copying the row.
+      Row target = start == 0 && layout.getLength() == length ? row : new Row(row);
+      layout.read(data, start, target);
+      results.add(target);
+      start += layout.getLength();
+    }
+  }
+
+  private void parse(byte[] data, Row row, List<Row> results) {
+    int length = data.length;
+    int start = 0;
+    while (start < length) {
+      FixedLengthLayout layout = start + minLength > length ? null : layout(data, start);
+      if (layout == null || start + layout.getLength() > length) {
+        if (start == 0 || !new String(data, start, length - start, charset).trim().isEmpty()) {
+          throw incomplete(start, length);
+        }
+        break;
+      }
+      Row target = start == 0 && layout.getLength() == length ? row : new Row(row);
+      layout.read(data, start, charset, target);
+      results.add(target);
+      start += layout.getLength();
+    }
+  }
+
+  /**
+   * @return error for a value without a complete record, or ending with a partial record
+   */
+  private IllegalArgumentException incomplete(int start, int length) {
+    if (start == 0) {
+      return new IllegalArgumentException(
+        String.format("Column '%s' contains a value with fewer characters than the specified length " +
+                        "of the record. Found %d characters.", col, length));
+    }
+    return new IllegalArgumentException(
+      String.format("Column '%s' contains a partial record of %d characters at offset %d, shorter than its layout.",
+                    col, length - start, start));
+  }
+
+  /**
+   * @return layout of the record starting at <tt>start</tt>, null if the data ends before the discriminator.
+   */
+  private FixedLengthLayout layout(String data, int start) {
+    if (discriminatorWidth == 0) {
+      return layouts[0];
+    }
+    int offset = start + discriminatorOffset;
+    if (offset + discriminatorWidth > data.length()) {
+      return null;
+    }
+    for (FixedLengthLayout layout : layouts) {
+      if (data.regionMatches(offset, layout.getKey(), 0, discriminatorWidth)) {
+        return layout;
+      }
+    }
+    throw unknown(start);
+  }
+
+  private FixedLengthLayout layout(byte[] data, int start) {
+    if (discriminatorWidth == 0) {
+      return layouts[0];
+    }
+    int offset = start + discriminatorOffset;
+    if (offset + discriminatorWidth > data.length) {
+      return null;
+    }
+    for (int i = 0; i < keys.length; i++) {
+      byte[] key = keys[i];
+      if (offset + key.length > data.length) {
+        continue;
+      }
+      int j = 0;
+      while (j < key.length && data[offset + j] == key[j]) {
+        j++;
+      }
+      if (j == key.length) {
+        return layouts[i];
+      }
+    }
+    throw unknown(start);
+  }
+
+  private IllegalArgumentException unknown(int start) {
+    return new IllegalArgumentException(
+      String.format("Column '%s' contains a record at offset %d that doesn't match any of the layouts.", col, start));
+  }
+
+  @Override
+  public Mutation lineage() {
+    Set<String> fields = new LinkedHashSet<>();
+    for (FixedLengthLayout layout : layouts) {
+      for (String name : layout.getNames()) {
+        fields.add(name);
+      }
+    }
+    return Mutation.builder()
+      .readable("Parsed column '%s' with fixed length layouts into columns '%s'", col, fields)
+      .relation(col, Many.of(fields))
+      .build();
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ *  Copyright © 2024 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package io.cdap.directives.parser;
+
+import io.cdap.wrangler.api.Row;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A compiled layout of a fixed length record.
+ *
+ * <p>The offsets of all the fields are computed once when the layout is compiled. Fields are then read
+ * directly from the source {@link String} or <tt>byte[]</tt> at those offsets, the record itself is never
+ * copied and trimming is done on offsets, so at most one object is allocated per field.</p>
+ *
+ * <p>A layout is specified as <tt>[key=]field[,field]*</tt>, where each field is
+ * <tt>name:width[:type][:trim]</tt>. The supported types are <tt>string</tt> (default), <tt>int</tt>,
+ * <tt>long</tt>, <tt>float</tt>, <tt>double</tt> and <tt>decimal</tt>. Numeric fields are always trimmed
+ * and are set to <tt>null</tt> when blank.</p>
+ */
+public final class FixedLengthLayout {
+  /**
+   * Types a field can be converted to.
+   */
+  public enum FieldType {
+    STRING,
+    INT,
+    LONG,
+    FLOAT,
+    DOUBLE,
+    DECIMAL
+  }
+
+  private static final String TRIM = "trim";
+  // Numbers with at most these many digits can't overflow a long.
+  private static final int SAFE_LONG_DIGITS = 18;
+
+  private final String key;
+  private final String[] names;
+  private final int[] offsets;
+  private final int[] widths;
+  private final boolean[] trims;
+  private final FieldType[] types;
+  private final int length;
+
+  private FixedLengthLayout(String key, String[] names, int[] widths, boolean[] trims, FieldType[] types) {
+    this.key = key;
+    this.names = names;
+    this.widths = widths;
+    this.trims = trims;
+    this.types = types;
+    this.offsets = new int[widths.length];
+    int offset = 0;
+    for (int i = 0; i < widths.length; i++) {
+      offsets[i] = offset;
+      offset += widths[i];
+    }
+    this.length = offset;
+  }
+
+  /**
+   * Compiles a layout specification.
+   *
+   * @param specification of the layout, <tt>[key=]field[,field]*</tt>.
+   * @return compiled instance of {@link FixedLengthLayout}.
+   * @throws IllegalArgumentException if the specification is invalid.
+   */
+  public static FixedLengthLayout compile(String specification) {
+    String fields = specification.trim();
+    String key = null;
+    int separator = fields.indexOf('=');
+    if (separator != -1) {
+      key = fields.substring(0, separator).trim();
+      fields = fields.substring(separator + 1);
+    }
+
+    String[] parts = fields.split(",");
+    String[] names = new String[parts.length];
+    int[] widths = new int[parts.length];
+    boolean[] trims = new boolean[parts.length];
+    FieldType[] types = new FieldType[parts.length];
+    Set<String> seen = new HashSet<>();
+    for (int i = 0; i < parts.length; i++) {
+      String[] attributes = parts[i].trim().split(":");
+      if (attributes.length < 2 || attributes[0].trim().isEmpty()) {
+        throw new IllegalArgumentException(
+          String.format("Field '%s' is invalid, it should be specified as 'name:width[:type][:trim]'.", parts[i]));
+      }
+      names[i] = attributes[0].trim();
+      if (!seen.add(names[i])) {
+        throw new IllegalArgumentException(String.format("Field '%s' is defined more than once.", names[i]));
+      }
+      try {
+        widths[i] = Integer.parseInt(attributes[1].trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+          String.format("Width '%s' of field '%s' is not a number.", attributes[1], names[i]));
+      }
+      if (widths[i] <= 0) {
+        throw new IllegalArgumentException(
+          String.format("Width of field '%s' should be greater than 0, but is %d.", names[i], widths[i]));
+      }
+      types[i] = FieldType.STRING;
+      for (int j = 2; j < attributes.length; j++) {
+        String attribute = attributes[j].trim().toLowerCase(Locale.ENGLISH);
+        if (TRIM.equals(attribute)) {
+          trims[i] = true;
+        } else {
+          try {
+            types[i] = FieldType.valueOf(attribute.toUpperCase(Locale.ENGLISH));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+              String.format("Type '%s' of field '%s' is not supported.", attributes[j], names[i]));
+          }
+        }
+      }
+      trims[i] = trims[i] || types[i] != FieldType.STRING;
+    }
+    return new FixedLengthLayout(key, names, widths, trims, types);
+  }
+
+  /**
+   * @return key of the layout, used to match the discriminator value, null if not specified.
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return names of the fields, in the order they appear in the record.
+   */
+  public String[] getNames() {
+    return names;
+  }
+
+  /**
+   * @return total length of the record described by this layout.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Adds the fields of the record starting at <tt>start</tt> to the row, replacing the columns of the same name.
+   * The row is only modified once all the fields are converted, so it is left unchanged if one of them can't be.
+   *
+   * @param data from which the record is read.
+   * @param start offset of the first character of the record.
+   * @param row to which the fields are added.
+   * @throws IllegalArgumentException if a field can't be converted to its type.
+   */
+  public void read(String data, int start, Row row) {
+    Object[] values = new Object[names.length];
+    for (int i = 0; i < names.length; i++) {
+      int begin = start + offsets[i];
+      int end = begin + widths[i];
+      if (trims[i]) {
+        while (begin < end && data.charAt(begin) <= ' ') {
+          begin++;
+        }
+        while (end > begin && data.charAt(end - 1) <= ' ') {
+          end--;
+        }
+      }
+      switch (types[i]) {
+        case STRING:
+          values[i] = data.substring(begin, end);
+          break;
+        case INT:
+          values[i] = begin == end ? null : toInt(names[i], parseLong(names[i], data, begin, end));
+          break;
+        case LONG:
+          values[i] = begin == end ? null : parseLong(names[i], data, begin, end);
+          break;
+        default:
+          values[i] = begin == end ? null : convert(i, data.substring(begin, end));
+          break;
+      }
+    }
+    set(row, values);
+  }
+
+  /**
+   * Adds the fields of the record starting at <tt>start</tt> to the row, replacing the columns of the same name,
+   * widths being in bytes. The row is only modified once all the fields are converted.
+   *
+   * @param data from which the record is read.
+   * @param start offset of the first byte of the record.
+   * @param charset used to decode the fields.
+   * @param row to which the fields are added.
+   * @throws IllegalArgumentException if a field can't be converted to its type.
+   */
+  public void read(byte[] data, int start, Charset charset, Row row) {
+    Object[] values = new Object[names.length];
+    for (int i = 0; i < names.length; i++) {
+      String value = new String(data, start + offsets[i], widths[i], charset);
+      if (trims[i]) {
+        value = value.trim();
+      }
+      values[i] = types[i] == FieldType.STRING ? value : (value.isEmpty() ? null : convert(i, value));
+    }
+    set(row, values);
+  }
+
+  private void set(Row row, Object[] values) {
+    for (int i = 0; i < names.length; i++) {
+      row.addOrSet(names[i], values[i]);
+    }
+  }
+
+  private Object convert(int field, String value) {
+    try {
+      switch (types[field]) {
+        case INT:
+          return Integer.parseInt(value);
+        case LONG:
+          return Long.parseLong(value);
+        case FLOAT:
+          return Float.parseFloat(value);
+        case DOUBLE:
+          return Double.parseDouble(value);
+        case DECIMAL:
+          return new BigDecimal(value);
+        default:
+          return value;
+      }
+    } catch (NumberFormatException e) {
+      throw invalid(names[field], value);
+    }
+  }
+
+  /**
+   * Parses the digits between <tt>begin</tt> and <tt>end</tt> without extracting them from the data.
+   */
+  private static long parseLong(String name, String data, int begin, int end) {
+    int i = begin;
+    boolean negative = false;
+    char first = data.charAt(i);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      i++;
+    }
+    if (i == end || end - i > SAFE_LONG_DIGITS) {
+      return parseLongSlow(name, data.substring(begin, end));
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      char c = data.charAt(i);
+      if (c < '0' || c > '9') {
+        throw invalid(name, data.substring(begin, end));
+      }
+      value = value * 10 + (c - '0');
+    }
+    return negative ? -value : value;
+  }
+
+  private static long parseLongSlow(String name, String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw invalid(name, value);
+    }
+  }
+
+  private static int toInt(String name, long value) {
+    if (value != (int) value) {
+      throw invalid(name, Long.toString(value));
+    }
+    return (int) value;
+  }
+
+  private static IllegalArgumentException invalid(String name, String value) {
+    return new IllegalArgumentException(
+      String.format("Value '%s' of field '%s' can't be converted to its type.", value, name));
+  }
+}
@@ -40,6 +40,7 @@ import io.cdap.wrangler.api.parser.UsageDefinition;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * A Fixed length Parser Stage for parsing the {@link Row} provided based on configuration.
@@ -52,7 +53,7 @@ public final class FixedLengthParser implements Directive, Lineage {
   public static final String NAME = "parse-as-fixed-length";
   private int[] widths;
   private String col;
-  private String padding;
+  private Pattern padding;
   private int recordLength;
 
   @Override
@@ -78,7 +79,7 @@ public final class FixedLengthParser implements Directive, Lineage {
     }
     this.recordLength = sum;
     if (args.contains("padding")) {
-      this.padding = ((Text) args.value("padding")).value();
+      this.padding = Pattern.compile(((Text) args.value("padding")).value());
     } else {
       this.padding = null;
     }
@@ -122,7 +123,7 @@ public final class FixedLengthParser implements Directive, Lineage {
             for (int width : widths) {
               String val = data.substring(recPosition - 1, recPosition + width - 1);
               if (padding != null) {
-                val = val.replaceAll(padding, "");
+                val = padding.matcher(val).replaceAll("");
               }
               newRow.add(String.format("%s_%d", col, colid), val);
               recPosition += width;
@@ -35,16 +35,33 @@ import io.cdap.wrangler.api.lineage.Many;
 import io.cdap.wrangler.api.lineage.Mutation;
 import io.cdap.wrangler.api.parser.ColumnName;
 import io.cdap.wrangler.api.parser.Text;
+import io.cdap.wrangler.api.parser.TextList;
 import io.cdap.wrangler.api.parser.TokenType;
 import io.cdap.wrangler.api.parser.UsageDefinition;
+import org.antlr.runtime.tree.Tree;
 
+import java.text.ParsePosition;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 /**
  * A Executor to parse date.
+ *
+ * <p>Values are first matched against the optional list of formats, and only parsed using natural language
+ * processing when none of them match. The dates parsed from a value are memoized, unless they depend on the
+ * time the value is parsed, such as <tt>tomorrow</tt> or <tt>oct 1st</tt>.</p>
  */
 @Plugin(type = Directive.TYPE)
 @Name("parse-as-date")
@@ -53,14 +70,21 @@ import java.util.TimeZone;
   "automatically identifying the format (expensive in terms of time consumed).")
 public class ParseDate implements Directive, Lineage {
   public static final String NAME = "parse-as-date";
+  // Maximum number of values for which the parsed dates are memoized.
+  private static final int MAX_CACHED_VALUES = 1024;
   private String column;
   private TimeZone timezone;
+  private ZoneId zone;
+  private List<DateTimeFormatter> formatters;
+  private Parser parser;
+  private Map<String, List<List<ZonedDateTime>>> cache;
 
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
     builder.define("column", TokenType.COLUMN_NAME);
     builder.define("timezone", TokenType.TEXT, Optional.TRUE);
+    builder.define("formats", TokenType.TEXT_LIST, Optional.TRUE);
     return builder.build();
   }
 
@@ -72,6 +96,25 @@ public class ParseDate implements Directive, Lineage {
     } else {
       this.timezone = TimeZone.getTimeZone("UTC");
     }
+    this.zone = timezone.toZoneId();
+    this.formatters = new ArrayList<>();
+    if (args.contains("formats")) {
+      for (String format : ((TextList) args.value("formats")).value()) {
+        try {
+          formatters.add(DateTimeFormatter.ofPattern(format));
+        } catch (IllegalArgumentException e) {
+          throw new DirectiveParseException(
+            NAME, String.format("Format '%s' is invalid. %s", format, e.getMessage()), e);
+        }
+      }
+    }
+    this.parser = new Parser(timezone);
+    this.cache = new LinkedHashMap<String, List<List<ZonedDateTime>>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, List<List<ZonedDateTime>>> eldest) {
+        return size() > MAX_CACHED_VALUES;
+      }
+    };
   }
 
   @Override
@@ -100,13 +143,10 @@ public class ParseDate implements Directive, Lineage {
           continue;
         }
         if (object instanceof String) {
-          Parser parser = new Parser(timezone);
-          List<DateGroup> groups = parser.parse((String) object);
           int i = 1;
-          for (DateGroup group : groups) {
-            List<Date> dates = group.getDates();
-            for (Date date : dates) {
-              row.add(String.format("%s_%d", column, i), date.toInstant().atZone(timezone.toZoneId()));
+          for (List<ZonedDateTime> group : parse((String) object)) {
+            for (ZonedDateTime date : group) {
+              row.add(String.format("%s_%d", column, i), date);
             }
             i++;
           }
@@ -119,4 +159,100 @@ public class ParseDate implements Directive, Lineage {
     }
     return rows;
   }
+
+  /**
+   * @return the dates of each date group found in the value.
+   */
+  private List<List<ZonedDateTime>> parse(String value) {
+    List<List<ZonedDateTime>> dates = cache.get(value);
+    if (dates != null) {
+      return dates;
+    }
+
+    ZonedDateTime formatted = format(value);
+    if (formatted != null) {
+      dates = Collections.singletonList(Collections.singletonList(formatted));
+      cache.put(value, dates);
+      return dates;
+    }
+
+    List<DateGroup> groups = parser.parse(value);
+    dates = new ArrayList<>(groups.size());
+    boolean cacheable = true;
+    for (DateGroup group : groups) {
+      List<ZonedDateTime> values = new ArrayList<>(group.getDates().size());
+      for (Date date : group.getDates()) {
+        values.add(date.toInstant().atZone(zone));
+      }
+      dates.add(values);
+      cacheable = cacheable && !group.isRecurring() && !group.isDateInferred() && !group.isTimeInferred()
+        && isAbsolute(group.getSyntaxTree());
+    }
+    if (cacheable) {
+      cache.put(value, Collections.unmodifiableList(dates));
+    }
+    return dates;
+  }
+
+  /**
+   * @return date parsed using the first matching format, null if none of them match.
+   */
+  private ZonedDateTime format(String value) {
+    for (DateTimeFormatter formatter : formatters) {
+      // Rejects values that don't match the format without the cost of an exception.
+      ParsePosition position = new ParsePosition(0);
+      if (formatter.parseUnresolved(value, position) == null || position.getIndex() != value.length()) {
+        continue;
+      }
+      try {
+        TemporalAccessor accessor = formatter.parseBest(value, ZonedDateTime::from, LocalDateTime::from,
+                                                        LocalDate::from);
+        if (accessor instanceof ZonedDateTime) {
+          return ((ZonedDateTime) accessor).withZoneSameInstant(zone);
+        } else if (accessor instanceof LocalDateTime) {
+          return ((LocalDateTime) accessor).atZone(zone);
+        }
+        return ((LocalDate) accessor).atStartOfDay(zone);
+      } catch (DateTimeParseException e) {
+        // Fields are missing or invalid, try the next format.
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true if the dates of the syntax tree don't depend on the time they are parsed.
+   */
+  private static boolean isAbsolute(Tree tree) {
+    if (tree == null) {
+      return false;
+    }
+    String text = tree.getText();
+    if ("RELATIVE_DATE".equals(text) || "RELATIVE_TIME".equals(text) || "SEEK".equals(text)) {
+      return false;
+    }
+    if ("DATE_TIME".equals(text) && !hasYear(tree)) {
+      return false;
+    }
+    for (int i = 0; i < tree.getChildCount(); i++) {
+      if (!isAbsolute(tree.getChild(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasYear(Tree tree) {
+    for (int i = 0; i < tree.getChildCount(); i++) {
+      Tree child = tree.getChild(i);
+      if ("EXPLICIT_DATE".equals(child.getText())) {
+        for (int j = 0; j < child.getChildCount(); j++) {
+          if ("YEAR_OF".equals(child.getChild(j).getText())) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
 }
@@ -19,11 +19,15 @@ package io.cdap.directives.parser;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.directives.column.Drop;
+import io.cdap.directives.column.Keep;
 import io.cdap.wrangler.api.Arguments;
 import io.cdap.wrangler.api.Directive;
 import io.cdap.wrangler.api.DirectiveExecutionException;
 import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.DownstreamAware;
 import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Optional;
 import io.cdap.wrangler.api.Row;
 import io.cdap.wrangler.api.annotations.Categories;
 import io.cdap.wrangler.api.lineage.Lineage;
@@ -31,32 +35,63 @@ import io.cdap.wrangler.api.lineage.Many;
 import io.cdap.wrangler.api.lineage.Mutation;
 import io.cdap.wrangler.api.parser.ColumnName;
 import io.cdap.wrangler.api.parser.Text;
+import io.cdap.wrangler.api.parser.TextList;
 import io.cdap.wrangler.api.parser.TokenType;
 import io.cdap.wrangler.api.parser.UsageDefinition;
 import nl.basjes.parse.core.Parser;
 import nl.basjes.parse.httpdlog.ApacheHttpdLoglineParser;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 /**
  * A Executor for parsing Apache HTTPD and NGINX log files.
+ *
+ * <p>Only the fields that are needed are registered with the log parser, the others are never dissected.
+ * They are either specified explicitly or derived from the <tt>keep</tt> and <tt>drop</tt> directives that
+ * immediately follow this one in the recipe. Parsers are expensive to build and not thread-safe, so they are
+ * shared by all the directives of a thread using the same format and fields, and looked up on each execution.</p>
  */
 @Plugin(type = Directive.TYPE)
 @Name("parse-as-log")
 @Categories(categories = { "parser", "logs"})
 @Description("Parses Apache HTTPD and NGINX logs.")
-public class ParseLog implements Directive, Lineage {
+public class ParseLog implements Directive, DownstreamAware, Lineage {
   public static final String NAME = "parse-as-log";
+  private static final Pattern INVALID_CHARACTERS = Pattern.compile("[^a-zA-Z0-9_]");
+  private static final String WILDCARD = ".*";
+  // Maximum number of parsers cached per thread.
+  private static final int MAX_CACHED_PARSERS = 16;
+  private static final ThreadLocal<Map<String, CompiledParser>> PARSERS = ThreadLocal.withInitial(
+    () -> new LinkedHashMap<String, CompiledParser>(MAX_CACHED_PARSERS, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CompiledParser> eldest) {
+        return size() > MAX_CACHED_PARSERS;
+      }
+    });
+
   private String column;
   private String format;
-  private LogLine line;
-  private Parser<Object> parser;
+  // Columns the parser should produce, null when all of them are needed.
+  private Set<String> fields;
+  // Columns that are not needed, used when the fields are not known.
+  private Set<String> excluded = Collections.emptySet();
 
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
     builder.define("column", TokenType.COLUMN_NAME);
     builder.define("format", TokenType.TEXT);
+    builder.define("fields", TokenType.TEXT_LIST, Optional.TRUE);
     return builder.build();
   }
 
@@ -64,13 +99,57 @@ public class ParseLog implements Directive, Lineage {
   public void initialize(Arguments args) throws DirectiveParseException {
     this.column = ((ColumnName) args.value("column")).value();
     this.format = ((Text) args.value("format")).value();
-    this.parser = new ApacheHttpdLoglineParser<>(Object.class, format);
-    this.line = new LogLine();
-    List<String> paths = this.parser.getPossiblePaths();
-    try {
-      parser.addParseTarget(LogLine.class.getMethod("setValue", String.class, String.class), paths);
-    } catch (NoSuchMethodException e) {
-      // This should never happen, as the class is defined within this class.
+    if (args.contains("fields")) {
+      this.fields = new HashSet<>();
+      for (String field : ((TextList) args.value("fields")).value()) {
+        fields.add(field.trim());
+      }
+    }
+    // Validates the format and the fields, the parser is then reused by the executions on this thread.
+    CompiledParser compiled = compile();
+    if (compiled.columns.isEmpty()) {
+      throw new DirectiveParseException(
+        NAME, String.format("None of the fields %s can be extracted from logs with format '%s'.", fields, format));
+    }
+  }
+
+  /**
+   * Restricts the fields extracted from the logs using the <tt>keep</tt> and <tt>drop</tt> directives
+   * immediately following this directive. Fields specified explicitly are left as is.
+   */
+  @Override
+  public void downstream(List<Directive> directives) {
+    if (fields != null) {
+      return;
+    }
+    Set<String> dropped = new HashSet<>();
+    Set<String> kept = null;
+    for (int j = 0; j < directives.size() && kept == null; j++) {
+      Directive next = directives.get(j);
+      if (next instanceof Drop) {
+        for (String name : ((Drop) next).getColumns()) {
+          dropped.add(name.trim());
+        }
+      } else if (next instanceof Keep) {
+        kept = new HashSet<>(((Keep) next).getColumns());
+        kept.removeAll(dropped);
+      } else {
+        break;
+      }
+    }
+    narrow(kept, dropped);
+  }
+
+  private void narrow(Set<String> kept, Set<String> dropped) {
+    if (kept != null) {
+      Set<String> previous = fields;
+      fields = kept;
+      // When none of the kept columns come from the logs, the parser is left as it is.
+      if (compile().columns.isEmpty()) {
+        fields = previous;
+      }
+    } else if (!dropped.isEmpty()) {
+      excluded = dropped;
     }
   }
 
@@ -81,6 +160,9 @@ public class ParseLog implements Directive, Lineage {
 
   @Override
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
+    CompiledParser compiled = compile();
+    LogLine line = new LogLine(compiled.columns);
+
     // Iterate through all the rows.
     for (Row row : rows) {
       int idx = row.find(column);
@@ -105,7 +187,7 @@ public class ParseLog implements Directive, Lineage {
         }
         line.set(row);
         try {
-          parser.parse(line, log);
+          compiled.parser.parse(line, log);
         } catch (Exception e) {
           row.addOrSet("log.parse.error", 1);
         }
@@ -114,6 +196,31 @@ public class ParseLog implements Directive, Lineage {
     return rows;
   }
 
+  /**
+   * @return the parser for the format with only the needed fields registered, shared within the thread.
+   */
+  private CompiledParser compile() {
+    String key = format + '\n' + (fields == null ? "" : new TreeSet<>(fields)) + '\n' + new TreeSet<>(excluded);
+    Map<String, CompiledParser> parsers = PARSERS.get();
+    CompiledParser compiled = parsers.get(key);
+    if (compiled == null) {
+      compiled = new CompiledParser(format, fields, excluded);
+      parsers.put(key, compiled);
+    }
+    return compiled;
+  }
+
+  /**
+   * @return name of the column to which the value of a log field is written, null if it's not written.
+   */
+  private static String toColumn(String name) {
+    String key = name.toLowerCase(Locale.ENGLISH);
+    if (key.contains("original") || key.contains("bytesclf") || key.contains("cookie")) {
+      return null;
+    }
+    return INVALID_CHARACTERS.matcher(key).replaceAll("_");
+  }
+
   @Override
   public Mutation lineage() {
     return Mutation.builder()
@@ -122,18 +229,73 @@ public class ParseLog implements Directive, Lineage {
       .build();
   }
 
+  /**
+   * A log parser with the parse targets registered, along with the column of each target.
+   */
+  private static final class CompiledParser {
+    private final Parser<Object> parser;
+    private final Map<String, String> columns = new HashMap<>();
+
+    CompiledParser(String format, Set<String> fields, Set<String> excluded) {
+      this.parser = new ApacheHttpdLoglineParser<>(Object.class, format);
+      List<String> targets = new ArrayList<>();
+      for (String path : parser.getPossiblePaths()) {
+        String name = toColumn(path);
+        if (name == null || excluded.contains(name)) {
+          continue;
+        }
+        if (fields == null || fields.contains(name) || fields.contains(path) || matches(path, name, fields)) {
+          targets.add(path);
+          columns.put(path, name);
+        }
+      }
+      if (targets.isEmpty()) {
+        return;
+      }
+      try {
+        parser.addParseTarget(LogLine.class.getMethod("setValue", String.class, String.class), targets);
+      } catch (NoSuchMethodException e) {
+        // This should never happen, as the class is defined within this class.
+      }
+    }
+
+    /**
+     * Wildcard paths, such as the query string parameters, match the fields starting with their prefix.
+     */
+    private static boolean matches(String path, String name, Set<String> fields) {
+      if (!path.endsWith(WILDCARD)) {
+        return false;
+      }
+      String prefix = name.substring(0, name.length() - 1);
+      for (String field : fields) {
+        if (field.startsWith(prefix)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
   /**
    * A log line
    */
-  public final class LogLine {
+  public static final class LogLine {
+    private final Map<String, String> columns;
     private Row row;
 
+    LogLine(Map<String, String> columns) {
+      this.columns = columns;
+    }
+
     public void setValue(String name, String value) {
-      String key = name.toLowerCase();
-      if (key.contains("original") || key.contains("bytesclf") || key.contains("cookie")) {
-        return;
+      String key = columns.get(name);
+      if (key == null) {
+        // Values of wildcard paths are set with their actual name.
+        key = toColumn(name);
+        if (key == null) {
+          return;
+        }
       }
-      key = key.replaceAll("[^a-zA-Z0-9_]", "_");
       row.addOrSet(key, value);
     }
 
@@ -0,0 +1,302 @@
+/*
+ *  Copyright © 2024 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package io.cdap.directives.xml;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.wrangler.api.Arguments;
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.annotations.Categories;
+import io.cdap.wrangler.api.lineage.Lineage;
+import io.cdap.wrangler.api.lineage.Mutation;
+import io.cdap.wrangler.api.parser.ColumnName;
+import io.cdap.wrangler.api.parser.ColumnNameList;
+import io.cdap.wrangler.api.parser.TextList;
+import io.cdap.wrangler.api.parser.TokenType;
+import io.cdap.wrangler.api.parser.UsageDefinition;
+
+import java.util.List;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A directive for extracting values from a XML document using simple XPath style expressions.
+ *
+ * <p>All the paths are compiled once and are evaluated together in a single streaming pass over
+ * the document, without building any tree. Parsing stops as soon as every path has been resolved.</p>
+ */
+@Plugin(type = Directive.TYPE)
+@Name(XmlPath.NAME)
+@Categories(categories = { "xml", "parser"})
+@Description("Extracts values from a XML document using simple XPath expressions in a single pass.")
+public class XmlPath implements Directive, Lineage {
+  public static final String NAME = "xpath";
+  // Maximum number of paths that can be evaluated by a single directive.
+  public static final int MAX_PATHS = 64;
+  private String column;
+  private List<String> destinations;
+  private List<String> expressions;
+  private Path[] paths;
+  private XmlStreamConverter converter;
+
+  @Override
+  public UsageDefinition define() {
+    UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
+    builder.define("column", TokenType.COLUMN_NAME);
+    builder.define("destination", TokenType.COLUMN_NAME_LIST);
+    builder.define("xpath", TokenType.TEXT_LIST);
+    return builder.build();
+  }
+
+  @Override
+  public void initialize(Arguments args) throws DirectiveParseException {
+    this.column = ((ColumnName) args.value("column")).value();
+    this.destinations = ((ColumnNameList) args.value("destination")).value();
+    this.expressions = ((TextList) args.value("xpath")).value();
+    if (destinations.size() != expressions.size()) {
+      throw new DirectiveParseException(
+        NAME, String.format("Number of destination columns (%d) does not match the number of paths (%d).",
+                            destinations.size(), expressions.size()));
+    }
+    if (expressions.size() > MAX_PATHS) {
+      throw new DirectiveParseException(
+        NAME, String.format("At most %d paths can be evaluated by a single directive, found %d.",
+                            MAX_PATHS, expressions.size()));
+    }
+    this.paths = new Path[expressions.size()];
+    for (int i = 0; i < paths.length; i++) {
+      paths[i] = Path.compile(expressions.get(i));
+    }
+    this.converter = new XmlStreamConverter();
+  }
+
+  @Override
+  public void destroy() {
+    // no-op
+  }
+
+  @Override
+  public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
+    for (Row row : rows) {
+      int idx = row.find(column);
+      if (idx == -1) {
+        continue;
+      }
+      Object object = row.getValue(idx);
+      if (object == null) {
+        for (String destination : destinations) {
+          row.addOrSet(destination, null);
+        }
+        continue;
+      }
+      if (!(object instanceof String)) {
+        throw new DirectiveExecutionException(
+          NAME, String.format("Column '%s' has invalid type '%s'. It should be of type 'String'.",
+                              column, object.getClass().getSimpleName()));
+      }
+
+      String[] values;
+      try {
+        values = evaluate((String) object);
+      } catch (XMLStreamException e) {
+        throw new DirectiveExecutionException(NAME, e.getMessage(), e);
+      }
+      for (int i = 0; i < values.length; i++) {
+        row.addOrSet(destinations.get(i), values[i]);
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Evaluates all the paths against the document in a single pass.
+   *
+   * @param xml document to be evaluated.
+   * @return value of the first node matched by each path, or null when there was no match.
+   */
+  private String[] evaluate(String xml) throws XMLStreamException {
+    int count = paths.length;
+    String[] values = new String[count];
+    // Number of leading element steps of each path matched by the currently open elements.
+    int[] matched = new int[count];
+    // Text collected for the element paths that are currently matching.
+    StringBuilder[] texts = new StringBuilder[count];
+    int resolved = 0;
+    int depth = 0;
+
+    XMLStreamReader reader = converter.open(xml);
+    try {
+      while (resolved < count && reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            depth++;
+            for (int i = 0; i < count; i++) {
+              Path path = paths[i];
+              if (values[i] != null || matched[i] != depth - 1 || depth > path.steps.length
+                || !path.matches(depth - 1, reader.getPrefix(), reader.getLocalName())) {
+                continue;
+              }
+              matched[i] = depth;
+              if (depth < path.steps.length) {
+                continue;
+              }
+              if (path.attribute == null) {
+                texts[i] = new StringBuilder();
+              } else {
+                String value = attribute(reader, path.attribute);
+                if (value != null) {
+                  values[i] = value;
+                  resolved++;
+                }
+              }
+            }
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            for (int i = 0; i < count; i++) {
+              if (matched[i] != depth) {
+                continue;
+              }
+              matched[i] = depth - 1;
+              if (texts[i] != null && values[i] == null) {
+                values[i] = texts[i].toString().trim();
+                texts[i] = null;
+                resolved++;
+              }
+            }
+            depth--;
+            break;
+
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            for (int i = 0; i < count; i++) {
+              if (texts[i] != null) {
+                texts[i].append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+              }
+            }
+            break;
+
+          case XMLStreamConstants.ENTITY_REFERENCE:
+            // Entity references have no characters to read in place, unlike the other text events
+            String text = XmlStreamConverter.text(reader);
+            for (int i = 0; i < count; i++) {
+              if (texts[i] != null) {
+                texts[i].append(text);
+              }
+            }
+            break;
+
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return values;
+  }
+
+  private static String attribute(XMLStreamReader reader, String name) {
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      String localName = reader.getAttributeLocalName(i);
+      if (name.equals(localName)
+        || name.equals(XmlStreamConverter.qualifiedName(reader.getAttributePrefix(i), localName))) {
+        return reader.getAttributeValue(i);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Mutation lineage() {
+    Mutation.Builder builder = Mutation.builder()
+      .readable("Extracted values from column '%s' represented as XML to destination columns '%s' using paths '%s'",
+                column, destinations, expressions);
+    for (String destination : destinations) {
+      builder.conditional(column, destination);
+    }
+    return builder.build();
+  }
+
+  /**
+   * A compiled path made of absolute element steps, optionally followed by an attribute step.
+   *
+   * <p>Element steps match either the qualified name (<tt>prefix:name</tt>) or, when the step has no
+   * prefix, the local name of an element. <tt>*</tt> matches any element.</p>
+   */
+  static final class Path {
+    private static final String WILDCARD = "*";
+    private final String[] steps;
+    private final String attribute;
+
+    private Path(String[] steps, String attribute) {
+      this.steps = steps;
+      this.attribute = attribute;
+    }
+
+    static Path compile(String expression) throws DirectiveParseException {
+      String path = expression.trim();
+      if (!path.startsWith("/") || path.startsWith("//") || path.endsWith("/")) {
+        throw new DirectiveParseException(
+          NAME, String.format("Path '%s' is not supported. Only absolute paths such as '/a/b/c' or '/a/b/@c' " +
+                                "are supported.", expression));
+      }
+
+      String[] parts = path.substring(1).split("/");
+      String attribute = null;
+      int elements = parts.length;
+      String last = parts[parts.length - 1];
+      if (last.startsWith("@")) {
+        attribute = last.substring(1);
+        elements--;
+      } else if (last.equals("text()")) {
+        elements--;
+      }
+      if (elements == 0 || (attribute != null && attribute.isEmpty())) {
+        throw new DirectiveParseException(
+          NAME, String.format("Path '%s' does not select any element.", expression));
+      }
+
+      String[] steps = new String[elements];
+      for (int i = 0; i < elements; i++) {
+        String step = parts[i].trim();
+        if (step.isEmpty() || step.startsWith("@") || step.contains("[") || step.contains("(")) {
+          throw new DirectiveParseException(
+            NAME, String.format("Invalid step '%s' in path '%s'. Predicates, functions and axes are not supported.",
+                                parts[i], expression));
+        }
+        steps[i] = step;
+      }
+      return new Path(steps, attribute);
+    }
+
+    boolean matches(int step, String prefix, String localName) {
+      String expected = steps[step];
+      if (WILDCARD.equals(expected) || expected.equals(localName)) {
+        return true;
+      }
+      return expected.equals(XmlStreamConverter.qualifiedName(prefix, localName));
+    }
+  }
+}
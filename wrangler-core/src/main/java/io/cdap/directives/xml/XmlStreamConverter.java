@@ -0,0 +1,260 @@
+/*
+ *  Copyright © 2024 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package io.cdap.directives.xml;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+import org.json.JSONException;
+import org.json.XML;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Converts XML documents into Gson {@link JsonObject} in a single StAX pass.
+ *
+ * <p>The structure produced follows the rules of <tt>org.json.XML</tt>: attributes become keys, text
+ * becomes the <tt>content</tt> key, repeated elements are accumulated into arrays and elements holding
+ * only text collapse into their value. Unlike <tt>org.json.XML</tt>, no intermediate <tt>JSONObject</tt>
+ * tree or JSON string is materialized.</p>
+ *
+ * <p>Inputs that are not well-formed documents but were accepted by <tt>org.json.XML</tt>, such as fragments
+ * with several top level elements or with text outside of the root element, are still converted by it.</p>
+ */
+public final class XmlStreamConverter {
+  public static final String CONTENT = "content";
+  private static final JsonParser PARSER = new JsonParser();
+
+  private final XMLInputFactory factory;
+
+  public XmlStreamConverter() {
+    this.factory = XMLInputFactory.newFactory();
+    // Neither DTDs nor external entities are resolved, documents are parsed as standalone. References to entities
+    // other than the predefined ones are reported as such rather than failing the parsing, see text(XMLStreamReader).
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+  }
+
+  /**
+   * Opens a streaming reader over the XML document.
+   *
+   * @param xml document to be read.
+   * @return an instance of {@link XMLStreamReader}, which must be closed by the caller.
+   */
+  public XMLStreamReader open(String xml) throws XMLStreamException {
+    return factory.createXMLStreamReader(new StringReader(xml));
+  }
+
+  /**
+   * Converts the XML document into a {@link JsonObject}.
+   *
+   * @param xml document to be converted.
+   * @param keepStrings true to keep all values as strings, false to coerce them into booleans and numbers.
+   * @return {@link JsonObject} representing the document.
+   */
+  public JsonObject toJson(String xml, boolean keepStrings) throws XMLStreamException {
+    XMLStreamReader reader = open(xml);
+    try {
+      return toJson(reader, keepStrings);
+    } catch (XMLStreamException e) {
+      try {
+        return PARSER.parse(XML.toJSONObject(xml, keepStrings).toString()).getAsJsonObject();
+      } catch (JSONException jsonException) {
+        e.addSuppressed(jsonException);
+        throw e;
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static JsonObject toJson(XMLStreamReader reader, boolean keepStrings) throws XMLStreamException {
+    JsonObject root = new JsonObject();
+    Deque<JsonObject> stack = new ArrayDeque<>();
+    Deque<String> names = new ArrayDeque<>();
+    StringBuilder text = new StringBuilder();
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          if (!stack.isEmpty()) {
+            flushText(stack.peek(), text, keepStrings);
+          }
+          JsonObject element = new JsonObject();
+          for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            String name = prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix;
+            accumulate(element, name, new JsonPrimitive(reader.getNamespaceURI(i)));
+          }
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+            accumulate(element, name, toValue(reader.getAttributeValue(i), keepStrings));
+          }
+          stack.push(element);
+          names.push(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+          break;
+
+        case XMLStreamConstants.END_ELEMENT:
+          JsonObject closed = stack.pop();
+          flushText(closed, text, keepStrings);
+          JsonObject parent = stack.isEmpty() ? root : stack.peek();
+          if (closed.entrySet().isEmpty()) {
+            accumulate(parent, names.pop(), new JsonPrimitive(""));
+          } else if (closed.entrySet().size() == 1 && closed.has(CONTENT)) {
+            accumulate(parent, names.pop(), closed.get(CONTENT));
+          } else {
+            accumulate(parent, names.pop(), closed);
+          }
+          break;
+
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.SPACE:
+        case XMLStreamConstants.ENTITY_REFERENCE:
+          if (!stack.isEmpty()) {
+            text.append(text(reader));
+          }
+          break;
+
+        case XMLStreamConstants.CDATA:
+          if (!stack.isEmpty()) {
+            flushText(stack.peek(), text, keepStrings);
+            if (reader.getTextLength() > 0) {
+              accumulate(stack.peek(), CONTENT, new JsonPrimitive(reader.getText()));
+            }
+          }
+          break;
+
+        default:
+          // Comments, processing instructions and DTDs are ignored.
+          break;
+      }
+    }
+    return root;
+  }
+
+  /**
+   * Returns the text of a text event. An entity reference, which is not expanded since DTDs are not read, has the
+   * text of its replacement when the parser knows it, otherwise the reference as it appears in the document.
+   */
+  public static String text(XMLStreamReader reader) {
+    if (reader.getEventType() != XMLStreamConstants.ENTITY_REFERENCE) {
+      return reader.getText();
+    }
+    String text = reader.getText();
+    return text == null || text.isEmpty() ? "&" + reader.getLocalName() + ";" : text;
+  }
+
+  /**
+   * Builds the name as it appears in the document, that is with the namespace prefix when present.
+   */
+  public static String qualifiedName(String prefix, String localName) {
+    if (prefix == null || prefix.isEmpty()) {
+      return localName;
+    }
+    return prefix + ":" + localName;
+  }
+
+  private static void flushText(JsonObject object, StringBuilder text, boolean keepStrings) {
+    if (text.length() == 0) {
+      return;
+    }
+    String value = text.toString().trim();
+    text.setLength(0);
+    if (!value.isEmpty()) {
+      accumulate(object, CONTENT, toValue(value, keepStrings));
+    }
+  }
+
+  private static void accumulate(JsonObject object, String key, JsonElement value) {
+    JsonElement existing = object.get(key);
+    if (existing == null) {
+      object.add(key, value);
+    } else if (existing.isJsonArray()) {
+      existing.getAsJsonArray().add(value);
+    } else {
+      JsonArray array = new JsonArray();
+      array.add(existing);
+      array.add(value);
+      object.add(key, array);
+    }
+  }
+
+  /**
+   * Coerces the text into a JSON value the same way <tt>org.json.XML.stringToValue</tt> does,
+   * with numbers rendered as <tt>org.json</tt> would have written them.
+   */
+  private static JsonElement toValue(String value, boolean keepStrings) {
+    if (keepStrings || value.isEmpty()) {
+      return new JsonPrimitive(value);
+    }
+    if (value.equalsIgnoreCase("true")) {
+      return new JsonPrimitive(Boolean.TRUE);
+    }
+    if (value.equalsIgnoreCase("false")) {
+      return new JsonPrimitive(Boolean.FALSE);
+    }
+    if (value.equalsIgnoreCase("null")) {
+      return JsonNull.INSTANCE;
+    }
+
+    char initial = value.charAt(0);
+    if ((initial >= '0' && initial <= '9') || initial == '-') {
+      try {
+        if (value.indexOf('.') > -1 || value.indexOf('e') > -1 || value.indexOf('E') > -1 || "-0".equals(value)) {
+          Double d = Double.valueOf(value);
+          if (!d.isInfinite() && !d.isNaN()) {
+            return new JsonPrimitive(new LazilyParsedNumber(numberToString(d)));
+          }
+        } else {
+          Long number = Long.valueOf(value);
+          if (value.equals(number.toString())) {
+            return new JsonPrimitive(new LazilyParsedNumber(value));
+          }
+        }
+      } catch (NumberFormatException e) {
+        // not a number, kept as string.
+      }
+    }
+    return new JsonPrimitive(value);
+  }
+
+  private static String numberToString(Double number) {
+    String string = number.toString();
+    if (string.indexOf('.') > 0 && string.indexOf('e') < 0 && string.indexOf('E') < 0) {
+      int end = string.length();
+      while (string.charAt(end - 1) == '0') {
+        end--;
+      }
+      if (string.charAt(end - 1) == '.') {
+        end--;
+      }
+      string = string.substring(0, end);
+    }
+    return string;
+  }
+}
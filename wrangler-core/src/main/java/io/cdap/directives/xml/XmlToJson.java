@@ -16,8 +16,6 @@
 
 package io.cdap.directives.xml;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
@@ -39,10 +37,9 @@ import io.cdap.wrangler.api.parser.Numeric;
 import io.cdap.wrangler.api.parser.TokenType;
 import io.cdap.wrangler.api.parser.UsageDefinition;
 import org.apache.commons.lang.StringUtils;
-import org.json.JSONException;
-import org.json.XML;
 
 import java.util.List;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * A XML to Json Parser Stage.
@@ -58,7 +55,7 @@ public class XmlToJson implements Directive, Lineage {
   private String col;
   private int depth;
   private boolean keepString;
-  private final Gson gson = new Gson();
+  private XmlStreamConverter converter;
 
   @Override
   public UsageDefinition define() {
@@ -82,7 +79,7 @@ public class XmlToJson implements Directive, Lineage {
       StringUtils.isNotEmpty(args.value(ARG_KEEP_STRING).value().toString())) {
       this.keepString = Boolean.parseBoolean(args.value(ARG_KEEP_STRING).value().toString());
     }
-
+    this.converter = new XmlStreamConverter();
   }
 
   @Override
@@ -103,8 +100,7 @@ public class XmlToJson implements Directive, Lineage {
 
         try {
           if (object instanceof String) {
-            JsonObject element = gson.fromJson(XML.toJSONObject((String) object, this.keepString).toString(),
-                                               JsonElement.class).getAsJsonObject();
+            JsonObject element = converter.toJson((String) object, keepString);
             JsParser.jsonFlatten(element, col, 1, depth, row);
             row.remove(idx);
           } else {
@@ -112,7 +108,7 @@ public class XmlToJson implements Directive, Lineage {
               NAME, String.format("Column '%s' has invalid type '%s'. It should be of type 'String'.",
                                   col, object.getClass().getSimpleName()));
           }
-        } catch (JSONException e) {
+        } catch (XMLStreamException e) {
           throw new DirectiveExecutionException(NAME, e.getMessage(), e);
         }
       }
@@ -36,11 +36,16 @@ import java.util.regex.Pattern;
 public class DateTimePattern {
   private static final List<Map<Pattern, String>> DATE_PATTERN_GROUP_LIST = new ArrayList<>();
   private static final List<Map<Pattern, String>> TIME_PATTERN_GROUP_LIST = new ArrayList<>();
+  private static final PatternIndex DATE_PATTERN_INDEX;
+  private static final PatternIndex TIME_PATTERN_INDEX;
 
   static {
     loadPatterns("DateRegexesGrouped.txt", DATE_PATTERN_GROUP_LIST);
     // Load time patterns
     loadPatterns("TimeRegexes.txt", TIME_PATTERN_GROUP_LIST);
+    // Index the patterns by the shape of the values they match, so that only a few are evaluated per value.
+    DATE_PATTERN_INDEX = new PatternIndex(DATE_PATTERN_GROUP_LIST);
+    TIME_PATTERN_INDEX = new PatternIndex(TIME_PATTERN_GROUP_LIST);
   }
 
   private static void loadPatterns(String patternFileName, List<Map<Pattern, String>> patternParsers) {
@@ -82,7 +87,7 @@ public class DateTimePattern {
     if (value.length() < 6 || value.length() > 64) {
       return false;
     }
-    return isDateTime(DATE_PATTERN_GROUP_LIST, value);
+    return isDateTime(DATE_PATTERN_INDEX, value);
   }
 
   /**
@@ -99,10 +104,10 @@ public class DateTimePattern {
     if (value.length() < 4 || value.length() > 24) {
       return false;
     }
-    return isDateTime(TIME_PATTERN_GROUP_LIST, value);
+    return isDateTime(TIME_PATTERN_INDEX, value);
   }
 
-  private static boolean isDateTime(List<Map<Pattern, String>> patternGroupList, String value) {
+  private static boolean isDateTime(PatternIndex index, String value) {
     if (StringUtils.isNotEmpty(value)) {
       // at least 3 digit
       boolean hasEnoughDigits = false;
@@ -121,16 +126,14 @@ public class DateTimePattern {
         return false;
       }
 
-      // Check the value with a list of regex patterns
-      for (Map<Pattern, String> patternMap : patternGroupList) {
-        for (Pattern parser : patternMap.keySet()) {
-          try {
-            if (parser.matcher(value).find()) {
-              return true;
-            }
-          } catch (Exception e) {
-            // ignore
+      // Check the value with the regex patterns that can match its shape
+      for (PatternIndex.Entry entry : index.candidates(value)) {
+        try {
+          if (entry.getPattern().matcher(value).find()) {
+            return true;
           }
+        } catch (Exception e) {
+          // ignore
         }
       }
     }
@@ -144,7 +147,7 @@ public class DateTimePattern {
    * @return date pattern string.
    */
   public static Set<String> datePatternReplace(String value) {
-    return dateTimePatternReplace(DATE_PATTERN_GROUP_LIST, value);
+    return dateTimePatternReplace(DATE_PATTERN_INDEX, value);
   }
 
   /**
@@ -154,23 +157,24 @@ public class DateTimePattern {
    * @return
    */
   public static Set<String> timePatternReplace(String value) {
-    return dateTimePatternReplace(TIME_PATTERN_GROUP_LIST, value);
+    return dateTimePatternReplace(TIME_PATTERN_INDEX, value);
   }
 
-  private static Set<String> dateTimePatternReplace(List<Map<Pattern, String>> patternGroupList, String value) {
+  private static Set<String> dateTimePatternReplace(PatternIndex index, String value) {
     if (StringUtils.isEmpty(value)) {
       return Collections.singleton(StringUtils.EMPTY);
     }
     HashSet<String> resultSet = new HashSet<>();
-    for (Map<Pattern, String> patternMap : patternGroupList) {
-      for (Pattern parser : patternMap.keySet()) {
-        if (parser.matcher(value).find()) {
-          resultSet.add(patternMap.get(parser));
-        }
-      }
-      if (!resultSet.isEmpty()) {
+    int group = -1;
+    // Candidates are ordered by group, the formats of the first group having a match are returned.
+    for (PatternIndex.Entry entry : index.candidates(value)) {
+      if (entry.getGroup() != group && !resultSet.isEmpty()) {
         return resultSet;
       }
+      group = entry.getGroup();
+      if (entry.getPattern().matcher(value).find()) {
+        resultSet.add(entry.getFormat());
+      }
     }
     return resultSet;
   }
@@ -0,0 +1,314 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.dq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Index of groups of anchored date and time patterns by the shape of the values they match.
+ *
+ * <p>The shape of a value is the sequence of its characters that are neither letters nor digits, such as
+ * <tt>//</tt> for <tt>12/10/2016</tt> or <tt>-- ::</tt> for <tt>2016-12-10 06:45:00</tt>, with <tt>+</tt>
+ * and <tt>-</tt> being equivalent. The shapes a pattern can match are derived from its regular expression
+ * when the index is built, so only the few patterns that can match the shape of a value are evaluated.
+ * Patterns for which the shapes can't be derived are evaluated for every value.</p>
+ */
+final class PatternIndex {
+  // Maximum number of shapes derived for a pattern, patterns having more are not indexed.
+  private static final int MAX_SHAPES = 32;
+
+  /**
+   * A pattern along with its format and the group it belongs to.
+   */
+  static final class Entry {
+    private final int group;
+    private final int order;
+    private final Pattern pattern;
+    private final String format;
+
+    private Entry(int group, int order, Pattern pattern, String format) {
+      this.group = group;
+      this.order = order;
+      this.pattern = pattern;
+      this.format = format;
+    }
+
+    int getGroup() {
+      return group;
+    }
+
+    Pattern getPattern() {
+      return pattern;
+    }
+
+    String getFormat() {
+      return format;
+    }
+  }
+
+  private final Map<String, List<Entry>> index = new HashMap<>();
+  private final List<Entry> unindexed = new ArrayList<>();
+
+  PatternIndex(List<Map<Pattern, String>> groups) {
+    int order = 0;
+    for (int group = 0; group < groups.size(); group++) {
+      for (Map.Entry<Pattern, String> pattern : groups.get(group).entrySet()) {
+        Entry entry = new Entry(group, order++, pattern.getKey(), pattern.getValue());
+        Set<String> shapes = shapes(pattern.getKey().pattern());
+        if (shapes == null) {
+          unindexed.add(entry);
+          continue;
+        }
+        for (String shape : shapes) {
+          index.computeIfAbsent(shape, k -> new ArrayList<>()).add(entry);
+        }
+      }
+    }
+    // Patterns that are not indexed are candidates for all the shapes, in their original order.
+    for (List<Entry> entries : index.values()) {
+      entries.addAll(unindexed);
+      entries.sort(Comparator.comparingInt(e -> e.order));
+    }
+  }
+
+  /**
+   * @return patterns that can match the value, in the order they were loaded.
+   */
+  List<Entry> candidates(String value) {
+    List<Entry> entries = index.get(shape(value));
+    return entries == null ? Collections.unmodifiableList(unindexed) : entries;
+  }
+
+  /**
+   * @return sequence of the characters of the value that are neither letters nor digits.
+   */
+  static String shape(String value) {
+    StringBuilder shape = new StringBuilder();
+    for (int i = 0; i < value.length(); ) {
+      int codePoint = value.codePointAt(i);
+      if (!Character.isLetterOrDigit(codePoint)) {
+        shape.appendCodePoint(normalize(codePoint));
+      }
+      i += Character.charCount(codePoint);
+    }
+    return shape.toString();
+  }
+
+  private static int normalize(int codePoint) {
+    return codePoint == '+' ? '-' : codePoint;
+  }
+
+  /**
+   * @return shapes of the values matched by the anchored regular expression, null if they can't be derived.
+   */
+  static Set<String> shapes(String regex) {
+    if (!regex.startsWith("^") || !regex.endsWith("$") || regex.endsWith("\\$")) {
+      return null;
+    }
+    String body = regex.substring(1, regex.length() - 1);
+    int[] position = new int[1];
+    Set<String> shapes = sequence(body, position, false);
+    // A closing parenthesis without a matching group stops the derivation before the end.
+    return shapes == null || position[0] != body.length() ? null : shapes;
+  }
+
+  /**
+   * Derives the shapes of a sequence of alternatives, stopping at the end of the enclosing group.
+   */
+  private static Set<String> sequence(String regex, int[] position, boolean nested) {
+    Set<String> alternatives = new LinkedHashSet<>();
+    Set<String> current = Collections.singleton("");
+    while (position[0] < regex.length()) {
+      char c = regex.charAt(position[0]);
+      if (c == ')') {
+        break;
+      }
+      if (c == '|') {
+        // Alternatives are only supported within groups, as the anchors don't apply to all of them otherwise.
+        if (!nested) {
+          return null;
+        }
+        alternatives.addAll(current);
+        current = Collections.singleton("");
+        position[0]++;
+        continue;
+      }
+
+      Set<String> item = item(regex, position);
+      if (item == null) {
+        return null;
+      }
+      item = quantify(regex, position, item);
+      if (item == null) {
+        return null;
+      }
+
+      Set<String> next = new LinkedHashSet<>();
+      for (String prefix : current) {
+        for (String suffix : item) {
+          next.add(prefix + suffix);
+        }
+      }
+      if (next.size() > MAX_SHAPES) {
+        return null;
+      }
+      current = next;
+    }
+    alternatives.addAll(current);
+    return alternatives.size() > MAX_SHAPES ? null : alternatives;
+  }
+
+  /**
+   * Derives the shapes of a single character, character class or group.
+   */
+  private static Set<String> item(String regex, int[] position) {
+    char c = regex.charAt(position[0]);
+    switch (c) {
+      case '(': {
+        position[0]++;
+        if (position[0] < regex.length() && regex.charAt(position[0]) == '?') {
+          return null;
+        }
+        Set<String> group = sequence(regex, position, true);
+        if (group == null || position[0] >= regex.length()) {
+          return null;
+        }
+        position[0]++;
+        return group;
+      }
+      case '[':
+        return characterClass(regex, position);
+      case '\\':
+        return escape(regex, position);
+      case '.':
+      case '*':
+      case '+':
+      case '?':
+      case '{':
+      case '^':
+      case '$':
+        return null;
+      default:
+        position[0]++;
+        return literal(c);
+    }
+  }
+
+  private static Set<String> escape(String regex, int[] position) {
+    if (position[0] + 1 >= regex.length()) {
+      return null;
+    }
+    char c = regex.charAt(position[0] + 1);
+    position[0] += 2;
+    if (c == 'd') {
+      return Collections.singleton("");
+    }
+    if (c == 'p') {
+      // Only the letter category is supported.
+      if (!regex.startsWith("{L}", position[0])) {
+        return null;
+      }
+      position[0] += 3;
+      return Collections.singleton("");
+    }
+    if (Character.isLetterOrDigit(c)) {
+      return null;
+    }
+    return literal(c);
+  }
+
+  /**
+   * Classes are supported when all of their members are either letters and digits, or separators.
+   */
+  private static Set<String> characterClass(String regex, int[] position) {
+    int end = regex.indexOf(']', position[0] + 1);
+    if (end == -1) {
+      return null;
+    }
+    String members = regex.substring(position[0] + 1, end);
+    position[0] = end + 1;
+    if (members.isEmpty() || members.indexOf('\\') != -1 || members.indexOf('[') != -1
+      || members.charAt(0) == '^') {
+      return null;
+    }
+
+    Set<String> separators = new LinkedHashSet<>();
+    boolean alphanumeric = false;
+    for (int i = 0; i < members.length(); i++) {
+      char c = members.charAt(i);
+      if (i + 2 < members.length() && members.charAt(i + 1) == '-') {
+        // A range is supported only between letters or digits.
+        if (!Character.isLetterOrDigit(c) || !Character.isLetterOrDigit(members.charAt(i + 2))) {
+          return null;
+        }
+        alphanumeric = true;
+        i += 2;
+      } else if (Character.isLetterOrDigit(c)) {
+        alphanumeric = true;
+      } else {
+        separators.add(new String(Character.toChars(normalize(c))));
+      }
+    }
+    if (alphanumeric == !separators.isEmpty()) {
+      return null;
+    }
+    return alphanumeric ? Collections.singleton("") : separators;
+  }
+
+  private static Set<String> literal(char c) {
+    return Character.isLetterOrDigit(c) ? Collections.singleton("") :
+      Collections.singleton(new String(Character.toChars(normalize(c))));
+  }
+
+  /**
+   * Applies the quantifier following an item, if any.
+   */
+  private static Set<String> quantify(String regex, int[] position, Set<String> item) {
+    if (position[0] >= regex.length()) {
+      return item;
+    }
+    char c = regex.charAt(position[0]);
+    boolean alphanumeric = item.size() == 1 && item.contains("");
+    if (c == '?') {
+      position[0]++;
+      Set<String> optional = new LinkedHashSet<>(item);
+      optional.add("");
+      return optional;
+    }
+    if (c == '*' || c == '+') {
+      position[0]++;
+      return alphanumeric ? item : null;
+    }
+    if (c == '{') {
+      int end = regex.indexOf('}', position[0]);
+      if (end == -1) {
+        return null;
+      }
+      position[0] = end + 1;
+      return alphanumeric ? item : null;
+    }
+    return item;
+  }
+}
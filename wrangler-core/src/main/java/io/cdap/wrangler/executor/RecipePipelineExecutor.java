@@ -24,6 +24,7 @@ import io.cdap.wrangler.api.ErrorRecord;
 import io.cdap.wrangler.api.ErrorRowException;
 import io.cdap.wrangler.api.Executor;
 import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.RecipeCancelledException;
 import io.cdap.wrangler.api.RecipeException;
 import io.cdap.wrangler.api.RecipeParser;
 import io.cdap.wrangler.api.RecipePipeline;
@@ -40,6 +41,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nullable;
 
@@ -49,6 +51,8 @@ import javax.annotation.Nullable;
 public final class RecipePipelineExecutor implements RecipePipeline<Row, StructuredRecord, ErrorRecord> {
 
   private static final Logger LOG = LoggerFactory.getLogger(RecipePipelineExecutor.class);
+  // Number of rows, input or produced by a directive, after which the execution checks if it was cancelled.
+  private static final int CANCELLATION_CHECK_ROWS = 256;
 
   private final ErrorRecordCollector collector = new ErrorRecordCollector();
   private final RecordConvertor convertor = new RecordConvertor();
@@ -96,13 +100,29 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
   }
 
   /**
-   * Executes the pipeline on the input.
+   * Executes the pipeline on the input. The execution is cancelled if the thread running it is interrupted, which
+   * is checked every {@value #CANCELLATION_CHECK_ROWS} input rows, and between directives producing that many rows.
    *
    * @param rows List of input record of type I.
    * @return Parsed output list of record of type I
+   * @throws RecipeCancelledException if the execution was cancelled
    */
   @Override
   public List<Row> execute(List<Row> rows) throws RecipeException {
+    return execute(Collections.singletonList(rows));
+  }
+
+  /**
+   * Executes the pipeline on input split in chunks of consecutive rows, such as the chunks a sample is stored in.
+   * Each chunk is only taken from the iterable once the previous one was executed, so that the input doesn't need
+   * to be held at once. The rows are executed as if they were in a single list: the indexes of the rows in the
+   * errors are counted from the first chunk, and the output schema covers the rows of all the chunks.
+   *
+   * @param chunks of the input rows.
+   * @return Parsed output list of record of type I
+   * @throws RecipeCancelledException if the execution was cancelled
+   */
+  public List<Row> execute(Iterable<List<Row>> chunks) throws RecipeException {
     List<Directive> directives = getDirectives();
     List<String> messages = new ArrayList<>();
     List<Row> results = new ArrayList<>();
@@ -122,42 +142,49 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
 
     try {
       collector.reset();
-      while (i < rows.size()) {
-        messages.clear();
-        // Resets the scope of local variable.
-        if (context != null) {
-          context.getTransientStore().reset(TransientVariableScope.LOCAL);
-        }
+      for (List<Row> rows : chunks) {
+        for (int row = 0; row < rows.size(); row++, i++) {
+          messages.clear();
+          // Resets the scope of local variable.
+          if (context != null) {
+            context.getTransientStore().reset(TransientVariableScope.LOCAL);
+          }
 
-        List<Row> cumulativeRows = rows.subList(i, i + 1);
-        directiveIndex = 0;
-        try {
-          for (Executor<List<Row>, List<Row>> directive : directives) {
-            try {
-              directiveIndex++;
-              cumulativeRows = directive.execute(cumulativeRows, context);
-              if (cumulativeRows.size() < 1) {
+          List<Row> cumulativeRows = rows.subList(row, row + 1);
+          directiveIndex = 0;
+          if (i % CANCELLATION_CHECK_ROWS == 0) {
+            checkCancelled(i, directiveIndex);
+          }
+          try {
+            for (Executor<List<Row>, List<Row>> directive : directives) {
+              try {
+                if (cumulativeRows.size() >= CANCELLATION_CHECK_ROWS) {
+                  checkCancelled(i, directiveIndex);
+                }
+                directiveIndex++;
+                cumulativeRows = directive.execute(cumulativeRows, context);
+                if (cumulativeRows.size() < 1) {
+                  break;
+                }
+                if (schemaManagementEnabled && inputSchema != null) {
+                  outputSchemaGenerators.get(directiveIndex - 1).addNewOutputFields(cumulativeRows);
+                }
+              } catch (ReportErrorAndProceed e) {
+                messages.add(String.format("%s (ecode: %d)", e.getMessage(), e.getCode()));
+                collector
+                  .add(new ErrorRecord(rows.get(row), String.join(",", messages), e.getCode(), true));
+                cumulativeRows = new ArrayList<>();
                 break;
               }
-              if (schemaManagementEnabled && inputSchema != null) {
-                outputSchemaGenerators.get(directiveIndex - 1).addNewOutputFields(cumulativeRows);
-              }
-            } catch (ReportErrorAndProceed e) {
-              messages.add(String.format("%s (ecode: %d)", e.getMessage(), e.getCode()));
-              collector
-                .add(new ErrorRecord(rows.subList(i, i + 1).get(0), String.join(",", messages), e.getCode(), true));
-              cumulativeRows = new ArrayList<>();
-              break;
             }
+            results.addAll(cumulativeRows);
+          } catch (ErrorRowException e) {
+            messages.add(String.format("%s", e.getMessage()));
+            collector
+              .add(new ErrorRecord(rows.get(row), String.join(",", messages), e.getCode(),
+                e.isShownInWrangler()));
           }
-          results.addAll(cumulativeRows);
-        } catch (ErrorRowException e) {
-          messages.add(String.format("%s", e.getMessage()));
-          collector
-            .add(new ErrorRecord(rows.subList(i, i + 1).get(0), String.join(",", messages), e.getCode(),
-              e.isShownInWrangler()));
         }
-        ++i;
       }
     } catch (DirectiveExecutionException e) {
       throw new RecipeException(e.getMessage(), e, i, directiveIndex);
@@ -180,6 +207,12 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
     return collector.get();
   }
 
+  private static void checkCancelled(int rowIndex, int directiveIndex) throws RecipeCancelledException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new RecipeCancelledException(rowIndex, directiveIndex);
+    }
+  }
+
   private List<Directive> getDirectives() throws RecipeException {
     if (directives == null) {
       this.directives = recipeParser.parse();
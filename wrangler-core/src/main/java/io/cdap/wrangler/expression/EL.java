@@ -35,6 +35,8 @@ import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlInfo;
 import org.apache.commons.jexl3.JexlScript;
+import org.apache.commons.jexl3.internal.introspection.Uberspect;
+import org.apache.commons.jexl3.introspection.JexlUberspect;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.logging.Log;
@@ -52,18 +54,12 @@ import java.util.Set;
  */
 public final class EL {
 
-  private static volatile boolean used;
+  // Shared by the engines, so that classes are introspected once.
+  private static final JexlUberspect UBERSPECT = new Uberspect(new NullLogger(), JexlUberspect.JEXL_STRATEGY);
 
   private final Set<String> variables;
   private final JexlScript script;
 
-  /**
-   * Returns {@code true} if this class has been used to execute JEXL script.
-   */
-  public static boolean isUsed() {
-    return used;
-  }
-
   /**
    * Same as calling {@link #compile(ELRegistration, String)} using {@link DefaultFunctions}.
    */
@@ -80,9 +76,10 @@ public final class EL {
    * @throws ELException if failed to compile the expression
    */
   public static EL compile(ELRegistration registration, String expression) throws ELException {
-    used = true;
+    Map<String, Object> functions = registration.functions();
     JexlEngine engine = new JexlBuilder()
-      .namespaces(registration.functions())
+      .namespaces(functions)
+      .uberspect(new RestrictedUberspect(UBERSPECT, functions))
       .silent(false)
       .cache(1024)
       .strict(true)
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.expression;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.jexl3.JexlArithmetic;
+import org.apache.commons.jexl3.JexlOperator;
+import org.apache.commons.jexl3.internal.introspection.MethodExecutor;
+import org.apache.commons.jexl3.introspection.JexlMethod;
+import org.apache.commons.jexl3.introspection.JexlPropertyGet;
+import org.apache.commons.jexl3.introspection.JexlPropertySet;
+import org.apache.commons.jexl3.introspection.JexlUberspect;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link JexlUberspect} that keeps scripts away from the classes that could change the state of the JVM running
+ * them, so that a JVM can safely be reused after running scripts of different users.
+ *
+ * <p>Scripts can only create instances of, call methods of, access properties of and iterate over the classes of
+ * an allow-list: the value classes of the JDK and of the rows, such as strings, numbers, dates, collections and
+ * JSON elements. Classes with constructors taking a file can't be created. Static methods, some of which change the
+ * state of the JVM such as its default time zone, can only be called through namespaces, and the class of an object
+ * can't be retrieved. Anything else, including classes that could be used to reach others through reflection, is
+ * denied.</p>
+ */
+final class RestrictedUberspect implements JexlUberspect {
+  // Classes that can be used, along with their nested classes. Classes are listed one by one rather than by package,
+  // as packages such as java.util also hold classes that reach outside of the JVM, such as java.util.Formatter.
+  private static final Set<String> ALLOWED_CLASSES = ImmutableSet.of(
+    "java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Double", "java.lang.Float",
+    "java.lang.Integer", "java.lang.Long", "java.lang.Math", "java.lang.Number", "java.lang.Object",
+    "java.lang.Short", "java.lang.StrictMath", "java.lang.String", "java.lang.StringBuffer", "java.lang.StringBuilder",
+    "java.math.BigDecimal", "java.math.BigInteger", "java.math.MathContext", "java.math.RoundingMode",
+    "java.nio.ByteBuffer", "java.nio.ByteOrder", "java.nio.CharBuffer", "java.nio.HeapByteBuffer",
+    "java.nio.HeapByteBufferR", "java.nio.HeapCharBuffer", "java.nio.HeapCharBufferR",
+    "java.text.DecimalFormat", "java.text.DecimalFormatSymbols", "java.text.NumberFormat",
+    "java.text.SimpleDateFormat", "java.text.DateFormat",
+    "java.time.DayOfWeek", "java.time.Duration", "java.time.Instant", "java.time.LocalDate",
+    "java.time.LocalDateTime", "java.time.LocalTime", "java.time.Month", "java.time.MonthDay",
+    "java.time.OffsetDateTime", "java.time.OffsetTime", "java.time.Period", "java.time.Year",
+    "java.time.YearMonth", "java.time.ZoneId", "java.time.ZoneOffset", "java.time.ZoneRegion",
+    "java.time.ZonedDateTime", "java.time.format.DateTimeFormatter", "java.time.format.DateTimeFormatterBuilder",
+    "java.time.temporal.ChronoField", "java.time.temporal.ChronoUnit", "java.time.temporal.IsoFields",
+    "java.time.temporal.TemporalAdjusters", "java.time.temporal.ValueRange",
+    "java.util.AbstractMap", "java.util.ArrayDeque", "java.util.ArrayList", "java.util.Arrays",
+    "java.util.BitSet", "java.util.Calendar", "java.util.Collections", "java.util.Date", "java.util.EnumMap",
+    "java.util.GregorianCalendar", "java.util.HashMap", "java.util.HashSet", "java.util.ImmutableCollections",
+    "java.util.LinkedHashMap", "java.util.LinkedHashSet", "java.util.LinkedList", "java.util.Locale",
+    "java.util.Optional", "java.util.PriorityQueue", "java.util.Random", "java.util.SimpleTimeZone",
+    "java.util.StringJoiner", "java.util.StringTokenizer", "java.util.TimeZone", "java.util.TreeMap",
+    "java.util.TreeSet", "java.util.UUID", "java.util.Vector", "java.util.regex.Matcher", "java.util.regex.Pattern",
+    "java.sql.Date", "java.sql.Time", "java.sql.Timestamp", "sun.util.calendar.ZoneInfo",
+    "com.google.gson.JsonArray", "com.google.gson.JsonElement", "com.google.gson.JsonNull",
+    "com.google.gson.JsonObject", "com.google.gson.JsonParser", "com.google.gson.JsonPrimitive",
+    "com.google.gson.internal.LazilyParsedNumber", "com.google.gson.internal.LinkedTreeMap",
+    "io.cdap.cdap.api.data.format.StructuredRecord", "io.cdap.cdap.api.data.schema.Schema",
+    "io.cdap.wrangler.api.Row", "io.cdap.wrangler.expression.ELContext",
+    "org.apache.commons.jexl3.internal.IntegerRange", "org.apache.commons.jexl3.internal.LongRange"
+  );
+  // Parameter types of constructors that open files, the classes declaring such constructors can't be created.
+  private static final Set<Class<?>> FILE_TYPES =
+    ImmutableSet.<Class<?>>of(File.class, FileDescriptor.class, Path.class);
+
+  private final JexlUberspect delegate;
+  private final Set<Class<?>> namespaces;
+
+  /**
+   * @param delegate introspector used for the allowed classes
+   * @param functions namespaces of the scripts, whose classes can be used
+   */
+  RestrictedUberspect(JexlUberspect delegate, Map<String, Object> functions) {
+    this.delegate = delegate;
+    this.namespaces = new HashSet<>();
+    for (Object namespace : functions.values()) {
+      if (namespace != null) {
+        namespaces.add(namespace instanceof Class ? (Class<?>) namespace : namespace.getClass());
+      }
+    }
+  }
+
+  @Override
+  public List<PropertyResolver> getResolvers(JexlOperator op, Object obj) {
+    return delegate.getResolvers(op, obj);
+  }
+
+  @Override
+  public void setClassLoader(ClassLoader loader) {
+    delegate.setClassLoader(loader);
+  }
+
+  @Override
+  public int getVersion() {
+    return delegate.getVersion();
+  }
+
+  @Override
+  public JexlMethod getConstructor(Object ctorHandle, Object... args) {
+    Class<?> cls = ctorHandle instanceof Class ? (Class<?>) ctorHandle : null;
+    if (cls == null && ctorHandle != null && isAllowed(ctorHandle.toString())) {
+      try {
+        cls = Class.forName(ctorHandle.toString(), false, RestrictedUberspect.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        return null;
+      }
+    }
+    return cls != null && isAllowed(cls) && !opensFiles(cls) ? delegate.getConstructor(ctorHandle, args) : null;
+  }
+
+  @Override
+  public JexlMethod getMethod(Object obj, String method, Object... args) {
+    if (obj instanceof Class) {
+      Class<?> cls = (Class<?>) obj;
+      return namespaces.contains(cls) && hasStaticMethod(cls, method) ? delegate.getMethod(obj, method, args) : null;
+    }
+    if (!isAllowed(obj) || "getClass".equals(method)) {
+      return null;
+    }
+    JexlMethod resolved = delegate.getMethod(obj, method, args);
+    return resolved instanceof MethodExecutor
+      && !Modifier.isStatic(((MethodExecutor) resolved).getMethod().getModifiers()) ? resolved : null;
+  }
+
+  @Override
+  public JexlPropertyGet getPropertyGet(Object obj, Object identifier) {
+    return isAllowed(obj, identifier) ? delegate.getPropertyGet(obj, identifier) : null;
+  }
+
+  @Override
+  public JexlPropertyGet getPropertyGet(List<PropertyResolver> resolvers, Object obj, Object identifier) {
+    return isAllowed(obj, identifier) ? delegate.getPropertyGet(resolvers, obj, identifier) : null;
+  }
+
+  @Override
+  public JexlPropertySet getPropertySet(Object obj, Object identifier, Object arg) {
+    return isAllowed(obj, identifier) ? delegate.getPropertySet(obj, identifier, arg) : null;
+  }
+
+  @Override
+  public JexlPropertySet getPropertySet(List<PropertyResolver> resolvers, Object obj, Object identifier, Object arg) {
+    return isAllowed(obj, identifier) ? delegate.getPropertySet(resolvers, obj, identifier, arg) : null;
+  }
+
+  @Override
+  public Iterator<?> getIterator(Object obj) {
+    return isAllowed(obj) ? delegate.getIterator(obj) : null;
+  }
+
+  @Override
+  public JexlArithmetic.Uberspect getArithmetic(JexlArithmetic arithmetic) {
+    return delegate.getArithmetic(arithmetic);
+  }
+
+  private boolean isAllowed(Object obj, Object identifier) {
+    return !(obj instanceof Class) && isAllowed(obj) && !"class".equals(identifier);
+  }
+
+  private boolean isAllowed(Object obj) {
+    return obj == null || isAllowed(obj.getClass());
+  }
+
+  private boolean isAllowed(Class<?> cls) {
+    if (cls.isArray()) {
+      return isAllowed(cls.getComponentType());
+    }
+    return cls.isPrimitive() || namespaces.contains(cls) || isAllowed(cls.getName());
+  }
+
+  private static boolean isAllowed(String className) {
+    // Nested classes, including anonymous ones, are allowed along with the class they are declared in.
+    int nested = className.indexOf('$');
+    String outer = nested < 0 ? className : className.substring(0, nested);
+    return ALLOWED_CLASSES.contains(outer);
+  }
+
+  private static boolean opensFiles(Class<?> cls) {
+    for (Constructor<?> constructor : cls.getConstructors()) {
+      for (Class<?> type : constructor.getParameterTypes()) {
+        if (FILE_TYPES.contains(type)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasStaticMethod(Class<?> cls, String name) {
+    for (Method method : cls.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers()) && method.getName().equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -23,6 +23,7 @@ import io.cdap.wrangler.api.DirectiveContext;
 import io.cdap.wrangler.api.DirectiveLoadException;
 import io.cdap.wrangler.api.DirectiveNotFoundException;
 import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.DownstreamAware;
 import io.cdap.wrangler.api.RecipeException;
 import io.cdap.wrangler.api.RecipeParser;
 import io.cdap.wrangler.api.parser.UsageDefinition;
@@ -93,6 +94,12 @@ public class GrammarBasedParser implements RecipeParser {
         }
       });
 
+      // Directives can adapt to the ones that follow them, once all of them are initialized.
+      for (int i = 0; i < result.size(); i++) {
+        if (result.get(i) instanceof DownstreamAware) {
+          ((DownstreamAware) result.get(i)).downstream(result.subList(i + 1, result.size()));
+        }
+      }
       return result;
     } catch (DirectiveLoadException | DirectiveNotFoundException | DirectiveParseException e) {
       throw new RecipeException(e.getMessage(), e, directiveIndex.get());
@@ -114,11 +114,28 @@ public class MapArguments implements Arguments {
             tokens.put(specification.name(), token);
             break;
           }
+          // A single text is taken as an optional list of texts, unless a later argument accepts it as is.
+          if (specification.type() == TokenType.TEXT_LIST && token.type() == TokenType.TEXT
+            && !accepts(specifications, pos, TokenType.TEXT)) {
+            List<String> values = new ArrayList<>();
+            values.add(((Text) token).value());
+            tokens.put(specification.name(), new TextList(values));
+            break;
+          }
         }
       }
     }
   }
 
+  private static boolean accepts(List<TokenDefinition> specifications, int from, TokenType type) {
+    for (int i = from; i < specifications.size(); i++) {
+      if (specifications.get(i).type() == type) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Returns the number of tokens that are mapped to arguments.
    *
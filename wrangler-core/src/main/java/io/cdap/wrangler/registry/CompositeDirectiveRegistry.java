@@ -21,6 +21,7 @@ import io.cdap.cdap.api.artifact.ArtifactSummary;
 import io.cdap.wrangler.api.DirectiveLoadException;
 import io.cdap.wrangler.utils.ArtifactSummaryComparator;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -70,6 +71,28 @@ public final class CompositeDirectiveRegistry implements DirectiveRegistry {
     }
   }
 
+  @Override
+  public long getGeneration(String namespace) {
+    long generation = 0;
+    for (DirectiveRegistry registry : registries) {
+      generation = generation * 31 + registry.getGeneration(namespace);
+    }
+    return generation;
+  }
+
+  @Override
+  public Closeable acquire(String namespace) {
+    List<Closeable> handles = new ArrayList<>(registries.length);
+    for (DirectiveRegistry registry : registries) {
+      handles.add(registry.acquire(namespace));
+    }
+    return () -> {
+      for (Closeable handle : handles) {
+        handle.close();
+      }
+    };
+  }
+
   @Nullable
   @Override
   public ArtifactSummary getLatestWranglerArtifact() {
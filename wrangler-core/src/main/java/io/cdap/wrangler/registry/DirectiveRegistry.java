@@ -62,6 +62,29 @@ public interface DirectiveRegistry extends Closeable {
    */
   void reload(String namespace) throws DirectiveLoadException;
 
+  /**
+   * Returns the generation of the directives of a namespace, which changes whenever a reload adds, updates or
+   * removes directives. Results of recipes computed with one generation may differ with another.
+   *
+   * @param namespace the namespace of the directives
+   * @return the generation of the directives, always the same for registries that never change
+   */
+  default long getGeneration(String namespace) {
+    return 0L;
+  }
+
+  /**
+   * Keeps the resources the directives of a namespace are loaded with, such as their class loaders, from being
+   * released by reloads or by closing the registry, until the returned handle is closed. Directives that are
+   * executed while a reload may happen should be retrieved and executed with such a handle open.
+   *
+   * @param namespace the namespace of the directives
+   * @return handle to close once the directives are no longer executed
+   */
+  default Closeable acquire(String namespace) {
+    return () -> { };
+  }
+
   /**
    * Retrieve latest Wrangler transform artifact information
    */
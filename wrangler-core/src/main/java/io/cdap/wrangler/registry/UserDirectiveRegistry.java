@@ -35,16 +35,22 @@ import io.cdap.wrangler.api.Directive;
 import io.cdap.wrangler.api.DirectiveLoadException;
 import io.cdap.wrangler.utils.ArtifactSummaryComparator;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -66,14 +72,34 @@ import javax.annotation.Nullable;
  * provides a way to create an instance of the plugin. The name of the directive is
  * used as the <tt>id</tt> for the plugin.</p>
  *
+ * <p>Reloads keep the class loaders of the artifacts that haven't changed since the previous reload, and release
+ * the ones of the artifacts that were deleted or updated. The artifacts of a namespace are listed at most once per
+ * reload interval, directives added in between are still loaded on demand by {@link #get(String, String)}.
+ * Snapshot artifacts can be deployed again without changing their version, and artifacts don't expose their
+ * location or modification time, so their class loaders are kept while their classes and properties are unchanged
+ * and are only loaded again once per snapshot reload interval otherwise.</p>
+ *
+ * <p>Class loaders are reference counted: they are held by the last reload of their namespace and by the handles
+ * returned by {@link #acquire(String)}, which hold every class loader of the namespace loaded while they are open.
+ * A class loader is closed once it is no longer held, so that directives still executing are not broken by a
+ * reload.</p>
+ *
  * @see SystemDirectiveRegistry
  * @see CompositeDirectiveRegistry
  */
 public final class UserDirectiveRegistry implements DirectiveRegistry {
   private static final String WRANGLER_TRANSFORM = "wrangler-transform";
   private static final String WRANGLER_PLUGIN = "Wrangler";
+  private static final long DEFAULT_RELOAD_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  private static final long DEFAULT_SNAPSHOT_RELOAD_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
   private final Map<String, Map<String, DirectiveInfo>> registry = new ConcurrentSkipListMap<>();
-  private final List<CloseableClassLoader> classLoaders = new ArrayList<>();
+  // Artifacts declaring directives that were loaded by the last reload of each namespace.
+  private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+  // Open handles of each namespace, guarded by this registry.
+  private final Map<String, Set<Handle>> handles = new HashMap<>();
+  private final long reloadIntervalMillis;
+  private final long snapshotReloadIntervalMillis;
+  private ArtifactManager artifactManager;
   private StageContext context;
   private HttpServiceContext manager;
   private ArtifactSummary wranglerArtifact;
@@ -93,6 +119,8 @@ public final class UserDirectiveRegistry implements DirectiveRegistry {
    */
   public UserDirectiveRegistry(HttpServiceContext manager) {
     this.manager = manager;
+    this.reloadIntervalMillis = DEFAULT_RELOAD_INTERVAL_MILLIS;
+    this.snapshotReloadIntervalMillis = DEFAULT_SNAPSHOT_RELOAD_INTERVAL_MILLIS;
   }
 
   /**
@@ -101,6 +129,8 @@ public final class UserDirectiveRegistry implements DirectiveRegistry {
    */
   public UserDirectiveRegistry(SystemAppTaskContext systemAppTaskContext) {
     this.systemAppTaskContext = systemAppTaskContext;
+    this.reloadIntervalMillis = DEFAULT_RELOAD_INTERVAL_MILLIS;
+    this.snapshotReloadIntervalMillis = DEFAULT_SNAPSHOT_RELOAD_INTERVAL_MILLIS;
   }
 
   /**
@@ -114,6 +144,21 @@ public final class UserDirectiveRegistry implements DirectiveRegistry {
    */
   public UserDirectiveRegistry(StageContext context) {
     this.context = context;
+    this.reloadIntervalMillis = DEFAULT_RELOAD_INTERVAL_MILLIS;
+    this.snapshotReloadIntervalMillis = DEFAULT_SNAPSHOT_RELOAD_INTERVAL_MILLIS;
+  }
+
+  // only usable by tests, as directives can't be loaded on demand without a context
+  UserDirectiveRegistry(ArtifactManager artifactManager, long reloadIntervalMillis) {
+    this(artifactManager, reloadIntervalMillis, DEFAULT_SNAPSHOT_RELOAD_INTERVAL_MILLIS);
+  }
+
+  // only usable by tests, as directives can't be loaded on demand without a context
+  UserDirectiveRegistry(ArtifactManager artifactManager, long reloadIntervalMillis,
+                        long snapshotReloadIntervalMillis) {
+    this.artifactManager = artifactManager;
+    this.reloadIntervalMillis = reloadIntervalMillis;
+    this.snapshotReloadIntervalMillis = snapshotReloadIntervalMillis;
   }
 
   /**
@@ -172,80 +217,163 @@ public final class UserDirectiveRegistry implements DirectiveRegistry {
   }
 
   @Override
-  public void reload(String namespace) throws DirectiveLoadException {
+  public synchronized void reload(String namespace) throws DirectiveLoadException {
+    ArtifactManager artifactManager = getArtifactManager();
+    Snapshot previous = snapshots.get(namespace);
+    if (artifactManager == null
+      || previous != null && System.currentTimeMillis() - previous.listedMillis < reloadIntervalMillis) {
+      return;
+    }
+
     Map<String, DirectiveInfo> newRegistry = new TreeMap<>();
     Map<String, DirectiveInfo> currentRegistry = registry.computeIfAbsent(namespace,
                                                                           k -> new ConcurrentSkipListMap<>());
+    Map<ArtifactInfo, LoadedArtifact> loaded = new HashMap<>();
+    Map<ArtifactInfo, LoadedArtifact> reused = previous == null ? Collections.emptyMap() : previous.artifacts;
+    long listedMillis = System.currentTimeMillis();
+    try {
+      List<ArtifactInfo> artifacts = artifactManager.listArtifacts(namespace);
+      ArtifactSummary latestWrangler = null;
+      for (ArtifactInfo artifact : artifacts) {
+        boolean isWranglerArtifact = artifact.getName().equalsIgnoreCase(WRANGLER_TRANSFORM);
+        Set<PluginClass> plugins = artifact.getClasses().getPlugins();
 
-    ArtifactManager artifactManager = getArtifactManager();
-    if (artifactManager != null) {
-      try {
-        List<ArtifactInfo> artifacts = artifactManager.listArtifacts(namespace);
-        ArtifactSummary latestWrangler = null;
-        for (ArtifactInfo artifact : artifacts) {
-          boolean isWranglerArtifact = artifact.getName().equalsIgnoreCase(WRANGLER_TRANSFORM);
-          Set<PluginClass> plugins = artifact.getClasses().getPlugins();
-          CloseableClassLoader artifactClassLoader = null;
-
-          for (PluginClass plugin : plugins) {
-            if (Directive.TYPE.equalsIgnoreCase(plugin.getType())) {
-              if (artifactClassLoader == null) {
-                artifactClassLoader = artifactManager.createClassLoader(namespace, artifact,
-                                                                        getClass().getClassLoader());
-                classLoaders.add(artifactClassLoader);
-              }
-
-              Class<?> cls = artifactClassLoader.loadClass(plugin.getClassName());
-              if (!Directive.class.isAssignableFrom(cls)) {
-                throw new DirectiveLoadException("Plugin class " + plugin.getClassName() + " does not implement the "
-                                                   + Directive.class.getName() + " interface");
-              }
-              DirectiveInfo info = DirectiveInfo.fromUser((Class<? extends Directive>) cls,
-                                                          new ArtifactId(artifact.getName(),
-                                                                         new ArtifactVersion(artifact.getVersion()),
-                                                                         artifact.getScope()));
-              newRegistry.put(info.name(), info);
-            }
-
-            if (isWranglerArtifact && WRANGLER_PLUGIN.equals(plugin.getName())
-                && Transform.PLUGIN_TYPE.equals(plugin.getType())) {
-              latestWrangler = Optional.ofNullable(latestWrangler)
-                .map(l -> ArtifactSummaryComparator.pickLatest(l, artifact))
-                .orElse(artifact);
-            }
+        // Snapshot artifacts can be replaced without changing their version or their classes, so they are loaded
+        // again once their class loader is older than the snapshot reload interval.
+        LoadedArtifact loadedArtifact = reused.get(artifact);
+        if (loadedArtifact != null && new ArtifactVersion(artifact.getVersion()).isSnapshot()
+          && listedMillis - loadedArtifact.loadedMillis >= snapshotReloadIntervalMillis) {
+          loadedArtifact = null;
+        }
+        if (loadedArtifact == null && declaresDirectives(plugins)) {
+          loadedArtifact = load(namespace, artifactManager, artifact);
+        }
+        if (loadedArtifact != null) {
+          loaded.put(artifact, loadedArtifact);
+          for (DirectiveInfo info : loadedArtifact.directives) {
+            newRegistry.put(info.name(), info);
           }
         }
 
-        if (latestWrangler != null) {
-          wranglerArtifact = latestWrangler;
+        for (PluginClass plugin : plugins) {
+          if (isWranglerArtifact && WRANGLER_PLUGIN.equals(plugin.getName())
+            && Transform.PLUGIN_TYPE.equals(plugin.getType())) {
+            latestWrangler = Optional.ofNullable(latestWrangler)
+              .map(l -> ArtifactSummaryComparator.pickLatest(l, artifact))
+              .orElse(artifact);
+          }
         }
+      }
 
-        MapDifference<String, DirectiveInfo> difference = Maps.difference(currentRegistry, newRegistry);
-
-        // Remove elements from the registry that are not present in newly loaded registry
-        for (String directive : difference.entriesOnlyOnLeft().keySet()) {
-          currentRegistry.remove(directive);
+      if (latestWrangler != null) {
+        wranglerArtifact = latestWrangler;
+      }
+    } catch (Exception e) {
+      // Release the class loaders created by this reload, the ones of the previous reload are still in use.
+      for (Map.Entry<ArtifactInfo, LoadedArtifact> entry : loaded.entrySet()) {
+        if (reused.get(entry.getKey()) != entry.getValue()) {
+          entry.getValue().release();
         }
+      }
+      if (e instanceof DirectiveLoadException) {
+        throw (DirectiveLoadException) e;
+      }
+      throw new DirectiveLoadException(e.getMessage(), e);
+    }
 
-        // Update common directives
-        for (String directive : difference.entriesInCommon().keySet()) {
-          currentRegistry.put(directive, difference.entriesInCommon().get(directive));
-        }
+    for (Handle handle : handles.getOrDefault(namespace, Collections.emptySet())) {
+      handle.hold(loaded.values());
+    }
+    boolean changed = !loaded.keySet().equals(reused.keySet());
+    for (Map.Entry<ArtifactInfo, LoadedArtifact> entry : reused.entrySet()) {
+      if (loaded.get(entry.getKey()) != entry.getValue()) {
+        changed = true;
+        entry.getValue().release();
+      }
+    }
+    long generation = previous == null ? 0 : previous.generation + (changed ? 1 : 0);
+    snapshots.put(namespace, new Snapshot(loaded, listedMillis, generation));
+
+    MapDifference<String, DirectiveInfo> difference = Maps.difference(currentRegistry, newRegistry);
+
+    // Remove elements from the registry that are not present in newly loaded registry
+    for (String directive : difference.entriesOnlyOnLeft().keySet()) {
+      currentRegistry.remove(directive);
+    }
+
+    // Update common directives
+    for (String directive : difference.entriesInCommon().keySet()) {
+      currentRegistry.put(directive, difference.entriesInCommon().get(directive));
+    }
 
-        // Update new directives
-        for (String directive : difference.entriesOnlyOnRight().keySet()) {
-          currentRegistry.put(directive, difference.entriesOnlyOnRight().get(directive));
+    // Update directives that changed
+    for (String directive : difference.entriesDiffering().keySet()) {
+      currentRegistry.put(directive, newRegistry.get(directive));
+    }
+
+    // Update new directives
+    for (String directive : difference.entriesOnlyOnRight().keySet()) {
+      currentRegistry.put(directive, difference.entriesOnlyOnRight().get(directive));
+    }
+  }
+
+  private static boolean declaresDirectives(Set<PluginClass> plugins) {
+    for (PluginClass plugin : plugins) {
+      if (Directive.TYPE.equalsIgnoreCase(plugin.getType())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private LoadedArtifact load(String namespace, ArtifactManager artifactManager,
+                              ArtifactInfo artifact) throws Exception {
+    CloseableClassLoader artifactClassLoader = artifactManager.createClassLoader(namespace, artifact,
+                                                                                 getClass().getClassLoader());
+    LoadedArtifact loadedArtifact = new LoadedArtifact(artifactClassLoader, System.currentTimeMillis());
+    try {
+      for (PluginClass plugin : artifact.getClasses().getPlugins()) {
+        if (!Directive.TYPE.equalsIgnoreCase(plugin.getType())) {
+          continue;
         }
-      } catch (IllegalAccessException | InstantiationException | IOException | ClassNotFoundException e) {
-        throw new DirectiveLoadException(e.getMessage(), e);
+        Class<?> cls = artifactClassLoader.loadClass(plugin.getClassName());
+        if (!Directive.class.isAssignableFrom(cls)) {
+          throw new DirectiveLoadException("Plugin class " + plugin.getClassName() + " does not implement the "
+                                             + Directive.class.getName() + " interface");
+        }
+        loadedArtifact.directives.add(DirectiveInfo.fromUser((Class<? extends Directive>) cls,
+                                                             new ArtifactId(artifact.getName(),
+                                                                            new ArtifactVersion(artifact.getVersion()),
+                                                                            artifact.getScope())));
       }
+    } catch (Exception e) {
+      loadedArtifact.release();
+      throw e;
+    }
+    return loadedArtifact;
+  }
+
+  @Override
+  public synchronized Closeable acquire(String namespace) {
+    Handle handle = new Handle(namespace);
+    Snapshot snapshot = snapshots.get(namespace);
+    if (snapshot != null) {
+      handle.hold(snapshot.artifacts.values());
     }
+    handles.computeIfAbsent(namespace, k -> new HashSet<>()).add(handle);
+    return handle;
+  }
+
+  @Override
+  public long getGeneration(String namespace) {
+    Snapshot snapshot = snapshots.get(namespace);
+    return snapshot == null ? 0 : snapshot.generation;
   }
 
   @Nullable
   private ArtifactManager getArtifactManager() {
     return manager != null ? manager :
-      systemAppTaskContext != null ? systemAppTaskContext.getArtifactManager() : null;
+      systemAppTaskContext != null ? systemAppTaskContext.getArtifactManager() : artifactManager;
   }
 
   @Nullable
@@ -268,9 +396,94 @@ public final class UserDirectiveRegistry implements DirectiveRegistry {
    * Closes any resources acquired during initialization or otherwise.
    */
   @Override
-  public void close() throws IOException {
-    for (CloseableClassLoader classLoader : classLoaders) {
-      classLoader.close();
+  public synchronized void close() throws IOException {
+    // Class loaders still held by open handles are closed once the handles are closed.
+    for (Snapshot snapshot : snapshots.values()) {
+      for (LoadedArtifact artifact : snapshot.artifacts.values()) {
+        artifact.release();
+      }
+    }
+    snapshots.clear();
+  }
+
+  /**
+   * Artifacts declaring directives in a namespace, as of the time they were listed.
+   */
+  private static final class Snapshot {
+    private final Map<ArtifactInfo, LoadedArtifact> artifacts;
+    private final long listedMillis;
+    // Incremented by each reload that loads or closes artifacts.
+    private final long generation;
+
+    private Snapshot(Map<ArtifactInfo, LoadedArtifact> artifacts, long listedMillis, long generation) {
+      this.artifacts = artifacts;
+      this.listedMillis = listedMillis;
+      this.generation = generation;
+    }
+  }
+
+  /**
+   * Handle holding the class loaders of a namespace, as returned by {@link #acquire(String)}.
+   */
+  private final class Handle implements Closeable {
+    private final String namespace;
+    private final Set<LoadedArtifact> artifacts = new HashSet<>();
+    private boolean closed;
+
+    private Handle(String namespace) {
+      this.namespace = namespace;
+    }
+
+    private void hold(Collection<LoadedArtifact> loaded) {
+      for (LoadedArtifact artifact : loaded) {
+        if (artifacts.add(artifact)) {
+          artifact.references++;
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      synchronized (UserDirectiveRegistry.this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        handles.get(namespace).remove(this);
+        for (LoadedArtifact artifact : artifacts) {
+          artifact.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Class loader of an artifact along with the directives loaded from it.
+   */
+  private static final class LoadedArtifact {
+    private final CloseableClassLoader classLoader;
+    private final long loadedMillis;
+    private final List<DirectiveInfo> directives = new ArrayList<>();
+    // Held by the reload that loaded it, guarded by the registry.
+    private int references = 1;
+
+    private LoadedArtifact(CloseableClassLoader classLoader, long loadedMillis) {
+      this.classLoader = classLoader;
+      this.loadedMillis = loadedMillis;
+    }
+
+    /**
+     * Releases a reference to the class loader, closing it once it is no longer referenced.
+     */
+    private void release() {
+      if (--references > 0) {
+        return;
+      }
+      try {
+        classLoader.close();
+      } catch (IOException e) {
+        // Nothing can be done, the class loader is no longer used
+      }
     }
   }
 }
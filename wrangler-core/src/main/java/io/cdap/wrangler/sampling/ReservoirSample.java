@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.sampling;
+
+import com.google.common.base.Preconditions;
+import io.cdap.wrangler.api.annotations.PublicEvolving;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A uniform sample without replacement of a stream of elements of unknown size, maintained with the skip based
+ * reservoir sampling of Li's Algorithm L. Once the reservoir is full, the number of elements to skip before the
+ * next one kept follows a geometric distribution, so that skipped elements don't need any random number nor
+ * allocation, and the sampling of <tt>n</tt> elements takes <tt>O(k(1 + log(n/k)))</tt> random numbers.
+ *
+ * <p>Samples of partitions of a stream, sampled independently with the same capacity, can be merged into a
+ * uniform sample of the whole stream, which can keep sampling more elements.</p>
+ *
+ * @param <T> type of the elements sampled
+ */
+@PublicEvolving(deprecated = false)
+public class ReservoirSample<T> {
+  private final int capacity;
+  private final Random random;
+  private final List<T> elements;
+  private long count;
+  // Largest of the random keys of the elements of the full reservoir, see Algorithm L.
+  private double weight;
+  // Number of elements to skip before the next one kept.
+  private long skip;
+
+  /**
+   * @param capacity maximum number of elements of the sample, must be non-negative
+   * @param random generator of the random numbers of the sampling
+   */
+  public ReservoirSample(int capacity, Random random) {
+    Preconditions.checkArgument(capacity >= 0, "capacity should be non-negative.");
+    this.capacity = capacity;
+    this.random = random;
+    this.elements = new ArrayList<>(Math.min(capacity, 1024));
+  }
+
+  /**
+   * Counts the next element of the stream without providing it, if it is not kept in the sample. This allows
+   * to not create the elements that are skipped.
+   *
+   * @return true if the next element is skipped, false if it must be given to {@link #add(Object)}
+   */
+  public boolean skip() {
+    if (count < capacity || skip == 0) {
+      return false;
+    }
+    skip--;
+    count++;
+    return true;
+  }
+
+  /**
+   * Adds the next element of the stream to the sample.
+   */
+  public void add(T element) {
+    count++;
+    if (capacity == 0) {
+      return;
+    }
+    if (elements.size() < capacity) {
+      elements.add(element);
+      if (elements.size() == capacity) {
+        weight = Math.exp(Math.log(nextUniform()) / capacity);
+        nextSkip();
+      }
+      return;
+    }
+    if (skip > 0) {
+      skip--;
+      return;
+    }
+    elements.set(random.nextInt(capacity), element);
+    weight *= Math.exp(Math.log(nextUniform()) / capacity);
+    nextSkip();
+  }
+
+  /**
+   * Merges the sample of another partition of the stream into this one, which becomes a uniform sample of both
+   * partitions.
+   *
+   * @param other sample with the same capacity
+   */
+  public void merge(ReservoirSample<T> other) {
+    Preconditions.checkArgument(capacity == other.capacity, "Samples with different capacities can't be merged.");
+    List<T> left = new ArrayList<>(elements);
+    List<T> right = new ArrayList<>(other.elements);
+    Collections.shuffle(left, random);
+    Collections.shuffle(right, random);
+
+    // Each element of the merged sample is taken from a partition with a probability proportional to the number
+    // of elements of the partition not taken yet.
+    long leftCount = count;
+    long rightCount = other.count;
+    int leftIndex = 0;
+    int rightIndex = 0;
+    elements.clear();
+    while (elements.size() < capacity && leftCount + rightCount > 0) {
+      if (random.nextDouble() * (leftCount + rightCount) < leftCount) {
+        elements.add(left.get(leftIndex++));
+        leftCount--;
+      } else {
+        elements.add(right.get(rightIndex++));
+        rightCount--;
+      }
+    }
+    count += other.count;
+
+    if (elements.size() == capacity && capacity > 0) {
+      // The largest of the keys of the sample is the k-th smallest of n uniform keys, drawn through the sum of
+      // exponential spacings of Rényi's representation.
+      double spacings = 0;
+      for (int i = 0; i < capacity; i++) {
+        spacings -= Math.log(nextUniform()) / (count - i);
+      }
+      weight = -Math.expm1(-spacings);
+      nextSkip();
+    }
+  }
+
+  /**
+   * @return number of elements of the stream, skipped or not
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return the elements of the sample
+   */
+  public List<T> getElements() {
+    return Collections.unmodifiableList(elements);
+  }
+
+  private void nextSkip() {
+    skip = (long) Math.floor(Math.log(nextUniform()) / Math.log1p(-weight));
+  }
+
+  // A uniform number in (0, 1), as its logarithm is taken.
+  private double nextUniform() {
+    double value = random.nextDouble();
+    while (value == 0) {
+      value = random.nextDouble();
+    }
+    return value;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.sampling;
+
+import io.cdap.wrangler.api.annotations.PublicEvolving;
+
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Reservoir sampling without replacement, in one pass through an input of unknown size, that skips most of the
+ * elements of the input without drawing random numbers for them, see {@link ReservoirSample}.
+ *
+ * @param <T> The type of the sampler.
+ */
+@PublicEvolving(deprecated = false)
+public class SkipReservoir<T> extends Sampler<T> {
+  private final int numSamples;
+  private final Random random;
+
+  /**
+   * Create a new sampler with reservoir size and a supplied random number generator.
+   *
+   * @param numSamples Maximum number of samples to retain in reservoir, must be non-negative.
+   * @param random     Instance of random number generator for sampling.
+   */
+  public SkipReservoir(int numSamples, Random random) {
+    this.numSamples = numSamples;
+    this.random = random;
+  }
+
+  /**
+   * Create a new sampler with reservoir size and a default random number generator.
+   *
+   * @param numSamples Maximum number of samples to retain in reservoir, must be non-negative.
+   */
+  public SkipReservoir(int numSamples) {
+    this(numSamples, new XORShiftRNG());
+  }
+
+  /**
+   * Create a new sampler with reservoir size and the seed for random number generator.
+   *
+   * @param numSamples Maximum number of samples to retain in reservoir, must be non-negative.
+   * @param seed       Random number generator seed.
+   */
+  public SkipReservoir(int numSamples, long seed) {
+    this(numSamples, new XORShiftRNG(seed));
+  }
+
+  @Override
+  public Iterator<T> sample(Iterator<T> input) {
+    ReservoirSample<T> sample = new ReservoirSample<>(numSamples, random);
+    while (input.hasNext()) {
+      T element = input.next();
+      if (!sample.skip()) {
+        sample.add(element);
+      }
+    }
+    return sample.getElements().iterator();
+  }
+}
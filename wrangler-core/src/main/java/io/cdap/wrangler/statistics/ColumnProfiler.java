@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.statistics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.wrangler.api.Pair;
+import io.cdap.wrangler.api.Row;
+import io.dataapps.chlorine.finder.FinderEngine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profiles the columns of a list of rows in parallel, as a replacement of {@link BasicStatistics}.
+ *
+ * <p>Each column is profiled by a separate task of a bounded pool, shared by the profilers that don't get one.
+ * Counts are exact, the number of distinct values, quantiles and frequent values are estimated using sketches.
+ * Finding the types of a value is expensive, so only a stratified sample of the non-empty strings of each column
+ * is type checked: the values are split into as many consecutive strata as values to check and one value is
+ * picked at random in each. Values longer than {@link #MAX_TYPE_CHECK_LENGTH} are never checked, since a single
+ * one can take seconds, and the checks of a column stop once its time budget is spent, the picked values being
+ * checked in random order so that the checked ones still spread over the column. The fraction of the values
+ * checked is reported as the coverage of the column.</p>
+ */
+public class ColumnProfiler implements Statistics {
+  // Default maximum number of values type checked per column.
+  public static final int DEFAULT_MAX_TYPE_CHECKS = 1000;
+  // Default time budget of the type checks of a column.
+  public static final long DEFAULT_TYPE_CHECK_MILLIS = 2000;
+  // Length above which the types of a value are not checked.
+  public static final int MAX_TYPE_CHECK_LENGTH = 2000;
+  // Pool of the profilers that are not given one, its threads being stopped when idle.
+  private static final ExecutorService POOL = createPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  private static final ThreadLocal<FinderEngine> ENGINES = ThreadLocal.withInitial(() -> {
+    try {
+      return new FinderEngine("wrangler-finder.xml", true, false);
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to load the type finders from 'wrangler-finder.xml'.", e);
+    }
+  });
+
+  private final ExecutorService pool;
+  private final int maxTypeChecks;
+  private final long typeCheckMillis;
+
+  public ColumnProfiler() {
+    this(POOL, DEFAULT_MAX_TYPE_CHECKS, DEFAULT_TYPE_CHECK_MILLIS);
+  }
+
+  /**
+   * @param pool on which the columns are profiled.
+   * @param maxTypeChecks maximum number of values type checked per column.
+   */
+  public ColumnProfiler(ExecutorService pool, int maxTypeChecks) {
+    this(pool, maxTypeChecks, DEFAULT_TYPE_CHECK_MILLIS);
+  }
+
+  /**
+   * @param pool on which the columns are profiled.
+   * @param maxTypeChecks maximum number of values type checked per column.
+   * @param typeCheckMillis time budget of the type checks of a column, in milliseconds.
+   */
+  public ColumnProfiler(ExecutorService pool, int maxTypeChecks, long typeCheckMillis) {
+    if (maxTypeChecks <= 0) {
+      throw new IllegalArgumentException(
+        String.format("Maximum number of type checks should be greater than 0, but is %d.", maxTypeChecks));
+    }
+    if (typeCheckMillis < 0) {
+      throw new IllegalArgumentException(
+        String.format("Time budget of the type checks should not be negative, but is %d.", typeCheckMillis));
+    }
+    this.pool = pool;
+    this.maxTypeChecks = maxTypeChecks;
+    this.typeCheckMillis = typeCheckMillis;
+  }
+
+  /**
+   * Profiles each column of the rows.
+   *
+   * @param rows to be profiled.
+   * @return profile of each column, in the order the columns are first found.
+   */
+  public Map<String, ColumnSketch> profile(List<Row> rows) {
+    return profile(columns(rows));
+  }
+
+  /**
+   * @return values of each column of the rows, in the order the columns are first found.
+   */
+  static Map<String, List<Object>> columns(List<Row> rows) {
+    Map<String, List<Object>> columns = new LinkedHashMap<>();
+    for (Row row : rows) {
+      for (Pair<String, Object> field : row.getFields()) {
+        columns.computeIfAbsent(field.getFirst(), k -> new ArrayList<>()).add(field.getSecond());
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Profiles each of the columns.
+   *
+   * @param columns values of each column to be profiled.
+   * @return profile of each column, in the same order as the columns.
+   */
+  Map<String, ColumnSketch> profile(Map<String, List<Object>> columns) {
+    List<String> names = new ArrayList<>(columns.keySet());
+    List<Callable<ColumnSketch>> tasks = new ArrayList<>(columns.size());
+    for (Map.Entry<String, List<Object>> column : columns.entrySet()) {
+      tasks.add(() -> profile(column.getKey(), column.getValue()));
+    }
+    Map<String, ColumnSketch> profiles = new LinkedHashMap<>();
+    List<Future<ColumnSketch>> futures;
+    try {
+      futures = pool.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while profiling the columns.", e);
+    }
+    for (int i = 0; i < futures.size(); i++) {
+      String column = names.get(i);
+      Future<ColumnSketch> future = futures.get(i);
+      try {
+        profiles.put(column, future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while profiling the columns.", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(
+          String.format("Unable to profile column '%s'. %s", column, e.getCause().getMessage()), e.getCause());
+      }
+    }
+    return profiles;
+  }
+
+  private ColumnSketch profile(String column, List<Object> values) {
+    ColumnSketch sketch = new ColumnSketch();
+    List<String> strings = new ArrayList<>();
+    for (Object value : values) {
+      sketch.add(value);
+      String string = value instanceof String ? (String) value : null;
+      if (string != null && !string.isEmpty() && string.length() <= MAX_TYPE_CHECK_LENGTH) {
+        strings.add(string);
+      }
+    }
+
+    int size = strings.size();
+    int checks = Math.min(size, maxTypeChecks);
+    // Seeded by the column so that the same rows always give the same statistics.
+    Random random = new Random(column.hashCode());
+    List<String> picked = new ArrayList<>(checks);
+    for (int stratum = 0; stratum < checks; stratum++) {
+      int start = (int) ((long) stratum * size / checks);
+      int end = (int) ((long) (stratum + 1) * size / checks);
+      picked.add(strings.get(start + random.nextInt(end - start)));
+    }
+    Collections.shuffle(picked, random);
+
+    FinderEngine engine = ENGINES.get();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(typeCheckMillis);
+    for (String value : picked) {
+      if (System.nanoTime() - deadline >= 0) {
+        break;
+      }
+      sketch.addTypes(engine.findWithType(value).keySet());
+    }
+    sketch.freeze();
+    return sketch;
+  }
+
+  private static ExecutorService createPool(int threads) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+      threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("column-profiler-%d").setDaemon(true).build());
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Aggregates the statistics in the same form as {@link BasicStatistics}.
+   */
+  @Override
+  public Row aggregate(List<Row> rows) {
+    double total = rows.size();
+    Row rowTypes = new Row();
+    Row rowStats = new Row();
+    for (Map.Entry<String, ColumnSketch> profile : profile(rows).entrySet()) {
+      rowStats.add(profile.getKey(), toPairs(profile.getValue().getGeneral(total)));
+      Map<String, Double> types = profile.getValue().getTypes(total);
+      if (!types.isEmpty()) {
+        rowTypes.add(profile.getKey(), toPairs(types));
+      }
+    }
+
+    Row row = new Row();
+    row.add("types", rowTypes);
+    row.add("stats", rowStats);
+    row.add("total", total);
+    return row;
+  }
+
+  private static List<Pair<String, Double>> toPairs(Map<String, Double> values) {
+    List<Pair<String, Double>> pairs = new ArrayList<>(values.size());
+    for (Map.Entry<String, Double> value : values.entrySet()) {
+      pairs.add(new Pair<>(value.getKey(), value.getValue()));
+    }
+    return pairs;
+  }
+}
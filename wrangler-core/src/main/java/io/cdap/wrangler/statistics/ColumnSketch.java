@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.statistics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Profile of a column built by {@link ColumnProfiler}, made of counts and sketches of its values.
+ *
+ * <p>Once built, a profile is only read, and can be shared by concurrent requests, such as through a
+ * {@link ProfileCache}.</p>
+ */
+public final class ColumnSketch {
+  private static final int HLL_PRECISION = 12;
+  private static final int TOP_K_CAPACITY = 64;
+  private static final double DIGEST_COMPRESSION = 100;
+  // Values longer than this are truncated when tracked as frequent values.
+  private static final int MAX_TRACKED_LENGTH = 256;
+
+  private final HyperLogLog distinct = new HyperLogLog(HLL_PRECISION);
+  private final TopK frequent = new TopK(TOP_K_CAPACITY);
+  private final TDigest numbers = new TDigest(DIGEST_COMPRESSION);
+  private final Map<String, Double> types = new TreeMap<>();
+  private long nulls;
+  private long nonNulls;
+  private long empty;
+  // Number of non-empty strings, and how many of them were type checked.
+  private long strings;
+  private long checked;
+  private int minLength = -1;
+  private int maxLength = -1;
+
+  void add(Object value) {
+    if (value == null) {
+      nulls++;
+      return;
+    }
+    nonNulls++;
+    String text = value.toString();
+    distinct.add(text);
+    frequent.add(text.length() > MAX_TRACKED_LENGTH ? text.substring(0, MAX_TRACKED_LENGTH) : text);
+    if (value instanceof Number) {
+      addNumber(((Number) value).doubleValue());
+    } else if (value instanceof String) {
+      if (text.isEmpty()) {
+        empty++;
+      } else {
+        strings++;
+        addNumber(text);
+      }
+      minLength = minLength == -1 ? text.length() : Math.min(minLength, text.length());
+      maxLength = Math.max(maxLength, text.length());
+    }
+  }
+
+  /**
+   * Records the types found in a non-empty string that was type checked.
+   */
+  void addTypes(Iterable<String> found) {
+    checked++;
+    for (String type : found) {
+      types.merge(type, 1.0, Double::sum);
+    }
+  }
+
+  /**
+   * Compacts the sketches once all the values are added, so that reading them doesn't change them.
+   */
+  void freeze() {
+    numbers.compress();
+  }
+
+  /**
+   * Strings that look like numbers are added to the quantiles, without the cost of failed parsing.
+   */
+  private void addNumber(String text) {
+    char first = text.charAt(0);
+    if ((first < '0' || first > '9') && first != '-' && first != '+' && first != '.') {
+      return;
+    }
+    try {
+      addNumber(Double.parseDouble(text));
+    } catch (NumberFormatException e) {
+      // Not a number.
+    }
+  }
+
+  private void addNumber(double number) {
+    // Infinite values would make all the quantiles around them infinite.
+    if (!Double.isInfinite(number)) {
+      numbers.add(number);
+    }
+  }
+
+  /**
+   * @param total number of rows profiled.
+   * @return fraction of the rows that are null, non-null and empty.
+   */
+  public Map<String, Double> getGeneral(double total) {
+    Map<String, Double> general = new TreeMap<>();
+    if (nulls > 0) {
+      general.put("null", nulls / total);
+    }
+    if (nonNulls > 0) {
+      general.put("non-null", nonNulls / total);
+    }
+    if (empty > 0) {
+      general.put("empty", empty / total);
+    }
+    return general;
+  }
+
+  /**
+   * @param total number of rows profiled.
+   * @return estimated fraction of the rows having each of the types, extrapolated from the checked values.
+   */
+  public Map<String, Double> getTypes(double total) {
+    if (checked == 0) {
+      return Collections.emptyMap();
+    }
+    Map<String, Double> result = new TreeMap<>();
+    double scale = (double) strings / checked / total;
+    for (Map.Entry<String, Double> type : types.entrySet()) {
+      result.put(type.getKey(), type.getValue() * scale);
+    }
+    return result;
+  }
+
+  /**
+   * @return fraction of the non-empty strings that were type checked, 1 if there are none.
+   */
+  public double getCoverage() {
+    return strings == 0 ? 1.0 : (double) checked / strings;
+  }
+
+  /**
+   * @return estimated number of distinct non-null values.
+   */
+  public long getDistinct() {
+    return distinct.estimate();
+  }
+
+  /**
+   * @return relative standard error of the number of distinct values.
+   */
+  public double getDistinctError() {
+    return distinct.standardError();
+  }
+
+  /**
+   * @param k number of values.
+   * @return the most frequent values with their estimated counts.
+   */
+  public Map<String, Long> getTopValues(int k) {
+    return frequent.top(k);
+  }
+
+  /**
+   * @param quantiles to be estimated, between 0 and 1.
+   * @return estimated value of the numbers at each quantile, empty if there are no numbers.
+   */
+  public Map<Double, Double> getQuantiles(double... quantiles) {
+    Map<Double, Double> result = new LinkedHashMap<>();
+    if (numbers.size() == 0) {
+      return result;
+    }
+    for (double quantile : quantiles) {
+      result.put(quantile, numbers.quantile(quantile));
+    }
+    return result;
+  }
+
+  /**
+   * @return length of the shortest string, -1 if there are no strings.
+   */
+  public int getMinLength() {
+    return minLength;
+  }
+
+  /**
+   * @return length of the longest string, -1 if there are no strings.
+   */
+  public int getMaxLength() {
+    return maxLength;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.statistics;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values with a fixed amount of memory.
+ *
+ * <p>Uses 2<sup>precision</sup> registers of one byte each, the relative standard error of the estimate is
+ * about <tt>1.04 / sqrt(2<sup>precision</sup>)</tt>. Small cardinalities are estimated using linear counting,
+ * which is close to exact.</p>
+ */
+public final class HyperLogLog {
+  private static final HashFunction HASH = Hashing.murmur3_128();
+  private final int precision;
+  private final byte[] registers;
+
+  /**
+   * @param precision number of bits used to index the registers, between 4 and 18.
+   */
+  public HyperLogLog(int precision) {
+    if (precision < 4 || precision > 18) {
+      throw new IllegalArgumentException(
+        String.format("Precision should be between 4 and 18, but is %d.", precision));
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Adds a value to the sketch.
+   *
+   * @param value to be added.
+   */
+  public void add(String value) {
+    addHash(HASH.hashString(value, StandardCharsets.UTF_8).asLong());
+  }
+
+  /**
+   * Adds the 64 bit hash of a value to the sketch.
+   *
+   * @param hash of the value.
+   */
+  public void addHash(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // The guard bit bounds the rank when all the remaining bits are zero.
+    long remaining = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * Merges another sketch of the same precision into this one.
+   *
+   * @param other sketch to be merged.
+   */
+  public void merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException(
+        String.format("Sketches with precisions %d and %d can't be merged.", precision, other.precision));
+    }
+    for (int i = 0; i < registers.length; i++) {
+      registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+    }
+  }
+
+  /**
+   * @return estimated number of distinct values added.
+   */
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * @return relative standard error of the estimates.
+   */
+  public double standardError() {
+    return 1.04 / Math.sqrt(registers.length);
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1 + 1.079 / m);
+    }
+  }
+}
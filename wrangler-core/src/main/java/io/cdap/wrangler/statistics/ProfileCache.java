@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.statistics;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.lineage.Lineage;
+import io.cdap.wrangler.api.lineage.Relation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the profiles of the columns of a scope, such as a workspace, keyed by recipe prefix and column, so that
+ * only the columns changed by the directives added to a recipe are profiled again.
+ *
+ * <p>The columns changed by the added directives are found from their {@link Lineage}. Lineage doesn't cover
+ * the directives that change rows rather than columns, such as filters or sorts, so the other columns are reused
+ * only if a fingerprint of their values is the same as the one of the cached profile. A recipe that isn't an
+ * extension of a cached one, for example after a directive is removed, reuses the profiles of its longest cached
+ * prefix under the same condition.</p>
+ *
+ * <p>The profiles of the least recently used recipes are evicted once their estimated size exceeds the maximum,
+ * each profile being counted as {@link #PROFILE_BYTES}, the size of the sketches of a column.</p>
+ */
+public final class ProfileCache {
+  private static final HashFunction HASH = Hashing.murmur3_128();
+  // Estimated size, in bytes, of the profile of a column, mostly the sketches of its quantiles and frequent values.
+  static final long PROFILE_BYTES = 16 * 1024;
+
+  /**
+   * Parses directives to find their lineage.
+   */
+  @FunctionalInterface
+  public interface DirectiveResolver {
+    /**
+     * @param directives to be parsed.
+     * @return parsed directives.
+     * @throws Exception if the directives can't be parsed.
+     */
+    List<Directive> resolve(List<String> directives) throws Exception;
+  }
+
+  /**
+   * Profile of a column along with the fingerprint of the values it was computed from.
+   */
+  private static final class Entry {
+    private final long fingerprint;
+    private final ColumnSketch sketch;
+
+    private Entry(long fingerprint, ColumnSketch sketch) {
+      this.fingerprint = fingerprint;
+      this.sketch = sketch;
+    }
+  }
+
+  private final ColumnProfiler profiler;
+  private final long maxBytes;
+  private final LinkedHashMap<String, Map<String, Entry>> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+
+  /**
+   * @param profiler used to profile the columns.
+   * @param maxBytes maximum estimated size of the cached profiles, least recently used recipes first evicted.
+   */
+  public ProfileCache(ColumnProfiler profiler, long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException(
+        String.format("Maximum size of the profiles should be greater than 0, but is %d.", maxBytes));
+    }
+    this.profiler = profiler;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Profiles each column of the rows produced by a recipe, reusing the cached profiles of the unchanged columns.
+   *
+   * @param scope in which the recipes are executed, such as a workspace.
+   * @param recipe directives that produced the rows.
+   * @param rows to be profiled.
+   * @param resolver used to find the lineage of the directives added to a cached recipe.
+   * @return profile of each column, in the order the columns are first found.
+   */
+  public Map<String, ColumnSketch> profile(String scope, List<String> recipe, List<Row> rows,
+                                           DirectiveResolver resolver) {
+    String[] keys = keys(scope, recipe);
+    int prefix = keys.length - 1;
+    Map<String, Entry> cached = null;
+    synchronized (this) {
+      for (; prefix >= 0 && cached == null; prefix--) {
+        cached = cache.get(keys[prefix]);
+      }
+    }
+    prefix++;
+    Set<String> changed = cached == null ? null : changed(recipe.subList(prefix, recipe.size()), resolver);
+
+    Map<String, List<Object>> columns = ColumnProfiler.columns(rows);
+    Map<String, Entry> entries = new LinkedHashMap<>();
+    Map<String, List<Object>> stale = new LinkedHashMap<>();
+    for (Map.Entry<String, List<Object>> column : columns.entrySet()) {
+      long fingerprint = fingerprint(column.getValue());
+      Entry entry = cached == null || (changed != null && changed.contains(column.getKey())) ?
+        null : cached.get(column.getKey());
+      if (entry != null && entry.fingerprint == fingerprint) {
+        entries.put(column.getKey(), entry);
+      } else {
+        entries.put(column.getKey(), new Entry(fingerprint, null));
+        stale.put(column.getKey(), column.getValue());
+      }
+    }
+
+    Map<String, ColumnSketch> sketches = profiler.profile(stale);
+    Map<String, ColumnSketch> profiles = new LinkedHashMap<>();
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      ColumnSketch sketch = entry.getValue().sketch;
+      if (sketch == null) {
+        sketch = sketches.get(entry.getKey());
+        entry.setValue(new Entry(entry.getValue().fingerprint, sketch));
+      }
+      profiles.put(entry.getKey(), sketch);
+    }
+
+    synchronized (this) {
+      Map<String, Entry> previous = cache.put(keys[keys.length - 1], entries);
+      bytes += PROFILE_BYTES * (entries.size() - (previous == null ? 0 : previous.size()));
+      Iterator<Map<String, Entry>> iterator = cache.values().iterator();
+      while (bytes > maxBytes && iterator.hasNext()) {
+        bytes -= PROFILE_BYTES * iterator.next().size();
+        iterator.remove();
+      }
+    }
+    return profiles;
+  }
+
+  /**
+   * Returns the cached profiles of the columns of the rows produced by a recipe, without reading the rows. Unlike
+   * {@link #profile(String, List, List, DirectiveResolver)}, the profiles can't be checked against the values of
+   * the columns, so the scope should identify the rows the recipe was executed on, such as a version of a sample.
+   *
+   * @param scope in which the recipe was executed.
+   * @param recipe directives that produced the rows.
+   * @return profile of each column, in the order the columns were first found, null if they are not cached.
+   */
+  @Nullable
+  public synchronized Map<String, ColumnSketch> get(String scope, List<String> recipe) {
+    String[] keys = keys(scope, recipe);
+    Map<String, Entry> entries = cache.get(keys[keys.length - 1]);
+    if (entries == null) {
+      return null;
+    }
+    Map<String, ColumnSketch> profiles = new LinkedHashMap<>();
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      profiles.put(entry.getKey(), entry.getValue().sketch);
+    }
+    return profiles;
+  }
+
+  /**
+   * Finds the columns changed by the directives from their lineage.
+   *
+   * @param directives whose lineage is used.
+   * @return columns created, modified or dropped by the directives, null if they can't be determined.
+   */
+  public static Set<String> changedColumns(List<Directive> directives) {
+    Set<String> columns = new HashSet<>();
+    for (Directive directive : directives) {
+      if (!(directive instanceof Lineage)) {
+        return null;
+      }
+      for (Relation relation : ((Lineage) directive).lineage().relations()) {
+        switch (relation.getType()) {
+          case DROP:
+            columns.addAll(relation.getSources());
+            break;
+          case ALL:
+            // The columns generated are only known once the data is seen.
+            return null;
+          default:
+            columns.addAll(relation.getTargets());
+            break;
+        }
+      }
+    }
+    return columns;
+  }
+
+  private static Set<String> changed(List<String> directives, DirectiveResolver resolver) {
+    if (directives.isEmpty()) {
+      return new HashSet<>();
+    }
+    try {
+      return changedColumns(resolver.resolve(directives));
+    } catch (Exception e) {
+      // Without lineage, the fingerprints of all the columns are compared.
+      return null;
+    }
+  }
+
+  /**
+   * @return keys of all the prefixes of the recipe, the one at index <tt>i</tt> having <tt>i</tt> directives.
+   */
+  private static String[] keys(String scope, List<String> recipe) {
+    String[] keys = new String[recipe.size() + 1];
+    long hash = HASH.hashString(scope, StandardCharsets.UTF_8).asLong();
+    keys[0] = scope + ":" + Long.toHexString(hash);
+    for (int i = 0; i < recipe.size(); i++) {
+      hash = hash * 31 + HASH.hashString(recipe.get(i).trim(), StandardCharsets.UTF_8).asLong();
+      keys[i + 1] = scope + ":" + Long.toHexString(hash);
+    }
+    return keys;
+  }
+
+  /**
+   * @return order sensitive hash of the values and of their types.
+   */
+  static long fingerprint(List<Object> values) {
+    long fingerprint = values.size();
+    for (Object value : values) {
+      long hash;
+      if (value == null) {
+        hash = 0;
+      } else if (value instanceof String) {
+        hash = HASH.hashUnencodedChars((String) value).asLong();
+      } else if (value instanceof byte[]) {
+        hash = HASH.hashBytes((byte[]) value).asLong();
+      } else {
+        hash = HASH.newHasher()
+          .putInt(Objects.hashCode(value))
+          .putInt(value.getClass().getName().hashCode())
+          .hash().asLong();
+      }
+      fingerprint = fingerprint * 0x9E3779B97F4A7C15L + hash;
+    }
+    return fingerprint;
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.statistics;
+
+import java.util.Arrays;
+
+/**
+ * A merging t-digest estimating quantiles of a stream of numbers with bounded memory.
+ *
+ * <p>Values are buffered and periodically merged into a sorted list of centroids, whose sizes are bounded so
+ * that centroids near the extremes stay small. Quantiles near 0 and 1 are therefore more accurate than the
+ * median. The number of centroids is proportional to the compression.</p>
+ *
+ * <p>Values can't be added concurrently. Once {@link #compress()} is called and no value is added anymore, the
+ * quantiles can be estimated concurrently, since estimating them doesn't change the digest.</p>
+ */
+public final class TDigest {
+  private final double compression;
+  private double[] means;
+  private double[] weights;
+  private int centroids;
+  private final double[] buffer;
+  private int buffered;
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /**
+   * @param compression bounds the number of centroids, 100 is a common value.
+   */
+  public TDigest(double compression) {
+    if (compression < 10) {
+      throw new IllegalArgumentException(
+        String.format("Compression should be at least 10, but is %s.", compression));
+    }
+    this.compression = compression;
+    int size = (int) Math.ceil(compression) * 2;
+    this.means = new double[size];
+    this.weights = new double[size];
+    this.buffer = new double[size * 5];
+  }
+
+  private TDigest(TDigest other) {
+    this.compression = other.compression;
+    this.means = other.means.clone();
+    this.weights = other.weights.clone();
+    this.centroids = other.centroids;
+    this.buffer = other.buffer.clone();
+    this.buffered = other.buffered;
+    this.count = other.count;
+    this.min = other.min;
+    this.max = other.max;
+  }
+
+  /**
+   * Adds a value to the digest, NaN values are ignored.
+   *
+   * @param value to be added.
+   */
+  public void add(double value) {
+    if (Double.isNaN(value)) {
+      return;
+    }
+    if (buffered == buffer.length) {
+      compress();
+    }
+    buffer[buffered++] = value;
+    count++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * @return number of values added.
+   */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * @param q quantile, between 0 and 1.
+   * @return estimated value at the quantile, NaN if no value was added.
+   */
+  public double quantile(double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException(String.format("Quantile should be between 0 and 1, but is %s.", q));
+    }
+    if (buffered > 0) {
+      // The buffered values are merged into a copy, so that the digest is never changed by reads.
+      TDigest copy = new TDigest(this);
+      copy.compress();
+      return copy.quantile(q);
+    }
+    if (centroids == 0) {
+      return Double.NaN;
+    }
+    if (centroids == 1 || q == 0) {
+      return q == 1 ? max : (centroids == 1 ? means[0] : min);
+    }
+    double index = q * count;
+    // The first and last half centroids are interpolated with the extremes.
+    if (index < weights[0] / 2) {
+      return min + (means[0] - min) * index / (weights[0] / 2);
+    }
+    double cumulative = weights[0] / 2;
+    for (int i = 0; i < centroids - 1; i++) {
+      double gap = (weights[i] + weights[i + 1]) / 2;
+      if (cumulative + gap > index) {
+        double fraction = (index - cumulative) / gap;
+        return means[i] + (means[i + 1] - means[i]) * fraction;
+      }
+      cumulative += gap;
+    }
+    double last = weights[centroids - 1] / 2;
+    double fraction = Math.min(1, (index - cumulative) / last);
+    return means[centroids - 1] + (max - means[centroids - 1]) * fraction;
+  }
+
+  /**
+   * Merges the buffered values with the centroids. Should be called once all the values are added, before the
+   * digest is shared, so that estimating quantiles doesn't need to copy the buffered values.
+   */
+  public void compress() {
+    if (buffered == 0) {
+      return;
+    }
+    Arrays.sort(buffer, 0, buffered);
+    int total = centroids + buffered;
+    double[] mergedMeans = new double[total];
+    double[] mergedWeights = new double[total];
+    // Merge the sorted centroids and the sorted buffer.
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < total; k++) {
+      if (j >= buffered || (i < centroids && means[i] <= buffer[j])) {
+        mergedMeans[k] = means[i];
+        mergedWeights[k] = weights[i++];
+      } else {
+        mergedMeans[k] = buffer[j++];
+        mergedWeights[k] = 1;
+      }
+    }
+    buffered = 0;
+
+    double[] newMeans = new double[Math.max(means.length, total)];
+    double[] newWeights = new double[newMeans.length];
+    int size = 0;
+    double soFar = 0;
+    newMeans[0] = mergedMeans[0];
+    newWeights[0] = mergedWeights[0];
+    for (int k = 1; k < total; k++) {
+      double proposed = newWeights[size] + mergedWeights[k];
+      double q0 = soFar / count;
+      double q2 = (soFar + proposed) / count;
+      double limit = count * 4 * Math.min(q0 * (1 - q0), q2 * (1 - q2)) / compression;
+      if (proposed <= limit) {
+        newMeans[size] += (mergedMeans[k] - newMeans[size]) * mergedWeights[k] / proposed;
+        newWeights[size] = proposed;
+      } else {
+        soFar += newWeights[size];
+        size++;
+        newMeans[size] = mergedMeans[k];
+        newWeights[size] = mergedWeights[k];
+      }
+    }
+    means = newMeans;
+    weights = newWeights;
+    centroids = size + 1;
+  }
+}
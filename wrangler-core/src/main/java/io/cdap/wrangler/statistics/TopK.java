@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.statistics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Space-Saving sketch tracking the most frequent values using a fixed number of counters.
+ *
+ * <p>When all the counters are in use, the value with the lowest count is replaced by the new value, which
+ * inherits its count. Counts are therefore upper bounds, overestimated by at most <tt>n / capacity</tt> for
+ * <tt>n</tt> values added, and every value occurring more often than that is guaranteed to be tracked.</p>
+ */
+public final class TopK {
+  private final int capacity;
+  private final Map<String, long[]> counters;
+
+  /**
+   * @param capacity number of counters, a few times the number of values to report.
+   */
+  public TopK(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(String.format("Capacity should be greater than 0, but is %d.", capacity));
+    }
+    this.capacity = capacity;
+    this.counters = new HashMap<>(capacity * 2);
+  }
+
+  /**
+   * Adds an occurrence of a value.
+   *
+   * @param value to be added.
+   */
+  public void add(String value) {
+    long[] count = counters.get(value);
+    if (count != null) {
+      count[0]++;
+      return;
+    }
+    if (counters.size() < capacity) {
+      counters.put(value, new long[] { 1 });
+      return;
+    }
+    String smallest = null;
+    long min = Long.MAX_VALUE;
+    for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+      if (entry.getValue()[0] < min) {
+        min = entry.getValue()[0];
+        smallest = entry.getKey();
+      }
+    }
+    counters.remove(smallest);
+    counters.put(value, new long[] { min + 1 });
+  }
+
+  /**
+   * @param k number of values to return.
+   * @return at most <tt>k</tt> most frequent values with their estimated counts, in decreasing order of count.
+   */
+  public Map<String, Long> top(int k) {
+    List<Map.Entry<String, long[]>> entries = new ArrayList<>(counters.entrySet());
+    entries.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed());
+    Map<String, Long> top = new LinkedHashMap<>();
+    for (int i = 0; i < Math.min(k, entries.size()); i++) {
+      top.put(entries.get(i).getKey(), entries.get(i).getValue()[0]);
+    }
+    return top;
+  }
+}
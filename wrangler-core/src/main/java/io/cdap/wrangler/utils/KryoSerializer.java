@@ -19,37 +19,55 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
 import com.esotericsoftware.kryo.serializers.JavaSerializer;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.wrangler.api.RemoteDirectiveResponse;
 import io.cdap.wrangler.api.Row;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A helper class with allows Serialization and Deserialization using Kryo
  * We should register all schema classes present in {@link SchemaConverter}
  * and {@link RemoteDirectiveResponse}
+ *
+ * <p>Rows are written in a binary envelope: a header, the optional schema, then chunks of rows, each starting with
+ * its number of rows and the last one being empty. Column names are written once per envelope and referred to
+ * by index afterwards. Kryo instances are pooled, since registering the classes is costly.</p>
  **/
 public class KryoSerializer {
+  private static final byte[] MAGIC = { 'W', 'R', 'K', 'R' };
+  private static final int VERSION = 2;
+  private static final int CHUNK_ROWS = 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final KryoPool POOL = new KryoPool.Builder(KryoSerializer::createKryo).softReferences().build();
 
-  private final Kryo kryo;
-  private static final Gson GSON = new Gson();
-
-  public KryoSerializer() {
-    kryo = new Kryo();
+  private static Kryo createKryo() {
+    Kryo kryo = new Kryo();
     // Register all classes from RemoteDirectiveResponse
     kryo.register(RemoteDirectiveResponse.class);
     // Schema does not have no-arg constructor but implements Serializable
@@ -59,42 +77,260 @@ public class KryoSerializer {
     kryo.register(ArrayList.class);
     kryo.register(LocalDate.class);
     kryo.register(LocalTime.class);
+    kryo.register(LocalDateTime.class);
     kryo.register(ZonedDateTime.class);
+    kryo.register(BigDecimal.class);
+    kryo.register(BigInteger.class);
+    kryo.register(byte[].class);
+    kryo.register(HashMap.class);
+    kryo.register(LinkedHashMap.class);
+    kryo.register(HashSet.class);
     kryo.register(Map.class);
-    kryo.register(JsonNull.class);
-    // JsonPrimitive does not have no-arg constructor hence we need a
-    // custom serializer as it is not serializable by JavaSerializer
-    kryo.register(JsonPrimitive.class, new JsonSerializer());
-    kryo.register(JsonArray.class);
-    kryo.register(JsonObject.class);
+    // Json elements are written as trees of typed values rather than as JSON strings
+    JsonSerializer json = new JsonSerializer();
+    kryo.register(JsonNull.class, json);
+    kryo.register(JsonPrimitive.class, json);
+    kryo.register(JsonArray.class, json);
+    kryo.register(JsonObject.class, json);
     // Support deprecated util.date classes
     kryo.register(Date.class);
     kryo.register(java.sql.Date.class);
     kryo.register(Time.class);
     kryo.register(Timestamp.class);
+    return kryo;
   }
 
   public byte[] fromRemoteDirectiveResponse(RemoteDirectiveResponse response) {
-    Output output = new Output(1024, -1);
-    kryo.writeClassAndObject(output, response);
-    return output.getBuffer();
+    return POOL.run(kryo -> {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+      try (Output output = new Output(bytes, BUFFER_SIZE)) {
+        output.writeBytes(MAGIC);
+        output.writeByte(VERSION);
+        kryo.writeObjectOrNull(output, response.getOutputSchema(), Schema.class);
+        writeRows(kryo, output, response.getRows());
+      }
+      return bytes.toByteArray();
+    });
   }
 
   public RemoteDirectiveResponse toRemoteDirectiveResponse(byte[] bytes) {
-    Input input = new Input(bytes);
-    return (RemoteDirectiveResponse) kryo.readClassAndObject(input);
+    if (!isSerialized(bytes)) {
+      throw new IllegalArgumentException("Bytes were not written by the Kryo serializer");
+    }
+    return POOL.run(kryo -> {
+      try (Input input = new Input(new ByteArrayInputStream(bytes), BUFFER_SIZE)) {
+        input.skip(MAGIC.length + 1);
+        Schema schema = kryo.readObjectOrNull(input, Schema.class);
+        return new RemoteDirectiveResponse(readRows(kryo, input), schema);
+      }
+    });
+  }
+
+  /**
+   * Writes rows without any schema, to be read by {@link #toRows(byte[])}.
+   */
+  public byte[] fromRows(List<Row> rows) {
+    return fromRemoteDirectiveResponse(new RemoteDirectiveResponse(rows, null));
+  }
+
+  public List<Row> toRows(byte[] bytes) {
+    return toRemoteDirectiveResponse(bytes).getRows();
+  }
+
+  /**
+   * @return true if the bytes were written by this serializer, rather than with Java serialization.
+   */
+  public static boolean isSerialized(byte[] bytes) {
+    if (bytes.length <= MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (bytes[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return bytes[MAGIC.length] == VERSION;
+  }
+
+  private static void writeRows(Kryo kryo, Output output, List<Row> rows) {
+    Map<String, Integer> columns = new HashMap<>();
+    for (int start = 0; start < rows.size(); start += CHUNK_ROWS) {
+      List<Row> chunk = rows.subList(start, Math.min(rows.size(), start + CHUNK_ROWS));
+      output.writeVarInt(chunk.size(), true);
+      for (Row row : chunk) {
+        output.writeVarInt(row.width(), true);
+        for (int i = 0; i < row.width(); i++) {
+          // 0 is followed by a new column name, other values refer to the names written before.
+          Integer column = columns.get(row.getColumn(i));
+          if (column == null) {
+            output.writeVarInt(0, true);
+            output.writeString(row.getColumn(i));
+            columns.put(row.getColumn(i), columns.size() + 1);
+          } else {
+            output.writeVarInt(column, true);
+          }
+          kryo.writeClassAndObject(output, row.getValue(i));
+        }
+      }
+    }
+    output.writeVarInt(0, true);
   }
 
+  private static List<Row> readRows(Kryo kryo, Input input) {
+    List<String> columns = new ArrayList<>();
+    List<Row> rows = new ArrayList<>();
+    for (int size = input.readVarInt(true); size > 0; size = input.readVarInt(true)) {
+      for (int i = 0; i < size; i++) {
+        Row row = new Row();
+        int width = input.readVarInt(true);
+        for (int j = 0; j < width; j++) {
+          int column = input.readVarInt(true);
+          if (column == 0) {
+            columns.add(input.readString());
+            column = columns.size();
+          }
+          row.add(columns.get(column - 1), kryo.readClassAndObject(input));
+        }
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Writes json elements as tagged values, so that primitives keep their type without going through JSON. Numbers
+   * are read back with the class they were created with, numbers of other classes than the common ones, such as
+   * the ones parsed from JSON, being read back as {@link LazilyParsedNumber}.
+   */
   static class JsonSerializer extends Serializer<JsonElement> {
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int NUMBER = 3;
+    private static final int STRING = 4;
+    private static final int ARRAY = 5;
+    private static final int OBJECT = 6;
+    private static final int INTEGER = 7;
+    private static final int LONG = 8;
+    private static final int SHORT = 9;
+    private static final int BYTE = 10;
+    private static final int DOUBLE = 11;
+    private static final int FLOAT = 12;
+    private static final int BIG_DECIMAL = 13;
+    private static final int BIG_INTEGER = 14;
 
     @Override
     public void write(Kryo kryo, Output output, JsonElement object) {
-      output.writeString(GSON.toJson(object));
+      if (object.isJsonObject()) {
+        Set<Map.Entry<String, JsonElement>> members = object.getAsJsonObject().entrySet();
+        output.writeByte(OBJECT);
+        output.writeVarInt(members.size(), true);
+        for (Map.Entry<String, JsonElement> member : members) {
+          output.writeString(member.getKey());
+          write(kryo, output, member.getValue());
+        }
+      } else if (object.isJsonArray()) {
+        JsonArray array = object.getAsJsonArray();
+        output.writeByte(ARRAY);
+        output.writeVarInt(array.size(), true);
+        for (JsonElement element : array) {
+          write(kryo, output, element);
+        }
+      } else if (object.isJsonNull()) {
+        output.writeByte(NULL);
+      } else {
+        JsonPrimitive primitive = object.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+          output.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+        } else if (primitive.isNumber()) {
+          write(output, primitive.getAsNumber());
+        } else {
+          output.writeByte(STRING);
+          output.writeString(primitive.getAsString());
+        }
+      }
+    }
+
+    private static void write(Output output, Number number) {
+      if (number instanceof Integer) {
+        output.writeByte(INTEGER);
+        output.writeVarInt(number.intValue(), false);
+      } else if (number instanceof Long) {
+        output.writeByte(LONG);
+        output.writeVarLong(number.longValue(), false);
+      } else if (number instanceof Short) {
+        output.writeByte(SHORT);
+        output.writeShort(number.shortValue());
+      } else if (number instanceof Byte) {
+        output.writeByte(BYTE);
+        output.writeByte(number.byteValue());
+      } else if (number instanceof Double) {
+        output.writeByte(DOUBLE);
+        output.writeDouble(number.doubleValue());
+      } else if (number instanceof Float) {
+        output.writeByte(FLOAT);
+        output.writeFloat(number.floatValue());
+      } else if (number instanceof BigDecimal) {
+        output.writeByte(BIG_DECIMAL);
+        output.writeString(number.toString());
+      } else if (number instanceof BigInteger) {
+        output.writeByte(BIG_INTEGER);
+        output.writeString(number.toString());
+      } else {
+        output.writeByte(NUMBER);
+        output.writeString(number.toString());
+      }
     }
 
     @Override
     public JsonElement read(Kryo kryo, Input input, Class<JsonElement> type) {
-      return GSON.fromJson(input.readString(), type);
+      return read(input);
+    }
+
+    private JsonElement read(Input input) {
+      int tag = input.readByte();
+      switch (tag) {
+        case NULL:
+          return JsonNull.INSTANCE;
+        case TRUE:
+          return new JsonPrimitive(true);
+        case FALSE:
+          return new JsonPrimitive(false);
+        case NUMBER:
+          return new JsonPrimitive(new LazilyParsedNumber(input.readString()));
+        case INTEGER:
+          return new JsonPrimitive(input.readVarInt(false));
+        case LONG:
+          return new JsonPrimitive(input.readVarLong(false));
+        case SHORT:
+          return new JsonPrimitive(input.readShort());
+        case BYTE:
+          return new JsonPrimitive(input.readByte());
+        case DOUBLE:
+          return new JsonPrimitive(input.readDouble());
+        case FLOAT:
+          return new JsonPrimitive(input.readFloat());
+        case BIG_DECIMAL:
+          return new JsonPrimitive(new BigDecimal(input.readString()));
+        case BIG_INTEGER:
+          return new JsonPrimitive(new BigInteger(input.readString()));
+        case STRING:
+          return new JsonPrimitive(input.readString());
+        case ARRAY:
+          JsonArray array = new JsonArray();
+          for (int size = input.readVarInt(true); size > 0; size--) {
+            array.add(read(input));
+          }
+          return array;
+        case OBJECT:
+          JsonObject object = new JsonObject();
+          for (int size = input.readVarInt(true); size > 0; size--) {
+            object.add(input.readString(), read(input));
+          }
+          return object;
+        default:
+          throw new IllegalArgumentException("Unknown json element type " + tag);
+      }
     }
   }
 }
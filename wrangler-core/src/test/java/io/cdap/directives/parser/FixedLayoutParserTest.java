@@ -0,0 +1,189 @@
+/*
+ *  Copyright © 2024 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package io.cdap.directives.parser;
+
+import io.cdap.wrangler.TestingRig;
+import io.cdap.wrangler.api.Pair;
+import io.cdap.wrangler.api.RecipeException;
+import io.cdap.wrangler.api.RecipePipeline;
+import io.cdap.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@link FixedLayoutParser}
+ */
+public class FixedLayoutParserTest {
+
+  @Test
+  public void testSingleLayout() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-fixed-layout :body 'id:4:int,name:8:trim,amount:7:decimal,code:3'",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "0042  Joe     12.50 AB")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals(42, rows.get(0).getValue("id"));
+    Assert.assertEquals("Joe", rows.get(0).getValue("name"));
+    Assert.assertEquals(new BigDecimal("12.50"), rows.get(0).getValue("amount"));
+    Assert.assertEquals(" AB", rows.get(0).getValue("code"));
+    Assert.assertEquals("0042  Joe     12.50 AB", rows.get(0).getValue("body"));
+  }
+
+  @Test
+  public void testMultipleLayouts() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-fixed-layout :body 'HD=type:2,batch:6:long,date:8','DT=type:2,sku:5:trim,qty:3:int,price:6:double' 0 2",
+    };
+
+    String header = "HD00001720240101";
+    String detail1 = "DTAB1  007 12.25";
+    String detail2 = "DTXYZ99-12  1.50";
+    List<Row> rows = Arrays.asList(
+      new Row("body", header + detail1 + detail2),
+      new Row("body", detail1)
+    );
+
+    RecipePipeline executor = TestingRig.execute(directives);
+    rows = executor.execute(rows);
+
+    Assert.assertEquals(4, rows.size());
+    Assert.assertEquals(0, executor.errors().size());
+    Assert.assertEquals("HD", rows.get(0).getValue("type"));
+    Assert.assertEquals(17L, rows.get(0).getValue("batch"));
+    Assert.assertEquals("20240101", rows.get(0).getValue("date"));
+    Assert.assertEquals("AB1", rows.get(1).getValue("sku"));
+    Assert.assertEquals(7, rows.get(1).getValue("qty"));
+    Assert.assertEquals(12.25, rows.get(1).getValue("price"));
+    Assert.assertEquals("XYZ99", rows.get(2).getValue("sku"));
+    Assert.assertEquals(-12, rows.get(2).getValue("qty"));
+    Assert.assertEquals(1.5, rows.get(2).getValue("price"));
+    Assert.assertEquals("AB1", rows.get(3).getValue("sku"));
+  }
+
+  @Test
+  public void testBytes() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-fixed-layout :body 'A=type:1,id:3:int','B=type:1,name:5:trim' 0 1 'Cp037'",
+    };
+
+    byte[] data = "A042B Zed ".getBytes("Cp037");
+    List<Row> rows = TestingRig.execute(directives, Collections.singletonList(new Row("body", data)));
+
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals(42, rows.get(0).getValue("id"));
+    Assert.assertEquals("Zed", rows.get(1).getValue("name"));
+
+    directives = new String[] {
+      "parse-as-fixed-layout :body 'id:3:int,name:5'",
+    };
+    rows = TestingRig.execute(directives, Collections.singletonList(
+      new Row("body", "007Bond ".getBytes(StandardCharsets.UTF_8))));
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals(7, rows.get(0).getValue("id"));
+    Assert.assertEquals("Bond ", rows.get(0).getValue("name"));
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-fixed-layout :body 'X=type:1,id:3:int','Y=type:1,id:2' 0 1",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "X12"),
+      new Row("body", "X001Z99"),
+      new Row("body", "XA01"),
+      new Row("body", "X001Y22\n"),
+      new Row("body", "X001Y22X0")
+    );
+
+    RecipePipeline executor = TestingRig.execute(directives);
+    rows = executor.execute(rows);
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals(4, executor.errors().size());
+  }
+
+  @Test
+  public void testErrorRowsAreUnchanged() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-fixed-layout :body 'id:4:int,name:8:trim,amount:5:decimal'",
+    };
+
+    // The amount can't be converted once the id and name are already parsed
+    Pair<List<Row>, List<Row>> results = TestingRig.executeWithErrors(directives, Arrays.asList(
+      new Row("body", "0042  Joe   xx.50"),
+      new Row("body", "0042  Joe   xx.50".getBytes(StandardCharsets.UTF_8))));
+    Assert.assertEquals(0, results.getFirst().size());
+    Assert.assertEquals(2, results.getSecond().size());
+    for (Row error : results.getSecond()) {
+      Assert.assertEquals(Collections.singletonList("body"), columns(error));
+    }
+  }
+
+  @Test
+  public void testExistingColumns() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-fixed-layout :body 'id:2:int,body:3'",
+      "parse-as-fixed-layout :body 'first:1,rest:2'",
+    };
+
+    List<Row> rows = TestingRig.execute(directives, Collections.singletonList(new Row("body", "07abc")));
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals(Arrays.asList("body", "id", "first", "rest"), columns(rows.get(0)));
+    Assert.assertEquals(7, rows.get(0).getValue("id"));
+    Assert.assertEquals("abc", rows.get(0).getValue("body"));
+    Assert.assertEquals("a", rows.get(0).getValue("first"));
+    Assert.assertEquals("bc", rows.get(0).getValue("rest"));
+  }
+
+  private static List<String> columns(Row row) {
+    List<String> columns = new ArrayList<>();
+    for (int i = 0; i < row.width(); i++) {
+      columns.add(row.getColumn(i));
+    }
+    return columns;
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testMissingDiscriminator() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-fixed-layout :body 'X=type:1,id:3','Y=type:1,id:2'",
+    };
+    TestingRig.execute(directives, new ArrayList<>());
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testInvalidType() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-fixed-layout :body 'id:3:integer'",
+    };
+    TestingRig.execute(directives, new ArrayList<>());
+  }
+}
@@ -17,12 +17,20 @@
 package io.cdap.directives.parser;
 
 import io.cdap.wrangler.TestingRig;
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.RecipeException;
+import io.cdap.wrangler.api.RecipePipeline;
 import io.cdap.wrangler.api.Row;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Tests {@link ParseLog}
@@ -83,4 +91,84 @@ public class ParseLogTest {
 
     Assert.assertTrue(rows.size() == 1);
   }
+
+  @Test
+  public void testSelectedFields() throws Exception {
+    String[] directives = new String[]{
+      "parse-as-log :body '%h %l %u %t \"%r\" %>s %b' 'ip_connection_client_host'," +
+        "'HTTP.PATH:request.firstline.uri.path'",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals(3, rows.get(0).width());
+    Assert.assertEquals("127.0.0.1", rows.get(0).getValue("ip_connection_client_host"));
+    Assert.assertEquals("/apache_pb.gif", rows.get(0).getValue("http_path_request_firstline_uri_path"));
+  }
+
+  @Test
+  public void testFieldsFromKeepAndDrop() throws Exception {
+    String[] directives = new String[]{
+      "parse-as-log body %h %l %u %t \"%r\" %>s %b",
+      "drop ip_connection_client_host",
+      "keep ip_connection_client_host,http_path_request_firstline_uri_path",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326"),
+      new Row("body", "not a log line")
+    );
+
+    RecipePipeline pipeline = TestingRig.execute(directives);
+    rows = pipeline.execute(rows);
+
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals(1, rows.get(0).width());
+    Assert.assertEquals("/apache_pb.gif", rows.get(0).getValue("http_path_request_firstline_uri_path"));
+    Assert.assertEquals(0, rows.get(1).width());
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testUnknownFields() throws Exception {
+    String[] directives = new String[]{
+      "parse-as-log :body 'common' 'client_host'",
+    };
+    TestingRig.execute(directives, new ArrayList<>());
+  }
+
+  @Test
+  public void testExecutionOnSeveralThreads() throws Exception {
+    Directive directive = TestingRig.parse(new String[]{
+      "parse-as-log :body '%h %l %u %t \"%r\" %>s %b' 'ip_connection_client_host'",
+    }).parse().get(0);
+
+    // The same directive executed on other threads uses the parsers of those threads.
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Callable<Boolean>> tasks = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        String host = "10.0.0." + i;
+        tasks.add(() -> {
+          for (int j = 0; j < 200; j++) {
+            Row row = new Row("body", host + " - frank [10/Oct/2000:13:55:36 -0700] \"GET / HTTP/1.0\" 200 2326");
+            directive.execute(new ArrayList<>(Arrays.asList(row)), null);
+            if (!host.equals(row.getValue("ip_connection_client_host"))) {
+              return false;
+            }
+          }
+          return true;
+        });
+      }
+      for (Future<Boolean> result : executor.invokeAll(tasks)) {
+        Assert.assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
@@ -0,0 +1,118 @@
+/*
+ *  Copyright © 2024 Cask Data, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License. You may obtain a copy of
+ *  the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package io.cdap.directives.parser;
+
+import io.cdap.directives.xml.XmlPath;
+import io.cdap.wrangler.TestingRig;
+import io.cdap.wrangler.api.RecipeException;
+import io.cdap.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link XmlPath}
+ */
+public class XmlPathTest {
+  private static final String ORDER =
+    "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>" +
+      "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+      "<soap:Body>" +
+      "<order id=\"A-17\" status=\"open\">" +
+      "<customer><name> Joltie </name><email>root@example.com</email></customer>" +
+      "<line sku=\"1\"><qty>2</qty></line>" +
+      "<line sku=\"2\"><qty>5</qty></line>" +
+      "<note><![CDATA[fragile & <heavy>]]></note>" +
+      "</order>" +
+      "</soap:Body>" +
+      "</soap:Envelope>";
+
+  @Test
+  public void testMultiplePaths() throws Exception {
+    String[] directives = new String[] {
+      "xpath :body :id,:name,:sku,:qty,:note,:missing " +
+        "'/soap:Envelope/soap:Body/order/@id','/Envelope/Body/order/customer/name'," +
+        "'/*/*/order/line/@sku','/Envelope/Body/order/line/qty/text()','/Envelope/Body/order/note'," +
+        "'/Envelope/Body/order/shipping'"
+    };
+
+    List<Row> rows = TestingRig.execute(directives, Arrays.asList(new Row("body", ORDER)));
+
+    Assert.assertEquals(1, rows.size());
+    Row row = rows.get(0);
+    Assert.assertEquals("A-17", row.getValue("id"));
+    Assert.assertEquals("Joltie", row.getValue("name"));
+    Assert.assertEquals("1", row.getValue("sku"));
+    Assert.assertEquals("2", row.getValue("qty"));
+    Assert.assertEquals("fragile & <heavy>", row.getValue("note"));
+    Assert.assertNull(row.getValue("missing"));
+    Assert.assertEquals(ORDER, row.getValue("body"));
+  }
+
+  @Test
+  public void testSinglePathAndNestedText() throws Exception {
+    String[] directives = new String[] {
+      "xpath :body :customer '/Envelope/Body/order/customer'"
+    };
+
+    List<Row> rows = TestingRig.execute(directives, Arrays.asList(new Row("body", ORDER), new Row("body", null)));
+
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals("Joltie root@example.com", rows.get(0).getValue("customer"));
+    Assert.assertNull(rows.get(1).getValue("customer"));
+  }
+
+  @Test
+  public void testEntityReference() throws Exception {
+    String[] directives = new String[] {
+      "xpath :body :name,:sku '/order/customer/name','/order/line/@sku'"
+    };
+    String xml = "<order><customer><name>Joltie &amp; &co; Inc</name></customer><line sku=\"1\"/></order>";
+
+    List<Row> rows = TestingRig.execute(directives, Arrays.asList(new Row("body", xml)));
+
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals("Joltie & &co; Inc", rows.get(0).getValue("name"));
+    Assert.assertEquals("1", rows.get(0).getValue("sku"));
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testUnsupportedPath() throws Exception {
+    String[] directives = new String[] {
+      "xpath :body :qty '//line[1]/qty'"
+    };
+    TestingRig.execute(directives, Arrays.asList(new Row("body", ORDER)));
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testMismatchedDestinations() throws Exception {
+    String[] directives = new String[] {
+      "xpath :body :id,:name '/Envelope/Body/order/@id'"
+    };
+    TestingRig.execute(directives, Arrays.asList(new Row("body", ORDER)));
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testMalformedDocument() throws Exception {
+    String[] directives = new String[] {
+      "xpath :body :qty '/order/line/qty'"
+    };
+    TestingRig.execute(directives, Arrays.asList(new Row("body", "<order><line><qty>1</order>")));
+  }
+}
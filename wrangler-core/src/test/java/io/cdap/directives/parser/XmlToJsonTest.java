@@ -16,9 +16,14 @@
 
 package io.cdap.directives.parser;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.cdap.directives.xml.XmlStreamConverter;
 import io.cdap.directives.xml.XmlToJson;
 import io.cdap.wrangler.TestingRig;
+import io.cdap.wrangler.api.RecipeException;
 import io.cdap.wrangler.api.Row;
+import org.json.XML;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -51,4 +56,56 @@ public class XmlToJsonTest {
     Assert.assertEquals("{\"tagid\":3.03246306303E19}", rows.get(0).getValue("body_2_Data").toString());
     Assert.assertEquals("{\"tagid\":\"303246306303E8\"}", rows.get(0).getValue("body_3_Data").toString());
   }
+
+  @Test
+  public void testStreamingConversionMatchesOrgJson() throws Exception {
+    String[] documents = new String[] {
+      "<a><b>1</b><b>2.50</b><c x=\"true\" y=\"-0\">text</c><d/><e></e><f>null</f></a>",
+      "<?xml version=\"1.0\"?><!-- comment --><root id=\"007\"><item>a &amp; b</item>" +
+        "<item><name>x</name></item><mixed>one<br/>two</mixed><big>12345678901234</big></root>",
+      "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+        "<order id=\"17\"><total>  1e5 </total><note><![CDATA[ <raw> ]]></note></order></soap:Body></soap:Envelope>",
+      // Fragments that are not well-formed documents.
+      "<a>1</a><b>2</b><a>3</a>",
+      "before <a x=\"1\">text</a> after",
+      "<a>1</a>trailing"
+    };
+
+    XmlStreamConverter converter = new XmlStreamConverter();
+    JsonParser parser = new JsonParser();
+    for (String document : documents) {
+      for (boolean keepStrings : new boolean[] { true, false }) {
+        JsonElement expected = parser.parse(XML.toJSONObject(document, keepStrings).toString());
+        Assert.assertEquals(expected, converter.toJson(document, keepStrings));
+      }
+    }
+  }
+
+  @Test
+  public void testFragment() throws Exception {
+    String[] directives = new String[] {
+      "parse-xml-to-json body 1 true",
+    };
+
+    // Fragments with several top level elements are converted as they always were.
+    List<Row> rows = Arrays.asList(
+      new Row("body", "<a>1</a><b>two</b>")
+    );
+    rows = TestingRig.execute(directives, rows);
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals("1", rows.get(0).getValue("body_a"));
+    Assert.assertEquals("two", rows.get(0).getValue("body_b"));
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testMalformedDocument() throws Exception {
+    String[] directives = new String[] {
+      "parse-xml-to-json body",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "<Data><tagid>1</Data>")
+    );
+    TestingRig.execute(directives, rows);
+  }
 }
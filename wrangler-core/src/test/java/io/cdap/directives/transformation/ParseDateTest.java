@@ -187,6 +187,31 @@ public class ParseDateTest {
     // TODO CDAP-14243 - add more tests once the issue with parser is fixed
   }
 
+  @Test
+  public void testDateParserWithFormats() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-date :date 'US/Eastern' 'yyyy-MM-dd HH:mm','dd.MM.yyyy'"
+    };
+
+    ZoneId zone = ZoneId.of("US/Eastern");
+    List<Row> rows = Arrays.asList(
+      new Row("date", "2017-02-02 21:06"),
+      new Row("date", "02.03.2017"),
+      new Row("date", "12/10/2016 06:45 AM"),
+      new Row("date", "12/10/2016 06:45 AM"),
+      new Row("date", "no date")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+
+    Assert.assertEquals(5, rows.size());
+    Assert.assertEquals(ZonedDateTime.of(2017, 2, 2, 21, 6, 0, 0, zone), rows.get(0).getValue("date_1"));
+    Assert.assertEquals(ZonedDateTime.of(2017, 3, 2, 0, 0, 0, 0, zone), rows.get(1).getValue("date_1"));
+    Assert.assertEquals(ZonedDateTime.of(2016, 12, 10, 6, 45, 0, 0, zone), rows.get(2).getValue("date_1"));
+    Assert.assertEquals(rows.get(2).getValue("date_1"), rows.get(3).getValue("date_1"));
+    Assert.assertEquals(1, rows.get(4).width());
+  }
+
   @Test
   public void testFormatDate() throws Exception {
     String[] directives = new String[] {
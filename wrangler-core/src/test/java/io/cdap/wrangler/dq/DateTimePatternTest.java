@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.dq;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tests {@link DateTimePattern} and {@link PatternIndex}.
+ */
+public class DateTimePatternTest {
+  private static final List<String> VALUES = Arrays.asList(
+    "12/10/2016", "2016-12-10", "10.12.16", "16. 12. 10", "Dec 10, 2016", "10 December 2016",
+    "Saturday, December 10, 2016", "2016-12-10 06:45:00", "2016-12-10T06:45:00+05:00",
+    "2016-12-10T06:45:00.123+05:00[Asia/Kolkata]", "10/Dec/2016 06:45:00 -0800", "Sat Dec 10 06:45:00 PST 2016",
+    "dec. 10, 2016", "2016年12月10日", "6:45 AM", "06:45", "06:45:00", "6.45.00", "06:45:00 PST",
+    "06:45:00 o'clock PST", "上午06时45分00秒", "06 h 45 CET", "hello world", "123456", "12/10", "1-2-3",
+    "+5:00", "2016/12/10 ab"
+  );
+
+  @Test
+  public void testShapes() {
+    Assert.assertEquals("//", PatternIndex.shape("12/10/2016"));
+    Assert.assertEquals("-- ::", PatternIndex.shape("2016-12-10 06:45:00"));
+    Assert.assertEquals("-", PatternIndex.shape("+2016"));
+    Assert.assertEquals(new HashSet<>(Arrays.asList(" , ", ". , ")),
+                        PatternIndex.shapes("^(([A-Z]\\p{L}{2})|([a-z]\\p{L}{2,3}\\.?)) ([0-9]), [0-9]{4}$"));
+    Assert.assertEquals(new HashSet<>(Arrays.asList(":-")), PatternIndex.shapes("^[0-9]{2}:[0-9]{2}[+-]$"));
+    Assert.assertNull(PatternIndex.shapes("[0-9]{2}/[0-9]{2}"));
+    Assert.assertNull(PatternIndex.shapes("^[0-9]{2}.[0-9]{2}$"));
+    Assert.assertNull(PatternIndex.shapes("^[0-9]{2}|[0-9]{4}$"));
+    Assert.assertNull(PatternIndex.shapes("^[0-9]{2}/+$"));
+  }
+
+  @Test
+  public void testIndexMatchesAllPatterns() throws Exception {
+    List<Map<Pattern, String>> dates = load("DateRegexesGrouped.txt");
+    List<Map<Pattern, String>> times = load("TimeRegexes.txt");
+
+    List<String> values = new ArrayList<>(VALUES);
+    // Variants of the values with some of the digits changed.
+    Random random = new Random(0);
+    for (String value : VALUES) {
+      for (int i = 0; i < 20; i++) {
+        char[] chars = value.toCharArray();
+        for (int j = 0; j < chars.length; j++) {
+          if (Character.isDigit(chars[j]) && random.nextInt(3) == 0) {
+            chars[j] = (char) ('0' + random.nextInt(10));
+          }
+        }
+        values.add(new String(chars));
+      }
+    }
+
+    int dateCount = 0;
+    for (String value : values) {
+      boolean isDate = value.length() >= 6 && value.length() <= 64 && hasEnoughDigits(value) && matches(dates, value);
+      boolean isTime = value.length() >= 4 && value.length() <= 24 && hasEnoughDigits(value) && matches(times, value);
+      Assert.assertEquals(value, isDate, DateTimePattern.isDate(value));
+      Assert.assertEquals(value, isTime, DateTimePattern.isTime(value));
+      Assert.assertEquals(value, replace(dates, value), DateTimePattern.datePatternReplace(value));
+      Assert.assertEquals(value, replace(times, value), DateTimePattern.timePatternReplace(value));
+      dateCount += isDate ? 1 : 0;
+    }
+    Assert.assertTrue(dateCount > VALUES.size());
+    // The shapes of all the patterns can be derived, so none of them is evaluated for every value.
+    for (Map<Pattern, String> group : dates) {
+      for (Pattern pattern : group.keySet()) {
+        Assert.assertNotNull(pattern.pattern(), PatternIndex.shapes(pattern.pattern()));
+      }
+    }
+    for (Map<Pattern, String> group : times) {
+      for (Pattern pattern : group.keySet()) {
+        Assert.assertNotNull(pattern.pattern(), PatternIndex.shapes(pattern.pattern()));
+      }
+    }
+    Assert.assertTrue(DateTimePattern.datePatternReplace("2016-12-10").contains("yyyy-MM-dd"));
+    Assert.assertTrue(DateTimePattern.timePatternReplace("hello").isEmpty());
+  }
+
+  private static boolean hasEnoughDigits(String value) {
+    int count = 0;
+    for (char c : value.toCharArray()) {
+      count += Character.isDigit(c) && c <= '9' ? 1 : 0;
+    }
+    return count > 2;
+  }
+
+  private static boolean matches(List<Map<Pattern, String>> groups, String value) {
+    for (Map<Pattern, String> group : groups) {
+      for (Pattern pattern : group.keySet()) {
+        if (pattern.matcher(value).find()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static Set<String> replace(List<Map<Pattern, String>> groups, String value) {
+    Set<String> formats = new HashSet<>();
+    for (Map<Pattern, String> group : groups) {
+      for (Map.Entry<Pattern, String> pattern : group.entrySet()) {
+        if (pattern.getKey().matcher(value).find()) {
+          formats.add(pattern.getValue());
+        }
+      }
+      if (!formats.isEmpty()) {
+        break;
+      }
+    }
+    return formats;
+  }
+
+  private static List<Map<Pattern, String>> load(String resource) throws Exception {
+    List<Map<Pattern, String>> groups = new ArrayList<>();
+    groups.add(new LinkedHashMap<>());
+    try (InputStream stream = DateTimePatternTest.class.getClassLoader().getResourceAsStream(resource)) {
+      for (String line : IOUtils.readLines(stream, "UTF-8")) {
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        if (line.startsWith("--")) {
+          groups.add(new LinkedHashMap<>());
+        } else {
+          String[] columns = line.split("\t");
+          groups.get(groups.size() - 1).put(Pattern.compile(columns[1]), columns[0]);
+        }
+      }
+    }
+    return groups;
+  }
+}
@@ -19,12 +19,16 @@ package io.cdap.wrangler.executor;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.wrangler.TestingRig;
+import io.cdap.wrangler.api.RecipeCancelledException;
 import io.cdap.wrangler.api.RecipePipeline;
 import io.cdap.wrangler.api.Row;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Tests {@link RecipePipelineExecutor}.
@@ -96,4 +100,48 @@ public class RecipePipelineExecutorTest {
     Assert.assertEquals(1481666448L, record.<Long>get("timestamp").longValue());
     Assert.assertEquals(186.66f, record.get("weight"), 0.0001f);
   }
+
+  @Test
+  public void testCancellation() throws Exception {
+    RecipePipeline pipeline = TestingRig.execute(new String[] { "uppercase body" });
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(new Row("body", "a"));
+    }
+
+    Thread.currentThread().interrupt();
+    try {
+      pipeline.execute(rows);
+      Assert.fail();
+    } catch (RecipeCancelledException e) {
+      Assert.assertEquals(0, e.getRowIndex());
+    } finally {
+      Thread.interrupted();
+    }
+    Assert.assertEquals(1000, pipeline.execute(rows).size());
+  }
+
+  @Test
+  public void testChunks() throws Exception {
+    RecipePipelineExecutor pipeline = (RecipePipelineExecutor) TestingRig.execute(new String[] {
+      "parse-as-csv body , true",
+      "drop body",
+      "filter-rows-on condition-true a == '2'",
+      "send-to-error b == 'x'"
+    });
+    List<Row> first = new ArrayList<>();
+    first.add(new Row("body", "a,b"));
+    first.add(new Row("body", "1,y"));
+    List<Row> second = new ArrayList<>();
+    second.add(new Row("body", "2,y"));
+    second.add(new Row("body", "3,x"));
+    second.add(new Row("body", "4,y"));
+
+    // the header of the first chunk applies to the next ones, and rows are counted across chunks
+    List<Row> results = pipeline.execute(Arrays.asList(first, second));
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals("1", results.get(0).getValue("a"));
+    Assert.assertEquals("4", results.get(1).getValue("a"));
+    Assert.assertEquals(1, pipeline.errors().size());
+  }
 }
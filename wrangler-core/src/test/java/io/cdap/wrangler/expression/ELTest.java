@@ -19,11 +19,17 @@ package io.cdap.wrangler.expression;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
 
 /**
  * Tests {@link EL}
@@ -194,4 +200,56 @@ public class ELTest {
     execute = el.execute(new ELContext().add("a", d1).add("b", d2));
     Assert.assertEquals(d1, execute.getObject());
   }
+
+  @Test
+  public void testRestrictedAccess() throws Exception {
+    Assert.assertEquals(new Integer(3), EL.compile("math:max(a, 3)").execute(new ELContext().add("a", 1)).getInteger());
+    Assert.assertEquals("ABC", EL.compile("a.toUpperCase()").execute(new ELContext().add("a", "abc")).getObject());
+    Assert.assertEquals(2024, EL.compile("d.getYear()").execute(
+      new ELContext().add("d", LocalDate.of(2024, 1, 1))).getObject());
+    Assert.assertEquals(3, EL.compile("var s = 0; for (var i : 1..2) { s = s + i; } s").execute(
+      new ELContext()).getObject());
+    Assert.assertEquals(Arrays.asList("b"), EL.compile("l.subList(1, 2)").execute(
+      new ELContext().add("l", new ArrayList<>(Arrays.asList("a", "b")))).getObject());
+
+    Assert.assertEquals("X", EL.compile("new('java.util.SimpleTimeZone', 0, 'X').getID()").execute(
+      new ELContext()).getObject());
+
+    // Arrays of objects, including mixed array literals, and time zones of rows can be used.
+    Assert.assertEquals(1, EL.compile("o[1]").execute(
+      new ELContext().add("o", new Object[] {"a", 1})).getObject());
+    Assert.assertEquals("a", EL.compile("[1, 'a'][1]").execute(new ELContext()).getObject());
+    Assert.assertEquals("America/Los_Angeles", EL.compile("z.getID()").execute(
+      new ELContext().add("z", TimeZone.getTimeZone("America/Los_Angeles"))).getObject());
+
+    String[] denied = {
+      "a.getClass()",
+      "a.class",
+      "math:getClassLoader()",
+      "math:forName('java.lang.Runtime')",
+      "new('java.lang.ProcessBuilder', 'ls')",
+      "new('java.io.File', '/tmp').delete()",
+      "new('java.beans.Expression', a, 'getClass', null).getValue()",
+      "new('java.util.Timer')",
+      "new('java.util.Formatter', '/tmp/wrangler-formatter')",
+      "new('java.util.SimpleTimeZone', 0, 'X').setDefault(new('java.util.SimpleTimeZone', 3600000, 'Evil'))",
+      "new('java.util.Locale', 'tr').setDefault(new('java.util.Locale', 'tr'))",
+      "t.interrupt()",
+      "w.toString()",
+      "z.setDefault(z)"
+    };
+    for (String expression : denied) {
+      try {
+        EL.compile(expression).execute(new ELContext().add("a", "abc").add("t", Thread.currentThread())
+                                         .add("w", new StringWriter())
+                                         .add("z", TimeZone.getTimeZone("America/Los_Angeles")));
+        Assert.fail("Expected " + expression + " to be denied");
+      } catch (ELException e) {
+        // expected
+      }
+    }
+    Assert.assertFalse(new File("/tmp/wrangler-formatter").exists());
+    Assert.assertNotEquals("Evil", TimeZone.getDefault().getID());
+    Assert.assertNotEquals("tr", Locale.getDefault().getLanguage());
+  }
 }
@@ -16,18 +16,24 @@
 
 package io.cdap.wrangler.parser;
 
+import io.cdap.directives.parser.FixedLayoutParser;
+import io.cdap.directives.parser.ParseDate;
+import io.cdap.directives.parser.ParseLog;
 import io.cdap.wrangler.api.Arguments;
 import io.cdap.wrangler.api.CompileStatus;
 import io.cdap.wrangler.api.Compiler;
 import io.cdap.wrangler.api.Optional;
 import io.cdap.wrangler.api.TokenGroup;
 import io.cdap.wrangler.api.parser.ColumnName;
+import io.cdap.wrangler.api.parser.Text;
 import io.cdap.wrangler.api.parser.TextList;
 import io.cdap.wrangler.api.parser.TokenType;
 import io.cdap.wrangler.api.parser.UsageDefinition;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -135,4 +141,55 @@ public class MapArgumentsTest {
     Assert.assertEquals("AGE", infoTypes.get(1));
   }
 
+  @Test
+  public void testSingleTextAsOptionalTextList() throws Exception {
+    // A single text is taken as an optional list of texts when no later argument accepts a text.
+    Arguments arguments = arguments(new ParseLog().define(), "parse-as-log :body 'common' 'client_host';");
+    Assert.assertEquals("common", ((Text) arguments.value("format")).value());
+    Assert.assertEquals(Collections.singletonList("client_host"), ((TextList) arguments.value("fields")).value());
+
+    arguments = arguments(new ParseLog().define(), "parse-as-log :body 'common' 'client_host','status';");
+    Assert.assertEquals(Arrays.asList("client_host", "status"), ((TextList) arguments.value("fields")).value());
+
+    arguments = arguments(new ParseLog().define(), "parse-as-log :body 'common';");
+    Assert.assertEquals(2, arguments.size());
+    Assert.assertFalse(arguments.contains("fields"));
+
+    // An optional text before the list takes the first text.
+    arguments = arguments(new ParseDate().define(), "parse-as-date :date 'UTC';");
+    Assert.assertEquals("UTC", ((Text) arguments.value("timezone")).value());
+    Assert.assertFalse(arguments.contains("formats"));
+
+    arguments = arguments(new ParseDate().define(), "parse-as-date :date 'UTC' 'yyyy-MM-dd';");
+    Assert.assertEquals("UTC", ((Text) arguments.value("timezone")).value());
+    Assert.assertEquals(Collections.singletonList("yyyy-MM-dd"), ((TextList) arguments.value("formats")).value());
+  }
+
+  @Test
+  public void testSingleTextWithLaterText() throws Exception {
+    // A required list takes a single text, as it always did.
+    Arguments arguments = arguments(new FixedLayoutParser().define(),
+                                    "parse-as-fixed-layout :body 'name:10' 'UTF-8';");
+    Assert.assertEquals(Collections.singletonList("name:10"), ((TextList) arguments.value("layout")).value());
+    Assert.assertEquals("UTF-8", ((Text) arguments.value("charset")).value());
+
+    // An optional list followed by a text leaves a single text to it.
+    UsageDefinition.Builder builder = UsageDefinition.builder("mixed");
+    builder.define("column", TokenType.COLUMN_NAME);
+    builder.define("list", TokenType.TEXT_LIST, Optional.TRUE);
+    builder.define("text", TokenType.TEXT, Optional.TRUE);
+    arguments = arguments(builder.build(), "mixed :body 'value';");
+    Assert.assertEquals(2, arguments.size());
+    Assert.assertFalse(arguments.contains("list"));
+    Assert.assertEquals("value", ((Text) arguments.value("text")).value());
+
+    arguments = arguments(builder.build(), "mixed :body 'a','b' 'value';");
+    Assert.assertEquals(Arrays.asList("a", "b"), ((TextList) arguments.value("list")).value());
+    Assert.assertEquals("value", ((Text) arguments.value("text")).value());
+  }
+
+  private static Arguments arguments(UsageDefinition definition, String directive) throws Exception {
+    CompileStatus status = new RecipeCompiler().compile(directive);
+    return new MapArguments(definition, status.getSymbols().iterator().next());
+  }
 }
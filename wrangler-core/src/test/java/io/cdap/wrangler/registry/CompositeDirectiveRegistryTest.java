@@ -124,7 +124,7 @@ public class CompositeDirectiveRegistryTest {
       iterator.next();
       count++;
     }
-    Assert.assertEquals(85, count);
+    Assert.assertEquals(88, count);
 
     registry.reload("");
 
@@ -134,7 +134,7 @@ public class CompositeDirectiveRegistryTest {
       iterator.next();
       count++;
     }
-    Assert.assertEquals(85, count);
+    Assert.assertEquals(88, count);
 
   }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.registry;
+
+import io.cdap.cdap.api.artifact.ArtifactClasses;
+import io.cdap.cdap.api.artifact.ArtifactInfo;
+import io.cdap.cdap.api.artifact.ArtifactManager;
+import io.cdap.cdap.api.artifact.ArtifactScope;
+import io.cdap.cdap.api.artifact.CloseableClassLoader;
+import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.directives.column.Drop;
+import io.cdap.directives.column.Rename;
+import io.cdap.wrangler.api.Directive;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link UserDirectiveRegistry}
+ */
+public class UserDirectiveRegistryTest {
+
+  @Test
+  public void testReloadReusesClassLoaders() throws Exception {
+    TestArtifactManager manager = new TestArtifactManager();
+    manager.artifacts.add(artifact("drop-directive", "1.0.0", Drop.class));
+
+    try (UserDirectiveRegistry registry = new UserDirectiveRegistry(manager, 0)) {
+      registry.reload("default");
+      DirectiveInfo drop = registry.get("default", "drop");
+      Assert.assertEquals(1, manager.created.get());
+
+      // unchanged artifacts keep their class loader
+      long generation = registry.getGeneration("default");
+      registry.reload("default");
+      Assert.assertEquals(1, manager.created.get());
+      Assert.assertSame(drop, registry.get("default", "drop"));
+      Assert.assertEquals(generation, registry.getGeneration("default"));
+
+      // new artifacts are loaded, and the class loaders of the deleted ones are closed
+      manager.artifacts.clear();
+      manager.artifacts.add(artifact("rename-directive", "1.0.0", Rename.class));
+      registry.reload("default");
+      Assert.assertEquals(2, manager.created.get());
+      Assert.assertEquals(1, manager.closed.get());
+      Assert.assertNotEquals(generation, registry.getGeneration("default"));
+      Assert.assertNotNull(registry.get("default", "rename"));
+      List<String> names = new ArrayList<>();
+      registry.list("default").forEach(info -> names.add(info.name()));
+      Assert.assertEquals(Collections.singletonList("rename"), names);
+
+      // unchanged snapshot artifacts keep their class loader, until it is older than the snapshot reload interval
+      manager.artifacts.add(artifact("drop-directive", "2.0.0-SNAPSHOT", Drop.class));
+      registry.reload("default");
+      generation = registry.getGeneration("default");
+      registry.reload("default");
+      Assert.assertEquals(3, manager.created.get());
+      Assert.assertEquals(1, manager.closed.get());
+      Assert.assertEquals(generation, registry.getGeneration("default"));
+
+      // snapshot artifacts deployed again with other classes are loaded again
+      manager.artifacts.set(1, artifact("drop-directive", "2.0.0-SNAPSHOT", Rename.class));
+      registry.reload("default");
+      Assert.assertEquals(4, manager.created.get());
+      Assert.assertEquals(2, manager.closed.get());
+      Assert.assertNotEquals(generation, registry.getGeneration("default"));
+    }
+    Assert.assertEquals(manager.created.get(), manager.closed.get());
+
+    try (UserDirectiveRegistry registry = new UserDirectiveRegistry(manager, 0, 0)) {
+      registry.reload("default");
+      registry.reload("default");
+      Assert.assertEquals(7, manager.created.get());
+    }
+    Assert.assertEquals(manager.created.get(), manager.closed.get());
+  }
+
+  @Test
+  public void testAcquiredClassLoaders() throws Exception {
+    TestArtifactManager manager = new TestArtifactManager();
+    manager.artifacts.add(artifact("drop-directive", "1.0.0", Drop.class));
+
+    try (UserDirectiveRegistry registry = new UserDirectiveRegistry(manager, 0)) {
+      registry.reload("default");
+      Closeable handle = registry.acquire("default");
+
+      // class loaders replaced while a handle is open, including the ones loaded after it was acquired, are only
+      // closed along with the handle
+      manager.artifacts.clear();
+      manager.artifacts.add(artifact("rename-directive", "1.0.0", Rename.class));
+      registry.reload("default");
+      manager.artifacts.clear();
+      registry.reload("default");
+      Assert.assertEquals(2, manager.created.get());
+      Assert.assertEquals(0, manager.closed.get());
+      handle.close();
+      handle.close();
+      Assert.assertEquals(2, manager.closed.get());
+
+      // closing the registry doesn't close the class loaders still held
+      manager.artifacts.add(artifact("drop-directive", "1.0.0", Drop.class));
+      registry.reload("default");
+      handle = registry.acquire("default");
+      registry.close();
+      Assert.assertEquals(2, manager.closed.get());
+      handle.close();
+      Assert.assertEquals(3, manager.closed.get());
+    }
+  }
+
+  @Test
+  public void testReloadInterval() throws Exception {
+    TestArtifactManager manager = new TestArtifactManager();
+    manager.artifacts.add(artifact("drop-directive", "1.0.0", Drop.class));
+
+    try (UserDirectiveRegistry registry = new UserDirectiveRegistry(manager, Long.MAX_VALUE)) {
+      registry.reload("default");
+      registry.reload("default");
+      Assert.assertEquals(1, manager.listed.get());
+
+      // namespaces are listed separately
+      registry.reload("other");
+      Assert.assertEquals(2, manager.listed.get());
+    }
+  }
+
+  private static ArtifactInfo artifact(String name, String version, Class<? extends Directive> directive) {
+    PluginClass plugin = PluginClass.builder()
+      .setType(Directive.TYPE)
+      .setName(name)
+      .setDescription(name)
+      .setClassName(directive.getName())
+      .build();
+    return new ArtifactInfo(name, version, ArtifactScope.USER,
+                            ArtifactClasses.builder().addPlugin(plugin).build(), Collections.emptyMap());
+  }
+
+  private static final class TestArtifactManager implements ArtifactManager {
+    private final List<ArtifactInfo> artifacts = new ArrayList<>();
+    private final AtomicInteger listed = new AtomicInteger();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    @Override
+    public List<ArtifactInfo> listArtifacts() {
+      return listArtifacts("default");
+    }
+
+    @Override
+    public List<ArtifactInfo> listArtifacts(String namespace) {
+      listed.incrementAndGet();
+      return new ArrayList<>(artifacts);
+    }
+
+    @Override
+    public CloseableClassLoader createClassLoader(ArtifactInfo artifactInfo, ClassLoader parentClassLoader) {
+      return createClassLoader("default", artifactInfo, parentClassLoader);
+    }
+
+    @Override
+    public CloseableClassLoader createClassLoader(String namespace, ArtifactInfo artifactInfo,
+                                                  ClassLoader parentClassLoader) {
+      created.incrementAndGet();
+      return new CloseableClassLoader(parentClassLoader, closed::incrementAndGet);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.sampling;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests {@link ReservoirSample} and {@link SkipReservoir}
+ */
+public class ReservoirSampleTest {
+  private static final int POPULATION = 100;
+  private static final int CAPACITY = 10;
+  private static final int TRIALS = 20000;
+
+  @Test
+  public void testSmallInputs() {
+    List<Integer> input = IntStream.range(0, 5).boxed().collect(Collectors.toList());
+    List<Integer> sampled = new ArrayList<>();
+    new SkipReservoir<Integer>(CAPACITY, 0L).sample(input.iterator()).forEachRemaining(sampled::add);
+    Assert.assertEquals(input, sampled);
+    Assert.assertFalse(new SkipReservoir<Integer>(0, 0L).sample(input.iterator()).hasNext());
+
+    ReservoirSample<Integer> left = new ReservoirSample<>(CAPACITY, new Random(0));
+    ReservoirSample<Integer> right = new ReservoirSample<>(CAPACITY, new Random(1));
+    input.forEach(left::add);
+    input.forEach(i -> right.add(i + 5));
+    left.merge(right);
+    Assert.assertEquals(10, left.getCount());
+    Assert.assertEquals(IntStream.range(0, 10).boxed().collect(Collectors.toSet()),
+                        new HashSet<>(left.getElements()));
+  }
+
+  @Test
+  public void testUniformity() {
+    Random random = new Random(0);
+    int[] frequencies = new int[POPULATION];
+    for (int trial = 0; trial < TRIALS; trial++) {
+      Iterator<Integer> sample = new SkipReservoir<Integer>(CAPACITY, random)
+        .sample(IntStream.range(0, POPULATION).iterator());
+      List<Integer> elements = new ArrayList<>();
+      sample.forEachRemaining(elements::add);
+      Assert.assertEquals(CAPACITY, new HashSet<>(elements).size());
+      elements.forEach(element -> frequencies[element]++);
+    }
+    assertUniform(frequencies);
+  }
+
+  @Test
+  public void testMergedUniformity() {
+    Random random = new Random(0);
+    int[] frequencies = new int[POPULATION];
+    for (int trial = 0; trial < TRIALS; trial++) {
+      // partitions of different sizes, the last one added to after the merge
+      ReservoirSample<Integer> first = new ReservoirSample<>(CAPACITY, random);
+      ReservoirSample<Integer> second = new ReservoirSample<>(CAPACITY, random);
+      for (int i = 0; i < 60; i++) {
+        if (!first.skip()) {
+          first.add(i);
+        }
+      }
+      for (int i = 60; i < 65; i++) {
+        second.add(i);
+      }
+      first.merge(second);
+      for (int i = 65; i < POPULATION; i++) {
+        first.add(i);
+      }
+      Assert.assertEquals(POPULATION, first.getCount());
+      Assert.assertEquals(CAPACITY, new HashSet<>(first.getElements()).size());
+      first.getElements().forEach(element -> frequencies[element]++);
+    }
+    assertUniform(frequencies);
+  }
+
+  private static void assertUniform(int[] frequencies) {
+    // each element is expected TRIALS * CAPACITY / POPULATION = 2000 times, with a standard deviation below 45
+    double expected = (double) TRIALS * CAPACITY / POPULATION;
+    for (int i = 0; i < frequencies.length; i++) {
+      Assert.assertEquals("Frequency of " + i, expected, frequencies[i], 250);
+    }
+  }
+}
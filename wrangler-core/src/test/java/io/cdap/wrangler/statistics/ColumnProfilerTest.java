@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.statistics;
+
+import io.cdap.wrangler.TestingRig;
+import io.cdap.wrangler.api.Pair;
+import io.cdap.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link ColumnProfiler}
+ */
+public class ColumnProfilerTest {
+
+  @Test
+  public void testCompatibleWithBasicStatistics() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-csv body ,",
+      "drop body"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "1234.45,650-897-3839,111-11-1111,32826,02/29/2000,\"$1234.56\",http://www.yahoo.com"),
+      new Row("body", "45.56,670-897-3839,111-12-1111,32826,02/01/2011,\"$56,789\",http://mars.io"),
+      new Row("body", "45.56,670-897-3839,222,32826,9/14/2016,\"\",http://mars.io")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+
+    Row expected = new BasicStatistics().aggregate(rows);
+    Row summary = new ColumnProfiler().aggregate(rows);
+
+    Assert.assertEquals(3.0, summary.getValue("total"));
+    Assert.assertEquals(toMap((Row) expected.getValue("stats")), toMap((Row) summary.getValue("stats")));
+    Assert.assertEquals(toMap((Row) expected.getValue("types")), toMap((Row) summary.getValue("types")));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Map<String, Double>> toMap(Row row) {
+    Map<String, Map<String, Double>> result = new HashMap<>();
+    for (Pair<String, Object> field : row.getFields()) {
+      Map<String, Double> values = new HashMap<>();
+      for (Pair<String, Double> value : (List<Pair<String, Double>>) field.getSecond()) {
+        values.put(value.getFirst(), value.getSecond());
+      }
+      result.put(field.getFirst(), values);
+    }
+    return result;
+  }
+
+  @Test
+  public void testSketches() throws Exception {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      Row row = new Row("id", String.valueOf(i));
+      row.add("size", i % 1000);
+      row.add("name", i % 10 == 0 ? "frequent" : "name-" + (i % 500));
+      row.add("phone", i % 2 == 0 ? "650-897-3839" : null);
+      rows.add(row);
+    }
+
+    Map<String, ColumnSketch> profiles = new ColumnProfiler(new ForkJoinPool(4), 100).profile(rows);
+
+    Assert.assertEquals(Arrays.asList("id", "size", "name", "phone"), new ArrayList<>(profiles.keySet()));
+    ColumnSketch id = profiles.get("id");
+    Assert.assertEquals(20000, id.getDistinct(), 20000 * 3 * id.getDistinctError());
+    Assert.assertEquals(1, id.getMinLength());
+    Assert.assertEquals(5, id.getMaxLength());
+    Assert.assertEquals(100.0 / 20000, id.getCoverage(), 0.0001);
+    Assert.assertEquals(9999.5, id.getQuantiles(0.5).get(0.5), 100);
+    Assert.assertEquals(19000, id.getQuantiles(0.95).get(0.95), 100);
+
+    ColumnSketch size = profiles.get("size");
+    Assert.assertEquals(1000, size.getDistinct(), 1000 * 3 * size.getDistinctError());
+    Assert.assertEquals(1.0, size.getCoverage(), 0.0);
+    Assert.assertEquals(-1, size.getMinLength());
+    Assert.assertEquals(0.0, size.getQuantiles(0.0).get(0.0), 0.0);
+    Assert.assertEquals(999.0, size.getQuantiles(1.0).get(1.0), 0.0);
+
+    Map<String, Long> top = profiles.get("name").getTopValues(1);
+    Assert.assertTrue(top.get("frequent") >= 2000);
+
+    ColumnSketch phone = profiles.get("phone");
+    Assert.assertEquals(0.5, phone.getGeneral(20000).get("null"), 0.0);
+    Assert.assertEquals(0.5, phone.getGeneral(20000).get("non-null"), 0.0);
+    // All the checked values are phone numbers, which is extrapolated to all the strings.
+    Assert.assertEquals(0.5, phone.getTypes(20000).get("US Phone#Formatted"), 0.0001);
+    Assert.assertEquals(1, phone.getDistinct());
+  }
+
+  @Test
+  public void testLongValues() throws Exception {
+    char[] chars = new char[100000];
+    Arrays.fill(chars, '1');
+    String longValue = new String(chars);
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      rows.add(new Row("body", i % 2 == 0 ? longValue : "650-897-3839"));
+    }
+
+    // Long values are not type checked, which lowers the coverage, and the other values still are.
+    long start = System.nanoTime();
+    ColumnSketch sketch = new ColumnProfiler().profile(rows).get("body");
+    Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+    Assert.assertEquals(0.5, sketch.getCoverage(), 0.0);
+    Assert.assertEquals(100000, sketch.getMaxLength());
+    Assert.assertTrue(sketch.getTypes(100).containsKey("US Phone#Formatted"));
+  }
+
+  @Test
+  public void testTypeCheckBudget() throws Exception {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      rows.add(new Row("body", "650-897-3839"));
+    }
+
+    // Once the time budget of a column is spent, its values are no longer checked and its coverage is lower.
+    ColumnSketch sketch = new ColumnProfiler(Executors.newSingleThreadExecutor(), 100, 0).profile(rows).get("body");
+    Assert.assertEquals(0.0, sketch.getCoverage(), 0.0);
+    Assert.assertTrue(sketch.getTypes(100).isEmpty());
+    Assert.assertEquals(1.0, sketch.getGeneral(100).get("non-null"), 0.0);
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      rows.add(new Row("value", (i * 7919) % 10000));
+    }
+    ColumnSketch sketch = new ColumnProfiler().profile(rows).get("value");
+
+    // A profile shared through the cache is read by concurrent requests, which should all see the same quantiles.
+    double[] quantiles = new double[] {0.0, 0.25, 0.5, 0.75, 0.95, 1.0};
+    Map<Double, Double> expected = sketch.getQuantiles(quantiles);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Callable<Map<Double, Double>>> tasks = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        tasks.add(() -> sketch.getQuantiles(quantiles));
+      }
+      for (Future<Map<Double, Double>> future : executor.invokeAll(tasks)) {
+        Assert.assertEquals(expected, future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(4999.5, expected.get(0.5), 100);
+  }
+
+  @Test
+  public void testQuantilesDontChangeDigest() {
+    TDigest digest = new TDigest(100);
+    for (int i = 0; i < 100; i++) {
+      digest.add(i);
+    }
+
+    // Buffered values are merged into a copy, so estimating quantiles before compressing gives the same values.
+    double median = digest.quantile(0.5);
+    Assert.assertEquals(median, digest.quantile(0.5), 0.0);
+    digest.compress();
+    Assert.assertEquals(median, digest.quantile(0.5), 0.0);
+    Assert.assertEquals(49.5, median, 1);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.statistics;
+
+import io.cdap.wrangler.TestingRig;
+import io.cdap.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link ProfileCache}
+ */
+public class ProfileCacheTest {
+  private static final ProfileCache.DirectiveResolver RESOLVER =
+    directives -> TestingRig.parse(directives.toArray(new String[0])).parse();
+
+  @Test
+  public void testReuseUnchangedColumns() throws Exception {
+    ProfileCache cache = new ProfileCache(new ColumnProfiler(), 64 * ProfileCache.PROFILE_BYTES);
+    List<String> recipe = new ArrayList<>(Arrays.asList("parse-as-csv :body ',' false", "drop :body"));
+    Map<String, ColumnSketch> initial = profile(cache, recipe);
+    Assert.assertEquals(Arrays.asList("body_1", "body_2", "body_3"), new ArrayList<>(initial.keySet()));
+
+    // Only the column changed by the added directive is profiled again.
+    recipe.add("uppercase :body_2");
+    Map<String, ColumnSketch> changed = profile(cache, recipe);
+    Assert.assertSame(initial.get("body_1"), changed.get("body_1"));
+    Assert.assertNotSame(initial.get("body_2"), changed.get("body_2"));
+    Assert.assertSame(initial.get("body_3"), changed.get("body_3"));
+    Assert.assertEquals(10, (long) changed.get("body_2").getTopValues(10).get("NAME-0"));
+
+    // Filtering changes all the columns, even those that are not part of the lineage of the directive.
+    recipe.add("filter-rows-on regex-match body_1 ^1.*$");
+    Map<String, ColumnSketch> filtered = profile(cache, recipe);
+    List<Row> rows = execute(recipe);
+    Map<String, ColumnSketch> expected = new ColumnProfiler().profile(rows);
+    for (String column : expected.keySet()) {
+      Assert.assertNotSame(changed.get(column), filtered.get(column));
+      Assert.assertEquals(expected.get(column).getGeneral(rows.size()),
+                          filtered.get(column).getGeneral(rows.size()));
+      Assert.assertEquals(expected.get(column).getTopValues(3), filtered.get(column).getTopValues(3));
+    }
+
+    // Removing the last directives reuses the profiles of the cached prefix.
+    Map<String, ColumnSketch> undone = profile(cache, recipe.subList(0, 2));
+    for (String column : initial.keySet()) {
+      Assert.assertSame(initial.get(column), undone.get(column));
+    }
+
+    // The profiles of a recipe that was profiled are returned without the rows, only for that recipe.
+    Assert.assertEquals(undone, cache.get("workspace", recipe.subList(0, 2)));
+    Assert.assertNull(cache.get("workspace", recipe.subList(0, 1)));
+    Assert.assertNull(cache.get("other", recipe.subList(0, 2)));
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    ProfileCache cache = new ProfileCache(new ColumnProfiler(), 4 * ProfileCache.PROFILE_BYTES);
+    List<String> recipe = Arrays.asList("parse-as-csv :body ',' false", "drop :body");
+    Map<String, ColumnSketch> initial = profile(cache, recipe);
+    Assert.assertEquals(initial, cache.get("workspace", recipe));
+
+    // The profiles of the least recently used recipe are evicted once the profiles of all the columns don't fit.
+    List<String> renamed = Arrays.asList("parse-as-csv :body ',' false", "drop :body", "rename :body_1 :id");
+    Map<String, ColumnSketch> profiles = profile(cache, renamed);
+    Assert.assertNull(cache.get("workspace", recipe));
+    Assert.assertEquals(profiles, cache.get("workspace", renamed));
+
+    // The evicted profiles are computed again rather than reused.
+    Map<String, ColumnSketch> again = profile(cache, recipe);
+    Assert.assertNotSame(initial.get("body_2"), again.get("body_2"));
+    Assert.assertNull(cache.get("workspace", renamed));
+  }
+
+  @Test
+  public void testChangedColumns() throws Exception {
+    Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "d")), ProfileCache.changedColumns(
+      RESOLVER.resolve(Arrays.asList("rename :a :b", "set-column :c a + 1", "drop :d"))));
+    Assert.assertNull(ProfileCache.changedColumns(RESOLVER.resolve(Arrays.asList("parse-as-json :body"))));
+  }
+
+  private static Map<String, ColumnSketch> profile(ProfileCache cache, List<String> recipe) throws Exception {
+    return cache.profile("workspace", new ArrayList<>(recipe), execute(recipe), RESOLVER);
+  }
+
+  private static List<Row> execute(List<String> recipe) throws Exception {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      rows.add(new Row("body", String.format("%d,name-%d,%d", i, i % 10, i % 7)));
+    }
+    return TestingRig.execute(recipe.toArray(new String[0]), rows);
+  }
+}
@@ -16,6 +16,8 @@
 package io.cdap.wrangler.utils;
 
 import com.google.common.collect.Lists;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.wrangler.TestingRig;
@@ -143,4 +145,55 @@ public class KryoSerializerTest {
     Assert.assertArrayEquals(expectedRows.toArray(), response.getRows().toArray());
     Assert.assertEquals(expectedSchema, response.getOutputSchema());
   }
+
+  @Test
+  public void testRowChunks() throws Exception {
+    List<Row> expectedRows = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      Row row = new Row("id", i);
+      row.add("name", "name-" + i);
+      row.add("body", new byte[] { (byte) i });
+      row.add("json", new JsonParser().parse("{\"a\": [1, 2.5, true, null, \"b\"]}"));
+      expectedRows.add(row);
+    }
+
+    byte[] serializedRows = new KryoSerializer().fromRows(expectedRows);
+    Assert.assertTrue(KryoSerializer.isSerialized(serializedRows));
+    Assert.assertFalse(KryoSerializer.isSerialized(new ObjectSerDe<List<Row>>().toByteArray(
+      Collections.singletonList(new Row("id", 1)))));
+
+    List<Row> gotRows = new KryoSerializer().toRows(serializedRows);
+    Assert.assertEquals(expectedRows.size(), gotRows.size());
+    for (int i = 0; i < expectedRows.size(); i++) {
+      Assert.assertEquals(expectedRows.get(i).getValue("id"), gotRows.get(i).getValue("id"));
+      Assert.assertEquals(expectedRows.get(i).getValue("name"), gotRows.get(i).getValue("name"));
+      Assert.assertArrayEquals((byte[]) expectedRows.get(i).getValue("body"), (byte[]) gotRows.get(i).getValue("body"));
+      Assert.assertEquals(expectedRows.get(i).getValue("json"), gotRows.get(i).getValue("json"));
+    }
+  }
+
+  @Test
+  public void testJsonNumberTypes() throws Exception {
+    JsonObject json = new JsonObject();
+    json.addProperty("int", 1);
+    json.addProperty("long", Long.MAX_VALUE);
+    json.addProperty("short", (short) -2);
+    json.addProperty("byte", (byte) 3);
+    json.addProperty("double", 2.5d);
+    json.addProperty("float", 1.25f);
+    json.addProperty("decimal", new BigDecimal("123456789.0123456789"));
+    json.addProperty("integer", new BigInteger("123456789012345678901234567890"));
+    json.add("parsed", new JsonParser().parse("[42]").getAsJsonArray().get(0));
+
+    List<Row> rows = new KryoSerializer().toRows(new KryoSerializer().fromRows(
+      Collections.singletonList(new Row("json", json))));
+
+    JsonObject got = (JsonObject) rows.get(0).getValue("json");
+    Assert.assertEquals(json, got);
+    for (Map.Entry<String, JsonElement> member : json.entrySet()) {
+      Assert.assertEquals(member.getKey(), member.getValue().getAsNumber().getClass(),
+                          got.get(member.getKey()).getAsNumber().getClass());
+    }
+    Assert.assertEquals(Long.MAX_VALUE, got.get("long").getAsNumber());
+  }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.proto.workspace;
+
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Estimated profile of the values of a column in the result of executing directives on a workspace.
+ */
+public class ColumnProfile {
+  // Estimated number of distinct values, and the relative standard error of the estimate.
+  private final long distinct;
+  private final double distinctError;
+  private final Integer minLength;
+  private final Integer maxLength;
+  // Estimated quantiles of the numeric values, keyed by quantile.
+  private final Map<String, Double> quantiles;
+  // Most frequent values, with upper bounds of their counts.
+  private final Map<String, Long> topValues;
+  // Fraction of the non-empty strings used to estimate the types of the column.
+  private final double coverage;
+
+  public ColumnProfile(long distinct, double distinctError, @Nullable Integer minLength,
+                       @Nullable Integer maxLength, Map<String, Double> quantiles, Map<String, Long> topValues,
+                       double coverage) {
+    this.distinct = distinct;
+    this.distinctError = distinctError;
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+    this.quantiles = quantiles;
+    this.topValues = topValues;
+    this.coverage = coverage;
+  }
+
+  public long getDistinct() {
+    return distinct;
+  }
+
+  public double getDistinctError() {
+    return distinctError;
+  }
+
+  @Nullable
+  public Integer getMinLength() {
+    return minLength;
+  }
+
+  @Nullable
+  public Integer getMaxLength() {
+    return maxLength;
+  }
+
+  public Map<String, Double> getQuantiles() {
+    return quantiles;
+  }
+
+  public Map<String, Long> getTopValues() {
+    return topValues;
+  }
+
+  public double getCoverage() {
+    return coverage;
+  }
+}
@@ -17,6 +17,7 @@
 package io.cdap.wrangler.proto.workspace;
 
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Result of validating a workspace.
@@ -24,10 +25,18 @@ import java.util.Map;
 public class WorkspaceValidationResult {
   private final Map<String, ColumnStatistics> statistics;
   private final Map<String, ColumnValidationResult> validation;
+  private final Map<String, ColumnProfile> profiles;
 
   public WorkspaceValidationResult(Map<String, ColumnValidationResult> validation,
                                    Map<String, ColumnStatistics> statistics) {
+    this(validation, statistics, null);
+  }
+
+  public WorkspaceValidationResult(Map<String, ColumnValidationResult> validation,
+                                   Map<String, ColumnStatistics> statistics,
+                                   @Nullable Map<String, ColumnProfile> profiles) {
     this.validation = validation;
     this.statistics = statistics;
+    this.profiles = profiles;
   }
 }
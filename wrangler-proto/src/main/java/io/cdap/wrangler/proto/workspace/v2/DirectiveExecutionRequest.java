@@ -26,16 +26,33 @@ import java.util.List;
 public class DirectiveExecutionRequest {
   private final List<String> directives;
   private final int limit;
+  private final int offset;
+  // columns to return, all of them if empty
+  private final List<String> columns;
 
   public DirectiveExecutionRequest(List<String> directives, int limit) {
+    this(directives, limit, 0, null);
+  }
+
+  public DirectiveExecutionRequest(List<String> directives, int limit, int offset, List<String> columns) {
     this.directives = directives;
     this.limit = limit;
+    this.offset = offset;
+    this.columns = columns;
   }
 
   public int getLimit() {
     return limit;
   }
 
+  public int getOffset() {
+    return offset;
+  }
+
+  public List<String> getColumns() {
+    return columns == null ? Collections.emptyList() : columns;
+  }
+
   public List<String> getDirectives() {
     return directives == null ? Collections.emptyList() : directives;
   }
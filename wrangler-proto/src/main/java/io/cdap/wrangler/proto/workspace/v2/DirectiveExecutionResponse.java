@@ -30,10 +30,18 @@ public class DirectiveExecutionResponse extends ServiceResponse<Map<String, Obje
   private final Set<String> headers;
   private final Map<String, String> types;
   private final WorkspaceValidationResult summary;
+  // number of rows the values were taken from
+  private final Integer total;
 
   public DirectiveExecutionResponse(List<Map<String, Object>> values, Set<String> headers, Map<String, String> types,
                                     WorkspaceValidationResult summary) {
+    this(values, values.size(), headers, types, summary);
+  }
+
+  public DirectiveExecutionResponse(List<Map<String, Object>> values, int total, Set<String> headers,
+                                    Map<String, String> types, WorkspaceValidationResult summary) {
     super(values);
+    this.total = total;
     this.headers = headers;
     this.types = types;
     this.summary = summary;
@@ -47,6 +55,10 @@ public class DirectiveExecutionResponse extends ServiceResponse<Map<String, Obje
     return types;
   }
 
+  public Integer getTotal() {
+    return total;
+  }
+
   public WorkspaceValidationResult getSummary() {
     return summary;
   }
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.proto.workspace.v2;
+
+/**
+ * Status of an asynchronous execution of directives on a workspace
+ */
+public class ExecutionJob {
+
+  /**
+   * Status of the job
+   */
+  public enum Status {
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED
+  }
+
+  private final String jobId;
+  private final String workspaceId;
+  private final Status status;
+  private final long submittedTimeMillis;
+
+  public ExecutionJob(String jobId, String workspaceId, Status status, long submittedTimeMillis) {
+    this.jobId = jobId;
+    this.workspaceId = workspaceId;
+    this.status = status;
+    this.submittedTimeMillis = submittedTimeMillis;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public String getWorkspaceId() {
+    return workspaceId;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public long getSubmittedTimeMillis() {
+    return submittedTimeMillis;
+  }
+}
@@ -32,12 +32,12 @@ import java.util.Objects;
 public class WorkspaceDetail {
   private final Workspace workspace;
   private final List<Row> sample;
-  private final byte[] sampleAsBytes;
+  // Serialized only when needed, as the sample is stored in its own format.
+  private byte[] sampleAsBytes;
 
   public WorkspaceDetail(Workspace workspace, List<Row> sample) {
     this.workspace = workspace;
     this.sample = sample;
-    this.sampleAsBytes = convertToBytes(sample);
   }
 
   private byte[] convertToBytes(List<Row> sample) {
@@ -59,7 +59,10 @@ public class WorkspaceDetail {
     return sample;
   }
 
-  public byte[] getSampleAsBytes() {
+  public synchronized byte[] getSampleAsBytes() {
+    if (sampleAsBytes == null) {
+      sampleAsBytes = convertToBytes(sample);
+    }
     return sampleAsBytes;
   }
 
@@ -76,11 +79,11 @@ public class WorkspaceDetail {
     WorkspaceDetail detail = (WorkspaceDetail) o;
     return Objects.equals(workspace, detail.workspace) &&
       Objects.equals(sample, detail.sample) &&
-      Arrays.equals(sampleAsBytes, detail.sampleAsBytes);
+      Arrays.equals(getSampleAsBytes(), detail.getSampleAsBytes());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(workspace, sample, sampleAsBytes);
+    return Objects.hash(workspace, sample);
   }
 }
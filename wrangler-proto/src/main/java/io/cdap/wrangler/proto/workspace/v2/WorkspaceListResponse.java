@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.proto.workspace.v2;
+
+import java.util.Collection;
+import javax.annotation.Nullable;
+
+/**
+ * Response for a page of the workspace listing.
+ */
+public class WorkspaceListResponse extends ServiceResponse<Workspace> {
+  private final String nextPageToken;
+
+  public WorkspaceListResponse(Collection<Workspace> values, @Nullable String nextPageToken) {
+    super(values);
+    this.nextPageToken = nextPageToken;
+  }
+
+  /**
+   * @return token to get the next page, null if this is the last page
+   */
+  @Nullable
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+}
@@ -27,7 +27,8 @@ public enum SamplingMethod {
   FIRST("first"),
   POISSON("poisson"),
   BERNOULLI("bernoulli"),
-  RESERVOIR("reservoir");
+  RESERVOIR("reservoir"),
+  STRATIFIED("stratified");
 
   private String method;
 
@@ -31,6 +31,7 @@ import io.cdap.wrangler.service.directive.ConnectionUpgrader;
 import io.cdap.wrangler.service.directive.DirectivesHandler;
 import io.cdap.wrangler.service.directive.RecipeHandler;
 import io.cdap.wrangler.service.directive.WorkspaceHandler;
+import io.cdap.wrangler.service.directive.WorkspaceSampleUpgrader;
 import io.cdap.wrangler.service.directive.WorkspaceUpgrader;
 import io.cdap.wrangler.service.explorer.FilesystemExplorer;
 import io.cdap.wrangler.service.gcs.GCSHandler;
@@ -72,6 +73,7 @@ public class DataPrepService extends AbstractSystemService {
     createTable(SchemaRegistry.ENTRY_TABLE_SPEC);
     createTable(WorkspaceDataset.TABLE_SPEC);
     createTable(WorkspaceStore.WORKSPACE_TABLE_SPEC);
+    createTable(WorkspaceStore.SAMPLE_TABLE_SPEC);
     createTable(UpgradeStore.UPGRADE_TABLE_SPEC);
     createTable(RecipeStore.RECIPE_TABLE_SPEC);
 
@@ -102,8 +104,19 @@ public class DataPrepService extends AbstractSystemService {
     WorkspaceStore wsStore = new WorkspaceStore(context);
     UpgradeState connState = upgradeStore.getEntityUpgradeState(UpgradeEntityType.CONNECTION);
     UpgradeState wsState = upgradeStore.getEntityUpgradeState(UpgradeEntityType.WORKSPACE);
+    UpgradeState sampleState = upgradeStore.getEntityUpgradeState(UpgradeEntityType.WORKSPACE_SAMPLE);
     boolean isConnDone = connState != null && connState.getVersion() == 1L;
     boolean isWsDone = wsState != null && wsState.getVersion() == 1L;
+    boolean isSampleDone = sampleState != null && sampleState.getVersion() == 1L;
+
+    if (!isSampleDone) {
+      try {
+        new WorkspaceSampleUpgrader(upgradeStore, context, wsStore).upgradeSamples();
+      } catch (Exception e) {
+        // samples that are not moved are still read, and moved, when their workspace is
+        LOG.error("Failed to upgrade the workspace samples", e);
+      }
+    }
     if (isConnDone && isWsDone) {
       return;
     }
@@ -16,6 +16,7 @@
 
 package io.cdap.wrangler.service;
 
+import io.cdap.wrangler.service.explorer.Compression;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.twill.filesystem.Location;
 import org.slf4j.Logger;
@@ -93,6 +94,16 @@ public class FileTypeDetector {
    * @return type of the file.
    */
   public String detectFileType(String location) {
+    // Compressed files are decompressed whenever they are read, so they have the type of the extension before the
+    // compression one, such as 'csv' for 'titanic.csv.gz'.
+    Compression compression = Compression.of(location);
+    if (compression.isCompressed()) {
+      String name = compression.removeExtension(location);
+      if (!FilenameUtils.getExtension(name).isEmpty()) {
+        return detectFileType(name);
+      }
+    }
+
     // We first attempt to detect the type of file based on extension.
     String extension = FilenameUtils.getExtension(location);
     extension = extension == null ? null : extension.toLowerCase();
@@ -16,6 +16,7 @@
 
 package io.cdap.wrangler.service.adls;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Strings;
 import com.microsoft.azure.datalake.store.ADLException;
@@ -58,10 +59,10 @@ import io.cdap.wrangler.service.FileTypeDetector;
 import io.cdap.wrangler.service.common.AbstractWranglerHandler;
 import io.cdap.wrangler.service.common.Format;
 import io.cdap.wrangler.service.explorer.BoundedLineInputStream;
+import io.cdap.wrangler.service.explorer.Compression;
 import io.cdap.wrangler.utils.ObjectSerDe;
 import io.cdap.wrangler.utils.ReferenceNames;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -287,7 +288,7 @@ public class ADLSHandler extends AbstractWranglerHandler {
       samplingMethod = SamplingMethod.FIRST;
     }
     final SamplingMethod samplingMethod1 = samplingMethod;
-    try (BoundedLineInputStream blis = BoundedLineInputStream.iterator(inputStream, Charsets.UTF_8, lines)) {
+    try (BoundedLineInputStream blis = readLines(inputStream, fileEntry.name, lines)) {
       String name = fileEntry.name;
       String file = String.format("%s:%s", scope, fileEntry.name);
       String fileName = fileEntry.fullName;
@@ -349,10 +350,7 @@ public class ADLSHandler extends AbstractWranglerHandler {
     String identifier = ServiceUtils.generateMD5(file);
     String fileName = fileEntry.fullName;
 
-    byte[] bytes = new byte[(int) fileEntry.length + 1];
-    try (BufferedInputStream stream = new BufferedInputStream(inputStream)) {
-      stream.read(bytes);
-    }
+    byte[] bytes = readFile(inputStream, name);
 
     // Set all properties and write to workspace.
     Map<String, String> properties = new HashMap<>();
@@ -426,6 +424,22 @@ public class ADLSHandler extends AbstractWranglerHandler {
     }));
   }
 
+  /**
+   * Reads the lines of a file, decompressed as they are read if the file is compressed.
+   */
+  @VisibleForTesting
+  static BoundedLineInputStream readLines(InputStream inputStream, String name, int lines) throws IOException {
+    return BoundedLineInputStream.iterator(Compression.decompress(inputStream, name), Charsets.UTF_8, lines);
+  }
+
+  /**
+   * Reads the whole content of a file, decompressed if the file is compressed.
+   */
+  @VisibleForTesting
+  static byte[] readFile(InputStream inputStream, String name) throws IOException {
+    return Compression.readFully(inputStream, name, FILE_SIZE);
+  }
+
   /**
    * get data type from the file type.
    *
@@ -82,6 +82,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -404,6 +405,8 @@ public class DatabaseHandler extends AbstractWranglerHandler {
    * @param id Connection id for which the tables need to be listed from database.
    * @param table Name of the database table.
    * @param lines No of lines to be read from RDBMS table.
+   * @param sampler Sampling method, 'first' to read the first lines of the table, or one of 'reservoir',
+   *                'bernoulli' and 'poisson' to read random lines of the table.
    * @param scope Group the workspace should be created in.
    */
   @GET
@@ -412,45 +415,56 @@ public class DatabaseHandler extends AbstractWranglerHandler {
   public void read(HttpServiceRequest request, HttpServiceResponder responder,
                    @PathParam("context") String namespace, @PathParam("id") String id, @PathParam("table") String table,
                    @QueryParam("lines") int lines,
+                   @QueryParam("sampler") String sampler,
                    @QueryParam("scope") @DefaultValue(WorkspaceDataset.DEFAULT_SCOPE) String scope) {
+    SamplingMethod samplingMethod = SamplingMethod.fromString(sampler);
+    boolean random = isRandom(samplingMethod);
+    String samplerType = random ? samplingMethod.getMethod() : SamplingMethod.NONE.getMethod();
     respond(request, responder, namespace, ns -> {
       AtomicReference<ConnectionSample> sampleRef = new AtomicReference<>();
       Connection conn = getConnection(new NamespacedId(ns, id));
 
       loadAndExecute(ns, conn, connection -> {
-        try (Statement statement = connection.createStatement();
-          ResultSet result = statement.executeQuery(String.format("select * from %s", table))) {
-          List<Row> rows = getRows(lines, result);
-
-          Map<String, String> properties = new HashMap<>();
-          properties.put(PropertyIds.NAME, table);
-          properties.put(PropertyIds.CONNECTION_TYPE, ConnectionType.DATABASE.getType());
-          properties.put(PropertyIds.SAMPLER_TYPE, SamplingMethod.NONE.getMethod());
-          properties.put(PropertyIds.CONNECTION_ID, id);
-          WorkspaceMeta workspaceMeta = WorkspaceMeta.builder(table)
-            .setScope(scope)
-            .setProperties(properties)
-            .build();
-          String sampleId = TransactionRunners.run(getContext(), context -> {
-            WorkspaceDataset ws = WorkspaceDataset.get(context);
-            NamespacedId workspaceId = ws.createWorkspace(ns, workspaceMeta);
-
-            ObjectSerDe<List<Row>> serDe = new ObjectSerDe<>();
-            byte[] data = serDe.toByteArray(rows);
-            ws.updateWorkspaceData(workspaceId, DataType.RECORDS, data);
-            return workspaceId.getId();
-          });
-
-          ConnectionSample sample = new ConnectionSample(sampleId, table,
-                                                         ConnectionType.DATABASE.getType(),
-                                                         SamplingMethod.NONE.getMethod(), id);
-          sampleRef.set(sample);
-        }
+        List<Row> rows = random ? DatabaseSampler.random(connection, table, lines)
+          : DatabaseSampler.first(connection, table, lines);
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PropertyIds.NAME, table);
+        properties.put(PropertyIds.CONNECTION_TYPE, ConnectionType.DATABASE.getType());
+        properties.put(PropertyIds.SAMPLER_TYPE, samplerType);
+        properties.put(PropertyIds.CONNECTION_ID, id);
+        WorkspaceMeta workspaceMeta = WorkspaceMeta.builder(table)
+          .setScope(scope)
+          .setProperties(properties)
+          .build();
+        String sampleId = TransactionRunners.run(getContext(), context -> {
+          WorkspaceDataset ws = WorkspaceDataset.get(context);
+          NamespacedId workspaceId = ws.createWorkspace(ns, workspaceMeta);
+
+          ObjectSerDe<List<Row>> serDe = new ObjectSerDe<>();
+          byte[] data = serDe.toByteArray(rows);
+          ws.updateWorkspaceData(workspaceId, DataType.RECORDS, data);
+          return workspaceId.getId();
+        });
+
+        ConnectionSample sample = new ConnectionSample(sampleId, table, ConnectionType.DATABASE.getType(),
+                                                       samplerType, id);
+        sampleRef.set(sample);
       }, getContext());
       return new ServiceResponse<>(sampleRef.get());
     });
   }
 
+  /**
+   * @return whether a table is read with the given sampling method by sampling random rows, rather than by reading
+   *   its first rows
+   */
+  @VisibleForTesting
+  static boolean isRandom(@Nullable SamplingMethod samplingMethod) {
+    return samplingMethod == SamplingMethod.RESERVOIR || samplingMethod == SamplingMethod.BERNOULLI
+      || samplingMethod == SamplingMethod.POISSON;
+  }
+
   @VisibleForTesting
   static List<Row> getRows(int lines, ResultSet result) throws SQLException {
     List<Row> rows = new ArrayList<>();
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.database;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.sampling.SkipReservoir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import javax.annotation.Nullable;
+
+/**
+ * Reads a sample of the rows of a database table, pushing the number of rows down to the database so that it
+ * doesn't plan, scan or send more rows than needed.
+ *
+ * <p>Random samples are taken by the database when it can: large tables are sampled with <tt>TABLESAMPLE</tt> on
+ * PostgreSQL and SQL Server, and with <tt>SAMPLE</tt> on Oracle, reading a fraction of the table based on the
+ * estimated number of rows of the table. Other tables are sampled by ordering the rows randomly and keeping the
+ * first ones. If the database can't run the sampling query, the sample is taken from a bounded number of rows of
+ * the table with a {@link SkipReservoir}.</p>
+ */
+final class DatabaseSampler {
+  private static final Logger LOG = LoggerFactory.getLogger(DatabaseSampler.class);
+  static final int MAX_FETCH_SIZE = 1000;
+  // Tables with fewer estimated rows are sampled by ordering them randomly, which is cheap enough for them.
+  static final long TABLESAMPLE_MIN_ROWS = 100000;
+  // The fraction of the table read by TABLESAMPLE is sized to return this many times the number of rows needed,
+  // so that it rarely returns fewer rows than needed.
+  static final int OVERSAMPLING = 2;
+  // Number of rows read per sampled row when the sample is taken by the client.
+  static final int FALLBACK_SCAN_FACTOR = 10;
+
+  /**
+   * Databases for which the sampling queries differ.
+   */
+  enum Dialect {
+    POSTGRESQL,
+    SQLSERVER,
+    ORACLE,
+    MYSQL,
+    OTHER;
+
+    static Dialect of(String productName) {
+      String name = productName.toLowerCase(Locale.ROOT);
+      if (name.contains("postgres")) {
+        return POSTGRESQL;
+      }
+      if (name.contains("microsoft sql server")) {
+        return SQLSERVER;
+      }
+      if (name.contains("oracle")) {
+        return ORACLE;
+      }
+      if (name.contains("mysql") || name.contains("mariadb")) {
+        return MYSQL;
+      }
+      return OTHER;
+    }
+
+    /**
+     * @return the query reading about the given percentage of the rows of the table, null if the database can't
+     *   sample a table
+     */
+    @Nullable
+    String tableSample(String table, double percent) {
+      String value = String.format(Locale.ROOT, "%.6f", Math.max(0.000001d, Math.min(percent, 99.999999d)));
+      switch (this) {
+        case POSTGRESQL:
+          return String.format("select * from %s tablesample system (%s)", table, value);
+        case SQLSERVER:
+          return String.format("select * from %s tablesample (%s percent)", table, value);
+        case ORACLE:
+          return String.format("select * from %s sample (%s)", table, value);
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * @return the query reading the given number of random rows of the table
+     */
+    String orderByRandom(String table, int lines) {
+      switch (this) {
+        case POSTGRESQL:
+          return String.format("select * from %s order by random() limit %d", table, lines);
+        case SQLSERVER:
+          return String.format("select top %d * from %s order by newid()", lines, table);
+        case ORACLE:
+          return String.format("select * from (select * from %s order by dbms_random.value) where rownum <= %d",
+                               table, lines);
+        default:
+          return String.format("select * from %s order by rand() limit %d", table, lines);
+      }
+    }
+  }
+
+  private DatabaseSampler() {
+  }
+
+  /**
+   * Reads the first rows of a table.
+   *
+   * @param connection to the database
+   * @param table to read
+   * @param lines maximum number of rows to read
+   * @return the rows read
+   */
+  static List<Row> first(Connection connection, String table, int lines) throws SQLException {
+    return read(connection, String.format("select * from %s", table), lines);
+  }
+
+  /**
+   * Reads a random sample of the rows of a table.
+   *
+   * @param connection to the database
+   * @param table to sample
+   * @param lines maximum number of rows to sample
+   * @return the rows sampled
+   */
+  static List<Row> random(Connection connection, String table, int lines) throws SQLException {
+    Dialect dialect = Dialect.of(connection.getMetaData().getDatabaseProductName());
+    return random(connection, dialect, estimateRows(connection, dialect, table), table, lines);
+  }
+
+  /**
+   * Reads a random sample of the rows of a table with the sampling queries of a database.
+   *
+   * @param connection to the database
+   * @param dialect of the database
+   * @param estimate number of rows of the table, -1 if unknown
+   * @param table to sample
+   * @param lines maximum number of rows to sample
+   * @return the rows sampled
+   */
+  static List<Row> random(Connection connection, Dialect dialect, long estimate, String table,
+                          int lines) throws SQLException {
+    try {
+      String query = estimate >= TABLESAMPLE_MIN_ROWS ?
+        dialect.tableSample(table, 100d * OVERSAMPLING * lines / estimate) : null;
+      if (query != null) {
+        // the sampled rows are returned in the order of the table, which the reservoir shuffles
+        return reservoir(read(connection, query, OVERSAMPLING * lines), lines);
+      }
+      return read(connection, dialect.orderByRandom(table, lines), lines);
+    } catch (SQLException e) {
+      LOG.debug("Unable to sample table {} in the database, sampling it in the service instead.", table, e);
+      return reservoir(first(connection, table, FALLBACK_SCAN_FACTOR * lines), lines);
+    }
+  }
+
+  private static List<Row> read(Connection connection, String query, int lines) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      // a limit of 0 means no limit, while no row is read for it
+      statement.setMaxRows(Math.max(lines, 1));
+      statement.setFetchSize(Math.max(1, Math.min(lines, MAX_FETCH_SIZE)));
+      try (ResultSet result = statement.executeQuery(query)) {
+        return DatabaseHandler.getRows(lines, result);
+      }
+    }
+  }
+
+  private static List<Row> reservoir(List<Row> rows, int lines) {
+    if (rows.size() <= lines) {
+      return rows;
+    }
+    List<Row> sample = new ArrayList<>(lines);
+    Iterator<Row> iterator = new SkipReservoir<Row>(lines).sample(rows.iterator());
+    iterator.forEachRemaining(sample::add);
+    return sample;
+  }
+
+  /**
+   * @return the number of rows of the table estimated from the statistics of the database, -1 if unknown
+   */
+  static long estimateRows(Connection connection, Dialect dialect, String table) {
+    try {
+      if (dialect == Dialect.POSTGRESQL) {
+        try (PreparedStatement statement =
+               connection.prepareStatement("select reltuples::bigint from pg_class where oid = to_regclass(?)")) {
+          statement.setString(1, table);
+          try (ResultSet result = statement.executeQuery()) {
+            return result.next() ? result.getLong(1) : -1L;
+          }
+        }
+      }
+
+      int index = table.lastIndexOf('.');
+      String schema = index < 0 ? null : table.substring(0, index);
+      DatabaseMetaData metaData = connection.getMetaData();
+      try (ResultSet result = metaData.getIndexInfo(null, schema, table.substring(index + 1), false, true)) {
+        while (result.next()) {
+          if (result.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+            return result.getLong("CARDINALITY");
+          }
+        }
+      }
+    } catch (SQLException e) {
+      LOG.debug("Unable to estimate the number of rows of table {}.", table, e);
+    }
+    return -1L;
+  }
+}
@@ -17,14 +17,18 @@
 
 package io.cdap.wrangler.service.directive;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.metrics.Metrics;
+import io.cdap.cdap.api.service.http.HttpContentProducer;
 import io.cdap.cdap.api.service.http.SystemHttpServiceContext;
 import io.cdap.cdap.features.Feature;
 import io.cdap.directives.aggregates.DefaultTransientStore;
 import io.cdap.wrangler.api.CompileException;
 import io.cdap.wrangler.api.DirectiveConfig;
+import io.cdap.wrangler.api.DirectiveLoadException;
 import io.cdap.wrangler.api.DirectiveParseException;
 import io.cdap.wrangler.api.ErrorRecordBase;
 import io.cdap.wrangler.api.ExecutorContext;
@@ -33,7 +37,9 @@ import io.cdap.wrangler.api.Pair;
 import io.cdap.wrangler.api.RecipeException;
 import io.cdap.wrangler.api.RecipeParser;
 import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.TokenGroup;
 import io.cdap.wrangler.api.TransientStore;
+import io.cdap.wrangler.api.TransientVariableScope;
 import io.cdap.wrangler.executor.RecipePipelineExecutor;
 import io.cdap.wrangler.parser.ConfigDirectiveContext;
 import io.cdap.wrangler.parser.GrammarBasedParser;
@@ -42,18 +48,23 @@ import io.cdap.wrangler.parser.MigrateToV2;
 import io.cdap.wrangler.parser.RecipeCompiler;
 import io.cdap.wrangler.proto.BadRequestException;
 import io.cdap.wrangler.proto.ErrorRecordsException;
+import io.cdap.wrangler.proto.workspace.ColumnProfile;
 import io.cdap.wrangler.proto.workspace.ColumnStatistics;
 import io.cdap.wrangler.proto.workspace.ColumnValidationResult;
 import io.cdap.wrangler.proto.workspace.WorkspaceValidationResult;
 import io.cdap.wrangler.proto.workspace.v2.DirectiveExecutionResponse;
 import io.cdap.wrangler.registry.CompositeDirectiveRegistry;
+import io.cdap.wrangler.registry.DirectiveInfo;
 import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.registry.DirectiveScope;
 import io.cdap.wrangler.registry.SystemDirectiveRegistry;
 import io.cdap.wrangler.registry.UserDirectiveRegistry;
 import io.cdap.wrangler.schema.TransientStoreKeys;
 import io.cdap.wrangler.service.common.AbstractWranglerHandler;
-import io.cdap.wrangler.statistics.BasicStatistics;
-import io.cdap.wrangler.statistics.Statistics;
+import io.cdap.wrangler.statistics.ColumnProfiler;
+import io.cdap.wrangler.statistics.ColumnSketch;
+import io.cdap.wrangler.statistics.ProfileCache;
+import io.cdap.wrangler.store.workspace.WorkspaceSample;
 import io.cdap.wrangler.utils.SchemaConverter;
 import io.cdap.wrangler.validator.ColumnNameValidator;
 import io.cdap.wrangler.validator.Validator;
@@ -63,13 +74,17 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Abstract handler which contains common logic for v1 and v2 endpoints
@@ -80,12 +95,35 @@ public class AbstractDirectiveHandler extends AbstractWranglerHandler {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractDirectiveHandler.class);
   private static final Gson  GSON = new GsonBuilder().registerTypeAdapterFactory(
     new WranglerDisplaySerializer()).create();
+  // Converters of the values of the classes to the strings displayed for them, looked up once per class.
+  private static final ClassValue<Function<Object, String>> DISPLAY_SERIALIZERS =
+    new ClassValue<Function<Object, String>>() {
+      @Override
+      protected Function<Object, String> computeValue(Class<?> type) {
+        if (Iterable.class.isAssignableFrom(type) || Row.class.isAssignableFrom(type)) {
+          return GSON::toJson;
+        }
+        if (WranglerDisplaySerializer.isDisplayable(type)) {
+          return Object::toString;
+        }
+        return value -> WranglerDisplaySerializer.NONDISPLAYABLE_STRING;
+      }
+    };
 
   private static final String NULL_COLUMN_DISPLAY_TYPE = "NULL";
   protected static final String COLUMN_NAME = "body";
   protected static final String RECORD_DELIMITER_HEADER = "recorddelimiter";
   protected static final String DELIMITER_HEADER = "delimiter";
-  protected static final TransientStore TRANSIENT_STORE = new DefaultTransientStore();
+  private static final ColumnProfiler PROFILER = new ColumnProfiler();
+  private static final double[] PROFILE_QUANTILES = { 0.05, 0.25, 0.5, 0.75, 0.95 };
+  private static final int PROFILE_TOP_VALUES = 10;
+  // Profiles of the columns of the most recently executed recipes, across workspaces.
+  private static final ProfileCache PROFILES = new ProfileCache(PROFILER, Runtime.getRuntime().maxMemory() / 16);
+  // Rows produced by the most recently executed recipes, across workspaces.
+  private static final RecipeResultCache RESULTS = new RecipeResultCache(Runtime.getRuntime().maxMemory() / 8);
+  private static final String RESULT_CACHE_HITS = "recipe.cache.hit.count";
+  private static final String RESULT_CACHE_MISSES = "recipe.cache.miss.count";
+  private static final String RESULT_CACHE_BYTES = "recipe.cache.bytes";
 
   protected DirectiveRegistry composite;
   protected boolean schemaManagementEnabled;
@@ -124,6 +162,137 @@ public class AbstractDirectiveHandler extends AbstractWranglerHandler {
       return sample;
     }
 
+    return execute(namespace, walk(directives, grammarVisitor), Collections.singletonList(sample),
+                   new DefaultTransientStore());
+  }
+
+  /**
+   * Executes the directives on the sample of a workspace. The execution resumes from the rows produced by the
+   * longest prefix of the directives previously executed on the same sample, if they are cached, and otherwise
+   * goes through the chunks of the sample one at a time.
+   *
+   * @param namespace the namespace to operate on for finding user defined directives
+   * @param workspace key of the workspace the sample belongs to
+   * @param directives the directives to apply, without any {@code #pragma}
+   * @param sample the sample of the workspace
+   * @param grammarVisitor visitor to call while parsing directives
+   * @param metrics to which the hits and misses of the cache are reported
+   * @param transientStore store of the request, holding the input schema if schema management is enabled
+   * @return the resulting rows after applying the directives
+   */
+  protected <E extends Exception> List<Row> executeDirectives(
+      String namespace,
+      String workspace,
+      List<String> directives,
+      WorkspaceSample sample,
+      GrammarWalker.Visitor<E> grammarVisitor,
+      Metrics metrics,
+      TransientStore transientStore) throws DirectiveParseException, E, RecipeException {
+
+    if (directives.isEmpty()) {
+      return sample.getRows();
+    }
+
+    AtomicBoolean deterministic = new AtomicBoolean(true);
+    String recipe = walk(directives, (command, tokens) -> {
+      grammarVisitor.visit(command, tokens);
+      if (deterministic.get() && !isDeterministic(namespace, command, tokens)) {
+        deterministic.set(false);
+      }
+    });
+    long version = RecipeResultCache.version(sample.getVersion(), composite.getGeneration(namespace));
+    RecipeResultCache.Checkpoint checkpoint = RESULTS.get(workspace, version, directives);
+    metrics.count(checkpoint == null ? RESULT_CACHE_MISSES : RESULT_CACHE_HITS, 1);
+    List<Row> result = checkpoint == null ? null :
+      resume(namespace, workspace, version, directives, deterministic.get(), checkpoint, transientStore);
+    if (result == null) {
+      TrackingTransientStore store = new TrackingTransientStore(transientStore);
+      result = execute(namespace, recipe, sample.getChunks(), store);
+      cache(workspace, version, directives, deterministic.get(), result, store);
+    }
+    metrics.gauge(RESULT_CACHE_BYTES, RESULTS.getBytes());
+    return result;
+  }
+
+  /**
+   * Removes the cached results of the directives executed on the sample of a workspace.
+   *
+   * @param workspace key of the workspace
+   */
+  protected void invalidateResults(String workspace) {
+    RESULTS.invalidate(workspace);
+  }
+
+  /**
+   * Executes the directives that follow the prefix of the checkpoint on its rows.
+   *
+   * @return the resulting rows, null if the execution failed and should be done on the sample instead
+   */
+  @Nullable
+  private List<Row> resume(String namespace, String workspace, long version, List<String> directives,
+                           boolean deterministic, RecipeResultCache.Checkpoint checkpoint,
+                           TransientStore transientStore) {
+    if (schemaManagementEnabled && checkpoint.getSchema() == null) {
+      return null;
+    }
+    List<String> remaining = directives.subList(checkpoint.getSize(), directives.size());
+    if (remaining.isEmpty()) {
+      if (schemaManagementEnabled) {
+        transientStore.set(TransientVariableScope.GLOBAL, TransientStoreKeys.OUTPUT_SCHEMA, checkpoint.getSchema());
+      }
+      return checkpoint.getRows();
+    }
+
+    Schema inputSchema = transientStore.get(TransientStoreKeys.INPUT_SCHEMA);
+    try {
+      if (schemaManagementEnabled) {
+        transientStore.set(TransientVariableScope.GLOBAL, TransientStoreKeys.INPUT_SCHEMA, checkpoint.getSchema());
+      }
+      TrackingTransientStore store = new TrackingTransientStore(transientStore);
+      List<Row> result = execute(namespace, new MigrateToV2(remaining).migrate(),
+                                 Collections.singletonList(checkpoint.getRows()), store);
+      cache(workspace, version, directives, deterministic, result, store);
+      return result;
+    } catch (Exception e) {
+      // Errors are reported from an execution on the sample, so that they refer to its rows.
+      LOG.debug("Unable to resume the execution of the directives of workspace '{}'.", workspace, e);
+      return null;
+    } finally {
+      if (schemaManagementEnabled) {
+        transientStore.set(TransientVariableScope.GLOBAL, TransientStoreKeys.INPUT_SCHEMA, inputSchema);
+      }
+    }
+  }
+
+  private void cache(String workspace, long version, List<String> directives, boolean deterministic,
+                     List<Row> result, TrackingTransientStore store) {
+    Schema outputSchema = schemaManagementEnabled ? store.get(TransientStoreKeys.OUTPUT_SCHEMA) : null;
+    if (deterministic && !store.isModified() && (!schemaManagementEnabled || outputSchema != null)) {
+      RESULTS.put(workspace, version, directives, result, outputSchema);
+    }
+  }
+
+  /**
+   * @return whether the directive is a system directive that always produces the same rows from the same rows,
+   *   user defined directives never being known to
+   */
+  private boolean isDeterministic(String namespace, String command, TokenGroup tokens) {
+    try {
+      DirectiveInfo info = composite.get(namespace, command);
+      return info != null && info.scope() == DirectiveScope.SYSTEM
+        && RecipeResultCache.isDeterministic(command, tokens);
+    } catch (DirectiveLoadException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Migrates the directives and calls the visitor while walking through them.
+   *
+   * @return the migrated recipe
+   */
+  private <E extends Exception> String walk(List<String> directives,
+                                            GrammarWalker.Visitor<E> grammarVisitor) throws DirectiveParseException, E {
     GrammarMigrator migrator = new MigrateToV2(directives);
     String recipe = migrator.migrate();
 
@@ -134,14 +303,18 @@ public class AbstractDirectiveHandler extends AbstractWranglerHandler {
     } catch (CompileException e) {
       throw new BadRequestException(e.getMessage(), e);
     }
+    return recipe;
+  }
 
+  private List<Row> execute(String namespace, String recipe, Iterable<List<Row>> chunks,
+                            TransientStore store) throws DirectiveParseException, RecipeException {
     RecipeParser parser = new GrammarBasedParser(namespace, recipe, composite,
                                                  new ConfigDirectiveContext(DirectiveConfig.EMPTY));
     try (RecipePipelineExecutor executor = new RecipePipelineExecutor(parser,
                                                                       new ServicePipelineContext(
                                                                         namespace, ExecutorContext.Environment.SERVICE,
-                                                                        getContext(), TRANSIENT_STORE))) {
-      List<Row> result = executor.execute(sample);
+                                                                        getContext(), store))) {
+      List<Row> result = executor.execute(chunks);
 
       List<ErrorRecordBase> errors = executor.errors()
         .stream()
@@ -160,78 +333,181 @@ public class AbstractDirectiveHandler extends AbstractWranglerHandler {
    */
   protected DirectiveExecutionResponse generateExecutionResponse(
     List<Row> rows, int limit) throws Exception {
+    return generateExecutionResponse(rows, limit, PROFILER.profile(rows));
+  }
+
+  /**
+   * Transform a page of the rows to a response that is user friendly, written in chunks as it is sent. The summary
+   * is generated for all the rows, reusing the profiles of the columns that are not changed by the directives since
+   * the last execution of a prefix of the recipe.
+   *
+   * @param namespace the namespace to operate on for finding user defined directives
+   * @param scope in which the recipe is executed, such as the workspace
+   * @param directives the recipe that produced the rows, without any {@code #pragma}
+   * @param rows the rows produced by the recipe
+   * @param offset index of the first row in the response
+   * @param limit maximum number of rows in the response
+   * @param columns the columns in the response, all of them if empty
+   * @param schema of the rows, null if the types of the columns are derived from their values
+   */
+  protected HttpContentProducer streamExecutionResponse(String namespace, String scope, List<String> directives,
+                                                        List<Row> rows, int offset, int limit, List<String> columns,
+                                                        @Nullable Schema schema) throws Exception {
+    Map<String, ColumnSketch> profiles = PROFILES.profile(scope, directives, rows, added -> new GrammarBasedParser(
+      namespace, new MigrateToV2(added).migrate(), composite, new ConfigDirectiveContext(DirectiveConfig.EMPTY)).parse());
+    Set<String> selected = columns.isEmpty() ? null : new HashSet<>(columns);
+    Map<String, String> types = getColumnTypes(schema, selected);
+    SchemaConverter convertor = schema == null ? new SchemaConverter() : null;
+    int from = Math.min(rows.size(), Math.max(offset, 0));
+    List<Row> page = rows.subList(from, from + Math.min(rows.size() - from, Math.max(limit, 0)));
+    // Convert the page before the response is committed, so that conversion failures are reported with a status
+    List<Map<String, Object>> values = new ArrayList<>(page.size());
+    for (Row row : page) {
+      values.add(toDisplayValues(row, selected, types, convertor));
+    }
+    return new ExecutionResponseProducer(GSON, values, rows.size(), types,
+                                         getWorkspaceSummary(rows.size(), profiles));
+  }
+
+  /**
+   * Transform a page of a sample on which no directive is executed to a response that is user friendly, written
+   * in chunks as it is sent, if the profiles of the columns of the sample are cached. Only the rows of the page
+   * are then needed, rather than all the rows of the sample.
+   *
+   * @param scope in which the sample was profiled, which should identify its version
+   * @param page rows of the page, read from the sample along with its size
+   * @param columns the columns in the response, all of them if empty
+   * @param schema of the rows, null if the types of the columns are derived from their values
+   * @return the response, null if the profiles of the sample are not cached
+   */
+  @Nullable
+  protected HttpContentProducer streamSampleResponse(String scope, WorkspaceSample page, List<String> columns,
+                                                     @Nullable Schema schema) throws Exception {
+    Map<String, ColumnSketch> profiles = PROFILES.get(scope, Collections.emptyList());
+    if (profiles == null) {
+      return null;
+    }
+    Set<String> selected = columns.isEmpty() ? null : new HashSet<>(columns);
+    Map<String, String> types = getColumnTypes(schema, selected);
+    SchemaConverter convertor = schema == null ? new SchemaConverter() : null;
+    List<Map<String, Object>> values = new ArrayList<>();
+    for (Row row : page.getRows()) {
+      values.add(toDisplayValues(row, selected, types, convertor));
+    }
+    return new ExecutionResponseProducer(GSON, values, page.getSampleSize(), types,
+                                         getWorkspaceSummary(page.getSampleSize(), profiles));
+  }
+
+  private DirectiveExecutionResponse generateExecutionResponse(
+    List<Row> rows, int limit, Map<String, ColumnSketch> profiles) throws Exception {
     List<Map<String, Object>> values = new ArrayList<>(rows.size());
     Map<String, String> types = new LinkedHashMap<>();
     SchemaConverter convertor = new SchemaConverter();
 
-    if (schemaManagementEnabled) {
-      Schema outputSchema = TRANSIENT_STORE.get(TransientStoreKeys.OUTPUT_SCHEMA) != null ?
-        TRANSIENT_STORE.get(TransientStoreKeys.OUTPUT_SCHEMA) : TRANSIENT_STORE.get(TransientStoreKeys.INPUT_SCHEMA);
-      for (Schema.Field field : outputSchema.getFields()) {
-        types.put(field.getName(), getColumnDisplayType(field.getSchema()));
-      }
-    }
-
     // Iterate through all the new rows.
     for (Row row : rows) {
       // If output array has more than return result values, we terminate.
       if (values.size() >= limit) {
         break;
       }
+      values.add(toDisplayValues(row, null, types, convertor));
+    }
+    return new DirectiveExecutionResponse(values, types.keySet(), types,
+                                          getWorkspaceSummary(rows.size(), profiles));
+  }
+
+  /**
+   * Returns the schema of the rows produced by an execution when schema management is enabled.
+   *
+   * @param transientStore store the execution was done with
+   * @return the output schema, or the input schema if the directives didn't produce one, null if schema
+   *   management is not enabled
+   */
+  @Nullable
+  protected Schema getOutputSchema(TransientStore transientStore) {
+    if (!schemaManagementEnabled) {
+      return null;
+    }
+    Schema outputSchema = transientStore.get(TransientStoreKeys.OUTPUT_SCHEMA);
+    return outputSchema != null ? outputSchema : transientStore.get(TransientStoreKeys.INPUT_SCHEMA);
+  }
+
+  /**
+   * @param schema of the rows, null if the types are derived from the values of the rows
+   * @param columns to get the types of, all of them if null
+   * @return types of the columns of the schema, empty if there is no schema
+   */
+  private Map<String, String> getColumnTypes(@Nullable Schema schema, @Nullable Set<String> columns) {
+    Map<String, String> types = new LinkedHashMap<>();
+    if (schema != null) {
+      for (Schema.Field field : schema.getFields()) {
+        if (columns == null || columns.contains(field.getName())) {
+          types.put(field.getName(), getColumnDisplayType(field.getSchema()));
+        }
+      }
+    }
+    return types;
+  }
 
-      Map<String, Object> value = new HashMap<>(row.width());
+  /**
+   * Converts the values of a row to the strings displayed for them, adding the types of its columns if they are
+   * derived from the values. The type of a column is only derived from its values until one of them is not null.
+   *
+   * @param columns to convert, all of them if null
+   * @param convertor to derive the types of the columns with, null if the types come from a schema
+   */
+  @VisibleForTesting
+  static Map<String, Object> toDisplayValues(Row row, @Nullable Set<String> columns, Map<String, String> types,
+                                             @Nullable SchemaConverter convertor) throws Exception {
+    Map<String, Object> value = new HashMap<>(row.width());
 
-      // Iterate through all the fields of the row.
-      for (Pair<String, Object> field : row.getFields()) {
-        String fieldName = field.getFirst();
-        Object object = field.getSecond();
+    // Iterate through all the fields of the row.
+    for (Pair<String, Object> field : row.getFields()) {
+      String fieldName = field.getFirst();
+      Object object = field.getSecond();
+      if (columns != null && !columns.contains(fieldName)) {
+        continue;
+      }
 
-        if (object != null) {
-          if (!schemaManagementEnabled) {
+      if (object != null) {
+        if (convertor != null) {
+          String type = types.get(fieldName);
+          if (type == null || type.equals(NULL_COLUMN_DISPLAY_TYPE)) {
             Schema schema = convertor.getSchema(object, fieldName);
             types.put(fieldName, schema != null ? getColumnDisplayType(schema) : object.getClass().getSimpleName());
           }
-
-          if ((object instanceof Iterable)
-              || (object instanceof Row)) {
-            value.put(fieldName, GSON.toJson(object));
-          } else {
-            if ((object.getClass().getMethod("toString").getDeclaringClass() != Object.class)) {
-              value.put(fieldName, object.toString());
-            } else {
-              value.put(fieldName, WranglerDisplaySerializer.NONDISPLAYABLE_STRING);
-            }
-          }
-        } else {
-          value.put(fieldName, null);
-          if (!schemaManagementEnabled) {
-            types.put(fieldName, NULL_COLUMN_DISPLAY_TYPE);
-          }
+        }
+        value.put(fieldName, DISPLAY_SERIALIZERS.get(object.getClass()).apply(object));
+      } else {
+        value.put(fieldName, null);
+        if (convertor != null) {
+          types.putIfAbsent(fieldName, NULL_COLUMN_DISPLAY_TYPE);
         }
       }
-      values.add(value);
     }
-    return new DirectiveExecutionResponse(values, types.keySet(), types, getWorkspaceSummary(rows));
+    return value;
   }
 
   /**
    * Get the summary for the workspace rows
    */
   protected WorkspaceValidationResult getWorkspaceSummary(List<Row> rows) throws Exception {
+    return getWorkspaceSummary(rows.size(), PROFILER.profile(rows));
+  }
+
+  /**
+   * @param size number of rows
+   * @param profiles of all the columns of the rows
+   */
+  private WorkspaceValidationResult getWorkspaceSummary(int size,
+                                                        Map<String, ColumnSketch> profiles) throws Exception {
     // Validate Column names.
     Validator<String> validator = new ColumnNameValidator();
     validator.initialize();
 
-    // Iterate through columns to value a set
-    Set<String> uniqueColumns = new HashSet<>();
-    for (Row row : rows) {
-      for (int i = 0; i < row.width(); ++i) {
-        uniqueColumns.add(row.getColumn(i));
-      }
-    }
-
+    // The profiles cover every column found in the rows
     Map<String, ColumnValidationResult> columnValidationResults = new HashMap<>();
-    for (String name : uniqueColumns) {
+    for (String name : profiles.keySet()) {
       try {
         validator.validate(name);
         columnValidationResults.put(name, new ColumnValidationResult(null));
@@ -240,41 +516,39 @@ public class AbstractDirectiveHandler extends AbstractWranglerHandler {
       }
     }
 
-    // Generate General and Type related Statistics for each column.
-    Statistics statsGenerator = new BasicStatistics();
-    Row summary = statsGenerator.aggregate(rows);
-
-    Row stats = (Row) summary.getValue("stats");
-    Row types = (Row) summary.getValue("types");
-
-    List<Pair<String, Object>> fields = stats.getFields();
+    // Generate General and Type related Statistics for each column, along with their profiles.
+    double total = size;
     Map<String, ColumnStatistics> statistics = new HashMap<>();
-    for (Pair<String, Object> field : fields) {
-      List<Pair<String, Double>> values = (List<Pair<String, Double>>) field.getSecond();
-      Map<String, Float> generalStats = new HashMap<>();
-      for (Pair<String, Double> value : values) {
-        generalStats.put(value.getFirst(), value.getSecond().floatValue() * 100);
-      }
-      ColumnStatistics columnStatistics = new ColumnStatistics(generalStats, null);
-      statistics.put(field.getFirst(), columnStatistics);
-    }
+    Map<String, ColumnProfile> columnProfiles = new HashMap<>();
+    for (Map.Entry<String, ColumnSketch> entry : profiles.entrySet()) {
+      ColumnSketch sketch = entry.getValue();
+      Map<String, Float> typeStats = toPercentages(sketch.getTypes(total));
+      statistics.put(entry.getKey(), new ColumnStatistics(toPercentages(sketch.getGeneral(total)),
+                                                          typeStats.isEmpty() ? null : typeStats));
 
-    fields = types.getFields();
-    for (Pair<String, Object> field : fields) {
-      List<Pair<String, Double>> values = (List<Pair<String, Double>>) field.getSecond();
-      Map<String, Float> typeStats = new HashMap<>();
-      for (Pair<String, Double> value : values) {
-        typeStats.put(value.getFirst(), value.getSecond().floatValue() * 100);
+      Map<String, Double> quantiles = new LinkedHashMap<>();
+      for (Map.Entry<Double, Double> quantile : sketch.getQuantiles(PROFILE_QUANTILES).entrySet()) {
+        quantiles.put(String.format("p%d", Math.round(quantile.getKey() * 100)), quantile.getValue());
       }
-      ColumnStatistics existingStats = statistics.get(field.getFirst());
-      Map<String, Float> generalStats = existingStats == null ? null : existingStats.getGeneral();
-      statistics.put(field.getFirst(), new ColumnStatistics(generalStats, typeStats));
+      columnProfiles.put(entry.getKey(), new ColumnProfile(
+        sketch.getDistinct(), sketch.getDistinctError(),
+        sketch.getMinLength() == -1 ? null : sketch.getMinLength(),
+        sketch.getMaxLength() == -1 ? null : sketch.getMaxLength(),
+        quantiles, sketch.getTopValues(PROFILE_TOP_VALUES), sketch.getCoverage()));
     }
 
-    return new WorkspaceValidationResult(columnValidationResults, statistics);
+    return new WorkspaceValidationResult(columnValidationResults, statistics, columnProfiles);
+  }
+
+  private static Map<String, Float> toPercentages(Map<String, Double> fractions) {
+    Map<String, Float> percentages = new HashMap<>();
+    for (Map.Entry<String, Double> fraction : fractions.entrySet()) {
+      percentages.put(fraction.getKey(), fraction.getValue().floatValue() * 100);
+    }
+    return percentages;
   }
 
-  private String getColumnDisplayType(Schema schema) {
+  private static String getColumnDisplayType(Schema schema) {
     schema = schema.isNullable() ? schema.getNonNullable() : schema;
     String type = schema.getLogicalType() == null ? schema.getType().name() : schema.getLogicalType().name();
     // for backward compatibility, make the characters except the first one to lower case
@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.wrangler.proto.BadRequestException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.Predicate;
+
+/**
+ * Splits content received in chunks of bytes into records separated by a literal delimiter, decoding the bytes as
+ * they are received, so that the content is never held in memory as a whole.
+ *
+ * <p>Records are split the same way as {@link String#split(String)} would split the whole content on the quoted
+ * delimiter: empty records at the end of the content are dropped.</p>
+ */
+final class DelimitedRecordScanner {
+  private final CharsetDecoder decoder;
+  private final String delimiter;
+  private final char delimiterEnd;
+  private final int maxRecordLength;
+  private final Predicate<String> consumer;
+  private final CharBuffer chars = CharBuffer.allocate(8192);
+  private final StringBuilder record = new StringBuilder();
+  // Bytes of a character split across chunks.
+  private ByteBuffer remaining = ByteBuffer.allocate(0);
+  // Empty records not given to the consumer yet, as they are dropped if they end the content.
+  private int emptyRecords;
+  private boolean done;
+
+  /**
+   * @param charset of the content
+   * @param delimiter separating the records, not empty
+   * @param maxRecordLength maximum number of characters of a record
+   * @param consumer of the records, returning false once it doesn't need more records
+   */
+  DelimitedRecordScanner(Charset charset, String delimiter, int maxRecordLength, Predicate<String> consumer) {
+    this.decoder = charset.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.delimiter = delimiter;
+    this.delimiterEnd = delimiter.charAt(delimiter.length() - 1);
+    this.maxRecordLength = maxRecordLength;
+    this.consumer = consumer;
+  }
+
+  /**
+   * @return whether the consumer doesn't need more records, in which case the rest of the content is ignored
+   */
+  boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Splits the next chunk of the content.
+   */
+  void feed(ByteBuffer chunk) throws CharacterCodingException {
+    if (done) {
+      return;
+    }
+    ByteBuffer input = chunk;
+    if (remaining.hasRemaining()) {
+      input = ByteBuffer.allocate(remaining.remaining() + chunk.remaining());
+      input.put(remaining).put(chunk.duplicate());
+      input.flip();
+    }
+    decode(input, false);
+    remaining = input.hasRemaining() ? copy(input) : ByteBuffer.allocate(0);
+  }
+
+  /**
+   * Splits the end of the content.
+   */
+  void finish() throws CharacterCodingException {
+    if (done) {
+      return;
+    }
+    decode(remaining, true);
+    chars.clear();
+    decoder.flush(chars);
+    chars.flip();
+    scan();
+    if (record.length() > 0) {
+      emit(record.toString());
+    }
+  }
+
+  private void decode(ByteBuffer input, boolean endOfInput) throws CharacterCodingException {
+    while (!done) {
+      chars.clear();
+      CoderResult result = decoder.decode(input, chars, endOfInput);
+      chars.flip();
+      scan();
+      if (result.isError()) {
+        result.throwException();
+      }
+      if (result.isUnderflow()) {
+        return;
+      }
+    }
+  }
+
+  private void scan() {
+    while (chars.hasRemaining() && !done) {
+      char c = chars.get();
+      record.append(c);
+      int length = record.length();
+      if (c == delimiterEnd && length >= delimiter.length()
+        && record.indexOf(delimiter, length - delimiter.length()) >= 0) {
+        record.setLength(length - delimiter.length());
+        emit(record.toString());
+        record.setLength(0);
+      } else if (length > maxRecordLength) {
+        throw new BadRequestException(String.format("Record is larger than the maximum of %d characters. "
+                                                      + "Please check the delimiter of the records.",
+                                                    maxRecordLength));
+      }
+    }
+  }
+
+  private void emit(String value) {
+    if (value.isEmpty()) {
+      emptyRecords++;
+      return;
+    }
+    for (; emptyRecords > 0 && !done; emptyRecords--) {
+      done = !consumer.test("");
+    }
+    done = done || !consumer.test(value);
+  }
+
+  private static ByteBuffer copy(ByteBuffer buffer) {
+    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+    copy.put(buffer).flip();
+    return copy;
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import com.google.common.util.concurrent.Striped;
+import io.cdap.wrangler.proto.workspace.v2.ExecutionJob;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import javax.annotation.Nullable;
+
+/**
+ * Asynchronous executions of directives on workspaces, run in an {@link ExecutionPool}.
+ *
+ * <p>A workspace has at most one job running: submitting a job cancels the previous job of the same workspace,
+ * since its result is obsolete. Jobs are cancelled by interrupting the thread running them, which stops the
+ * execution of the directives between rows. Cancelled jobs are kept with their cancelled status, so that clients
+ * polling them learn why they won't get a result. The result or status of a job can be retrieved once, after which
+ * the job is removed. Jobs whose result is not retrieved are removed, and cancelled if still running, once they
+ * expire or once there are too many jobs.</p>
+ *
+ * <p>Side effects of a job, such as saving its directives in the workspace, are run through
+ * {@link #runIfLatest(Runnable)}, so that a job replaced by a newer one never overwrites the newer one's. They
+ * only hold the lock of their workspace while they run, so they don't delay the jobs of other workspaces.</p>
+ *
+ * <p>Jobs are only known by the service instance they were submitted to.</p>
+ *
+ * @param <T> type of the result of the jobs
+ */
+final class ExecutionJobs<T> {
+
+  /**
+   * Execution of directives on a workspace.
+   *
+   * @param <T> type of the result of the job
+   */
+  static final class Job<T> {
+    private final String id;
+    private final Object owner;
+    private final String workspace;
+    private final String workspaceId;
+    private final long submittedMillis;
+    private final Future<T> future;
+
+    private Job(String id, Object owner, String workspace, String workspaceId, long submittedMillis,
+                Future<T> future) {
+      this.id = id;
+      this.owner = owner;
+      this.workspace = workspace;
+      this.workspaceId = workspaceId;
+      this.submittedMillis = submittedMillis;
+      this.future = future;
+    }
+
+    String getId() {
+      return id;
+    }
+
+    /**
+     * Waits for the job to complete.
+     *
+     * @param timeoutMillis maximum time to wait for
+     * @return whether the job has completed
+     */
+    boolean await(long timeoutMillis) throws InterruptedException {
+      try {
+        future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (ExecutionException | CancellationException | TimeoutException e) {
+        // The status of the job is given by its future
+      }
+      return future.isDone();
+    }
+
+    ExecutionJob.Status getStatus() {
+      if (!future.isDone()) {
+        return ExecutionJob.Status.RUNNING;
+      }
+      if (future.isCancelled()) {
+        return ExecutionJob.Status.CANCELLED;
+      }
+      try {
+        future.get();
+        return ExecutionJob.Status.SUCCEEDED;
+      } catch (Exception e) {
+        return ExecutionJob.Status.FAILED;
+      }
+    }
+
+    /**
+     * Waits for the result of the job.
+     *
+     * @throws Exception the exception thrown by the job
+     */
+    T getResult() throws Exception {
+      return ExecutionPool.getResult(future);
+    }
+
+    ExecutionJob toExecutionJob() {
+      return new ExecutionJob(id, workspaceId, getStatus(), submittedMillis);
+    }
+  }
+
+  private final ExecutionPool pool;
+  private final int maxJobs;
+  private final long expiryMillis;
+  // Jobs by id, in the order they were submitted in
+  private final LinkedHashMap<String, Job<T>> jobs = new LinkedHashMap<>();
+  // Id of the last job submitted for each workspace
+  private final Map<String, String> latest = new HashMap<>();
+  // Id of the job run by the current thread
+  private final ThreadLocal<String> current = new ThreadLocal<>();
+  // Locks of the workspaces, held while jobs are submitted or cancelled and while the actions of jobs run. They are
+  // always acquired before the lock of this object.
+  private final Striped<Lock> workspaceLocks = Striped.lock(256);
+
+  /**
+   * @param pool to run the jobs in
+   * @param maxJobs maximum number of jobs kept, running or not
+   * @param expiryMillis time after which jobs are removed, from the time they were submitted
+   */
+  ExecutionJobs(ExecutionPool pool, int maxJobs, long expiryMillis) {
+    this.pool = pool;
+    this.maxJobs = maxJobs;
+    this.expiryMillis = expiryMillis;
+  }
+
+  /**
+   * Submits a job, cancelling the previous job of the workspace.
+   *
+   * @param owner of the job, such as the handler whose resources the execution uses
+   * @param workspace key of the workspace, unique across namespaces
+   * @param workspaceId id of the workspace
+   * @param execution the execution of the directives
+   * @return the job
+   */
+  Job<T> submit(Object owner, String workspace, String workspaceId, Callable<T> execution) {
+    Lock lock = workspaceLocks.get(workspace);
+    lock.lock();
+    try {
+      synchronized (this) {
+        long now = System.currentTimeMillis();
+        String previous = latest.remove(workspace);
+        Job<T> previousJob = previous == null ? null : jobs.get(previous);
+        if (previousJob != null) {
+          previousJob.future.cancel(true);
+        }
+        expire(now);
+
+        String id = UUID.randomUUID().toString();
+        Future<T> future = pool.submit(() -> {
+          current.set(id);
+          try {
+            return execution.call();
+          } finally {
+            current.remove();
+          }
+        });
+        Job<T> job = new Job<>(id, owner, workspace, workspaceId, now, future);
+        jobs.put(job.id, job);
+        latest.put(workspace, job.id);
+        return job;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Runs an action of the job run by the current thread only if the job is still the latest one of its workspace
+   * and was not cancelled. Jobs of the workspace are not submitted or cancelled while the action runs, so the action
+   * of a job never runs after the job was replaced. Actions run outside of a job are always run.
+   *
+   * @param action to run, such as saving the directives of the job in the workspace
+   * @return whether the action was run
+   */
+  boolean runIfLatest(Runnable action) {
+    String jobId = current.get();
+    if (jobId == null) {
+      action.run();
+      return true;
+    }
+    Job<T> job;
+    synchronized (this) {
+      job = jobs.get(jobId);
+    }
+    if (job == null) {
+      return false;
+    }
+    Lock lock = workspaceLocks.get(job.workspace);
+    lock.lock();
+    try {
+      synchronized (this) {
+        if (!jobId.equals(latest.get(job.workspace))) {
+          return false;
+        }
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        return false;
+      }
+      action.run();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the running jobs of an owner to complete, before the resources they use are released. Jobs still
+   * running once the timeout elapses are cancelled. The results of completed jobs can still be retrieved.
+   *
+   * @param owner of the jobs
+   * @param timeoutMillis maximum time to wait for
+   */
+  void drain(Object owner, long timeoutMillis) throws InterruptedException {
+    List<Job<T>> running = new ArrayList<>();
+    synchronized (this) {
+      for (Job<T> job : jobs.values()) {
+        if (job.owner == owner && !job.future.isDone()) {
+          running.add(job);
+        }
+      }
+    }
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    for (Job<T> job : running) {
+      if (!job.await(Math.max(0, deadline - System.currentTimeMillis()))) {
+        cancel(job.workspace, job.id);
+      }
+    }
+  }
+
+  /**
+   * @param workspace key of the workspace the job was submitted for
+   * @param jobId id of the job
+   * @return the job, null if it doesn't exist or was removed
+   */
+  @Nullable
+  synchronized Job<T> get(String workspace, String jobId) {
+    Job<T> job = jobs.get(jobId);
+    return job == null || !job.workspace.equals(workspace) ? null : job;
+  }
+
+  /**
+   * Cancels a job. A running job is kept with its cancelled status until it is removed, while a completed job is
+   * removed along with its result.
+   *
+   * @param workspace key of the workspace the job was submitted for
+   * @param jobId id of the job
+   * @return whether the job existed
+   */
+  boolean cancel(String workspace, String jobId) {
+    Lock lock = workspaceLocks.get(workspace);
+    lock.lock();
+    try {
+      synchronized (this) {
+        Job<T> job = get(workspace, jobId);
+        if (job == null) {
+          return false;
+        }
+        if (job.future.cancel(true)) {
+          latest.remove(workspace, jobId);
+        } else {
+          remove(job);
+        }
+        return true;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes a job, once its result or cancelled status was retrieved.
+   */
+  synchronized void remove(Job<T> job) {
+    jobs.remove(job.id);
+    latest.remove(job.workspace, job.id);
+  }
+
+  /**
+   * @return number of jobs kept, running or not
+   */
+  synchronized int size() {
+    return jobs.size();
+  }
+
+  private void expire(long now) {
+    Iterator<Job<T>> iterator = jobs.values().iterator();
+    while (iterator.hasNext()) {
+      Job<T> job = iterator.next();
+      if (jobs.size() < maxJobs && now - job.submittedMillis < expiryMillis) {
+        break;
+      }
+      job.future.cancel(true);
+      iterator.remove();
+      latest.remove(job.workspace, job.id);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.wrangler.proto.StatusCodeException;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the executions of directives on a bounded number of threads, shared by all the handlers of the service.
+ *
+ * <p>Executions beyond the number of threads wait in a bounded queue. Executions submitted while the queue is full
+ * are rejected with a {@code 503} status, instead of making every execution slower. Each execution is done with its
+ * own transient store, so executions of different workspaces don't see each other's state.</p>
+ */
+final class ExecutionPool {
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * @param threads maximum number of executions run concurrently
+   * @param queueSize maximum number of executions waiting for a thread
+   */
+  ExecutionPool(int threads, int queueSize) {
+    executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                      new ArrayBlockingQueue<>(queueSize),
+                                      new ThreadFactoryBuilder()
+                                        .setNameFormat("workspace-execution-%d")
+                                        .setDaemon(true)
+                                        .build());
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Submits an execution to the pool.
+   *
+   * @return future of the result of the execution
+   * @throws StatusCodeException if there are too many executions waiting for a thread
+   */
+  <T> Future<T> submit(Callable<T> execution) {
+    try {
+      return executor.submit(execution);
+    } catch (RejectedExecutionException e) {
+      throw new StatusCodeException("Too many directive executions are in progress, please retry later.", e,
+                                    HttpURLConnection.HTTP_UNAVAILABLE);
+    }
+  }
+
+  /**
+   * Runs an execution in the pool and waits for its result. The execution is cancelled if the calling thread is
+   * interrupted while waiting.
+   *
+   * @return the result of the execution
+   * @throws Exception the exception thrown by the execution
+   */
+  <T> T execute(Callable<T> execution) throws Exception {
+    return getResult(submit(execution));
+  }
+
+  /**
+   * Waits for the result of an execution. The execution is cancelled if the calling thread is interrupted while
+   * waiting.
+   *
+   * @return the result of the execution
+   * @throws Exception the exception thrown by the execution
+   */
+  static <T> T getResult(Future<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw e;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * @return number of executions being run
+   */
+  int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  /**
+   * @return number of executions waiting for a thread
+   */
+  int getQueueSize() {
+    return executor.getQueue().size();
+  }
+}
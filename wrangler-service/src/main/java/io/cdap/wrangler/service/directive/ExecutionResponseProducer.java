@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import io.cdap.cdap.api.Transactional;
+import io.cdap.cdap.api.service.http.HttpContentProducer;
+import io.cdap.wrangler.proto.workspace.WorkspaceValidationResult;
+import io.cdap.wrangler.proto.workspace.v2.DirectiveExecutionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link DirectiveExecutionResponse} in chunks of rows, so that its JSON is never held in memory as a whole.
+ *
+ * <p>The rows are converted for display before the producer is created, so that a row that fails to be converted
+ * fails the request with an error status instead of truncating a response that has already been committed.</p>
+ */
+final class ExecutionResponseProducer extends HttpContentProducer {
+  private static final Logger LOG = LoggerFactory.getLogger(ExecutionResponseProducer.class);
+  private static final int CHUNK_ROWS = 100;
+
+  private final Gson gson;
+  private final List<Map<String, Object>> values;
+  private final int total;
+  private final Map<String, String> types;
+  private final WorkspaceValidationResult summary;
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  private final JsonWriter writer = new JsonWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+  private Iterator<Map<String, Object>> iterator;
+  private boolean finished;
+
+  /**
+   * @param gson to write the summary with
+   * @param values displayed for the columns of each row to write in the response
+   * @param total number of rows the displayed rows were taken from
+   * @param types of the columns
+   * @param summary of all the rows
+   */
+  ExecutionResponseProducer(Gson gson, List<Map<String, Object>> values, int total, Map<String, String> types,
+                            WorkspaceValidationResult summary) {
+    this.gson = gson;
+    this.values = values;
+    this.total = total;
+    this.types = types;
+    this.summary = summary;
+  }
+
+  @Override
+  public ByteBuffer nextChunk(Transactional transactional) throws Exception {
+    if (finished) {
+      return ByteBuffer.allocate(0);
+    }
+
+    if (iterator == null) {
+      iterator = values.iterator();
+      writer.beginObject();
+      writer.name("message").value("Success");
+      writer.name("count").value(values.size());
+      writer.name("total").value(total);
+      writer.name("values").beginArray();
+    }
+
+    for (int i = 0; i < CHUNK_ROWS && iterator.hasNext(); i++) {
+      writer.beginObject();
+      for (Map.Entry<String, Object> value : iterator.next().entrySet()) {
+        if (value.getValue() != null) {
+          writer.name(value.getKey()).value(value.getValue().toString());
+        }
+      }
+      writer.endObject();
+    }
+
+    if (!iterator.hasNext()) {
+      writer.endArray();
+      writer.name("headers").beginArray();
+      for (String header : types.keySet()) {
+        writer.value(header);
+      }
+      writer.endArray();
+      writer.name("types").beginObject();
+      for (Map.Entry<String, String> type : types.entrySet()) {
+        writer.name(type.getKey()).value(type.getValue());
+      }
+      writer.endObject();
+      writer.name("summary");
+      gson.toJson(summary, WorkspaceValidationResult.class, writer);
+      writer.endObject();
+      finished = true;
+    }
+
+    writer.flush();
+    ByteBuffer chunk = ByteBuffer.wrap(buffer.toByteArray());
+    buffer.reset();
+    return chunk;
+  }
+
+  @Override
+  public void onFinish() throws IOException {
+    writer.close();
+  }
+
+  @Override
+  public void onError(Throwable failureCause) {
+    LOG.warn("Failed to send the directive execution response", failureCause);
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.functions.Global;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.TokenGroup;
+import io.cdap.wrangler.api.parser.Token;
+import io.cdap.wrangler.api.parser.TokenType;
+import io.cdap.wrangler.store.utils.Rows;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the rows produced by the recipes executed on the samples of the workspaces, so that an execution can
+ * resume from the longest cached prefix of its recipe and only run the remaining directives.
+ *
+ * <p>Checkpoints are keyed by workspace, version of the sample and of the directives of the registry, and recipe
+ * prefix, and the least recently used ones are evicted once their estimated size exceeds the maximum. Rows are
+ * copied when a checkpoint is returned, since directives modify them in place. Rows holding values that could be
+ * modified in place, such as lists, maps or nested rows, are not cached, nor are the results of recipes that are
+ * not known to produce the same rows from the same sample, see {@link #isDeterministic(String, TokenGroup)}.</p>
+ */
+final class RecipeResultCache {
+  private static final HashFunction HASH = Hashing.murmur3_128();
+  // System directives of which the results depend on the time, random values or external systems. Dates such as
+  // 'today' or 'next friday' are parsed by parse-as-date relative to the current time.
+  private static final Set<String> NON_DETERMINISTIC_DIRECTIVES =
+    ImmutableSet.of("generate-uuid", "current-datetime", "diff-date", "invoke-http", "table-lookup", "parse-as-date");
+  // Namespaces of the expression language of which the functions only depend on their arguments, except for the
+  // functions listed below.
+  private static final Set<String> PURE_NAMESPACES =
+    ImmutableSet.of("arithmetic", "arrays", "bytes", "date", "datetime", "ddl", "decimal", "dq", "escape", "geo",
+                    "json", "logical", "math", "number", "string", "strings");
+  private static final Set<String> NON_DETERMINISTIC_FUNCTIONS =
+    ImmutableSet.of("math:random", "date:DAYS_BETWEEN_NOW", "datetime:CurrentDate", "datetime:CurrentTime",
+                    "datetime:CurrentTimeMS", "datetime:CurrentDateTime", "datetime:CurrentTimestamp",
+                    "datetime:CurrentTimestampMS", "datetime:CurrentTimestampNano", "datetime:EpochSeconds",
+                    "datetime:DateFromDaysSince", "datetime:TimeDate");
+  // Functions without namespace, which are the global functions and the size and empty operators of the language.
+  private static final Set<String> PURE_GLOBAL_FUNCTIONS = ImmutableSet.<String>builder()
+    .addAll(Arrays.stream(Global.class.getMethods())
+              .filter(method -> Modifier.isStatic(method.getModifiers()))
+              .map(Method::getName)
+              .collect(Collectors.toSet()))
+    .add("if", "size", "empty")
+    .build();
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"");
+  // Calls of a function, with an optional namespace, or of a method of a value when preceded by a dot.
+  private static final Pattern CALL = Pattern.compile("(\\.\\s*)?\\b(?:(\\w+)\\s*:\\s*)?(\\w+)\\s*\\(");
+  // The 'ctx' variable holds the time of the execution.
+  private static final Pattern CONTEXT = Pattern.compile("\\bctx\\b");
+
+  /**
+   * Rows produced by a prefix of a recipe.
+   */
+  static final class Checkpoint {
+    private final List<String> directives;
+    private final List<Row> rows;
+    private final Schema schema;
+    private final long bytes;
+
+    private Checkpoint(List<String> directives, List<Row> rows, @Nullable Schema schema, long bytes) {
+      this.directives = directives;
+      this.rows = rows;
+      this.schema = schema;
+      this.bytes = bytes;
+    }
+
+    /**
+     * @return number of directives of the recipe prefix that produced the rows.
+     */
+    int getSize() {
+      return directives.size();
+    }
+
+    /**
+     * @return copy of the rows produced by the recipe prefix, along with the byte arrays they hold.
+     */
+    List<Row> getRows() {
+      return Rows.copy(rows);
+    }
+
+    /**
+     * @return output schema of the recipe prefix, null if schema management is not enabled.
+     */
+    @Nullable
+    Schema getSchema() {
+      return schema;
+    }
+  }
+
+  private final long maxBytes;
+  private final LinkedHashMap<String, Checkpoint> checkpoints = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+
+  /**
+   * @param maxBytes maximum estimated size of the cached rows.
+   */
+  RecipeResultCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Finds the checkpoint of the longest cached prefix of the recipe.
+   *
+   * @param workspace on which the recipe is executed.
+   * @param version of the sample of the workspace.
+   * @param directives of the recipe.
+   * @return checkpoint of the longest prefix, null if none is cached.
+   */
+  @Nullable
+  synchronized Checkpoint get(String workspace, long version, List<String> directives) {
+    String[] keys = keys(workspace, version, directives);
+    for (int i = keys.length - 1; i >= 0; i--) {
+      Checkpoint checkpoint = checkpoints.get(keys[i]);
+      if (checkpoint != null && checkpoint.directives.equals(directives.subList(0, i))) {
+        return checkpoint;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Caches the rows produced by a recipe, unless they are too large or hold values that can be modified in place.
+   * Callers only cache the results of recipes made of directives that are deterministic.
+   *
+   * @param workspace on which the recipe was executed.
+   * @param version of the sample of the workspace.
+   * @param directives of the recipe.
+   * @param rows produced by the recipe, they should not be modified afterwards.
+   * @param schema output schema of the recipe, null if schema management is not enabled.
+   */
+  void put(String workspace, long version, List<String> directives, List<Row> rows, @Nullable Schema schema) {
+    long size = Rows.sizeOf(rows);
+    if (size < 0 || size > maxBytes) {
+      return;
+    }
+
+    String[] keys = keys(workspace, version, directives);
+    Checkpoint checkpoint = new Checkpoint(new ArrayList<>(directives), rows, schema, size);
+    synchronized (this) {
+      Checkpoint previous = checkpoints.put(keys[keys.length - 1], checkpoint);
+      bytes += size - (previous == null ? 0 : previous.bytes);
+      Iterator<Checkpoint> iterator = checkpoints.values().iterator();
+      while (bytes > maxBytes && iterator.hasNext()) {
+        bytes -= iterator.next().bytes;
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes all the checkpoints of a workspace.
+   */
+  synchronized void invalidate(String workspace) {
+    Iterator<Map.Entry<String, Checkpoint>> iterator = checkpoints.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Checkpoint> entry = iterator.next();
+      if (entry.getKey().startsWith(workspace + ":")) {
+        bytes -= entry.getValue().bytes;
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * @return estimated size of the cached rows, in bytes.
+   */
+  synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @param sampleVersion version of a sample, as stored with it
+   * @param generation of the directives of the registry the recipes are executed with
+   * @return version of the sample, which changes whenever the stored version or the directives of the registry do.
+   */
+  static long version(long sampleVersion, long generation) {
+    return HASH.newHasher().putLong(generation).putLong(sampleVersion).hash().asLong();
+  }
+
+  /**
+   * Tells whether a system directive always produces the same rows from the same rows. It does unless it is known
+   * to depend on the time, random values or external systems, or it has an expression that can't be proven pure.
+   * User defined directives are never known to be deterministic, so they should not be checked with this method.
+   *
+   * @param command name of the directive
+   * @param tokens of the directive, as parsed from the recipe
+   */
+  static boolean isDeterministic(String command, TokenGroup tokens) {
+    if (NON_DETERMINISTIC_DIRECTIVES.contains(command)) {
+      return false;
+    }
+    Iterator<Token> iterator = tokens.iterator();
+    while (iterator.hasNext()) {
+      Token token = iterator.next();
+      if (token.type() == TokenType.EXPRESSION && !isPure((String) token.value())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Tells whether an expression only depends on the row it is evaluated on. It is proven to when it calls no
+   * methods of values, and only calls functions that are known to only depend on their arguments, which excludes
+   * creating objects with <tt>new</tt>. Function and method names within string literals are ignored.
+   */
+  static boolean isPure(String expression) {
+    String code = STRING_LITERAL.matcher(expression).replaceAll("''");
+    if (CONTEXT.matcher(code).find()) {
+      return false;
+    }
+    Matcher matcher = CALL.matcher(code);
+    while (matcher.find()) {
+      String namespace = matcher.group(2);
+      String function = matcher.group(3);
+      if (matcher.group(1) != null) {
+        return false;
+      }
+      if (namespace == null ? !PURE_GLOBAL_FUNCTIONS.contains(function)
+        : !PURE_NAMESPACES.contains(namespace) || NON_DETERMINISTIC_FUNCTIONS.contains(namespace + ":" + function)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return keys of all the prefixes of the recipe, the one at index <tt>i</tt> having <tt>i</tt> directives.
+   */
+  private static String[] keys(String workspace, long version, List<String> directives) {
+    String[] keys = new String[directives.size() + 1];
+    String prefix = workspace + ":" + Long.toHexString(version) + ":";
+    long hash = 0;
+    keys[0] = prefix + "0:0";
+    for (int i = 0; i < directives.size(); i++) {
+      hash = hash * 31 + HASH.hashString(directives.get(i), StandardCharsets.UTF_8).asLong();
+      keys[i + 1] = prefix + (i + 1) + ":" + Long.toHexString(hash);
+    }
+    return keys;
+  }
+}
@@ -17,7 +17,9 @@ package io.cdap.wrangler.service.directive;
 
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.wrangler.parser.DirectiveClass;
+import io.cdap.wrangler.utils.KryoSerializer;
 
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,7 +31,11 @@ public class RemoteDirectiveRequest {
   private final String recipe;
   private final Map<String, DirectiveClass> systemDirectives;
   private final String pluginNameSpace;
+  // Java serialized sample, in the field task workers have always read it from.
   private final byte[] data;
+  // Sample written by the KryoSerializer, which older task workers can't read. It is Base64 encoded, as byte arrays
+  // are encoded as arrays of numbers in JSON.
+  private final String encodedData;
   private final Schema inputSchema;
 
   RemoteDirectiveRequest(String recipe, Map<String, DirectiveClass> systemDirectives,
@@ -37,7 +43,9 @@ public class RemoteDirectiveRequest {
     this.recipe = recipe;
     this.systemDirectives = new HashMap<>(systemDirectives);
     this.pluginNameSpace = pluginNameSpace;
-    this.data = data;
+    boolean kryo = KryoSerializer.isSerialized(data);
+    this.data = kryo ? null : data;
+    this.encodedData = kryo ? Base64.getEncoder().encodeToString(data) : null;
     this.inputSchema = inputSchema;
   }
 
@@ -50,7 +58,7 @@ public class RemoteDirectiveRequest {
   }
 
   public byte[] getData() {
-    return data;
+    return encodedData == null ? data : Base64.getDecoder().decode(encodedData);
   }
 
   public String getPluginNameSpace() {
@@ -39,7 +39,6 @@ import io.cdap.wrangler.api.TransientStore;
 import io.cdap.wrangler.api.TransientVariableScope;
 import io.cdap.wrangler.api.parser.UsageDefinition;
 import io.cdap.wrangler.executor.RecipePipelineExecutor;
-import io.cdap.wrangler.expression.EL;
 import io.cdap.wrangler.parser.ConfigDirectiveContext;
 import io.cdap.wrangler.parser.DirectiveClass;
 import io.cdap.wrangler.parser.GrammarWalker;
@@ -51,6 +50,10 @@ import io.cdap.wrangler.registry.DirectiveInfo;
 import io.cdap.wrangler.registry.UserDirectiveRegistry;
 import io.cdap.wrangler.utils.KryoSerializer;
 import io.cdap.wrangler.utils.ObjectSerDe;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +71,8 @@ public class RemoteExecutionTask implements RunnableTask {
   private static final Gson GSON = new GsonBuilder()
           .registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
           .create();
+  // Fraction of a heap memory pool that can remain used after a collection for the worker to be reused.
+  private static final double MAX_HEAP_USAGE = 0.8;
 
   @Override
   public void run(RunnableTaskContext runnableTaskContext) throws Exception {
@@ -111,8 +116,9 @@ public class RemoteExecutionTask implements RunnableTask {
         return;
       }
 
-      ObjectSerDe<List<Row>> objectSerDe = new ObjectSerDe<>();
-      List<Row> rows = objectSerDe.toObject(directiveRequest.getData());
+      byte[] data = directiveRequest.getData();
+      List<Row> rows = KryoSerializer.isSerialized(data) ? new KryoSerializer().toRows(data)
+        : new ObjectSerDe<List<Row>>().toObject(data);
 
       Schema inputSchema = directiveRequest.getInputSchema();
       TransientStore transientStore = new DefaultTransientStore();
@@ -142,7 +148,8 @@ public class RemoteExecutionTask implements RunnableTask {
       RemoteDirectiveResponse response = new RemoteDirectiveResponse(rows, outputSchema);
       ObjectSerDe<RemoteDirectiveResponse> responseSerDe = new ObjectSerDe<>();
 
-      runnableTaskContext.setTerminateOnComplete(hasUDD.get() || EL.isUsed());
+      // Expressions can't change the state of the worker, but user defined directives run arbitrary code.
+      runnableTaskContext.setTerminateOnComplete(hasUDD.get() || !isHealthy());
 
       if (Feature.WRANGLER_KRYO_SERIALIZATION.isEnabled(systemAppContext)) {
         runnableTaskContext.writeResult(new KryoSerializer().fromRemoteDirectiveResponse(response));
@@ -153,4 +160,32 @@ public class RemoteExecutionTask implements RunnableTask {
       throw new BadRequestException(e.getMessage(), e);
     }
   }
+
+  /**
+   * @return true if the worker can be reused for other executions, which is the case unless most of the old
+   *         generation remains used after collections. The young generation pools are not checked, since survivor
+   *         spaces are commonly full right after a collection.
+   */
+  private static boolean isHealthy() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (!isOldGeneration(pool)) {
+        continue;
+      }
+      MemoryUsage usage = pool.getCollectionUsage();
+      if (usage != null && usage.getMax() > 0 && usage.getUsed() > usage.getMax() * MAX_HEAP_USAGE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return whether the pool holds the tenured objects, which is the heap pool supporting usage thresholds that
+   *         is neither an eden nor a survivor space.
+   */
+  private static boolean isOldGeneration(MemoryPoolMXBean pool) {
+    String name = pool.getName().toLowerCase();
+    return pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+      && !name.contains("eden") && !name.contains("survivor");
+  }
 }
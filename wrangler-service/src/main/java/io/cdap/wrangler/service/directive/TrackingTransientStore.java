@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.wrangler.api.TransientStore;
+import io.cdap.wrangler.api.TransientVariableScope;
+import io.cdap.wrangler.schema.TransientStoreKeys;
+
+import java.util.Set;
+
+/**
+ * {@link TransientStore} that records whether directives have set any variable of the store it delegates to.
+ *
+ * <p>Variables set by a directive can be read by the following directives while the same row is processed, so
+ * the rows produced by a recipe that sets variables can't be used to resume its execution. The schemas set by
+ * the executor itself are not recorded.</p>
+ */
+class TrackingTransientStore implements TransientStore {
+  private final TransientStore delegate;
+  private boolean modified;
+
+  TrackingTransientStore(TransientStore delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * @return true if a variable other than the input and output schemas was set.
+   */
+  boolean isModified() {
+    return modified;
+  }
+
+  @Override
+  public void reset(TransientVariableScope scope) {
+    delegate.reset(scope);
+  }
+
+  @Override
+  public <T> T get(String name) {
+    return delegate.get(name);
+  }
+
+  @Override
+  public void set(TransientVariableScope scope, String name, Object value) {
+    if (!TransientStoreKeys.INPUT_SCHEMA.equals(name) && !TransientStoreKeys.OUTPUT_SCHEMA.equals(name)) {
+      modified = true;
+    }
+    delegate.set(scope, name, value);
+  }
+
+  @Override
+  public void increment(TransientVariableScope scope, String name, long value) {
+    modified = true;
+    delegate.increment(scope, name, value);
+  }
+
+  @Override
+  public Set<String> getVariables() {
+    return delegate.getVariables();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.cdap.api.Transactional;
+import io.cdap.cdap.api.service.http.HttpContentConsumer;
+import io.cdap.cdap.api.service.http.HttpServiceResponder;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.proto.StatusCodeException;
+import io.cdap.wrangler.proto.workspace.v2.ServiceResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Consumes the content of an uploaded file as it is received, keeping only a bounded sample of its records.
+ */
+final class UploadConsumer extends HttpContentConsumer {
+  private static final Logger LOG = LoggerFactory.getLogger(UploadConsumer.class);
+
+  /**
+   * Creates the workspace once the file is received.
+   */
+  interface SampleHandler {
+    void handle(List<Row> sample, HttpServiceResponder responder);
+  }
+
+  private final DelimitedRecordScanner scanner;
+  private final UploadSample sample;
+  private final SampleHandler handler;
+  private long received;
+
+  UploadConsumer(DelimitedRecordScanner scanner, UploadSample sample, SampleHandler handler) {
+    this.scanner = scanner;
+    this.sample = sample;
+    this.handler = handler;
+  }
+
+  @Override
+  public void onReceived(ByteBuffer chunk, Transactional transactional) throws Exception {
+    received += chunk.remaining();
+    scanner.feed(chunk);
+  }
+
+  @Override
+  public void onFinish(HttpServiceResponder responder) throws Exception {
+    if (received == 0) {
+      responder.sendJson(HttpURLConnection.HTTP_BAD_REQUEST, new ServiceResponse<>(
+        "Body not present, please post the file containing the records to create a workspace."));
+      return;
+    }
+    scanner.finish();
+    List<Row> rows = sample.getRows();
+    LOG.debug("Received {} bytes and {} records, of which {} are sampled.", received, sample.getSeen(), rows.size());
+    handler.handle(rows, responder);
+  }
+
+  @Override
+  public void onError(HttpServiceResponder responder, Throwable failureCause) {
+    LOG.warn("Failed to upload the file", failureCause);
+    int code = failureCause instanceof StatusCodeException ?
+      ((StatusCodeException) failureCause).getCode() : HttpURLConnection.HTTP_INTERNAL_ERROR;
+    responder.sendJson(code, new ServiceResponse<>(failureCause.getMessage()));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.wrangler.api.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Sample of the records of an uploaded file, bounded by a number of records and by their size.
+ *
+ * <p>Without a random generator, the sample holds the first records of the file and stops accepting records once a
+ * bound is reached. With one, the sample is a uniform random sample of all the records of the file, keeping the
+ * records within the bounds through reservoir sampling.</p>
+ */
+final class UploadSample implements Predicate<String> {
+  private final String column;
+  private final int maxRows;
+  private final long maxBytes;
+  private final Random random;
+  private final List<String> records = new ArrayList<>();
+  private long bytes;
+  private long seen;
+
+  /**
+   * @param column name of the column holding the records in the rows of the sample
+   * @param maxRows maximum number of records in the sample
+   * @param maxBytes maximum size of the records in the sample, counting two bytes per character
+   * @param random generator for reservoir sampling, null to keep the first records
+   */
+  UploadSample(String column, int maxRows, long maxBytes, @Nullable Random random) {
+    this.column = column;
+    this.maxRows = maxRows;
+    this.maxBytes = maxBytes;
+    this.random = random;
+  }
+
+  /**
+   * Adds a record to the sample.
+   *
+   * @return whether more records can be added
+   */
+  @Override
+  public boolean test(String record) {
+    long size = 2L * record.length();
+    seen++;
+    if (records.size() < maxRows && bytes + size <= maxBytes) {
+      records.add(record);
+      bytes += size;
+      return true;
+    }
+    if (random == null) {
+      return false;
+    }
+
+    // Replaces a record of the reservoir with probability maxRows / seen, as long as it fits in the size.
+    long index = (long) (random.nextDouble() * seen);
+    if (index < records.size()) {
+      int replaced = (int) index;
+      long replacedSize = 2L * records.get(replaced).length();
+      if (bytes - replacedSize + size <= maxBytes) {
+        records.set(replaced, record);
+        bytes += size - replacedSize;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return number of records given to the sample
+   */
+  long getSeen() {
+    return seen;
+  }
+
+  /**
+   * @return the rows of the sample, holding a record each
+   */
+  List<Row> getRows() {
+    List<Row> rows = new ArrayList<>(records.size());
+    for (String record : records) {
+      rows.add(new Row(column, record));
+    }
+    return rows;
+  }
+}
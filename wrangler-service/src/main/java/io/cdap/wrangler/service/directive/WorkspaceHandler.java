@@ -30,6 +30,8 @@ import io.cdap.cdap.api.artifact.ArtifactSummary;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.metrics.Metrics;
+import io.cdap.cdap.api.service.http.HttpContentConsumer;
+import io.cdap.cdap.api.service.http.HttpContentProducer;
 import io.cdap.cdap.api.service.http.HttpServiceRequest;
 import io.cdap.cdap.api.service.http.HttpServiceResponder;
 import io.cdap.cdap.api.service.http.SystemHttpServiceContext;
@@ -42,15 +44,17 @@ import io.cdap.cdap.etl.proto.connection.SampleResponse;
 import io.cdap.cdap.features.Feature;
 import io.cdap.cdap.internal.io.SchemaTypeAdapter;
 import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.directives.aggregates.DefaultTransientStore;
 import io.cdap.wrangler.PropertyIds;
 import io.cdap.wrangler.RequestExtractor;
 import io.cdap.wrangler.api.DirectiveConfig;
-import io.cdap.wrangler.api.DirectiveLoadException;
 import io.cdap.wrangler.api.DirectiveParseException;
 import io.cdap.wrangler.api.GrammarMigrator;
+import io.cdap.wrangler.api.Pair;
 import io.cdap.wrangler.api.RecipeException;
 import io.cdap.wrangler.api.RemoteDirectiveResponse;
 import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.TransientStore;
 import io.cdap.wrangler.api.TransientVariableScope;
 import io.cdap.wrangler.parser.ConfigDirectiveContext;
 import io.cdap.wrangler.parser.DirectiveClass;
@@ -58,12 +62,14 @@ import io.cdap.wrangler.parser.GrammarWalker;
 import io.cdap.wrangler.parser.MigrateToV2;
 import io.cdap.wrangler.parser.RecipeCompiler;
 import io.cdap.wrangler.proto.BadRequestException;
+import io.cdap.wrangler.proto.ConflictException;
+import io.cdap.wrangler.proto.NotFoundException;
 import io.cdap.wrangler.proto.recipe.v2.Recipe;
 import io.cdap.wrangler.proto.recipe.v2.RecipeId;
 import io.cdap.wrangler.proto.workspace.v2.Artifact;
 import io.cdap.wrangler.proto.workspace.v2.DirectiveExecutionRequest;
-import io.cdap.wrangler.proto.workspace.v2.DirectiveExecutionResponse;
 import io.cdap.wrangler.proto.workspace.v2.DirectiveUsage;
+import io.cdap.wrangler.proto.workspace.v2.ExecutionJob;
 import io.cdap.wrangler.proto.workspace.v2.Plugin;
 import io.cdap.wrangler.proto.workspace.v2.SampleSpec;
 import io.cdap.wrangler.proto.workspace.v2.ServiceResponse;
@@ -72,12 +78,15 @@ import io.cdap.wrangler.proto.workspace.v2.Workspace;
 import io.cdap.wrangler.proto.workspace.v2.WorkspaceCreationRequest;
 import io.cdap.wrangler.proto.workspace.v2.WorkspaceDetail;
 import io.cdap.wrangler.proto.workspace.v2.WorkspaceId;
+import io.cdap.wrangler.proto.workspace.v2.WorkspaceListResponse;
 import io.cdap.wrangler.proto.workspace.v2.WorkspaceSpec;
 import io.cdap.wrangler.proto.workspace.v2.WorkspaceUpdateRequest;
 import io.cdap.wrangler.registry.DirectiveInfo;
 import io.cdap.wrangler.registry.SystemDirectiveRegistry;
 import io.cdap.wrangler.schema.TransientStoreKeys;
 import io.cdap.wrangler.store.recipe.RecipeStore;
+import io.cdap.wrangler.store.workspace.SampleCache;
+import io.cdap.wrangler.store.workspace.WorkspaceSample;
 import io.cdap.wrangler.store.workspace.WorkspaceStore;
 import io.cdap.wrangler.utils.KryoSerializer;
 import io.cdap.wrangler.utils.ObjectSerDe;
@@ -86,6 +95,7 @@ import io.cdap.wrangler.utils.SchemaConverter;
 import io.cdap.wrangler.utils.StructuredToRowTransformer;
 import org.apache.commons.lang3.StringEscapeUtils;
 
+import java.io.Closeable;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -93,16 +103,21 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 import static io.cdap.wrangler.schema.TransientStoreKeys.INPUT_SCHEMA;
 import static io.cdap.wrangler.schema.TransientStoreKeys.OUTPUT_SCHEMA;
@@ -117,6 +132,29 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
   private static final Pattern PRAGMA_PATTERN = Pattern.compile("^\\s*#pragma\\s+load-directives\\s+");
   private static final String UPLOAD_COUNT = "upload.file.count";
   private static final String CONNECTION_TYPE = "upload";
+  private static final String UPLOAD_LIMIT_HEADER = "limit";
+  private static final String UPLOAD_MAX_BYTES_HEADER = "maxbytes";
+  private static final String RESERVOIR_SAMPLER = "reservoir";
+  private static final int DEFAULT_UPLOAD_ROWS = 1_000_000;
+  // Records of uploaded files are held as strings, taking two bytes per character.
+  private static final long DEFAULT_UPLOAD_BYTES = 128L * 1024 * 1024;
+  // Decoded samples of the most recently used workspaces, shared by the handlers of the service.
+  private static final SampleCache SAMPLES = new SampleCache(Runtime.getRuntime().maxMemory() / 8);
+  private static final String SAMPLE_CACHE_HITS = "sample.cache.hit.count";
+  private static final String SAMPLE_CACHE_MISSES = "sample.cache.miss.count";
+  private static final String SAMPLE_CACHE_EVICTIONS = "sample.cache.eviction.count";
+  private static final String SAMPLE_CACHE_BYTES = "sample.cache.bytes";
+  private static final int EXECUTION_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+  // Executions of directives of all the workspaces, run concurrently up to the number of processors.
+  private static final ExecutionPool EXECUTIONS = new ExecutionPool(EXECUTION_THREADS, 4 * EXECUTION_THREADS);
+  private static final String EXECUTION_ACTIVE = "execution.active.count";
+  private static final String EXECUTION_QUEUED = "execution.queue.size";
+  // Asynchronous executions of directives, at most one running per workspace.
+  private static final ExecutionJobs<HttpContentProducer> JOBS =
+    new ExecutionJobs<>(EXECUTIONS, 256, TimeUnit.MINUTES.toMillis(10));
+  private static final long MAX_JOB_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  // Maximum number of workspaces returned in a page of the listing.
+  private static final int MAX_PAGE_SIZE = 1000;
 
   private WorkspaceStore wsStore;
   private RecipeStore recipeStore;
@@ -129,11 +167,24 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
   @Override
   public void initialize(SystemHttpServiceContext context) throws Exception {
     super.initialize(context);
-    wsStore = new WorkspaceStore(context);
+    wsStore = new WorkspaceStore(context, SAMPLES);
     recipeStore = new RecipeStore(context);
     discoverer = new ConnectionDiscoverer(context);
   }
 
+  /**
+   * Waits for the jobs submitted through this handler, which use its directive registry, before closing it.
+   */
+  @Override
+  public void destroy() {
+    try {
+      JOBS.drain(this, MAX_JOB_WAIT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    super.destroy();
+  }
+
   @POST
   @TransactionPolicy(value = TransactionControl.EXPLICIT)
   @Path("v2/contexts/{context}/workspaces")
@@ -185,12 +236,22 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
   @TransactionPolicy(value = TransactionControl.EXPLICIT)
   @Path("v2/contexts/{context}/workspaces")
   public void listWorkspaces(HttpServiceRequest request, HttpServiceResponder responder,
-                             @PathParam("context") String namespace) {
+                             @PathParam("context") String namespace,
+                             @Nullable @QueryParam("pageToken") String pageToken,
+                             @Nullable @QueryParam("pageSize") Integer pageSize) {
     respond(responder, namespace, ns -> {
       if (ns.getName().equalsIgnoreCase(NamespaceId.SYSTEM.getNamespace())) {
         throw new BadRequestException("Listing workspaces in system namespace is currently not supported");
       }
-      responder.sendString(GSON.toJson(new ServiceResponse<>(wsStore.listWorkspaces(ns))));
+      if (pageSize == null) {
+        responder.sendString(GSON.toJson(new ServiceResponse<>(wsStore.listWorkspaces(ns))));
+        return;
+      }
+      if (pageSize <= 0) {
+        throw new BadRequestException("Page size must be a positive number");
+      }
+      Pair<List<Workspace>, String> page = wsStore.listWorkspaces(ns, pageToken, Math.min(pageSize, MAX_PAGE_SIZE));
+      responder.sendString(GSON.toJson(new WorkspaceListResponse(page.getFirst(), page.getSecond())));
     });
   }
 
@@ -280,6 +341,7 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
         .setUpdatedTimeMillis(System.currentTimeMillis())
         .setSampleSpec(newSpec).build();
       wsStore.saveWorkspace(wsId, new WorkspaceDetail(newWorkspace, rows));
+      invalidateResults(getWorkspaceKey(ns.getName(), workspaceId));
       responder.sendStatus(HttpURLConnection.HTTP_OK);
     });
   }
@@ -295,58 +357,75 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
         throw new BadRequestException("Deleting workspace in system namespace is currently not supported");
       }
       wsStore.deleteWorkspace(new WorkspaceId(ns, workspaceId));
+      invalidateResults(getWorkspaceKey(ns.getName(), workspaceId));
       responder.sendStatus(HttpURLConnection.HTTP_OK);
     });
   }
 
   /**
-   * Upload data to the workspace, the workspace is created automatically on fly.
+   * Upload data to the workspace, the workspace is created automatically on fly. The file is split into records as
+   * it is received, keeping at most the number of records given by the 'limit' header and the size given by the
+   * 'maxbytes' header. The first records are kept, unless the 'sampler' header is 'reservoir', in which case a
+   * random sample of all the records is kept.
    */
   @POST
   @TransactionPolicy(value = TransactionControl.EXPLICIT)
   @Path("v2/contexts/{context}/workspaces/upload")
-  public void upload(HttpServiceRequest request, HttpServiceResponder responder,
-                     @PathParam("context") String namespace) {
-    respond(responder, namespace, ns -> {
-      if (ns.getName().equalsIgnoreCase(NamespaceId.SYSTEM.getNamespace())) {
-        throw new BadRequestException("Uploading data in system namespace is currently not supported");
-      }
-
-      String name = request.getHeader(PropertyIds.FILE_NAME);
-      if (name == null) {
-        throw new BadRequestException("Name must be provided in the 'file' header");
-      }
-
-      RequestExtractor handler = new RequestExtractor(request);
-
-      // For back-ward compatibility, we check if there is delimiter specified
-      // using 'recorddelimiter' or 'delimiter'
-      String delimiter = handler.getHeader(RECORD_DELIMITER_HEADER, "\\u001A");
-      delimiter = handler.getHeader(DELIMITER_HEADER, delimiter);
-      String content = handler.getContent(StandardCharsets.UTF_8);
-      if (content == null) {
-        throw new BadRequestException(
-          "Body not present, please post the file containing the records to create a workspace.");
-      }
+  public HttpContentConsumer upload(HttpServiceRequest request, HttpServiceResponder responder,
+                                    @PathParam("context") String namespace) {
+    if (namespace.equalsIgnoreCase(NamespaceId.SYSTEM.getNamespace())) {
+      responder.sendJson(HttpURLConnection.HTTP_BAD_REQUEST,
+                         new ServiceResponse<>("Uploading data in system namespace is currently not supported"));
+      return null;
+    }
+    String name = request.getHeader(PropertyIds.FILE_NAME);
+    if (name == null) {
+      responder.sendJson(HttpURLConnection.HTTP_BAD_REQUEST,
+                         new ServiceResponse<>("Name must be provided in the 'file' header"));
+      return null;
+    }
 
-      delimiter = StringEscapeUtils.unescapeJava(delimiter);
-      List<Row> sample = new ArrayList<>();
-      for (String line : content.split(delimiter)) {
-        sample.add(new Row(COLUMN_NAME, line));
-      }
+    RequestExtractor handler = new RequestExtractor(request);
+
+    // For back-ward compatibility, we check if there is delimiter specified
+    // using 'recorddelimiter' or 'delimiter'
+    String delimiter = handler.getHeader(RECORD_DELIMITER_HEADER, "\\u001A");
+    delimiter = StringEscapeUtils.unescapeJava(handler.getHeader(DELIMITER_HEADER, delimiter));
+    int maxRows;
+    long maxBytes;
+    try {
+      maxRows = Integer.parseInt(handler.getHeader(UPLOAD_LIMIT_HEADER, String.valueOf(DEFAULT_UPLOAD_ROWS)));
+      maxBytes = Long.parseLong(handler.getHeader(UPLOAD_MAX_BYTES_HEADER, String.valueOf(DEFAULT_UPLOAD_BYTES)));
+    } catch (NumberFormatException e) {
+      responder.sendJson(HttpURLConnection.HTTP_BAD_REQUEST, new ServiceResponse<>(
+        String.format("Headers '%s' and '%s' must be numbers", UPLOAD_LIMIT_HEADER, UPLOAD_MAX_BYTES_HEADER)));
+      return null;
+    }
+    if (delimiter.isEmpty() || maxRows <= 0 || maxBytes <= 0) {
+      responder.sendJson(HttpURLConnection.HTTP_BAD_REQUEST, new ServiceResponse<>(
+        String.format("The delimiter must not be empty and headers '%s' and '%s' must be positive",
+                      UPLOAD_LIMIT_HEADER, UPLOAD_MAX_BYTES_HEADER)));
+      return null;
+    }
 
+    boolean reservoir = RESERVOIR_SAMPLER.equalsIgnoreCase(handler.getHeader(PropertyIds.SAMPLER_TYPE, ""));
+    UploadSample sample = new UploadSample(COLUMN_NAME, maxRows, maxBytes, reservoir ? new Random() : null);
+    DelimitedRecordScanner scanner = new DelimitedRecordScanner(StandardCharsets.UTF_8, delimiter,
+                                                                (int) Math.min(maxBytes / 2, Integer.MAX_VALUE),
+                                                                sample);
+    return new UploadConsumer(scanner, sample, (rows, finishResponder) -> respond(finishResponder, namespace, ns -> {
       WorkspaceId id = new WorkspaceId(ns);
       long now = System.currentTimeMillis();
       Workspace workspace = Workspace.builder(name, id.getWorkspaceId())
                               .setCreatedTimeMillis(now).setUpdatedTimeMillis(now).build();
-      wsStore.saveWorkspace(id, new WorkspaceDetail(workspace, sample));
+      wsStore.saveWorkspace(id, new WorkspaceDetail(workspace, rows));
       Metrics child = metrics.child(ImmutableMap.of(Constants.Metrics.Tag.APP_ENTITY_TYPE,
                                                     Constants.CONNECTION_SERVICE_NAME,
                                                     Constants.Metrics.Tag.APP_ENTITY_TYPE_NAME,
                                                     CONNECTION_TYPE));
       child.count(UPLOAD_COUNT, 1);
-      responder.sendJson(id.getWorkspaceId());
-    });
+      finishResponder.sendJson(id.getWorkspaceId());
+    }));
   }
 
   /**
@@ -361,9 +440,78 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
     respond(responder, namespace, ns -> {
       validateNamespace(ns, "Executing directives in system namespace is currently not supported");
 
-      DirectiveExecutionResponse response = execute(ns, request, new WorkspaceId(ns, workspaceId),
-                                                    null);
-      responder.sendJson(response);
+      HttpContentProducer response = execute(ns, request, new WorkspaceId(ns, workspaceId), null);
+      responder.send(HttpURLConnection.HTTP_OK, response, "application/json");
+    });
+  }
+
+  /**
+   * Submits a job executing the directives on the workspace, cancelling the previous job of the workspace.
+   * The request is the same as the one to execute the directives.
+   */
+  @POST
+  @TransactionPolicy(value = TransactionControl.EXPLICIT)
+  @Path("v2/contexts/{context}/workspaces/{id}/jobs")
+  public void submitJob(HttpServiceRequest request, HttpServiceResponder responder,
+                        @PathParam("context") String namespace,
+                        @PathParam("id") String workspaceId) {
+    respond(responder, namespace, ns -> {
+      validateNamespace(ns, "Executing directives in system namespace is currently not supported");
+
+      ExecutionJobs.Job<HttpContentProducer> job = JOBS.submit(
+        this, getWorkspaceKey(ns.getName(), workspaceId), workspaceId,
+        prepareExecution(ns, request, new WorkspaceId(ns, workspaceId), null));
+      responder.sendJson(HttpURLConnection.HTTP_ACCEPTED, new ServiceResponse<>(job.toExecutionJob()));
+    });
+  }
+
+  /**
+   * Gets the result of a job, waiting up to the given time for it to complete. The result is the same as the one of
+   * the execution of the directives and can only be retrieved once. The status of the job is returned with a
+   * {@code 202} status if the job is still running, and a {@code 409} status is returned once if the job was
+   * cancelled, including when a newer job of the workspace replaced it.
+   */
+  @GET
+  @TransactionPolicy(value = TransactionControl.EXPLICIT)
+  @Path("v2/contexts/{context}/workspaces/{id}/jobs/{job-id}")
+  public void getJob(HttpServiceRequest request, HttpServiceResponder responder,
+                     @PathParam("context") String namespace,
+                     @PathParam("id") String workspaceId,
+                     @PathParam("job-id") String jobId,
+                     @QueryParam("wait") @DefaultValue("0") long waitMillis) {
+    respond(responder, namespace, ns -> {
+      ExecutionJobs.Job<HttpContentProducer> job = JOBS.get(getWorkspaceKey(ns.getName(), workspaceId), jobId);
+      if (job == null) {
+        throw new NotFoundException(String.format("Job '%s' of workspace '%s' does not exist.", jobId, workspaceId));
+      }
+      if (!job.await(Math.min(Math.max(waitMillis, 0), MAX_JOB_WAIT_MILLIS))) {
+        responder.sendJson(HttpURLConnection.HTTP_ACCEPTED, new ServiceResponse<>(job.toExecutionJob()));
+        return;
+      }
+
+      JOBS.remove(job);
+      if (job.getStatus() == ExecutionJob.Status.CANCELLED) {
+        throw new ConflictException(String.format("Job '%s' of workspace '%s' was cancelled.", jobId, workspaceId));
+      }
+      responder.send(HttpURLConnection.HTTP_OK, job.getResult(), "application/json");
+    });
+  }
+
+  /**
+   * Cancels a job, stopping the execution of the directives.
+   */
+  @DELETE
+  @TransactionPolicy(value = TransactionControl.EXPLICIT)
+  @Path("v2/contexts/{context}/workspaces/{id}/jobs/{job-id}")
+  public void cancelJob(HttpServiceRequest request, HttpServiceResponder responder,
+                        @PathParam("context") String namespace,
+                        @PathParam("id") String workspaceId,
+                        @PathParam("job-id") String jobId) {
+    respond(responder, namespace, ns -> {
+      if (!JOBS.cancel(getWorkspaceKey(ns.getName(), workspaceId), jobId)) {
+        throw new NotFoundException(String.format("Job '%s' of workspace '%s' does not exist.", jobId, workspaceId));
+      }
+      responder.sendStatus(HttpURLConnection.HTTP_OK);
     });
   }
 
@@ -406,16 +554,22 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
       composite.reload(namespace);
 
       WorkspaceId wsId = new WorkspaceId(ns, workspaceId);
-      WorkspaceDetail detail = wsStore.getWorkspaceDetail(wsId);
-      List<String> directives = new ArrayList<>(detail.getWorkspace().getDirectives());
+      Workspace workspace = wsStore.getWorkspace(wsId);
+      List<String> directives = new ArrayList<>(workspace.getDirectives());
       UserDirectivesCollector userDirectivesCollector = new UserDirectivesCollector();
-      List<Row> result = executeDirectives(ns.getName(), directives, detail, userDirectivesCollector);
+      TransientStore transientStore = new DefaultTransientStore();
+      Metrics executionMetrics = metrics.child(Collections.emptyMap());
+      List<Row> result = EXECUTIONS.execute(() -> {
+        try (Closeable ignored = composite.acquire(namespace)) {
+          return executeDirectives(ns.getName(), directives, workspace, wsStore.getSample(wsId),
+                                   userDirectivesCollector, executionMetrics, transientStore);
+        }
+      });
       userDirectivesCollector.addLoadDirectivesPragma(directives);
 
       Schema outputSchema;
       if (schemaManagementEnabled) {
-        outputSchema = TRANSIENT_STORE.get(TransientStoreKeys.OUTPUT_SCHEMA) != null ?
-          TRANSIENT_STORE.get(TransientStoreKeys.OUTPUT_SCHEMA) : TRANSIENT_STORE.get(TransientStoreKeys.INPUT_SCHEMA);
+        outputSchema = getOutputSchema(transientStore);
       } else {
         SchemaConverter schemaConvertor = new SchemaConverter();
         outputSchema = result.isEmpty() ? null : schemaConvertor.toSchema("record", RowHelper.createMergedRow(result));
@@ -428,7 +582,7 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
                                                        "precondition", "false",
                                                        "workspaceId", workspaceId);
 
-      Set<StageSpec> srcSpecs = getSourceSpecs(detail, directives);
+      Set<StageSpec> srcSpecs = getSourceSpecs(workspace, directives);
 
       ArtifactSummary wrangler = composite.getLatestWranglerArtifact();
       responder.sendString(GSON.toJson(new WorkspaceSpec(
@@ -452,9 +606,9 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
       RecipeId recipeId = RecipeId.builder(ns).setRecipeId(recipeIdString).build();
       Recipe recipe = recipeStore.getRecipeById(recipeId);
 
-      DirectiveExecutionResponse response = execute(ns, request, new WorkspaceId(ns, workspaceId),
-                                                    recipe.getDirectives());
-      responder.sendJson(response);
+      HttpContentProducer response = execute(ns, request, new WorkspaceId(ns, workspaceId),
+                                             recipe.getDirectives());
+      responder.send(HttpURLConnection.HTTP_OK, response, "application/json");
     });
   }
 
@@ -464,9 +618,21 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
     }
   }
 
-  private DirectiveExecutionResponse execute(NamespaceSummary ns, HttpServiceRequest request,
-                                             WorkspaceId workspaceId,
-                                             List<String> recipeDirectives) throws Exception {
+  private HttpContentProducer execute(NamespaceSummary ns, HttpServiceRequest request, WorkspaceId workspaceId,
+                                      List<String> recipeDirectives) throws Exception {
+    return EXECUTIONS.execute(prepareExecution(ns, request, workspaceId, recipeDirectives));
+  }
+
+  /**
+   * Prepares the execution of the directives of a request on a workspace. Once the directives are executed, the
+   * execution saves them in the workspace, unless it is a job that was replaced by a newer one, and returns the
+   * response to send. The user defined directives are reloaded by the calling thread, and the execution holds
+   * them until it completes. Requests without directives only read the chunks of the sample holding the requested
+   * page when the profiles of the sample are cached, and the execution otherwise streams the sample chunk by chunk.
+   */
+  private Callable<HttpContentProducer> prepareExecution(NamespaceSummary ns, HttpServiceRequest request,
+                                                         WorkspaceId workspaceId,
+                                                         @Nullable List<String> recipeDirectives) throws Exception {
     DirectiveExecutionRequest executionRequest =
       GSON.fromJson(StandardCharsets.UTF_8.decode(request.getContent()).toString(),
                     DirectiveExecutionRequest.class);
@@ -476,25 +642,70 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
       directives.addAll(recipeDirectives);
     }
 
-    WorkspaceDetail detail = wsStore.getWorkspaceDetail(workspaceId);
-    UserDirectivesCollector userDirectivesCollector = new UserDirectivesCollector();
-    List<Row> result = executeDirectives(ns.getName(), directives, detail,
-                                         userDirectivesCollector);
-    DirectiveExecutionResponse response = generateExecutionResponse(result,
-                                                                    executionRequest.getLimit());
-    userDirectivesCollector.addLoadDirectivesPragma(directives);
-    Workspace newWorkspace = Workspace.builder(detail.getWorkspace())
-      .setDirectives(directives)
-      .setUpdatedTimeMillis(System.currentTimeMillis()).build();
-    wsStore.updateWorkspace(workspaceId, newWorkspace);
-    return response;
+    Workspace workspace = wsStore.getWorkspace(workspaceId);
+    String workspaceKey = getWorkspaceKey(ns.getName(), workspaceId.getWorkspaceId());
+    boolean preview = !getContext().isRemoteTaskEnabled()
+      && directives.stream().allMatch(d -> PRAGMA_PATTERN.matcher(d).find());
+    metrics.gauge(SAMPLE_CACHE_HITS, SAMPLES.getHits());
+    metrics.gauge(SAMPLE_CACHE_MISSES, SAMPLES.getMisses());
+    metrics.gauge(SAMPLE_CACHE_EVICTIONS, SAMPLES.getEvictions());
+    metrics.gauge(SAMPLE_CACHE_BYTES, SAMPLES.getBytes());
+    metrics.gauge(EXECUTION_ACTIVE, EXECUTIONS.getActiveCount());
+    metrics.gauge(EXECUTION_QUEUED, EXECUTIONS.getQueueSize());
+    // load the udd
+    composite.reload(ns.getName());
+    // the injected metrics are only used by the handler thread
+    Metrics executionMetrics = metrics.child(Collections.emptyMap());
+    return () -> {
+      HttpContentProducer response = null;
+      if (preview) {
+        directives.clear();
+        WorkspaceSample page = wsStore.getSample(workspaceId, executionRequest.getOffset(),
+                                                 executionRequest.getLimit());
+        response = streamSampleResponse(getProfileScope(workspaceKey, page), page, executionRequest.getColumns(),
+                                        schemaManagementEnabled ? getInputSchema(workspace) : null);
+      }
+      if (response == null) {
+        try (Closeable ignored = composite.acquire(ns.getName())) {
+          UserDirectivesCollector userDirectivesCollector = new UserDirectivesCollector();
+          TransientStore transientStore = new DefaultTransientStore();
+          WorkspaceSample sample = wsStore.getSample(workspaceId);
+          List<Row> result = executeDirectives(ns.getName(), directives, workspace, sample, userDirectivesCollector,
+                                               executionMetrics, transientStore);
+          response = streamExecutionResponse(
+            ns.getName(), getProfileScope(workspaceKey, sample), directives, result,
+            executionRequest.getOffset(), executionRequest.getLimit(), executionRequest.getColumns(),
+            getOutputSchema(transientStore));
+          userDirectivesCollector.addLoadDirectivesPragma(directives);
+        }
+      }
+      Workspace newWorkspace = Workspace.builder(workspace)
+        .setDirectives(directives)
+        .setUpdatedTimeMillis(System.currentTimeMillis()).build();
+      JOBS.runIfLatest(() -> wsStore.updateWorkspace(workspaceId, newWorkspace));
+      return response;
+    };
+  }
+
+  /**
+   * @return key identifying a workspace in the caches shared by the workspaces of all the namespaces
+   */
+  private static String getWorkspaceKey(String namespace, String workspaceId) {
+    return namespace + "/" + workspaceId;
+  }
+
+  /**
+   * @return scope in which the columns of a version of the sample of a workspace are profiled
+   */
+  private static String getProfileScope(String workspaceKey, WorkspaceSample sample) {
+    return workspaceKey + "@" + Long.toHexString(sample.getVersion());
   }
 
   /**
    * Get source specs, contains some hacky way on dealing with the csv parser
    */
-  private Set<StageSpec> getSourceSpecs(WorkspaceDetail detail, List<String> directives) {
-    SampleSpec sampleSpec = detail.getWorkspace().getSampleSpec();
+  private Set<StageSpec> getSourceSpecs(Workspace workspace, List<String> directives) {
+    SampleSpec sampleSpec = workspace.getSampleSpec();
     Set<StageSpec> srcSpecs = sampleSpec == null ? Collections.emptySet() : sampleSpec.getRelatedPlugins();
 
     // really hacky way for the parse-as-csv directive, should get removed once we have support to provide the
@@ -544,49 +755,64 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
    * @param namespace the namespace to operate on for finding user defined directives
    * @param directives the list of directives to apply. The list provided must be a mutable list for the addition of
    *                   {@code #pragma} directives for loading UDDs.
-   * @param detail the workspace to operate on
+   * @param workspace the workspace to operate on
+   * @param sample the sample of the workspace
    * @param grammarVisitor visitor to call while parsing directives
+   * @param metrics of the execution
+   * @param transientStore store of the request, to which the input and output schemas are written
    * @return the resulting rows after applying the directives
    */
   private <E extends Exception> List<Row> executeDirectives(String namespace,
                                                             List<String> directives,
-                                                            WorkspaceDetail detail,
-                                                            GrammarWalker.Visitor<E> grammarVisitor) throws Exception {
+                                                            Workspace workspace,
+                                                            WorkspaceSample sample,
+                                                            GrammarWalker.Visitor<E> grammarVisitor,
+                                                            Metrics metrics,
+                                                            TransientStore transientStore) throws Exception {
     // Remove all the #pragma from the existing directives. New ones will be generated.
     directives.removeIf(d -> PRAGMA_PATTERN.matcher(d).find());
 
     if (schemaManagementEnabled) {
-      SampleSpec spec = detail.getWorkspace().getSampleSpec();
-      // Workaround for uploaded files that don't have the spec set
-      Schema inputSchema = spec != null ? spec.getRelatedPlugins().iterator().next().getSchema() :
-        Schema.recordOf("inputSchema", Schema.Field.of("body", Schema.of(Schema.Type.STRING)));
-      TRANSIENT_STORE.reset(TransientVariableScope.GLOBAL);
-      TRANSIENT_STORE.set(TransientVariableScope.GLOBAL, TransientStoreKeys.INPUT_SCHEMA, inputSchema);
+      transientStore.set(TransientVariableScope.GLOBAL, TransientStoreKeys.INPUT_SCHEMA, getInputSchema(workspace));
     }
 
     return getContext().isRemoteTaskEnabled() ?
-      executeRemotely(namespace, directives, detail, grammarVisitor) :
-      executeLocally(namespace, directives, detail, grammarVisitor);
+      executeRemotely(namespace, directives, sample.getRows(), grammarVisitor, transientStore) :
+      executeLocally(namespace, directives, workspace, sample, grammarVisitor, metrics, transientStore);
   }
 
   /**
-   * Executes the given list of directives on the given workspace locally in the same JVM.
+   * @return schema of the sample of a workspace, for when schema management is enabled
+   */
+  private Schema getInputSchema(Workspace workspace) {
+    SampleSpec spec = workspace.getSampleSpec();
+    // Workaround for uploaded files that don't have the spec set
+    return spec != null ? spec.getRelatedPlugins().iterator().next().getSchema() :
+      Schema.recordOf("inputSchema", Schema.Field.of("body", Schema.of(Schema.Type.STRING)));
+  }
+
+  /**
+   * Executes the given list of directives on the given workspace locally in the same JVM. The user defined
+   * directives must have been reloaded by the caller.
    *
    * @param namespace the namespace to operate on for finding user defined directives
    * @param directives the list of directives to apply. The list provided must be a mutable list for the addition of
    *                   {@code #pragma} directives for loading UDDs.
-   * @param detail the workspace to operate on
+   * @param workspace the workspace to operate on
+   * @param sample the sample of the workspace, streamed chunk by chunk
    * @param grammarVisitor visitor to call while parsing directives
+   * @param metrics of the execution
+   * @param transientStore store of the request
    * @return the resulting rows after applying the directives
    */
   private <E extends Exception> List<Row> executeLocally(String namespace, List<String> directives,
-                                   WorkspaceDetail detail, GrammarWalker.Visitor<E> grammarVisitor)
-    throws DirectiveLoadException, DirectiveParseException, E, RecipeException {
+                                   Workspace workspace, WorkspaceSample sample,
+                                   GrammarWalker.Visitor<E> grammarVisitor,
+                                   Metrics metrics, TransientStore transientStore)
+    throws DirectiveParseException, E, RecipeException {
 
-    // load the udd
-    composite.reload(namespace);
-    return executeDirectives(namespace, directives, new ArrayList<>(detail.getSample()),
-                             grammarVisitor);
+    return executeDirectives(namespace, getWorkspaceKey(namespace, workspace.getWorkspaceId()),
+                             directives, sample, grammarVisitor, metrics, transientStore);
   }
 
   /**
@@ -595,12 +821,14 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
    * @param namespace the namespace to operate on for finding user defined directives
    * @param directives the list of directives to apply. The list provided must be a mutable list for the addition of
    *                   {@code #pragma} directives for loading UDDs.
-   * @param detail the workspace to operate on
+   * @param sample the rows of the sample of the workspace
    * @param grammarVisitor visitor to call while parsing directives
+   * @param transientStore store of the request, to which the output schema is written
    * @return the resulting rows after applying the directives
    */
   private <E extends Exception> List<Row> executeRemotely(String namespace, List<String> directives,
-                                    WorkspaceDetail detail, GrammarWalker.Visitor<E> grammarVisitor) throws Exception {
+                                    List<Row> sample, GrammarWalker.Visitor<E> grammarVisitor,
+                                    TransientStore transientStore) throws Exception {
 
     GrammarMigrator migrator = new MigrateToV2(directives);
     String recipe = migrator.migrate();
@@ -620,25 +848,29 @@ public class WorkspaceHandler extends AbstractDirectiveHandler {
 
     // If no directives to execute, just return
     if (!hasDirectives.get()) {
-      return detail.getSample();
+      return sample;
     }
 
+    boolean kryo = Feature.WRANGLER_KRYO_SERIALIZATION.isEnabled(getContext());
+    byte[] sampleBytes = kryo ? new KryoSerializer().fromRows(sample) :
+      new ObjectSerDe<List<Row>>().toByteArray(sample);
     RemoteDirectiveRequest directiveRequest = new RemoteDirectiveRequest(recipe, systemDirectives,
-                                                                         namespace, detail.getSampleAsBytes(),
-                                                                         TRANSIENT_STORE.get(INPUT_SCHEMA));
+                                                                         namespace, sampleBytes,
+                                                                         transientStore.get(INPUT_SCHEMA));
     RunnableTaskRequest runnableTaskRequest = RunnableTaskRequest.getBuilder(RemoteExecutionTask.class.getName())
       .withParam(GSON.toJson(directiveRequest))
       .withNamespace(namespace)
       .build();
     byte[] bytes = getContext().runTask(runnableTaskRequest);
     RemoteDirectiveResponse response;
-    if (Feature.WRANGLER_KRYO_SERIALIZATION.isEnabled(getContext())) {
+    // The task worker may not have the same features enabled, so the response format is detected.
+    if (KryoSerializer.isSerialized(bytes)) {
       response = new KryoSerializer().toRemoteDirectiveResponse(bytes);
     } else {
       response = new ObjectSerDe<RemoteDirectiveResponse>().toObject(bytes);
     }
     if (response.getOutputSchema() != null) {
-        TRANSIENT_STORE.set(TransientVariableScope.GLOBAL, OUTPUT_SCHEMA, response.getOutputSchema());
+      transientStore.set(TransientVariableScope.GLOBAL, OUTPUT_SCHEMA, response.getOutputSchema());
     }
     return response.getRows();
   }
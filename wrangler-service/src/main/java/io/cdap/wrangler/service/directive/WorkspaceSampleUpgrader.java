@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.cdap.api.NamespaceSummary;
+import io.cdap.cdap.api.service.SystemServiceContext;
+import io.cdap.wrangler.store.upgrade.UpgradeEntityType;
+import io.cdap.wrangler.store.upgrade.UpgradeState;
+import io.cdap.wrangler.store.upgrade.UpgradeStore;
+import io.cdap.wrangler.store.workspace.WorkspaceStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Upgrader for the samples of the workspaces, which moves the samples written in the table of the workspaces to
+ * their own table, so that listing the workspaces doesn't read them.
+ */
+public class WorkspaceSampleUpgrader {
+  private static final Logger LOG = LoggerFactory.getLogger(WorkspaceSampleUpgrader.class);
+  private static final UpgradeState SAMPLE_COMPLETE_STATE = new UpgradeState(1L);
+
+  private final UpgradeStore upgradeStore;
+  private final SystemServiceContext context;
+  private final WorkspaceStore wsStore;
+
+  public WorkspaceSampleUpgrader(UpgradeStore upgradeStore, SystemServiceContext context, WorkspaceStore wsStore) {
+    this.upgradeStore = upgradeStore;
+    this.context = context;
+    this.wsStore = wsStore;
+  }
+
+  public void upgradeSamples() throws Exception {
+    List<NamespaceSummary> namespaces = context.listNamespaces();
+    for (NamespaceSummary ns : namespaces) {
+      UpgradeState state = upgradeStore.getEntityUpgradeState(ns, UpgradeEntityType.WORKSPACE_SAMPLE);
+      if (state == null || state.getVersion() == 0L) {
+        int migrated = wsStore.migrateSamples(ns);
+        LOG.debug("Moved the samples of {} workspaces in namespace {}", migrated, ns.getName());
+        upgradeStore.setEntityUpgradeState(ns, UpgradeEntityType.WORKSPACE_SAMPLE, SAMPLE_COMPLETE_STATE);
+      }
+    }
+    upgradeStore.setEntityUpgradeState(UpgradeEntityType.WORKSPACE_SAMPLE, SAMPLE_COMPLETE_STATE);
+  }
+}
@@ -37,6 +37,25 @@ public class WranglerDisplaySerializer implements TypeAdapterFactory {
 
   public static final String NONDISPLAYABLE_STRING = "Non-displayable object";
 
+  // Whether the classes override toString(), looked up once per class.
+  private static final ClassValue<Boolean> DISPLAYABLE = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      try {
+        return type.getMethod("toString").getDeclaringClass() != Object.class;
+      } catch (NoSuchMethodException e) {
+        return false;
+      }
+    }
+  };
+
+  /**
+   * @return whether the objects of a class can be displayed with their {@link Object#toString()}
+   */
+  public static boolean isDisplayable(Class<?> type) {
+    return DISPLAYABLE.get(type);
+  }
+
   @Override
   public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
     // Let GSON Handle primitives and collections
@@ -80,15 +99,7 @@ public class WranglerDisplaySerializer implements TypeAdapterFactory {
     return new TypeAdapter<Object>() {
       @Override
       public void write(JsonWriter out, Object value) throws IOException {
-        try {
-          if ((value.getClass().getMethod("toString").getDeclaringClass() != Object.class)) {
-            out.value(value.toString());
-          } else {
-            out.value(NONDISPLAYABLE_STRING);
-          }
-        } catch (NoSuchMethodException e) {
-          out.value(NONDISPLAYABLE_STRING);
-        }
+        out.value(isDisplayable(value.getClass()) ? value.toString() : NONDISPLAYABLE_STRING);
       }
 
       @Override public
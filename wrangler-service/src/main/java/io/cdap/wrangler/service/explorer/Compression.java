@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.explorer;
+
+import com.google.common.io.ByteStreams;
+import io.cdap.wrangler.proto.BadRequestException;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression of a file, detected from its first bytes or, failing that, from the extension of its name.
+ *
+ * <p>Compressed files are decompressed as they are read, so that sampling the first lines of a file only reads and
+ * decompresses the beginning of it.</p>
+ */
+public enum Compression {
+  NONE(new byte[0]),
+  GZIP(new byte[] { 0x1f, (byte) 0x8b }, ".gz", ".gzip"),
+  BZIP2(new byte[] { 'B', 'Z', 'h' }, ".bz2"),
+  ZSTD(new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd }, ".zst", ".zstd"),
+  SNAPPY(new byte[] { (byte) 0xff, 0x06, 0x00, 0x00, 's', 'N', 'a', 'P', 'p', 'Y' }, ".sz", ".snappy");
+
+  private static final int MAX_MAGIC_BYTES = 10;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final byte[] magic;
+  private final String[] extensions;
+
+  Compression(byte[] magic, String... extensions) {
+    this.magic = magic;
+    this.extensions = extensions;
+  }
+
+  /**
+   * Detects the compression of a file from its name only, for files of which the content is not read yet.
+   */
+  public static Compression of(String name) {
+    String lower = name.toLowerCase(Locale.ROOT);
+    for (Compression compression : values()) {
+      for (String extension : compression.extensions) {
+        if (lower.endsWith(extension)) {
+          return compression;
+        }
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Detects the compression of a file from its first bytes, falling back to its name when they match no compression.
+   *
+   * @param header first bytes of the file
+   * @param length number of bytes in the header, fewer than the header size for small files
+   */
+  public static Compression of(byte[] header, int length, String name) {
+    if (length == 0) {
+      return NONE;
+    }
+    for (Compression compression : values()) {
+      if (compression.magic.length > 0 && length >= compression.magic.length
+        && Arrays.equals(compression.magic, Arrays.copyOf(header, compression.magic.length))) {
+        return compression;
+      }
+    }
+    return of(name);
+  }
+
+  /**
+   * Detects the compression of a file from the bytes read at its beginning.
+   */
+  public static Compression of(SeekSampler.RangeReader reader, String name) throws IOException {
+    byte[] header = reader.read(0, MAX_MAGIC_BYTES);
+    return of(header, header.length, name);
+  }
+
+  /**
+   * Detects the compression of a stream from its first bytes or from the name of the file, and returns a stream of
+   * its decompressed content, decoded as it is consumed.
+   *
+   * @throws BadRequestException if the file can't be decompressed
+   */
+  public static InputStream decompress(InputStream input, String name) throws IOException {
+    BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+    byte[] header = new byte[MAX_MAGIC_BYTES];
+    buffered.mark(MAX_MAGIC_BYTES);
+    int length = 0;
+    int read;
+    while (length < header.length && (read = buffered.read(header, length, header.length - length)) >= 0) {
+      length += read;
+    }
+    buffered.reset();
+    return of(header, length, name).wrap(buffered, name);
+  }
+
+  /**
+   * Reads the whole content of a file, decompressing it if it is compressed.
+   *
+   * @param maxSize maximum size of the content, once decompressed
+   * @throws BadRequestException if the file can't be decompressed or its content is larger than the maximum size
+   */
+  public static byte[] readFully(InputStream input, String name, int maxSize) throws IOException {
+    byte[] bytes = ByteStreams.toByteArray(ByteStreams.limit(decompress(input, name), maxSize + 1L));
+    if (bytes.length > maxSize) {
+      throw new BadRequestException(String.format("File '%s' is larger than %d bytes, unable to process.",
+                                                  name, maxSize));
+    }
+    return bytes;
+  }
+
+  /**
+   * @return the name without the extension of this compression, or the name if it doesn't end with one
+   */
+  public String removeExtension(String name) {
+    String lower = name.toLowerCase(Locale.ROOT);
+    for (String extension : extensions) {
+      if (lower.endsWith(extension)) {
+        return name.substring(0, name.length() - extension.length());
+      }
+    }
+    return name;
+  }
+
+  /**
+   * @return whether the file is read through a decoder, and can't be read from arbitrary offsets
+   */
+  public boolean isCompressed() {
+    return this != NONE;
+  }
+
+  private InputStream wrap(InputStream input, String name) throws IOException {
+    try {
+      switch (this) {
+        case GZIP:
+          return new GZIPInputStream(input, BUFFER_SIZE);
+        case BZIP2:
+          return new BZip2CompressorInputStream(input, true);
+        case SNAPPY:
+          return new FramedSnappyCompressorInputStream(input);
+        case ZSTD:
+          throw new BadRequestException(String.format(
+            "File '%s' is compressed with Zstandard, which is not supported. "
+              + "Please use gzip, bzip2 or snappy compression instead.", name));
+        default:
+          return input;
+      }
+    } catch (IOException e) {
+      throw new BadRequestException(String.format("Unable to decompress file '%s' as %s: %s",
+                                                  name, name().toLowerCase(Locale.ROOT), e.getMessage()), e);
+    }
+  }
+}
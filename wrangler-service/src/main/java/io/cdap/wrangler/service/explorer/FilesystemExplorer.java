@@ -16,6 +16,7 @@
 
 package io.cdap.wrangler.service.explorer;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import io.cdap.cdap.api.annotation.TransactionControl;
 import io.cdap.cdap.api.annotation.TransactionPolicy;
@@ -49,14 +50,19 @@ import io.cdap.wrangler.utils.ReferenceNames;
 import org.apache.twill.filesystem.Location;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.Security;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import javax.annotation.Nullable;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -186,6 +192,8 @@ public class FilesystemExplorer extends AbstractWranglerHandler {
       throw new BadRequestException("Files larger than 10MB are currently not supported.");
     }
 
+    byte[] bytes = readFile(location);
+
     // Creates workspace.
     String name = location.getName();
     Map<String, String> properties = new HashMap<>();
@@ -204,13 +212,6 @@ public class FilesystemExplorer extends AbstractWranglerHandler {
       WorkspaceDataset ws = WorkspaceDataset.get(context);
       NamespacedId workspaceId = ws.createWorkspace(namespace, workspaceMeta);
 
-      byte[] bytes = new byte[(int) location.length() + 1];
-      try (BufferedInputStream stream = new BufferedInputStream(location.getInputStream())) {
-        stream.read(bytes);
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
-
       // Write records to workspace.
       if (type == DataType.RECORDS) {
         List<Row> rows = new ArrayList<>();
@@ -245,6 +246,7 @@ public class FilesystemExplorer extends AbstractWranglerHandler {
       throw new BadRequestException(String.format("%s (No such file)", path));
     }
     String name = location.getName();
+    List<String> records = samplingMethod == SamplingMethod.RESERVOIR ? seekSample(location, lines) : null;
     // Set all properties and write to workspace.
     Map<String, String> properties = new HashMap<>();
     properties.put(PropertyIds.FILE_NAME, location.getName());
@@ -264,14 +266,20 @@ public class FilesystemExplorer extends AbstractWranglerHandler {
       // Iterate through lines to extract only 'limit' random lines.
       // Depending on the type, the sampling of the input is performed.
       List<Row> rows = new ArrayList<>();
-      BoundedLineInputStream blis = BoundedLineInputStream.iterator(location.getInputStream(), Charsets.UTF_8, lines);
-      Iterator<String> it = blis;
-      if (samplingMethod == SamplingMethod.POISSON) {
-        it = new Poisson<String>(fraction).sample(blis);
-      } else if (samplingMethod == SamplingMethod.BERNOULLI) {
-        it = new Bernoulli<String>(fraction).sample(blis);
-      } else if (samplingMethod == SamplingMethod.RESERVOIR) {
-        it = new Reservoir<String>(lines).sample(blis);
+      Iterator<String> it;
+      if (records != null) {
+        it = records.iterator();
+      } else {
+        InputStream input = Compression.decompress(location.getInputStream(), name);
+        BoundedLineInputStream blis = BoundedLineInputStream.iterator(input, Charsets.UTF_8, lines);
+        it = blis;
+        if (samplingMethod == SamplingMethod.POISSON) {
+          it = new Poisson<String>(fraction).sample(blis);
+        } else if (samplingMethod == SamplingMethod.BERNOULLI) {
+          it = new Bernoulli<String>(fraction).sample(blis);
+        } else if (samplingMethod == SamplingMethod.RESERVOIR) {
+          it = new Reservoir<String>(lines).sample(blis);
+        }
       }
       while (it.hasNext()) {
         rows.add(new Row(COLUMN_NAME, it.next()));
@@ -290,6 +298,35 @@ public class FilesystemExplorer extends AbstractWranglerHandler {
                                     location.getName());
   }
 
+  /**
+   * Reads the whole content of a file, decompressed if the file is compressed.
+   */
+  @VisibleForTesting
+  static byte[] readFile(Location location) throws IOException {
+    try (InputStream input = location.getInputStream()) {
+      return Compression.readFully(input, location.getName(), FILE_SIZE);
+    }
+  }
+
+  /**
+   * Samples the lines of a local file from the whole file, reading it at random offsets.
+   *
+   * @return the lines sampled, null if the file is not local or is compressed
+   */
+  @Nullable
+  private static List<String> seekSample(Location location, int lines) throws IOException {
+    if (!"file".equals(location.toURI().getScheme())) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(Paths.get(location.toURI()), StandardOpenOption.READ)) {
+      SeekSampler.RangeReader reader = SeekSampler.of(channel);
+      if (Compression.of(reader, location.getName()).isCompressed()) {
+        return null;
+      }
+      return SeekSampler.sample(channel.size(), lines, reader, new Random());
+    }
+  }
+
   @Override
   public void initialize(SystemHttpServiceContext context) throws Exception {
     super.initialize(context);
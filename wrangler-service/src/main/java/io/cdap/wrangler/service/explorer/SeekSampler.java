@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.explorer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.wrangler.sampling.SkipReservoir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Samples the lines of a large file by reading windows of it at random offsets instead of reading it from the
+ * beginning, so that the sample is taken from the whole file and only a small part of it is read.
+ *
+ * <p>Each window is realigned to the line following its first newline, and gives at most
+ * {@link #LINES_PER_WINDOW} complete lines. Windows are read in parallel, until enough lines are collected. Lines
+ * are keyed by the offset they start at, so that the lines of overlapping windows are only collected once. Files
+ * no larger than {@link #MIN_SEEK_BYTES} are read as a whole and sampled with a {@link SkipReservoir}.</p>
+ */
+public final class SeekSampler {
+  static final int WINDOW_BYTES = 64 * 1024;
+  static final int LINES_PER_WINDOW = 16;
+  static final long MIN_SEEK_BYTES = 8 * 1024 * 1024;
+  private static final int PARALLELISM = 8;
+  // Maximum number of windows read per line of the sample, for files with lines larger than the windows.
+  private static final int MAX_WINDOWS_PER_LINE = 4;
+  private static final ThreadPoolExecutor READERS =
+    new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                           new ThreadFactoryBuilder().setNameFormat("seek-sampler-%d").setDaemon(true).build());
+
+  static {
+    READERS.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Reads ranges of bytes of a file.
+   */
+  public interface RangeReader {
+
+    /**
+     * Reads bytes of the file, fewer than requested only at the end of the file.
+     *
+     * @param offset of the first byte to read
+     * @param length number of bytes to read
+     */
+    byte[] read(long offset, int length) throws IOException;
+  }
+
+  private SeekSampler() {
+  }
+
+  /**
+   * @return reader of ranges of a local file, through positional reads that can be done concurrently
+   */
+  public static RangeReader of(FileChannel channel) {
+    return (offset, length) -> {
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+        // read until the buffer is full or the end of the file
+      }
+      return Arrays.copyOf(buffer.array(), buffer.position());
+    };
+  }
+
+  /**
+   * Samples the lines of a file.
+   *
+   * @param size of the file, in bytes
+   * @param lines number of lines to sample
+   * @param reader of the file
+   * @param random generator of the offsets
+   * @return the lines sampled, in random order
+   */
+  public static List<String> sample(long size, int lines, RangeReader reader, Random random) throws IOException {
+    if (lines <= 0 || size == 0) {
+      return Collections.emptyList();
+    }
+    if (size <= MIN_SEEK_BYTES) {
+      List<String> all = split(reader.read(0, (int) size), true, true);
+      List<String> sample = new ArrayList<>(Math.min(lines, all.size()));
+      new SkipReservoir<String>(lines, random).sample(all.iterator()).forEachRemaining(sample::add);
+      return sample;
+    }
+
+    // lines by the offset they start at
+    Map<Long, String> collected = new LinkedHashMap<>();
+    int windows = 0;
+    int maxWindows = MAX_WINDOWS_PER_LINE * lines;
+    while (collected.size() < lines && windows < maxWindows) {
+      int count = Math.min(maxWindows - windows,
+                           (lines - collected.size() + LINES_PER_WINDOW - 1) / LINES_PER_WINDOW);
+      List<Future<Map<Long, String>>> reads = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        long offset = (long) (random.nextDouble() * size);
+        reads.add(READERS.submit(() -> readWindow(reader, offset, size)));
+      }
+      windows += count;
+      try {
+        for (Future<Map<Long, String>> read : reads) {
+          read.get().forEach(collected::putIfAbsent);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while sampling the file.", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException("Unable to sample the file.", e.getCause());
+      } finally {
+        reads.forEach(read -> read.cancel(true));
+      }
+    }
+
+    // lines of a window follow each other, so the sample is shuffled before being truncated
+    List<String> sample = new ArrayList<>(collected.values());
+    Collections.shuffle(sample, random);
+    return sample.size() > lines ? new ArrayList<>(sample.subList(0, lines)) : sample;
+  }
+
+  /**
+   * @return the complete lines of the window, by the offset in the file they start at
+   */
+  private static Map<Long, String> readWindow(RangeReader reader, long offset, long size) throws IOException {
+    byte[] bytes = reader.read(offset, (int) Math.min(WINDOW_BYTES, size - offset));
+    Map<Long, String> lines = new LinkedHashMap<>();
+    split(bytes, offset == 0, offset + bytes.length >= size, (line, from) -> {
+      if (lines.size() < LINES_PER_WINDOW) {
+        lines.put(offset + from, line);
+      }
+    });
+    return lines;
+  }
+
+  /**
+   * Splits bytes in lines, dropping the partial lines at their start and end.
+   *
+   * @param start whether the bytes start at the beginning of a line
+   * @param end whether the bytes end at the end of the file, in which case the last line is complete
+   */
+  static List<String> split(byte[] bytes, boolean start, boolean end) {
+    List<String> lines = new ArrayList<>();
+    split(bytes, start, end, (line, from) -> lines.add(line));
+    return lines;
+  }
+
+  /**
+   * Splits bytes in lines, dropping the partial lines at their start and end, and calls the consumer with each
+   * line and the index of the byte it starts at.
+   */
+  private static void split(byte[] bytes, boolean start, boolean end, ObjIntConsumer<String> consumer) {
+    int from = 0;
+    if (!start) {
+      while (from < bytes.length && bytes[from] != '\n') {
+        from++;
+      }
+      from++;
+    }
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == '\n') {
+        consumer.accept(toLine(bytes, from, i), from);
+        from = i + 1;
+      }
+    }
+    if (end && from < bytes.length) {
+      consumer.accept(toLine(bytes, from, bytes.length), from);
+    }
+  }
+
+  private static String toLine(byte[] bytes, int from, int to) {
+    int length = to > from && bytes[to - 1] == '\r' ? to - from - 1 : to - from;
+    return new String(bytes, from, length, StandardCharsets.UTF_8);
+  }
+}
@@ -24,7 +24,9 @@ import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Bucket;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageException;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
+import com.google.common.io.ByteStreams;
 import io.cdap.cdap.api.annotation.TransactionControl;
 import io.cdap.cdap.api.annotation.TransactionPolicy;
 import io.cdap.cdap.api.service.http.HttpServiceRequest;
@@ -55,6 +57,7 @@ import io.cdap.wrangler.proto.gcs.GCSSpec;
 import io.cdap.wrangler.service.FileTypeDetector;
 import io.cdap.wrangler.service.common.AbstractWranglerHandler;
 import io.cdap.wrangler.service.common.Format;
+import io.cdap.wrangler.service.explorer.Compression;
 import io.cdap.wrangler.service.gcp.GCPUtils;
 import io.cdap.wrangler.utils.ObjectSerDe;
 import io.cdap.wrangler.utils.ReferenceNames;
@@ -65,11 +68,13 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 import java.security.Security;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -243,6 +248,28 @@ public class GCSHandler extends AbstractWranglerHandler {
     }
   }
 
+  private boolean isCompressed(Blob blob) throws IOException {
+    if (blob.getSize() == 0) {
+      return false;
+    }
+    byte[] header = readGCSFile(blob, (int) Math.min(blob.getSize(), 16));
+    return Compression.of(header, header.length, blob.getName()).isCompressed();
+  }
+
+  private byte[] readCompressedGCSFile(Blob blob, int len) throws IOException {
+    return readDecompressed(Channels.newInputStream(blob.reader()), blob.getName(), len);
+  }
+
+  /**
+   * Reads up to the given number of bytes of the decompressed content of a file.
+   */
+  @VisibleForTesting
+  static byte[] readDecompressed(InputStream input, String name, int len) throws IOException {
+    try (InputStream decompressed = Compression.decompress(input, name)) {
+      return ByteStreams.toByteArray(ByteStreams.limit(decompressed, len));
+    }
+  }
+
   /**
    * Reads GCS object into workspace.
    *
@@ -291,8 +318,20 @@ public class GCSHandler extends AbstractWranglerHandler {
 
       String sampleId = TransactionRunners.run(getContext(), context -> {
         WorkspaceDataset ws = WorkspaceDataset.get(context);
-        boolean shouldTruncate = blob.getSize() > FILE_SIZE;
-        byte[] bytes = readGCSFile(blob, (int) (shouldTruncate ? FILE_SIZE : blob.getSize()));
+        boolean shouldTruncate;
+        byte[] bytes;
+        if (isCompressed(blob)) {
+          // Compressed files are typed by their inner extension, so whatever their type they are decompressed as
+          // they are read, keeping as much of them as of uncompressed files.
+          bytes = readCompressedGCSFile(blob, (int) FILE_SIZE + 1);
+          shouldTruncate = bytes.length > FILE_SIZE;
+          if (shouldTruncate) {
+            bytes = Arrays.copyOf(bytes, (int) FILE_SIZE);
+          }
+        } else {
+          shouldTruncate = blob.getSize() > FILE_SIZE;
+          bytes = readGCSFile(blob, (int) (shouldTruncate ? FILE_SIZE : blob.getSize()));
+        }
         DataType dataType;
         byte[] result = bytes;
 
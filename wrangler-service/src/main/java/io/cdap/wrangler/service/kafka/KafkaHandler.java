@@ -16,7 +16,6 @@
 
 package io.cdap.wrangler.service.kafka;
 
-import com.google.common.collect.Lists;
 import io.cdap.cdap.api.annotation.TransactionControl;
 import io.cdap.cdap.api.annotation.TransactionPolicy;
 import io.cdap.cdap.api.service.http.HttpServiceRequest;
@@ -26,7 +25,6 @@ import io.cdap.wrangler.PropertyIds;
 import io.cdap.wrangler.RequestExtractor;
 import io.cdap.wrangler.SamplingMethod;
 import io.cdap.wrangler.api.Row;
-import io.cdap.wrangler.dataset.connections.ConnectionStore;
 import io.cdap.wrangler.dataset.workspace.DataType;
 import io.cdap.wrangler.dataset.workspace.Workspace;
 import io.cdap.wrangler.dataset.workspace.WorkspaceDataset;
@@ -42,8 +40,6 @@ import io.cdap.wrangler.proto.kafka.KafkaSpec;
 import io.cdap.wrangler.service.common.AbstractWranglerHandler;
 import io.cdap.wrangler.utils.ObjectSerDe;
 import io.cdap.wrangler.utils.ReferenceNames;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.PartitionInfo;
 
@@ -52,6 +48,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import javax.annotation.Nullable;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -64,6 +61,7 @@ import javax.ws.rs.QueryParam;
  */
 @Deprecated
 public final class KafkaHandler extends AbstractWranglerHandler {
+  private static final long SAMPLE_TIMEOUT_MS = 10000;
 
   @POST
   @Path("contexts/{context}/connections/kafka/test")
@@ -113,27 +111,33 @@ public final class KafkaHandler extends AbstractWranglerHandler {
   }
 
   /**
-   * Reads a kafka topic into workspace.
+   * Reads a kafka topic into workspace. The records are sampled from all the partitions, so the workspace is recorded
+   * as sampled with the 'stratified' method.
    *
    * @param request HTTP requests handler.
    * @param responder HTTP response handler.
    * @param id Connection id for which the tables need to be listed from database.
+   * @param since timestamp in milliseconds of the earliest records to read, all the records are read if not set.
    */
   @GET
   @Path("contexts/{context}/connections/{id}/kafka/{topic}/read")
   @TransactionPolicy(value = TransactionControl.EXPLICIT)
   public void read(HttpServiceRequest request, HttpServiceResponder responder, @PathParam("context") String namespace,
                    @PathParam("id") String id, @PathParam("topic") String topic,
-                   @QueryParam("lines") int lines,
+                   @QueryParam("lines") int lines, @Nullable @QueryParam("since") Long since,
                    @QueryParam("scope") @DefaultValue(WorkspaceDataset.DEFAULT_SCOPE) String scope) {
-    respond(request, responder, namespace, ns -> TransactionRunners.run(getContext(), context -> {
-      ConnectionStore store = ConnectionStore.get(context);
-      WorkspaceDataset ws = WorkspaceDataset.get(context);
-      Connection connection = getValidatedConnection(store, new NamespacedId(ns, id), ConnectionType.KAFKA);
-
+    respond(request, responder, namespace, ns -> {
+      Connection connection = getValidatedConnection(new NamespacedId(ns, id), ConnectionType.KAFKA);
       KafkaConfiguration config = new KafkaConfiguration(connection);
-      KafkaConsumer<String, String> consumer = new KafkaConsumer<>(config.get());
-      consumer.subscribe(Lists.newArrayList(topic));
+
+      // Records are sampled from all the partitions before the workspace is created, outside of a transaction.
+      KafkaSampler sampler = new KafkaSampler(() -> new KafkaConsumer<>(config.get()), SAMPLE_TIMEOUT_MS);
+      List<Row> recs = new ArrayList<>();
+      for (String value : sampler.sample(topic, lines, since)) {
+        Row rec = new Row();
+        rec.add("body", value);
+        recs.add(rec);
+      }
 
       Map<String, String> properties = new HashMap<>();
       properties.put(PropertyIds.NAME, topic);
@@ -143,42 +147,24 @@ public final class KafkaHandler extends AbstractWranglerHandler {
       properties.put(PropertyIds.CONNECTION_TYPE, connection.getType().getType());
       properties.put(PropertyIds.KEY_DESERIALIZER, config.getKeyDeserializer());
       properties.put(PropertyIds.VALUE_DESERIALIZER, config.getValueDeserializer());
-      properties.put(PropertyIds.SAMPLER_TYPE, SamplingMethod.FIRST.getMethod());
+      properties.put(PropertyIds.SAMPLER_TYPE, SamplingMethod.STRATIFIED.getMethod());
       WorkspaceMeta workspaceMeta = WorkspaceMeta.builder(topic)
         .setScope(scope)
         .setProperties(properties)
         .build();
-      NamespacedId workspaceId = ws.createWorkspace(ns, workspaceMeta);
-
-      try {
-        boolean running = true;
-        List<Row> recs = new ArrayList<>();
-        int count = lines;
-        while (running) {
-          ConsumerRecords<String, String> records = consumer.poll(10000);
-          for (ConsumerRecord<String, String> record : records) {
-            Row rec = new Row();
-            rec.add("body", record.value());
-            recs.add(rec);
-            if (count < 0) {
-              break;
-            }
-            count--;
-          }
-          running = false;
-        }
 
+      return TransactionRunners.run(getContext(), context -> {
+        WorkspaceDataset ws = WorkspaceDataset.get(context);
+        NamespacedId workspaceId = ws.createWorkspace(ns, workspaceMeta);
         ObjectSerDe<List<Row>> serDe = new ObjectSerDe<>();
         byte[] data = serDe.toByteArray(recs);
         ws.updateWorkspaceData(workspaceId, DataType.RECORDS, data);
 
         ConnectionSample sample = new ConnectionSample(workspaceId.getId(), topic, ConnectionType.KAFKA.getType(),
-                                                       SamplingMethod.FIRST.getMethod(), id);
+                                                       SamplingMethod.STRATIFIED.getMethod(), id);
         return new ServiceResponse<>(sample);
-      } finally {
-        consumer.close();
-      }
-    }));
+      });
+    });
   }
 
   /**
@@ -0,0 +1,294 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.kafka;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Samples the records of a topic from all of its partitions, stratified by partition.
+ *
+ * <p>The records of the sample are spread across the partitions in proportion to the number of records each of them
+ * holds, from its earliest offset or from the first offset after a time. The share of each partition is read in runs
+ * of at most {@link #RECORDS_PER_SEEK} records starting at evenly spaced offsets. Partitions are fetched in parallel
+ * by up to {@link #PARALLELISM} consumers, which stop once the time budget of the sample is spent.</p>
+ */
+final class KafkaSampler {
+  private static final Logger LOG = LoggerFactory.getLogger(KafkaSampler.class);
+  static final int RECORDS_PER_SEEK = 100;
+  static final int PARALLELISM = 8;
+  private static final long POLL_MS = 500;
+  private static final ThreadPoolExecutor FETCHERS =
+    new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                           new ThreadFactoryBuilder().setNameFormat("kafka-sampler-%d").setDaemon(true).build());
+
+  static {
+    FETCHERS.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Records to read from a partition, starting at an offset and stopping before the next run.
+   */
+  private static final class Run {
+    private final long end;
+    private long position;
+    private int remaining;
+
+    private Run(long start, long end, int records) {
+      this.position = start;
+      this.end = end;
+      this.remaining = records;
+    }
+  }
+
+  private final Supplier<Consumer<String, String>> consumers;
+  private final long timeoutMs;
+
+  /**
+   * @param consumers creates the consumers reading the topic, each used by a single thread
+   * @param timeoutMs time budget of a sample, after which the records read so far are returned
+   */
+  KafkaSampler(Supplier<Consumer<String, String>> consumers, long timeoutMs) {
+    this.consumers = consumers;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Samples the values of the records of a topic.
+   *
+   * @param since timestamp in milliseconds of the earliest records to sample, null to sample all the records
+   * @return the values sampled, ordered by partition and offset
+   */
+  List<String> sample(String topic, int lines, @Nullable Long since) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    if (lines <= 0) {
+      return Collections.emptyList();
+    }
+
+    List<TopicPartition> partitions = new ArrayList<>();
+    Map<TopicPartition, Long> starts;
+    Map<TopicPartition, Long> ends;
+    try (Consumer<String, String> consumer = consumers.get()) {
+      List<PartitionInfo> infos = consumer.partitionsFor(topic);
+      if (infos == null || infos.isEmpty()) {
+        return Collections.emptyList();
+      }
+      for (PartitionInfo info : infos) {
+        partitions.add(new TopicPartition(topic, info.partition()));
+      }
+      partitions.sort((a, b) -> Integer.compare(a.partition(), b.partition()));
+      ends = consumer.endOffsets(partitions);
+      starts = since == null ? consumer.beginningOffsets(partitions) : startsAfter(consumer, partitions, since, ends);
+    }
+
+    long[] available = new long[partitions.size()];
+    for (int i = 0; i < available.length; i++) {
+      TopicPartition partition = partitions.get(i);
+      available[i] = Math.max(0, ends.get(partition) - starts.get(partition));
+    }
+    long[] quotas = allocate(available, lines);
+
+    // Partitions are dealt to the fetchers in turn, so that each fetcher has a similar share of the sample.
+    List<Map<TopicPartition, Deque<Run>>> plans = new ArrayList<>();
+    int sampled = 0;
+    for (int i = 0; i < partitions.size(); i++) {
+      if (quotas[i] > 0) {
+        TopicPartition partition = partitions.get(i);
+        int fetcher = sampled++ % PARALLELISM;
+        if (fetcher == plans.size()) {
+          plans.add(new HashMap<>());
+        }
+        plans.get(fetcher).put(partition, runs(starts.get(partition), ends.get(partition), (int) quotas[i]));
+      }
+    }
+
+    List<Future<Map<TopicPartition, List<String>>>> fetches = new ArrayList<>();
+    for (Map<TopicPartition, Deque<Run>> plan : plans) {
+      fetches.add(FETCHERS.submit(() -> fetch(plan, deadline)));
+    }
+    Map<TopicPartition, List<String>> values = new HashMap<>();
+    try {
+      for (Future<Map<TopicPartition, List<String>>> fetch : fetches) {
+        // Fetchers stop at the deadline by themselves, the grace period only covers their last poll.
+        long wait = Math.max(0, deadline - System.currentTimeMillis()) + 2 * POLL_MS;
+        try {
+          values.putAll(fetch.get(wait, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+          LOG.warn("Timed out while sampling partitions of topic {}, which are left out of the sample.", topic);
+        }
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(String.format("Unable to sample topic %s: %s", topic,
+                                                    e.getCause().getMessage()), e.getCause());
+    } finally {
+      fetches.forEach(fetch -> fetch.cancel(true));
+    }
+
+    List<String> sample = new ArrayList<>(lines);
+    for (TopicPartition partition : partitions) {
+      sample.addAll(values.getOrDefault(partition, Collections.emptyList()));
+    }
+    return sample;
+  }
+
+  /**
+   * @return the first offset of each partition holding records no older than a time, the end offset if there is none
+   */
+  private static Map<TopicPartition, Long> startsAfter(Consumer<String, String> consumer,
+                                                       List<TopicPartition> partitions, long since,
+                                                       Map<TopicPartition, Long> ends) {
+    Map<TopicPartition, Long> times = new HashMap<>();
+    partitions.forEach(partition -> times.put(partition, since));
+    Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(times);
+    Map<TopicPartition, Long> starts = new HashMap<>();
+    for (TopicPartition partition : partitions) {
+      OffsetAndTimestamp offset = offsets.get(partition);
+      starts.put(partition, offset == null ? ends.get(partition) : offset.offset());
+    }
+    return starts;
+  }
+
+  /**
+   * Splits a number of records between strata in proportion to the records available in each of them, giving the
+   * records left by the rounding to the strata with the largest remainders.
+   */
+  static long[] allocate(long[] available, int records) {
+    long total = 0;
+    for (long count : available) {
+      total += count;
+    }
+    long[] quotas = new long[available.length];
+    if (total <= records) {
+      System.arraycopy(available, 0, quotas, 0, available.length);
+      return quotas;
+    }
+    List<Integer> strata = new ArrayList<>();
+    double[] remainders = new double[available.length];
+    long allocated = 0;
+    for (int i = 0; i < available.length; i++) {
+      double share = (double) records * available[i] / total;
+      quotas[i] = (long) share;
+      remainders[i] = share - quotas[i];
+      allocated += quotas[i];
+      strata.add(i);
+    }
+    strata.sort((a, b) -> Double.compare(remainders[b], remainders[a]));
+    for (int i = 0; allocated < records; i = (i + 1) % strata.size()) {
+      int stratum = strata.get(i);
+      if (quotas[stratum] < available[stratum]) {
+        quotas[stratum]++;
+        allocated++;
+      }
+    }
+    return quotas;
+  }
+
+  /**
+   * Plans the runs reading records from evenly spaced offsets of a partition.
+   */
+  private static Deque<Run> runs(long start, long end, int records) {
+    int count = (records + RECORDS_PER_SEEK - 1) / RECORDS_PER_SEEK;
+    Deque<Run> runs = new ArrayDeque<>(count);
+    long span = end - start;
+    for (int i = 0; i < count; i++) {
+      long runStart = start + (long) ((double) span * i / count);
+      long runEnd = start + (long) ((double) span * (i + 1) / count);
+      runs.add(new Run(runStart, runEnd, records * (i + 1) / count - records * i / count));
+    }
+    return runs;
+  }
+
+  /**
+   * Reads the runs planned for some partitions with a single consumer, until they are all read or the deadline.
+   */
+  private Map<TopicPartition, List<String>> fetch(Map<TopicPartition, Deque<Run>> plan, long deadline) {
+    Map<TopicPartition, List<String>> values = new HashMap<>();
+    try (Consumer<String, String> consumer = consumers.get()) {
+      consumer.assign(plan.keySet());
+      for (Map.Entry<TopicPartition, Deque<Run>> entry : plan.entrySet()) {
+        values.put(entry.getKey(), new ArrayList<>());
+        consumer.seek(entry.getKey(), entry.getValue().peek().position);
+      }
+
+      long now = System.currentTimeMillis();
+      while (!plan.isEmpty() && now < deadline && !Thread.currentThread().isInterrupted()) {
+        ConsumerRecords<String, String> records = consumer.poll(Math.min(POLL_MS, deadline - now));
+        for (TopicPartition partition : records.partitions()) {
+          Deque<Run> runs = plan.get(partition);
+          if (runs == null) {
+            continue;
+          }
+          for (ConsumerRecord<String, String> record : records.records(partition)) {
+            Run run = runs.peek();
+            while (run != null && (run.remaining == 0 || record.offset() >= run.end)) {
+              runs.poll();
+              run = runs.peek();
+            }
+            if (run == null) {
+              break;
+            }
+            if (record.offset() >= run.position) {
+              values.get(partition).add(record.value());
+              run.position = record.offset() + 1;
+              run.remaining--;
+            }
+          }
+        }
+
+        // Partitions move on to their next run once the current one is read, or once its records run out.
+        for (TopicPartition partition : new ArrayList<>(plan.keySet())) {
+          Deque<Run> runs = plan.get(partition);
+          long position = consumer.position(partition);
+          while (!runs.isEmpty() && (runs.peek().remaining == 0 || position >= runs.peek().end)) {
+            runs.poll();
+          }
+          if (runs.isEmpty()) {
+            plan.remove(partition);
+            consumer.pause(Collections.singleton(partition));
+          } else if (position < runs.peek().position) {
+            consumer.seek(partition, runs.peek().position);
+          }
+        }
+        now = System.currentTimeMillis();
+      }
+    }
+    return values;
+  }
+}
@@ -27,9 +27,11 @@ import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
 import io.cdap.cdap.api.annotation.TransactionControl;
 import io.cdap.cdap.api.annotation.TransactionPolicy;
 import io.cdap.cdap.api.service.http.HttpServiceRequest;
@@ -63,10 +65,11 @@ import io.cdap.wrangler.service.FileTypeDetector;
 import io.cdap.wrangler.service.common.AbstractWranglerHandler;
 import io.cdap.wrangler.service.common.Format;
 import io.cdap.wrangler.service.explorer.BoundedLineInputStream;
+import io.cdap.wrangler.service.explorer.Compression;
+import io.cdap.wrangler.service.explorer.SeekSampler;
 import io.cdap.wrangler.service.macro.ServiceMacroEvaluator;
 import io.cdap.wrangler.utils.ObjectSerDe;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -74,6 +77,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -221,6 +225,18 @@ public class S3Handler extends AbstractWranglerHandler {
         NamespacedId namespacedConnId = new NamespacedId(ns, connectionId);
         Connection connection = getValidatedConnection(namespacedConnId, ConnectionType.S3);
         AmazonS3 s3 = initializeAndGetS3Client(connection, namespace, getContext());
+        boolean text = header != null && header.equalsIgnoreCase("text/plain");
+        if (text && SamplingMethod.fromString(sampler) == SamplingMethod.RESERVOIR) {
+          // Random samples are taken from the whole object, through ranged reads at random offsets,
+          // unless the object is compressed and has to be decompressed from its beginning.
+          long size = s3.getObjectMetadata(bucketName, key).getContentLength();
+          SeekSampler.RangeReader reader = (offset, length) -> readRange(s3, bucketName, key, offset, length);
+          if (size == 0 || !Compression.of(reader, key).isCompressed()) {
+            List<String> records = SeekSampler.sample(size, lines, reader, new Random());
+            return new ServiceResponse<>(saveSample(namespacedConnId, scope, bucketName, key,
+                                                    SamplingMethod.RESERVOIR, records.iterator()));
+          }
+        }
         S3Object object = s3.getObject(new GetObjectRequest(bucketName, key));
         if (object == null) {
           throw new BadRequestException(
@@ -229,7 +245,7 @@ public class S3Handler extends AbstractWranglerHandler {
 
         try (InputStream inputStream = object.getObjectContent()) {
           S3ConnectionSample sample;
-          if (header != null && header.equalsIgnoreCase("text/plain")) {
+          if (text) {
             sample = loadSamplableFile(namespacedConnId, scope, inputStream, object, lines, fraction, sampler);
           } else {
             sample = loadFile(namespacedConnId, scope, inputStream, object);
@@ -307,51 +323,62 @@ public class S3Handler extends AbstractWranglerHandler {
       samplingMethod = SamplingMethod.fromString(sampler);
     }
 
-    try (BoundedLineInputStream blis = BoundedLineInputStream.iterator(inputStream, Charsets.UTF_8, lines)) {
-      String name = s3Object.getKey();
+    InputStream input = Compression.decompress(inputStream, s3Object.getKey());
+    try (BoundedLineInputStream blis = BoundedLineInputStream.iterator(input, Charsets.UTF_8, lines)) {
+      // Depending on the type, the sampling of the input is performed.
+      Iterator<String> it = blis;
+      if (samplingMethod == SamplingMethod.POISSON) {
+        it = new Poisson<String>(fraction).sample(blis);
+      } else if (samplingMethod == SamplingMethod.BERNOULLI) {
+        it = new Bernoulli<String>(fraction).sample(blis);
+      } else if (samplingMethod == SamplingMethod.RESERVOIR) {
+        it = new Reservoir<String>(lines).sample(blis);
+      }
+      return saveSample(connectionId, scope, s3Object.getBucketName(), s3Object.getKey(), samplingMethod, it);
+    }
+  }
 
-      String fileName = name.substring(name.lastIndexOf("/") + 1);
-      Map<String, String> properties = new HashMap<>();
-      properties.put(PropertyIds.NAME, fileName);
-      properties.put(PropertyIds.CONNECTION_TYPE, ConnectionType.S3.getType());
-      properties.put(PropertyIds.SAMPLER_TYPE, samplingMethod.getMethod());
-      properties.put(PropertyIds.CONNECTION_ID, connectionId.getId());
-      properties.put(BUCKET_NAME, s3Object.getBucketName());
-      properties.put(KEY, s3Object.getKey());
-      WorkspaceMeta workspaceMeta = WorkspaceMeta.builder(fileName)
-        .setScope(scope)
-        .setProperties(properties)
-        .build();
-      String sampleId = TransactionRunners.run(getContext(), context -> {
-        WorkspaceDataset ws = WorkspaceDataset.get(context);
-        NamespacedId workspaceId = ws.createWorkspace(connectionId.getNamespace(), workspaceMeta);
-
-        // Iterate through lines to extract only 'limit' random lines.
-        // Depending on the type, the sampling of the input is performed.
-        List<Row> rows = new ArrayList<>();
-        Iterator<String> it = blis;
-        if (samplingMethod == SamplingMethod.POISSON) {
-          it = new Poisson<String>(fraction).sample(blis);
-        } else if (samplingMethod == SamplingMethod.BERNOULLI) {
-          it = new Bernoulli<String>(fraction).sample(blis);
-        } else if (samplingMethod == SamplingMethod.RESERVOIR) {
-          it = new Reservoir<String>(lines).sample(blis);
-        }
-        while (it.hasNext()) {
-          rows.add(new Row(COLUMN_NAME, it.next()));
-        }
+  private S3ConnectionSample saveSample(NamespacedId connectionId, String scope, String bucketName, String name,
+                                        SamplingMethod samplingMethod, Iterator<String> records) {
+    String fileName = name.substring(name.lastIndexOf("/") + 1);
+    Map<String, String> properties = new HashMap<>();
+    properties.put(PropertyIds.NAME, fileName);
+    properties.put(PropertyIds.CONNECTION_TYPE, ConnectionType.S3.getType());
+    properties.put(PropertyIds.SAMPLER_TYPE, samplingMethod.getMethod());
+    properties.put(PropertyIds.CONNECTION_ID, connectionId.getId());
+    properties.put(BUCKET_NAME, bucketName);
+    properties.put(KEY, name);
+    WorkspaceMeta workspaceMeta = WorkspaceMeta.builder(fileName)
+      .setScope(scope)
+      .setProperties(properties)
+      .build();
+    String sampleId = TransactionRunners.run(getContext(), context -> {
+      WorkspaceDataset ws = WorkspaceDataset.get(context);
+      NamespacedId workspaceId = ws.createWorkspace(connectionId.getNamespace(), workspaceMeta);
+
+      // Iterate through lines to extract only 'limit' random lines.
+      List<Row> rows = new ArrayList<>();
+      while (records.hasNext()) {
+        rows.add(new Row(COLUMN_NAME, records.next()));
+      }
 
-        // Write rows to workspace.
-        ObjectSerDe<List<Row>> serDe = new ObjectSerDe<>();
-        byte[] data = serDe.toByteArray(rows);
-        ws.updateWorkspaceData(workspaceId, DataType.RECORDS, data);
-        return workspaceId.getId();
-      });
-
-      // Preparing return response to include mandatory fields : id and name.
-      return new S3ConnectionSample(sampleId, name, ConnectionType.S3.getType(),
-                                    samplingMethod.getMethod(), connectionId.getId(),
-                                    s3Object.getBucketName(), s3Object.getKey());
+      // Write rows to workspace.
+      ObjectSerDe<List<Row>> serDe = new ObjectSerDe<>();
+      byte[] data = serDe.toByteArray(rows);
+      ws.updateWorkspaceData(workspaceId, DataType.RECORDS, data);
+      return workspaceId.getId();
+    });
+
+    // Preparing return response to include mandatory fields : id and name.
+    return new S3ConnectionSample(sampleId, name, ConnectionType.S3.getType(),
+                                  samplingMethod.getMethod(), connectionId.getId(), bucketName, name);
+  }
+
+  private static byte[] readRange(AmazonS3 s3, String bucketName, String key, long offset,
+                                  int length) throws IOException {
+    S3Object object = s3.getObject(new GetObjectRequest(bucketName, key).withRange(offset, offset + length - 1));
+    try (InputStream inputStream = object.getObjectContent()) {
+      return ByteStreams.toByteArray(inputStream);
     }
   }
 
@@ -365,10 +392,7 @@ public class S3Handler extends AbstractWranglerHandler {
     String name = s3Object.getKey();
     String fileName = name.substring(name.lastIndexOf("/") + 1);
 
-    byte[] bytes = new byte[(int) s3Object.getObjectMetadata().getContentLength() + 1];
-    try (BufferedInputStream stream = new BufferedInputStream(inputStream)) {
-      stream.read(bytes);
-    }
+    byte[] bytes = readFile(inputStream, name);
 
     Map<String, String> properties = new HashMap<>();
     properties.put(PropertyIds.NAME, fileName);
@@ -399,6 +423,14 @@ public class S3Handler extends AbstractWranglerHandler {
                                   s3Object.getBucketName(), s3Object.getKey());
   }
 
+  /**
+   * Reads the whole content of an object, decompressed if the object is compressed.
+   */
+  @VisibleForTesting
+  static byte[] readFile(InputStream inputStream, String key) throws IOException {
+    return Compression.readFully(inputStream, key, FILE_SIZE);
+  }
+
   /**
    * get data type from the file type.
    *
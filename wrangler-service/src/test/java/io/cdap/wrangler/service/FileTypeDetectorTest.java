@@ -45,4 +45,23 @@ public class FileTypeDetectorTest {
       Assert.assertEquals("text/plain", mimeType);
     }
   }
+
+  @Test
+  public void testCompressedFiles() throws Exception {
+    FileTypeDetector detector = new FileTypeDetector();
+
+    // Compressed files have the type of the extension before the compression one.
+    String csv = detector.detectFileType("titanic.csv");
+    for (String filename : new String[] { "titanic.csv.gz", "titanic.CSV.GZ", "titanic.csv.gzip", "titanic.csv.bz2",
+      "titanic.csv.snappy" }) {
+      Assert.assertEquals(filename, csv, detector.detectFileType(filename));
+      Assert.assertTrue(filename, detector.isWrangleable(detector.detectFileType(filename)));
+    }
+    Assert.assertEquals("application/json", detector.detectFileType("events.json.gz"));
+
+    // Without an inner extension, the type is the compression.
+    Assert.assertEquals("application/x-gzip", detector.detectFileType("archive.gz"));
+    Assert.assertFalse(detector.isWrangleable(detector.detectFileType("archive.gz")));
+    Assert.assertEquals("application/x-bzip2", detector.detectFileType("archive.bz2"));
+  }
 }
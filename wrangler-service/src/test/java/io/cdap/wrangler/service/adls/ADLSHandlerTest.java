@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.adls;
+
+import io.cdap.wrangler.service.explorer.BoundedLineInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests the reading of compressed files by {@link ADLSHandler}.
+ */
+public class ADLSHandlerTest {
+
+  @Test
+  public void testReadCompressedLines() throws Exception {
+    byte[] compressed = gzip("a,b\n1,2\n3,4\n".getBytes(StandardCharsets.UTF_8));
+    List<String> lines = new ArrayList<>();
+    try (BoundedLineInputStream input = ADLSHandler.readLines(new ByteArrayInputStream(compressed),
+                                                              "titanic.csv.gz", 2)) {
+      input.forEachRemaining(lines::add);
+    }
+    Assert.assertEquals(Arrays.asList("a,b", "1,2"), lines);
+  }
+
+  @Test
+  public void testReadCompressedFile() throws Exception {
+    String json = "{\"name\": \"wrangler\"}";
+    byte[] compressed = gzip(json.getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(json, new String(ADLSHandler.readFile(new ByteArrayInputStream(compressed), "events.json.gz"),
+                                         StandardCharsets.UTF_8));
+  }
+
+  private static byte[] gzip(byte[] bytes) throws Exception {
+    ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+    try (OutputStream output = new GZIPOutputStream(gzip)) {
+      output.write(bytes);
+    }
+    return gzip.toByteArray();
+  }
+}
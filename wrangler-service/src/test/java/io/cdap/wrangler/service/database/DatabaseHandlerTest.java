@@ -19,6 +19,7 @@ package io.cdap.wrangler.service.database;
 import com.google.common.base.Throwables;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import io.cdap.wrangler.SamplingMethod;
 import io.cdap.wrangler.api.Row;
 import org.hsqldb.Server;
 import org.junit.AfterClass;
@@ -140,6 +141,31 @@ public class DatabaseHandlerTest {
     }
   }
 
+  @Test
+  public void testSampling() throws Exception {
+    try (Connection conn = getConnection()) {
+      List<Row> first = DatabaseSampler.first(conn, "\"my_table\"", 1);
+      Assert.assertEquals(1, first.size());
+      Assert.assertEquals("alice", first.get(0).getValue("NAME"));
+
+      List<Row> random = DatabaseSampler.random(conn, "\"my_table\"", 1);
+      Assert.assertEquals(1, random.size());
+      Assert.assertEquals(2, DatabaseSampler.random(conn, "\"my_table\"", 10).size());
+    }
+  }
+
+  @Test
+  public void testRandomSamplingMethods() {
+    Assert.assertFalse(DatabaseHandler.isRandom(null));
+    Assert.assertFalse(DatabaseHandler.isRandom(SamplingMethod.NONE));
+    Assert.assertFalse(DatabaseHandler.isRandom(SamplingMethod.FIRST));
+    Assert.assertTrue(DatabaseHandler.isRandom(SamplingMethod.RESERVOIR));
+    Assert.assertTrue(DatabaseHandler.isRandom(SamplingMethod.BERNOULLI));
+    Assert.assertTrue(DatabaseHandler.isRandom(SamplingMethod.POISSON));
+    // Tables are not stratified, they are read from their first rows.
+    Assert.assertFalse(DatabaseHandler.isRandom(SamplingMethod.STRATIFIED));
+  }
+
   private static void createTestUser(Connection conn) throws SQLException {
     try (Statement stmt = conn.createStatement()) {
       stmt.execute("CREATE USER \"emptyPwdUser\" PASSWORD '' ADMIN");
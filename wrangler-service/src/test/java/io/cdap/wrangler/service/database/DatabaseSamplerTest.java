@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.database;
+
+import io.cdap.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Tests the sampling queries of {@link DatabaseSampler} and the choice between them
+ */
+public class DatabaseSamplerTest {
+
+  @Test
+  public void testDialects() {
+    Assert.assertEquals(DatabaseSampler.Dialect.POSTGRESQL, DatabaseSampler.Dialect.of("PostgreSQL"));
+    Assert.assertEquals(DatabaseSampler.Dialect.SQLSERVER, DatabaseSampler.Dialect.of("Microsoft SQL Server"));
+    Assert.assertEquals(DatabaseSampler.Dialect.ORACLE, DatabaseSampler.Dialect.of("Oracle"));
+    Assert.assertEquals(DatabaseSampler.Dialect.MYSQL, DatabaseSampler.Dialect.of("MariaDB"));
+    Assert.assertEquals(DatabaseSampler.Dialect.OTHER, DatabaseSampler.Dialect.of("HSQL Database Engine"));
+  }
+
+  @Test
+  public void testQueries() {
+    Assert.assertEquals("select * from t tablesample system (0.500000)",
+                        DatabaseSampler.Dialect.POSTGRESQL.tableSample("t", 0.5));
+    Assert.assertEquals("select * from t tablesample (0.000001 percent)",
+                        DatabaseSampler.Dialect.SQLSERVER.tableSample("t", 1e-9));
+    Assert.assertEquals("select * from t sample (99.999999)", DatabaseSampler.Dialect.ORACLE.tableSample("t", 150));
+    Assert.assertNull(DatabaseSampler.Dialect.MYSQL.tableSample("t", 1));
+    Assert.assertNull(DatabaseSampler.Dialect.OTHER.tableSample("t", 1));
+
+    Assert.assertEquals("select * from t order by random() limit 10",
+                        DatabaseSampler.Dialect.POSTGRESQL.orderByRandom("t", 10));
+    Assert.assertEquals("select top 10 * from t order by newid()",
+                        DatabaseSampler.Dialect.SQLSERVER.orderByRandom("t", 10));
+    Assert.assertEquals("select * from (select * from t order by dbms_random.value) where rownum <= 10",
+                        DatabaseSampler.Dialect.ORACLE.orderByRandom("t", 10));
+    Assert.assertEquals("select * from t order by rand() limit 10",
+                        DatabaseSampler.Dialect.MYSQL.orderByRandom("t", 10));
+    Assert.assertEquals("select * from t order by rand() limit 10",
+                        DatabaseSampler.Dialect.OTHER.orderByRandom("t", 10));
+  }
+
+  @Test
+  public void testOrderByRandomForSmallTables() throws Exception {
+    List<String> queries = new ArrayList<>();
+    Connection connection = database(query -> true, queries);
+    for (DatabaseSampler.Dialect dialect : DatabaseSampler.Dialect.values()) {
+      queries.clear();
+      List<Row> rows = DatabaseSampler.random(connection, dialect, DatabaseSampler.TABLESAMPLE_MIN_ROWS - 1, "t", 10);
+      Assert.assertEquals(10, rows.size());
+      Assert.assertEquals(Collections.singletonList(dialect.orderByRandom("t", 10) + " [10]"), queries);
+
+      // tables of unknown size are not sampled with TABLESAMPLE either
+      queries.clear();
+      DatabaseSampler.random(connection, dialect, -1L, "t", 10);
+      Assert.assertEquals(Collections.singletonList(dialect.orderByRandom("t", 10) + " [10]"), queries);
+    }
+  }
+
+  @Test
+  public void testTableSampleForLargeTables() throws Exception {
+    List<String> queries = new ArrayList<>();
+    Connection connection = database(query -> true, queries);
+    for (DatabaseSampler.Dialect dialect : DatabaseSampler.Dialect.values()) {
+      queries.clear();
+      List<Row> rows = DatabaseSampler.random(connection, dialect, 1000000L, "t", 10);
+      Assert.assertEquals(10, rows.size());
+      String tableSample = dialect.tableSample("t", 0.002d);
+      if (tableSample == null) {
+        // databases without TABLESAMPLE order even large tables randomly
+        Assert.assertEquals(Collections.singletonList(dialect.orderByRandom("t", 10) + " [10]"), queries);
+      } else {
+        // twice the rows needed are read, which the reservoir samples from
+        Assert.assertEquals(Collections.singletonList(tableSample + " [20]"), queries);
+      }
+    }
+  }
+
+  @Test
+  public void testReservoirWhenSamplingFails() throws Exception {
+    List<String> queries = new ArrayList<>();
+    Connection connection = database(query -> query.equals("select * from t"), queries);
+
+    List<Row> rows = DatabaseSampler.random(connection, DatabaseSampler.Dialect.POSTGRESQL, 1000000L, "t", 10);
+    Assert.assertEquals(10, rows.size());
+    Assert.assertEquals(Arrays.asList("select * from t tablesample system (0.002000) [20]", "select * from t [100]"),
+                        queries);
+
+    queries.clear();
+    rows = DatabaseSampler.random(connection, DatabaseSampler.Dialect.MYSQL, 10L, "t", 10);
+    Assert.assertEquals(10, rows.size());
+    Assert.assertEquals(Arrays.asList("select * from t order by rand() limit 10 [10]", "select * from t [100]"),
+                        queries);
+  }
+
+  /**
+   * Returns a connection to a fake database, which returns as many rows as allowed by the statement for the queries
+   * it supports, and fails the others.
+   *
+   * @param supported whether the database can run a query
+   * @param queries the queries executed, each followed by the maximum number of rows of its statement
+   */
+  private static Connection database(Predicate<String> supported, List<String> queries) {
+    return proxy(Connection.class, (connectionProxy, method, args) -> {
+      if (!method.getName().equals("createStatement")) {
+        return defaultValue(method);
+      }
+      AtomicInteger maxRows = new AtomicInteger();
+      return proxy(Statement.class, (statementProxy, call, params) -> {
+        if (call.getName().equals("setMaxRows")) {
+          maxRows.set((Integer) params[0]);
+        } else if (call.getName().equals("executeQuery")) {
+          queries.add(String.format("%s [%d]", params[0], maxRows.get()));
+          if (!supported.test((String) params[0])) {
+            throw new SQLException("Unsupported query " + params[0]);
+          }
+          return resultSet(maxRows.get());
+        }
+        return defaultValue(call);
+      });
+    });
+  }
+
+  /**
+   * @return a result set of the given number of rows, each with its index in an ID column
+   */
+  private static ResultSet resultSet(int size) {
+    AtomicInteger index = new AtomicInteger();
+    ResultSetMetaData meta = proxy(ResultSetMetaData.class, (metaProxy, method, args) -> {
+      switch (method.getName()) {
+        case "getColumnCount":
+          return 1;
+        case "getColumnName":
+          return "ID";
+        default:
+          return defaultValue(method);
+      }
+    });
+    return proxy(ResultSet.class, (resultProxy, method, args) -> {
+      switch (method.getName()) {
+        case "next":
+          return index.incrementAndGet() <= size;
+        case "getMetaData":
+          return meta;
+        case "getObject":
+          return index.get();
+        default:
+          return defaultValue(method);
+      }
+    });
+  }
+
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(DatabaseSamplerTest.class.getClassLoader(), new Class<?>[] { type },
+                                            handler));
+  }
+
+  private static Object defaultValue(Method method) {
+    Class<?> type = method.getReturnType();
+    if (type == boolean.class) {
+      return false;
+    }
+    return type.isPrimitive() && type != void.class ? 0 : null;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.wrangler.service.directive;
+
+import com.google.common.collect.ImmutableSet;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.utils.SchemaConverter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link AbstractDirectiveHandler}.
+ */
+public class AbstractDirectiveHandlerTest {
+
+  @Test
+  public void testMixedTypeColumn() throws Exception {
+    Map<String, String> types = new LinkedHashMap<>();
+    List<Map<String, Object>> values = toDisplayValues(
+      types, new Row("value", 1).add("name", "a"), new Row("value", "two").add("name", "b"),
+      new Row("value", 3.5d).add("name", "c"));
+
+    // The type of a column is the one of its first value, while each value is displayed by its own class
+    Assert.assertEquals("Int", types.get("value"));
+    Assert.assertEquals("String", types.get("name"));
+    Assert.assertEquals("1", values.get(0).get("value"));
+    Assert.assertEquals("two", values.get(1).get("value"));
+    Assert.assertEquals("3.5", values.get(2).get("value"));
+  }
+
+  @Test
+  public void testNullThenValueColumn() throws Exception {
+    Map<String, String> types = new LinkedHashMap<>();
+    List<Map<String, Object>> values = toDisplayValues(types, new Row("value", null), new Row("value", null));
+    Assert.assertEquals("NULL", types.get("value"));
+    Assert.assertTrue(values.get(0).containsKey("value"));
+    Assert.assertNull(values.get(0).get("value"));
+
+    // The first value that is not null gives its type to the column, which later nulls don't change back
+    values = toDisplayValues(types, new Row("value", 10L), new Row("value", null), new Row("value", "eleven"));
+    Assert.assertEquals("Long", types.get("value"));
+    Assert.assertEquals("10", values.get(0).get("value"));
+    Assert.assertNull(values.get(1).get("value"));
+    Assert.assertEquals("eleven", values.get(2).get("value"));
+  }
+
+  @Test
+  public void testNonDisplayableValues() throws Exception {
+    Map<String, String> types = new LinkedHashMap<>();
+    Opaque opaque = new Opaque();
+    List<Map<String, Object>> values = toDisplayValues(
+      types, new Row("opaque", opaque).add("list", Arrays.asList("a", "b")).add("opaques", Arrays.asList(opaque)));
+
+    // Values that don't override toString() are displayed with a placeholder, also inside lists
+    Assert.assertEquals("Opaque", types.get("opaque"));
+    Assert.assertEquals(WranglerDisplaySerializer.NONDISPLAYABLE_STRING, values.get(0).get("opaque"));
+    Assert.assertEquals("[\"a\",\"b\"]", values.get(0).get("list"));
+    Assert.assertEquals("[\"" + WranglerDisplaySerializer.NONDISPLAYABLE_STRING + "\"]", values.get(0).get("opaques"));
+  }
+
+  @Test
+  public void testSelectedColumnsWithSchemaTypes() throws Exception {
+    Map<String, String> types = new LinkedHashMap<>();
+    types.put("name", "String");
+    Map<String, Object> values = AbstractDirectiveHandler.toDisplayValues(
+      new Row("name", "a").add("value", 1), ImmutableSet.of("name"), types, null);
+
+    // Types from a schema are not derived from the values, and columns that are not selected are left out
+    Assert.assertEquals(Collections.singletonMap("name", "a"), values);
+    Assert.assertEquals(Collections.singletonMap("name", "String"), types);
+  }
+
+  private static List<Map<String, Object>> toDisplayValues(Map<String, String> types, Row... rows) throws Exception {
+    SchemaConverter convertor = new SchemaConverter();
+    List<Map<String, Object>> values = new ArrayList<>();
+    for (Row row : rows) {
+      values.add(AbstractDirectiveHandler.toDisplayValues(row, null, types, convertor));
+    }
+    return values;
+  }
+
+  /**
+   * Class that doesn't override {@link Object#toString()}.
+   */
+  private static final class Opaque {
+  }
+}
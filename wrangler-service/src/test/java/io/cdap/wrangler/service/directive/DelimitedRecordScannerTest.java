@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.proto.BadRequestException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tests {@link DelimitedRecordScanner} and {@link UploadSample}
+ */
+public class DelimitedRecordScannerTest {
+
+  @Test
+  public void testSplit() throws Exception {
+    String[] contents = {
+      "a\nb\nc", "a\nb\n\n\n", "\n\na\n\nb", "héllo\n€uro\n𝄞clef\n", "single", "a||b|c||", "||"
+    };
+    for (String content : contents) {
+      for (String delimiter : Arrays.asList("\n", "||", "|")) {
+        for (int chunkSize : new int[] { 1, 2, 3, 1024 }) {
+          List<String> expected = Arrays.asList(content.split(Pattern.quote(delimiter)));
+          if (expected.size() == 1 && expected.get(0).isEmpty()) {
+            expected = new ArrayList<>();
+          }
+          Assert.assertEquals(content + " " + delimiter + " " + chunkSize, expected,
+                              scan(content, delimiter, chunkSize, Integer.MAX_VALUE));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBounds() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      content.append("record").append(i).append('\n');
+    }
+
+    // The first records are kept, up to the number of rows or the size.
+    UploadSample first = new UploadSample("body", 10, Long.MAX_VALUE, null);
+    DelimitedRecordScanner scanner = new DelimitedRecordScanner(StandardCharsets.UTF_8, "\n", 100, first);
+    scanner.feed(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+    Assert.assertTrue(scanner.isDone());
+    List<Row> rows = first.getRows();
+    Assert.assertEquals(10, rows.size());
+    Assert.assertEquals("record9", rows.get(9).getValue("body"));
+
+    UploadSample small = new UploadSample("body", 10, 2 * "record0record1".length(), null);
+    new DelimitedRecordScanner(StandardCharsets.UTF_8, "\n", 100, small)
+      .feed(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals(2, small.getRows().size());
+
+    // A reservoir sample is taken from all the records.
+    UploadSample reservoir = new UploadSample("body", 10, Long.MAX_VALUE, new Random(0));
+    scanner = new DelimitedRecordScanner(StandardCharsets.UTF_8, "\n", 100, reservoir);
+    scanner.feed(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+    scanner.finish();
+    Assert.assertFalse(scanner.isDone());
+    Assert.assertEquals(100, reservoir.getSeen());
+    Set<Object> sampled = new HashSet<>();
+    for (Row row : reservoir.getRows()) {
+      sampled.add(row.getValue("body"));
+    }
+    Assert.assertEquals(10, sampled.size());
+    Assert.assertTrue(sampled.stream().anyMatch(value -> Integer.parseInt(value.toString().substring(6)) >= 10));
+
+    // Records longer than the maximum are rejected.
+    try {
+      scan(content.toString(), ",", 7, 50);
+      Assert.fail();
+    } catch (BadRequestException e) {
+      // expected
+    }
+  }
+
+  private static List<String> scan(String content, String delimiter, int chunkSize,
+                                   int maxRecordLength) throws Exception {
+    List<String> records = new ArrayList<>();
+    DelimitedRecordScanner scanner = new DelimitedRecordScanner(StandardCharsets.UTF_8, delimiter, maxRecordLength,
+                                                                records::add);
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i += chunkSize) {
+      scanner.feed(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+    }
+    scanner.finish();
+    return records;
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.wrangler.proto.workspace.v2.ExecutionJob;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link ExecutionJobs}
+ */
+public class ExecutionJobsTest {
+
+  @Test
+  public void testSupersededJobsAreCancelled() throws Exception {
+    ExecutionJobs<String> jobs = new ExecutionJobs<>(new ExecutionPool(2, 2), 10, 60000);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    ExecutionJobs.Job<String> slow = jobs.submit(this, "ns/ws", "ws", () -> {
+      started.countDown();
+      try {
+        Thread.sleep(60000);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+        throw e;
+      }
+      return "slow";
+    });
+    started.await();
+    Assert.assertFalse(slow.await(10));
+    Assert.assertEquals(ExecutionJob.Status.RUNNING, slow.toExecutionJob().getStatus());
+
+    // A newer job of the workspace cancels the running one
+    ExecutionJobs.Job<String> fast = jobs.submit(this, "ns/ws", "ws", () -> "fast");
+    interrupted.await();
+    Assert.assertEquals(ExecutionJob.Status.CANCELLED, slow.getStatus());
+    // Clients polling the superseded job get its cancelled status
+    Assert.assertSame(slow, jobs.get("ns/ws", slow.getId()));
+    Assert.assertEquals(ExecutionJob.Status.CANCELLED, jobs.get("ns/ws", slow.getId()).getStatus());
+
+    Assert.assertTrue(fast.await(10000));
+    Assert.assertEquals(ExecutionJob.Status.SUCCEEDED, fast.getStatus());
+    Assert.assertEquals("fast", fast.getResult());
+    Assert.assertNull(jobs.get("ns/other", fast.getId()));
+    Assert.assertSame(fast, jobs.get("ns/ws", fast.getId()));
+
+    // Jobs of other workspaces are not cancelled
+    ExecutionJobs.Job<String> failed = jobs.submit(this, "ns/other", "other", () -> {
+      throw new IllegalStateException("failed");
+    });
+    Assert.assertTrue(failed.await(10000));
+    Assert.assertEquals(ExecutionJob.Status.FAILED, failed.getStatus());
+    Assert.assertEquals(ExecutionJob.Status.SUCCEEDED, fast.getStatus());
+    Assert.assertEquals(3, jobs.size());
+
+    jobs.remove(slow);
+    jobs.remove(fast);
+    // Cancelling a completed job removes it
+    Assert.assertTrue(jobs.cancel("ns/other", failed.getId()));
+    Assert.assertFalse(jobs.cancel("ns/other", failed.getId()));
+    Assert.assertEquals(0, jobs.size());
+  }
+
+  @Test
+  public void testLatestAndDrain() throws Exception {
+    ExecutionJobs<String> jobs = new ExecutionJobs<>(new ExecutionPool(2, 2), 10, 60000);
+    AtomicInteger saved = new AtomicInteger();
+    Assert.assertTrue(jobs.runIfLatest(saved::incrementAndGet));
+
+    // A job replaced while it runs doesn't run its actions, even if it ignores being cancelled
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch replaced = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    AtomicBoolean ran = new AtomicBoolean(true);
+    jobs.submit(this, "ns/ws", "ws", () -> {
+      started.countDown();
+      while (replaced.getCount() > 0) {
+        try {
+          replaced.await();
+        } catch (InterruptedException e) {
+          Thread.interrupted();
+        }
+      }
+      ran.set(jobs.runIfLatest(saved::incrementAndGet));
+      finished.countDown();
+      return "first";
+    });
+    started.await();
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutionJobs.Job<String> second = jobs.submit(this, "ns/ws", "ws", () -> {
+      release.await();
+      return String.valueOf(jobs.runIfLatest(saved::incrementAndGet));
+    });
+    replaced.countDown();
+    finished.await();
+    Assert.assertFalse(ran.get());
+
+    // Draining waits for the running jobs of the owner, whose results can still be retrieved
+    Object other = new Object();
+    ExecutionJobs.Job<String> slow = jobs.submit(other, "ns/slow", "slow", () -> {
+      Thread.sleep(60000);
+      return "slow";
+    });
+    release.countDown();
+    jobs.drain(this, 10000);
+    Assert.assertEquals("true", second.getResult());
+    Assert.assertEquals(2, saved.get());
+    Assert.assertEquals(ExecutionJob.Status.RUNNING, slow.getStatus());
+
+    // Jobs still running once the timeout elapses are cancelled
+    jobs.drain(other, 10);
+    Assert.assertEquals(ExecutionJob.Status.CANCELLED, slow.getStatus());
+    Assert.assertSame(slow, jobs.get("ns/slow", slow.getId()));
+  }
+
+  @Test
+  public void testActionsOnlyLockTheirWorkspace() throws Exception {
+    ExecutionJobs<String> jobs = new ExecutionJobs<>(new ExecutionPool(2, 2), 10, 60000);
+    CountDownLatch saving = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutionJobs.Job<String> slow = jobs.submit(this, "ns/slow", "slow", () -> String.valueOf(jobs.runIfLatest(() -> {
+      saving.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    })));
+    saving.await();
+
+    // While the action of a job runs, jobs of other workspaces are submitted, run their actions and are cancelled
+    AtomicInteger saved = new AtomicInteger();
+    ExecutionJobs.Job<String> fast = jobs.submit(this, "ns/fast", "fast",
+                                                 () -> String.valueOf(jobs.runIfLatest(saved::incrementAndGet)));
+    Assert.assertTrue(fast.await(10000));
+    Assert.assertEquals("true", fast.getResult());
+    Assert.assertEquals(1, saved.get());
+    Assert.assertEquals(ExecutionJob.Status.RUNNING, slow.getStatus());
+    Assert.assertTrue(jobs.cancel("ns/fast", fast.getId()));
+    Assert.assertNull(jobs.get("ns/fast", fast.getId()));
+
+    release.countDown();
+    Assert.assertEquals("true", slow.getResult());
+  }
+
+  @Test
+  public void testExpiry() {
+    ExecutionJobs<String> jobs = new ExecutionJobs<>(new ExecutionPool(1, 10), 2, 60000);
+    ExecutionJobs.Job<String> first = jobs.submit(this, "ns/a", "a", () -> "a");
+    jobs.submit(this, "ns/b", "b", () -> "b");
+    jobs.submit(this, "ns/c", "c", () -> "c");
+    Assert.assertEquals(2, jobs.size());
+    Assert.assertNull(jobs.get("ns/a", first.getId()));
+  }
+}
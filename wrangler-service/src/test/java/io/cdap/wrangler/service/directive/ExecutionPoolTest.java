@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.wrangler.api.RecipeException;
+import io.cdap.wrangler.proto.StatusCodeException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link ExecutionPool}
+ */
+public class ExecutionPoolTest {
+
+  @Test
+  public void testExecute() throws Exception {
+    ExecutionPool pool = new ExecutionPool(1, 1);
+    Assert.assertEquals("a", pool.execute(() -> "a"));
+
+    // The exceptions of the executions are thrown as is.
+    try {
+      pool.execute(() -> {
+        throw new RecipeException("failed", null);
+      });
+      Assert.fail();
+    } catch (RecipeException e) {
+      Assert.assertEquals("failed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testRejection() throws Exception {
+    ExecutionPool pool = new ExecutionPool(1, 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Boolean> running = pool.submit(() -> {
+      started.countDown();
+      return release.await(10, TimeUnit.SECONDS);
+    });
+    started.await();
+    Future<String> queued = pool.submit(() -> "queued");
+    Assert.assertEquals(1, pool.getActiveCount());
+    Assert.assertEquals(1, pool.getQueueSize());
+
+    try {
+      pool.submit(() -> "rejected");
+      Assert.fail();
+    } catch (StatusCodeException e) {
+      Assert.assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, e.getCode());
+    }
+
+    release.countDown();
+    Assert.assertTrue(running.get());
+    Assert.assertEquals("queued", queued.get());
+  }
+}
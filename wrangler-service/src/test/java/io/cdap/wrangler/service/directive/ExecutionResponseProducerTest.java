@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import com.google.gson.Gson;
+import io.cdap.wrangler.api.Pair;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.proto.workspace.WorkspaceValidationResult;
+import io.cdap.wrangler.proto.workspace.v2.DirectiveExecutionResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link ExecutionResponseProducer}
+ */
+public class ExecutionResponseProducerTest {
+
+  @Test
+  public void testChunks() throws Exception {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      rows.add(new Row("id", i).add("name", i % 2 == 0 ? "even" : null));
+    }
+    Map<String, String> types = new LinkedHashMap<>();
+    List<Map<String, Object>> displayed = new ArrayList<>();
+    for (Row row : rows.subList(20, 220)) {
+      Map<String, Object> values = new HashMap<>();
+      for (Pair<String, Object> field : row.getFields()) {
+        types.put(field.getFirst(), field.getSecond() == null ? "Null" : "String");
+        values.put(field.getFirst(), field.getSecond() == null ? null : field.getSecond().toString());
+      }
+      displayed.add(values);
+    }
+    ExecutionResponseProducer producer = new ExecutionResponseProducer(
+      new Gson(), displayed, 250, types, new WorkspaceValidationResult(Collections.emptyMap(), Collections.emptyMap()));
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    int chunks = 0;
+    for (ByteBuffer chunk = producer.nextChunk(null); chunk.hasRemaining(); chunk = producer.nextChunk(null)) {
+      output.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+      chunks++;
+    }
+    producer.onFinish();
+    Assert.assertEquals(2, chunks);
+
+    DirectiveExecutionResponse response = new Gson().fromJson(new String(output.toByteArray(), StandardCharsets.UTF_8),
+                                                              DirectiveExecutionResponse.class);
+    Assert.assertEquals("Success", response.getMessage());
+    Assert.assertEquals(200, response.getCount().intValue());
+    Assert.assertEquals(250, response.getTotal().intValue());
+    List<Map<String, Object>> values = new ArrayList<>(response.getValues());
+    Assert.assertEquals("20", values.get(0).get("id"));
+    Assert.assertEquals("even", values.get(0).get("name"));
+    Assert.assertFalse(values.get(1).containsKey("name"));
+    Assert.assertEquals("219", values.get(199).get("id"));
+    Assert.assertEquals(types.keySet(), response.getHeaders());
+    Assert.assertEquals(types, response.getTypes());
+    Assert.assertNotNull(response.getSummary());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.TokenGroup;
+import io.cdap.wrangler.api.parser.DirectiveName;
+import io.cdap.wrangler.api.parser.Expression;
+import io.cdap.wrangler.api.parser.Text;
+import io.cdap.wrangler.api.parser.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@link RecipeResultCache}
+ */
+public class RecipeResultCacheTest {
+
+  @Test
+  public void testLongestPrefix() {
+    RecipeResultCache cache = new RecipeResultCache(1024 * 1024);
+    long version = RecipeResultCache.version(42L, 0);
+    List<String> recipe = Arrays.asList("parse-as-csv :body ','", "drop :body", "uppercase :body_1");
+
+    Assert.assertNull(cache.get("ns/ws", version, recipe));
+    cache.put("ns/ws", version, recipe.subList(0, 1), rows("a"), null);
+    cache.put("ns/ws", version, recipe.subList(0, 2), rows("b"), null);
+
+    RecipeResultCache.Checkpoint checkpoint = cache.get("ns/ws", version, recipe);
+    Assert.assertEquals(2, checkpoint.getSize());
+    Assert.assertEquals("b", checkpoint.getRows().get(0).getValue("body_1"));
+    Assert.assertEquals(1, cache.get("ns/ws", version, Arrays.asList(recipe.get(0), "drop :body_2")).getSize());
+
+    // Rows are copied, so modifying them doesn't change the checkpoint.
+    checkpoint.getRows().get(0).setValue(0, "c");
+    Assert.assertEquals("b", checkpoint.getRows().get(0).getValue("body_1"));
+
+    // Other samples and workspaces don't share the checkpoints.
+    long other = RecipeResultCache.version(43L, 0);
+    Assert.assertNotEquals(version, other);
+    Assert.assertNull(cache.get("ns/ws", other, recipe));
+    // Neither do executions after the directives of the registry changed.
+    Assert.assertEquals(version, RecipeResultCache.version(42L, 0));
+    Assert.assertNull(cache.get("ns/ws", RecipeResultCache.version(42L, 1), recipe));
+    Assert.assertNull(cache.get("ns/other", version, recipe));
+
+    cache.invalidate("ns/ws");
+    Assert.assertNull(cache.get("ns/ws", version, recipe));
+    Assert.assertEquals(0, cache.getBytes());
+  }
+
+  @Test
+  public void testEviction() {
+    RecipeResultCache cache = new RecipeResultCache(4096);
+    List<String> recipe = Collections.singletonList("uppercase :body");
+    for (int i = 0; i < 10; i++) {
+      List<Row> rows = new ArrayList<>();
+      for (int j = 0; j < 10; j++) {
+        rows.add(new Row("body", "value"));
+      }
+      cache.put("ns/ws" + i, 0, recipe, rows, null);
+      Assert.assertTrue(cache.getBytes() <= 4096);
+    }
+    Assert.assertNull(cache.get("ns/ws0", 0, recipe));
+    Assert.assertNotNull(cache.get("ns/ws9", 0, recipe));
+
+    // Rows holding values that can be modified in place are not cached.
+    cache.put("ns/list", 0, recipe, Collections.singletonList(new Row("body", new ArrayList<>())), null);
+    Assert.assertNull(cache.get("ns/list", 0, recipe));
+
+    // Byte arrays are copied along with the rows.
+    cache.put("ns/bytes", 0, recipe, Collections.singletonList(new Row("body", new byte[] { 1 })), null);
+    ((byte[]) cache.get("ns/bytes", 0, recipe).getRows().get(0).getValue("body"))[0] = 2;
+    Assert.assertArrayEquals(new byte[] { 1 },
+                             (byte[]) cache.get("ns/bytes", 0, recipe).getRows().get(0).getValue("body"));
+  }
+
+  @Test
+  public void testNonDeterministic() {
+    Assert.assertTrue(isDeterministic("uppercase", new Text("currently")));
+    Assert.assertFalse(isDeterministic("generate-uuid", new Text("id")));
+    Assert.assertFalse(isDeterministic("invoke-http", new Text("http://localhost")));
+    Assert.assertFalse(isDeterministic("parse-as-date", new Text("body")));
+
+    // Expressions are only deterministic if they are proven pure.
+    Assert.assertTrue(isDeterministic("set-column", new Expression("string:upperCase(body) + ' ' + a * 2")));
+    Assert.assertTrue(isDeterministic("filter-row", new Expression("if (size(body) > 0) { true } else { false }")));
+    Assert.assertTrue(isDeterministic("set-column", new Expression("coalesce(a, 'new(\\'x\\')', \"b.c()\")")));
+    Assert.assertTrue(isDeterministic("set-column", new Expression("a ? math:abs(b) : datetime:ParseDate(c)")));
+    for (String expression : new String[] {
+      "datetime:CurrentTimestamp()", "datetime:CurrentTimeMS()", "dateandtime : EpochSeconds()", "math:random()",
+      "new('java.util.Date')", "body.toString()", "java.util.UUID.randomUUID()", "ctx.millis",
+      "a ? b : date:DAYS_BETWEEN_NOW(c)", "unknown(body)", "lookup:get(body)" }) {
+      Assert.assertFalse(expression, isDeterministic("set-column", new Expression(expression)));
+    }
+  }
+
+  private static boolean isDeterministic(String command, Token argument) {
+    TokenGroup tokens = new TokenGroup();
+    tokens.add(new DirectiveName(command));
+    tokens.add(argument);
+    return RecipeResultCache.isDeterministic(command, tokens);
+  }
+
+  private static List<Row> rows(String value) {
+    List<Row> rows = new ArrayList<>();
+    rows.add(new Row("body_1", value));
+    return rows;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.directive;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.utils.KryoSerializer;
+import io.cdap.wrangler.utils.ObjectSerDe;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@link RemoteDirectiveRequest}
+ */
+public class RemoteDirectiveRequestTest {
+  private static final Gson GSON = new Gson();
+
+  @Test
+  public void testJavaSerializedSample() throws Exception {
+    List<Row> rows = Collections.singletonList(new Row("body", "a,b"));
+    byte[] sample = new ObjectSerDe<List<Row>>().toByteArray(rows);
+
+    // The sample stays in the field older task workers read it from
+    String json = GSON.toJson(new RemoteDirectiveRequest("drop :body", Collections.emptyMap(), "ns", sample, null));
+    JsonObject request = new JsonParser().parse(json).getAsJsonObject();
+    Assert.assertTrue(request.get("data").isJsonArray());
+    Assert.assertFalse(request.has("encodedData"));
+
+    RemoteDirectiveRequest read = GSON.fromJson(json, RemoteDirectiveRequest.class);
+    Assert.assertArrayEquals(sample, read.getData());
+    Assert.assertEquals(rows, new ObjectSerDe<List<Row>>().toObject(read.getData()));
+  }
+
+  @Test
+  public void testKryoSerializedSample() throws Exception {
+    Row row = new Row("int", 1);
+    row.add("long", 1L << 40);
+    row.add("double", 2.5d);
+    row.add("decimal", new BigDecimal("12.50"));
+    row.add("json", new JsonParser().parse("{\"count\": 3, \"ratio\": 0.5}"));
+    JsonObject typed = new JsonObject();
+    typed.addProperty("int", 7);
+    typed.addProperty("double", 7.5d);
+    row.add("typed", typed);
+    byte[] sample = new KryoSerializer().fromRows(Collections.singletonList(row));
+
+    String json = GSON.toJson(new RemoteDirectiveRequest("drop :body", Collections.emptyMap(), "ns", sample, null));
+    Assert.assertFalse(new JsonParser().parse(json).getAsJsonObject().has("data"));
+
+    byte[] data = GSON.fromJson(json, RemoteDirectiveRequest.class).getData();
+    Assert.assertArrayEquals(sample, data);
+    Row read = new KryoSerializer().toRows(data).get(0);
+    Assert.assertEquals(1, read.getValue("int"));
+    Assert.assertEquals(1L << 40, read.getValue("long"));
+    Assert.assertEquals(2.5d, read.getValue("double"));
+    Assert.assertEquals(new BigDecimal("12.50"), read.getValue("decimal"));
+    Assert.assertEquals(row.getValue("json"), read.getValue("json"));
+    JsonObject readTyped = (JsonObject) read.getValue("typed");
+    Assert.assertEquals(Integer.class, readTyped.get("int").getAsNumber().getClass());
+    Assert.assertEquals(Double.class, readTyped.get("double").getAsNumber().getClass());
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.explorer;
+
+import io.cdap.wrangler.proto.BadRequestException;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests {@link Compression}
+ */
+public class CompressionTest {
+
+  // Snappy framed stream holding "hello\n" in an uncompressed chunk: stream identifier, then chunk of type 0x01
+  // with the masked CRC-32C of the data.
+  private static final byte[] SNAPPY_HELLO = {
+    (byte) 0xff, 0x06, 0x00, 0x00, 's', 'N', 'a', 'P', 'p', 'Y',
+    0x01, 0x0a, 0x00, 0x00, 0x53, 0x55, (byte) 0xff, 0x53, 'h', 'e', 'l', 'l', 'o', '\n'
+  };
+
+  @Test
+  public void testDetection() {
+    byte[] gzip = { 0x1f, (byte) 0x8b, 0x08, 0, 0, 0, 0, 0, 0, 0 };
+    Assert.assertEquals(Compression.GZIP, Compression.of(gzip, gzip.length, "data.txt"));
+    byte[] text = "plain,text\n".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(Compression.NONE, Compression.of(text, text.length, "data.txt"));
+    Assert.assertEquals(Compression.BZIP2, Compression.of(text, text.length, "data.txt.bz2"));
+    Assert.assertEquals(Compression.NONE, Compression.of(new byte[0], 0, "data.gz"));
+    Assert.assertEquals(Compression.SNAPPY, Compression.of(SNAPPY_HELLO, SNAPPY_HELLO.length, "data"));
+    Assert.assertEquals(Compression.ZSTD, Compression.of("logs.ZST"));
+    Assert.assertFalse(Compression.of("logs.csv").isCompressed());
+  }
+
+  @Test
+  public void testDecompress() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      content.append("line").append(i).append('\n');
+    }
+    byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(content.toString(), decompress(bytes, "data.txt"));
+
+    ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+    try (OutputStream output = new GZIPOutputStream(gzip)) {
+      output.write(bytes);
+    }
+    Assert.assertEquals(content.toString(), decompress(gzip.toByteArray(), "data"));
+
+    ByteArrayOutputStream bzip2 = new ByteArrayOutputStream();
+    try (OutputStream output = new BZip2CompressorOutputStream(bzip2)) {
+      output.write(bytes);
+    }
+    Assert.assertEquals(content.toString(), decompress(bzip2.toByteArray(), "data.bz2"));
+
+    Assert.assertEquals("hello\n", decompress(SNAPPY_HELLO, "data.sz"));
+
+    // Only the lines needed are decompressed
+    try (BoundedLineInputStream lines = BoundedLineInputStream.iterator(
+      Compression.decompress(new ByteArrayInputStream(gzip.toByteArray()), "data.gz"), StandardCharsets.UTF_8, 3)) {
+      List<String> first = new ArrayList<>();
+      lines.forEachRemaining(first::add);
+      Assert.assertEquals(3, first.size());
+      Assert.assertEquals("line2", first.get(2));
+    }
+  }
+
+  @Test
+  public void testUnsupported() throws Exception {
+    try {
+      decompress(new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0, 0 }, "data.zst");
+      Assert.fail();
+    } catch (BadRequestException e) {
+      // expected
+    }
+    try {
+      decompress("not compressed".getBytes(StandardCharsets.UTF_8), "data.gz");
+      Assert.fail();
+    } catch (BadRequestException e) {
+      // expected
+    }
+  }
+
+  private static String decompress(byte[] bytes, String name) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (InputStream input = Compression.decompress(new ByteArrayInputStream(bytes), name)) {
+      byte[] buffer = new byte[4096];
+      for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+        output.write(buffer, 0, read);
+      }
+    }
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.explorer;
+
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests the reading of whole files by {@link FilesystemExplorer}.
+ */
+public class FilesystemExplorerReadTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testReadCompressedFile() throws Exception {
+    LocalLocationFactory locationFactory = new LocalLocationFactory(TEMP_FOLDER.newFolder());
+    String json = "{\"name\": \"wrangler\"}";
+
+    Location plain = locationFactory.create("events.json");
+    try (OutputStream output = plain.getOutputStream()) {
+      output.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+    Assert.assertEquals(json, new String(FilesystemExplorer.readFile(plain), StandardCharsets.UTF_8));
+
+    Location compressed = locationFactory.create("events.json.gz");
+    try (OutputStream output = new GZIPOutputStream(compressed.getOutputStream())) {
+      output.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+    Assert.assertEquals(json, new String(FilesystemExplorer.readFile(compressed), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.explorer;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests {@link SeekSampler}
+ */
+public class SeekSamplerTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSplit() {
+    byte[] bytes = "abc\ndef\r\nghi\njk".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(Arrays.asList("abc", "def", "ghi", "jk"), SeekSampler.split(bytes, true, true));
+    Assert.assertEquals(Arrays.asList("def", "ghi"), SeekSampler.split(bytes, false, false));
+    // bytes not known to start a line are realigned to the next line
+    Assert.assertEquals(Arrays.asList("ghi"),
+                        SeekSampler.split(Arrays.copyOfRange(bytes, 4, bytes.length), false, false));
+  }
+
+  @Test
+  public void testLocalFile() throws Exception {
+    int count = (int) (2 * SeekSampler.MIN_SEEK_BYTES / 12);
+    File file = TEMP_FOLDER.newFile();
+    Files.write(file.toPath(), lines(count, "\n"));
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      assertSample(SeekSampler.sample(channel.size(), 1000, SeekSampler.of(channel), new Random(0)), 1000, count);
+    }
+  }
+
+  @Test
+  public void testRangeReads() throws Exception {
+    // stands in for the ranged reads of an object store
+    int count = (int) (2 * SeekSampler.MIN_SEEK_BYTES / 13);
+    byte[] bytes = lines(count, "\r\n");
+    SeekSampler.RangeReader reader = (offset, length) ->
+      Arrays.copyOfRange(bytes, (int) offset, (int) Math.min(bytes.length, offset + length));
+    assertSample(SeekSampler.sample(bytes.length, 500, reader, new Random(0)), 500, count);
+
+    // small files are read as a whole
+    byte[] small = lines(100, "\n");
+    SeekSampler.RangeReader smallReader = (offset, length) ->
+      Arrays.copyOfRange(small, (int) offset, (int) Math.min(small.length, offset + length));
+    assertSample(SeekSampler.sample(small.length, 10, smallReader, new Random(0)), 10, 100);
+    assertSample(SeekSampler.sample(small.length, 1000, smallReader, new Random(0)), 100, 100);
+  }
+
+  @Test
+  public void testOverlappingWindows() throws Exception {
+    // many more lines than the windows of a small file hold, so that windows overlap
+    int count = (int) (SeekSampler.MIN_SEEK_BYTES / 12) + 1;
+    byte[] bytes = lines(count, "\n");
+    SeekSampler.RangeReader reader = (offset, length) ->
+      Arrays.copyOfRange(bytes, (int) offset, (int) Math.min(bytes.length, offset + length));
+    for (int seed = 0; seed < 5; seed++) {
+      assertSample(SeekSampler.sample(bytes.length, 20000, reader, new Random(seed)), 20000, count);
+    }
+  }
+
+  private static byte[] lines(int count, String delimiter) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      builder.append(String.format("line%07d", i)).append(delimiter);
+    }
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void assertSample(List<String> sample, int size, int count) {
+    Assert.assertEquals(size, sample.size());
+    Set<String> distinct = new HashSet<>(sample);
+    Assert.assertEquals(size, distinct.size());
+    int last = 0;
+    for (String line : sample) {
+      Assert.assertTrue(line, line.matches("line\\d{7}"));
+      last = Math.max(last, Integer.parseInt(line.substring(4)));
+    }
+    // the sample is not taken from the beginning of the file only
+    Assert.assertTrue(last >= count / 2);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.gcs;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests the reading of compressed objects by {@link GCSHandler}.
+ */
+public class GCSHandlerTest {
+
+  @Test
+  public void testReadCompressedObject() throws Exception {
+    String xml = "<events><event id=\"1\"/></events>";
+    ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+    try (OutputStream output = new GZIPOutputStream(gzip)) {
+      output.write(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    byte[] bytes = GCSHandler.readDecompressed(new ByteArrayInputStream(gzip.toByteArray()), "events.xml.gz", 1024);
+    Assert.assertEquals(xml, new String(bytes, StandardCharsets.UTF_8));
+    // Only the bytes asked for are kept
+    bytes = GCSHandler.readDecompressed(new ByteArrayInputStream(gzip.toByteArray()), "events.xml.gz", 8);
+    Assert.assertEquals("<events>", new String(bytes, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link KafkaSampler}
+ */
+public class KafkaSamplerTest {
+  private static final String TOPIC = "events";
+
+  @Test
+  public void testAllocate() {
+    Assert.assertArrayEquals(new long[] { 10, 20, 30, 40 }, KafkaSampler.allocate(new long[] { 100, 200, 300, 400 },
+                                                                                  100));
+    Assert.assertArrayEquals(new long[] { 1, 0, 2 }, KafkaSampler.allocate(new long[] { 1, 0, 2 }, 100));
+    Assert.assertArrayEquals(new long[] { 1, 0, 2 }, KafkaSampler.allocate(new long[] { 4, 0, 6 }, 3));
+    Assert.assertArrayEquals(new long[] { 1, 1, 0 }, KafkaSampler.allocate(new long[] { 1, 1, 1 }, 2));
+  }
+
+  @Test
+  public void testStratified() throws Exception {
+    KafkaSampler sampler = new KafkaSampler(() -> new TopicConsumer(1000, 3000), 10000);
+    List<String> sample = sampler.sample(TOPIC, 400, null);
+    Assert.assertEquals(400, sample.size());
+
+    // The first partition has a quarter of the records, read from its beginning.
+    Assert.assertEquals("0-0", sample.get(0));
+    Assert.assertEquals("0-99", sample.get(99));
+    // The other partition is read in three runs of a hundred records at evenly spaced offsets.
+    Assert.assertEquals("1-0", sample.get(100));
+    Assert.assertEquals("1-99", sample.get(199));
+    Assert.assertEquals("1-1000", sample.get(200));
+    Assert.assertEquals("1-2000", sample.get(300));
+    Assert.assertEquals("1-2099", sample.get(399));
+
+    // Topics with fewer records than requested are read as a whole.
+    Assert.assertEquals(4000, sampler.sample(TOPIC, 5000, null).size());
+  }
+
+  @Test
+  public void testSince() throws Exception {
+    KafkaSampler sampler = new KafkaSampler(() -> new TopicConsumer(1000, 3000), 10000);
+    List<String> sample = sampler.sample(TOPIC, 100, 2500L);
+    Assert.assertEquals(100, sample.size());
+    Assert.assertEquals("1-2500", sample.get(0));
+    Assert.assertEquals("1-2599", sample.get(99));
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    KafkaSampler sampler = new KafkaSampler(() -> new TopicConsumer(1000) {
+      @Override
+      public synchronized ConsumerRecords<String, String> poll(long timeout) {
+        return ConsumerRecords.empty();
+      }
+    }, 200);
+    long start = System.currentTimeMillis();
+    Assert.assertTrue(sampler.sample(TOPIC, 10, null).isEmpty());
+    Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+  }
+
+  /**
+   * Consumer of a topic holding records with their offset as timestamp, of which the value is the partition and the
+   * offset of the record.
+   */
+  private static class TopicConsumer extends MockConsumer<String, String> {
+    private final long[] sizes;
+
+    TopicConsumer(long... sizes) {
+      super(OffsetResetStrategy.EARLIEST);
+      this.sizes = sizes;
+      List<PartitionInfo> partitions = new ArrayList<>();
+      Map<TopicPartition, Long> beginnings = new HashMap<>();
+      Map<TopicPartition, Long> ends = new HashMap<>();
+      for (int i = 0; i < sizes.length; i++) {
+        partitions.add(new PartitionInfo(TOPIC, i, null, null, null));
+        beginnings.put(new TopicPartition(TOPIC, i), 0L);
+        ends.put(new TopicPartition(TOPIC, i), sizes[i]);
+      }
+      updatePartitions(TOPIC, partitions);
+      updateBeginningOffsets(beginnings);
+      updateEndOffsets(ends);
+    }
+
+    @Override
+    public synchronized void assign(Collection<TopicPartition> partitions) {
+      super.assign(partitions);
+      for (TopicPartition partition : partitions) {
+        for (long offset = 0; offset < sizes[partition.partition()]; offset++) {
+          addRecord(new ConsumerRecord<>(TOPIC, partition.partition(), offset, null,
+                                         partition.partition() + "-" + offset));
+        }
+      }
+    }
+
+    @Override
+    public synchronized Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map<TopicPartition, Long> times) {
+      Map<TopicPartition, OffsetAndTimestamp> offsets = new HashMap<>();
+      for (Map.Entry<TopicPartition, Long> entry : times.entrySet()) {
+        if (entry.getValue() < sizes[entry.getKey().partition()]) {
+          offsets.put(entry.getKey(), new OffsetAndTimestamp(entry.getValue(), entry.getValue()));
+        }
+      }
+      return offsets;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.service.s3;
+
+import io.cdap.wrangler.proto.BadRequestException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests the reading of whole objects by {@link S3Handler}.
+ */
+public class S3HandlerTest {
+
+  @Test
+  public void testReadCompressedObject() throws Exception {
+    String json = "{\"name\": \"wrangler\"}";
+    byte[] plain = json.getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(json, new String(S3Handler.readFile(new ByteArrayInputStream(plain), "data/events.json"),
+                                         StandardCharsets.UTF_8));
+    Assert.assertEquals(json, new String(S3Handler.readFile(new ByteArrayInputStream(gzip(plain)),
+                                                            "data/events.json.gz"), StandardCharsets.UTF_8));
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testDecompressedObjectTooLarge() throws Exception {
+    // Compresses to far less than the maximum size, but is larger once decompressed
+    byte[] zeros = new byte[10 * 1024 * 1024 + 1];
+    S3Handler.readFile(new ByteArrayInputStream(gzip(zeros)), "data/zeros.txt.gz");
+  }
+
+  private static byte[] gzip(byte[] bytes) throws Exception {
+    ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+    try (OutputStream output = new GZIPOutputStream(gzip)) {
+      output.write(bytes);
+    }
+    return gzip.toByteArray();
+  }
+}
@@ -22,5 +22,6 @@ package io.cdap.wrangler.store.upgrade;
  */
 public enum UpgradeEntityType {
   WORKSPACE,
-  CONNECTION
+  CONNECTION,
+  WORKSPACE_SAMPLE
 }
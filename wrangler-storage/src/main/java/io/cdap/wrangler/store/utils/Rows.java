@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.store.utils;
+
+import io.cdap.wrangler.api.Pair;
+import io.cdap.wrangler.api.Row;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Utility methods for the rows held by in-memory caches, which estimate their size and copy them so that the
+ * cached rows are never modified in place.
+ */
+public final class Rows {
+  // Estimated sizes, in bytes, of a row, of a field and of a value of unknown size.
+  private static final long ROW_BYTES = 64;
+  private static final long FIELD_BYTES = 48;
+  private static final long VALUE_BYTES = 24;
+
+  private Rows() {
+    // no-op
+  }
+
+  /**
+   * Copies rows along with the byte arrays they hold. Other values are immutable, as long as the size of each row
+   * could be estimated with {@link #sizeOf(Row)}.
+   *
+   * @param rows to copy
+   * @return copy of the rows
+   */
+  public static List<Row> copy(List<Row> rows) {
+    List<Row> copy = new ArrayList<>(rows.size());
+    for (Row row : rows) {
+      Row rowCopy = new Row(row);
+      for (int i = 0; i < rowCopy.width(); i++) {
+        Object value = rowCopy.getValue(i);
+        if (value instanceof byte[]) {
+          rowCopy.setValue(i, ((byte[]) value).clone());
+        }
+      }
+      copy.add(rowCopy);
+    }
+    return copy;
+  }
+
+  /**
+   * @return estimated size of a row in bytes, -1 if it holds a value that can be modified in place and that
+   *   {@link #copy(List)} doesn't copy, such as a list, a map or a nested row
+   */
+  public static long sizeOf(Row row) {
+    long size = ROW_BYTES;
+    for (Pair<String, Object> field : row.getFields()) {
+      long value = sizeOf(field.getSecond());
+      if (value < 0) {
+        return -1;
+      }
+      size += FIELD_BYTES + 2L * field.getFirst().length() + value;
+    }
+    return size;
+  }
+
+  /**
+   * @return estimated size of rows in bytes, -1 if any of them can't be estimated
+   */
+  public static long sizeOf(List<Row> rows) {
+    long size = 0;
+    for (Row row : rows) {
+      long rowSize = sizeOf(row);
+      if (rowSize < 0) {
+        return -1;
+      }
+      size += rowSize;
+    }
+    return size;
+  }
+
+  /**
+   * @return estimated size of a value, -1 if it can be modified in place and is not copied.
+   */
+  private static long sizeOf(@Nullable Object value) {
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof String) {
+      return 40 + 2L * ((String) value).length();
+    }
+    if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    }
+    if (value instanceof BigDecimal || value instanceof BigInteger) {
+      return 64;
+    }
+    if (value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Float
+      || value instanceof Short || value instanceof Byte || value instanceof Boolean || value instanceof Character) {
+      return VALUE_BYTES;
+    }
+    // The date and time types of java.time are immutable.
+    if (value instanceof TemporalAccessor && value.getClass().getName().startsWith("java.time.")) {
+      return VALUE_BYTES;
+    }
+    return -1;
+  }
+}
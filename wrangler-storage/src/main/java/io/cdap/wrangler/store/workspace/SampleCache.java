@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.store.workspace;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.proto.workspace.v2.WorkspaceId;
+import io.cdap.wrangler.store.utils.Rows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the decoded samples of the workspaces, so that they are not read and decoded again on every execution.
+ *
+ * <p>Samples are keyed by workspace id, which includes the generation of the namespace, and are kept along with
+ * the stored workspace metadata they were read or written with. A sample is only returned if the metadata has
+ * not changed since, so writes done by other service instances are never hidden. The least recently used samples
+ * are evicted once their estimated size exceeds the maximum. Rows are copied when they are cached and when they
+ * are returned, since directives modify them in place, along with the <tt>byte[]</tt> values they hold. Samples
+ * holding other values that could be modified in place, such as lists, maps, dates or JSON objects, are not
+ * cached.</p>
+ */
+public final class SampleCache {
+  /**
+   * Sample of a workspace along with its version and the stored metadata of the workspace.
+   */
+  private static final class Entry {
+    private final String info;
+    private final long version;
+    private final List<Row> rows;
+    private final long bytes;
+
+    private Entry(String info, long version, List<Row> rows, long bytes) {
+      this.info = info;
+      this.version = version;
+      this.rows = rows;
+      this.bytes = bytes;
+    }
+  }
+
+  private final long maxBytes;
+  private final LinkedHashMap<WorkspaceId, Entry> samples = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * @param maxBytes maximum estimated size of the cached samples.
+   */
+  public SampleCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns a copy of the sample of a workspace.
+   *
+   * @param workspaceId id of the workspace.
+   * @param info stored metadata of the workspace.
+   * @return copy of the sample, null if it is not cached or the workspace has changed since it was cached.
+   */
+  @Nullable
+  WorkspaceSample get(WorkspaceId workspaceId, String info) {
+    return get(workspaceId, info, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns a copy of rows of the sample of a workspace.
+   *
+   * @param workspaceId id of the workspace.
+   * @param info stored metadata of the workspace.
+   * @param offset index of the first row to return.
+   * @param limit maximum number of rows to return.
+   * @return copy of the rows from the offset, null if the sample is not cached or the workspace has changed since
+   *   it was cached.
+   */
+  @Nullable
+  synchronized WorkspaceSample get(WorkspaceId workspaceId, String info, int offset, int limit) {
+    Entry entry = samples.get(workspaceId);
+    if (entry == null || !entry.info.equals(info)) {
+      misses++;
+      return null;
+    }
+    hits++;
+    int from = Math.min(entry.rows.size(), Math.max(offset, 0));
+    int to = from + Math.min(entry.rows.size() - from, Math.max(limit, 0));
+    return WorkspaceSample.ofRows(entry.version, entry.rows.size(), Rows.copy(entry.rows.subList(from, to)));
+  }
+
+  /**
+   * Caches the sample of a workspace, unless it is too large or holds values that can be modified in place.
+   *
+   * @param workspaceId id of the workspace.
+   * @param info stored metadata of the workspace.
+   * @param version of the sample.
+   * @param rows sample of the workspace.
+   */
+  void put(WorkspaceId workspaceId, String info, long version, List<Row> rows) {
+    long size = Rows.sizeOf(rows);
+    if (size < 0 || size > maxBytes) {
+      invalidate(workspaceId);
+      return;
+    }
+    store(workspaceId, new Entry(info, version, Rows.copy(rows), size));
+  }
+
+  /**
+   * Returns a sample that is cached once an iteration over its chunks has decoded all of them, unless it is too
+   * large or holds values that can be modified in place, so that executions streaming the chunks of a sample
+   * still load it in the cache.
+   *
+   * @param workspaceId id of the workspace.
+   * @param info stored metadata of the workspace.
+   * @param sample read from storage.
+   * @return the sample, which caches its rows as they are decoded.
+   */
+  WorkspaceSample load(WorkspaceId workspaceId, String info, WorkspaceSample sample) {
+    return sample.withListener(new Loader(workspaceId, info, sample.getVersion(), sample.getChunkCount()));
+  }
+
+  /**
+   * Updates the metadata of a workspace whose sample has not changed.
+   *
+   * @param workspaceId id of the workspace.
+   * @param previousInfo metadata the workspace had before the update.
+   * @param info new metadata of the workspace.
+   */
+  synchronized void update(WorkspaceId workspaceId, String previousInfo, String info) {
+    Entry entry = samples.get(workspaceId);
+    if (entry == null) {
+      return;
+    }
+    // The sample is dropped if the workspace was changed elsewhere since it was cached.
+    if (entry.info.equals(previousInfo)) {
+      samples.put(workspaceId, new Entry(info, entry.version, entry.rows, entry.bytes));
+    } else {
+      invalidate(workspaceId);
+    }
+  }
+
+  /**
+   * Removes the sample of a workspace.
+   */
+  synchronized void invalidate(WorkspaceId workspaceId) {
+    Entry entry = samples.remove(workspaceId);
+    if (entry != null) {
+      bytes -= entry.bytes;
+    }
+  }
+
+  /**
+   * Removes all the samples.
+   */
+  synchronized void clear() {
+    samples.clear();
+    bytes = 0;
+  }
+
+  /**
+   * @return number of samples returned from the cache.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of samples that had to be read from storage.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return number of samples evicted to stay within the maximum size.
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return estimated size of the cached samples, in bytes.
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  private synchronized void store(WorkspaceId workspaceId, Entry entry) {
+    Entry previous = samples.put(workspaceId, entry);
+    bytes += entry.bytes - (previous == null ? 0 : previous.bytes);
+    evict();
+  }
+
+  private void evict() {
+    Iterator<Entry> iterator = samples.values().iterator();
+    while (bytes > maxBytes && iterator.hasNext()) {
+      bytes -= iterator.next().bytes;
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Copies the chunks of a sample as they are decoded, and caches the sample once all of them were, in order.
+   * Copies are dropped as soon as the sample is found to be too large to be cached.
+   */
+  private final class Loader implements ObjIntConsumer<List<Row>> {
+    private final WorkspaceId workspaceId;
+    private final String info;
+    private final long version;
+    private final int chunks;
+    private List<Row> rows = new ArrayList<>();
+    private long size;
+    private int next;
+
+    private Loader(WorkspaceId workspaceId, String info, long version, int chunks) {
+      this.workspaceId = workspaceId;
+      this.info = info;
+      this.version = version;
+      this.chunks = chunks;
+    }
+
+    @Override
+    public synchronized void accept(List<Row> chunk, int index) {
+      if (rows == null || index != next++) {
+        rows = null;
+        return;
+      }
+      long chunkSize = Rows.sizeOf(chunk);
+      size += chunkSize;
+      if (chunkSize < 0 || size > maxBytes) {
+        rows = null;
+        return;
+      }
+      rows.addAll(Rows.copy(chunk));
+      if (next == chunks) {
+        store(workspaceId, new Entry(info, version, rows, size));
+        rows = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.store.workspace;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import io.cdap.cdap.spi.data.StructuredRow;
+import io.cdap.cdap.spi.data.StructuredTable;
+import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.Fields;
+import io.cdap.cdap.spi.data.table.field.Range;
+import io.cdap.wrangler.api.Row;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * Stores the sample of a workspace in chunks of consecutive rows, each encoded by {@link SampleCodec}, so that
+ * the size of a sample is not bounded by the size of a row of the table and parts of it can be read alone.
+ *
+ * <p>The chunks of a workspace are stored under its key, numbered from 0, along with a manifest, stored as chunk
+ * -1, holding the number of rows of each chunk and the version of the sample, a digest of its chunks. Chunks hold
+ * at most {@link #CHUNK_ROWS} rows, and fewer when their encoding would be larger than {@link #MAX_CHUNK_BYTES}.</p>
+ */
+final class SampleChunks {
+  static final String CHUNK_FIELD = "chunk";
+  static final String SAMPLE_COL = "sample";
+  static final String ROW_COUNTS_COL = "row_counts";
+  static final String VERSION_COL = "version";
+  static final int CHUNK_ROWS = 1000;
+  static final int MAX_CHUNK_BYTES = 2 * 1024 * 1024;
+  private static final int MANIFEST_CHUNK = -1;
+  private static final Gson GSON = new Gson();
+  private static final Type ROW_COUNTS_TYPE = new TypeToken<List<Integer>>() { }.getType();
+
+  /**
+   * Number of rows of each chunk of a stored sample, along with its version.
+   */
+  static final class Manifest {
+    private final List<Integer> rowCounts;
+    private final long version;
+
+    private Manifest(List<Integer> rowCounts, long version) {
+      this.rowCounts = rowCounts;
+      this.version = version;
+    }
+
+    /**
+     * @return number of rows of the sample
+     */
+    int getSize() {
+      return rowCounts.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return version of the sample
+     */
+    long getVersion() {
+      return version;
+    }
+  }
+
+  private final List<Integer> rowCounts;
+  private final List<byte[]> chunks;
+
+  private SampleChunks(List<Integer> rowCounts, List<byte[]> chunks) {
+    this.rowCounts = rowCounts;
+    this.chunks = chunks;
+  }
+
+  /**
+   * Splits the rows of a sample in encoded chunks.
+   *
+   * @param rows of the sample
+   * @return the chunks of the sample
+   * @throws IOException if a value can't be encoded
+   */
+  static SampleChunks encode(List<Row> rows) throws IOException {
+    SampleChunks sample = new SampleChunks(new ArrayList<>(), new ArrayList<>());
+    if (rows.size() <= CHUNK_ROWS) {
+      sample.add(rows);
+      return sample;
+    }
+    for (int from = 0; from < rows.size(); from += CHUNK_ROWS) {
+      sample.add(rows.subList(from, Math.min(rows.size(), from + CHUNK_ROWS)));
+    }
+    return sample;
+  }
+
+  private void add(List<Row> rows) throws IOException {
+    // views of lists are copied, as the codec falls back to Java serialization for some samples
+    byte[] bytes = SampleCodec.encode(rows instanceof Serializable ? rows : new ArrayList<>(rows));
+    if (bytes.length > MAX_CHUNK_BYTES && rows.size() > 1) {
+      int half = rows.size() / 2;
+      add(rows.subList(0, half));
+      add(rows.subList(half, rows.size()));
+      return;
+    }
+    rowCounts.add(rows.size());
+    chunks.add(bytes);
+  }
+
+  /**
+   * @return manifest of the sample, whose version is the same for samples of the same content
+   */
+  Manifest getManifest() {
+    return new Manifest(rowCounts, version(chunks));
+  }
+
+  /**
+   * Replaces the sample stored under the given key with this one.
+   */
+  void write(StructuredTable table, Collection<Field<?>> keys) throws IOException {
+    Manifest manifest = getManifest();
+    delete(table, keys);
+    for (int i = 0; i < chunks.size(); i++) {
+      Collection<Field<?>> fields = getChunkKeys(keys, i);
+      fields.add(Fields.bytesField(SAMPLE_COL, chunks.get(i)));
+      table.upsert(fields);
+    }
+    Collection<Field<?>> fields = getChunkKeys(keys, MANIFEST_CHUNK);
+    fields.add(Fields.stringField(ROW_COUNTS_COL, GSON.toJson(rowCounts)));
+    fields.add(Fields.longField(VERSION_COL, manifest.version));
+    table.upsert(fields);
+  }
+
+  /**
+   * Reads the manifest of the sample stored under the given key.
+   *
+   * @return the manifest, null if there is no sample stored under the key
+   */
+  @Nullable
+  static Manifest readManifest(StructuredTable table, Collection<Field<?>> keys) throws IOException {
+    Optional<StructuredRow> row = table.read(getChunkKeys(keys, MANIFEST_CHUNK),
+                                             Arrays.asList(ROW_COUNTS_COL, VERSION_COL));
+    if (!row.isPresent()) {
+      return null;
+    }
+    List<Integer> rowCounts = GSON.fromJson(row.get().getString(ROW_COUNTS_COL), ROW_COUNTS_TYPE);
+    Long version = row.get().getLong(VERSION_COL);
+    return new Manifest(rowCounts, version == null ? 0L : version);
+  }
+
+  /**
+   * Reads the sample stored under the given key, keeping its chunks encoded until they are iterated over.
+   *
+   * @param manifest the manifest of the sample, as returned by {@link #readManifest(StructuredTable, Collection)}
+   * @return the sample
+   */
+  static WorkspaceSample read(StructuredTable table, Collection<Field<?>> keys, Manifest manifest) throws IOException {
+    List<byte[]> chunks = new ArrayList<>(manifest.rowCounts.size());
+    for (int i = 0; i < manifest.rowCounts.size(); i++) {
+      chunks.add(readChunk(table, keys, i));
+    }
+    return WorkspaceSample.ofChunks(manifest.version, manifest.getSize(), chunks);
+  }
+
+  /**
+   * Reads rows of the sample stored under the given key, reading and decoding only the chunks holding them.
+   *
+   * @param manifest the manifest of the sample, as returned by {@link #readManifest(StructuredTable, Collection)}
+   * @param offset index of the first row to read
+   * @param limit maximum number of rows to read
+   * @return the rows of the sample from the offset
+   */
+  static List<Row> read(StructuredTable table, Collection<Field<?>> keys, Manifest manifest,
+                        int offset, int limit) throws IOException {
+    List<List<Row>> parts = new ArrayList<>();
+    boolean whole = false;
+    int size = 0;
+    int first = 0;
+    for (int i = 0; i < manifest.rowCounts.size() && size < limit; i++) {
+      int count = manifest.rowCounts.get(i);
+      if (first + count > offset) {
+        List<Row> chunk = SampleCodec.decode(readChunk(table, keys, i));
+        int from = Math.max(0, offset - first);
+        int to = from + Math.min(chunk.size() - from, limit - size);
+        whole = from == 0 && to == chunk.size();
+        parts.add(whole ? chunk : chunk.subList(from, to));
+        size += to - from;
+      }
+      first += count;
+    }
+    if (parts.size() == 1 && whole) {
+      // the rows are a whole chunk, which is returned as it was decoded
+      return parts.get(0);
+    }
+    List<Row> rows = new ArrayList<>(size);
+    parts.forEach(rows::addAll);
+    return rows;
+  }
+
+  /**
+   * Deletes the sample stored under the given key.
+   */
+  static void delete(StructuredTable table, Collection<Field<?>> keys) throws IOException {
+    table.deleteAll(Range.singleton(keys));
+  }
+
+  /**
+   * @return digest of the encoded chunks of a sample
+   */
+  private static long version(List<byte[]> chunks) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+    for (byte[] chunk : chunks) {
+      digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(chunk.length).array());
+      digest.update(chunk);
+    }
+    return ByteBuffer.wrap(digest.digest()).getLong();
+  }
+
+  private static byte[] readChunk(StructuredTable table, Collection<Field<?>> keys, int chunk) throws IOException {
+    Optional<StructuredRow> row = table.read(getChunkKeys(keys, chunk), Collections.singleton(SAMPLE_COL));
+    if (!row.isPresent()) {
+      throw new IOException(String.format("Chunk %d of the sample is missing.", chunk));
+    }
+    return row.get().getBytes(SAMPLE_COL);
+  }
+
+  private static Collection<Field<?>> getChunkKeys(Collection<Field<?>> keys, int chunk) {
+    Collection<Field<?>> chunkKeys = new ArrayList<>(keys);
+    chunkKeys.add(Fields.intField(CHUNK_FIELD, chunk));
+    return chunkKeys;
+  }
+}
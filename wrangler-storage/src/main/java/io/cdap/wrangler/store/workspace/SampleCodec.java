@@ -0,0 +1,564 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.store.workspace;
+
+import io.cdap.wrangler.api.Row;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes the sample of a workspace in a compact columnar binary format.
+ *
+ * <p>The format starts with a magic number, a version and flags, followed by the body, which is deflated when
+ * that makes it smaller. The body holds the names of the columns, the distinct sequences of columns of the
+ * rows, called shapes, the shape of each row, and then the values of each column, in the order of the rows.
+ * Values are prefixed by their type and numbers, dates, times and byte arrays have their own compact encoding.
+ * Strings are dictionary encoded per column, a string already seen in the column being written as a reference
+ * to its first occurrence. Values of other types are written using Java serialization.</p>
+ *
+ * <p>Samples written with Java serialization, the format used before, are still decoded. It is also used for
+ * the samples holding rows that have fewer values than columns.</p>
+ */
+public final class SampleCodec {
+  private static final byte[] MAGIC = { 'W', 'R', 'S', 'C' };
+  private static final int VERSION = 1;
+  private static final int FLAG_DEFLATE = 1;
+  // Bodies smaller than this are not compressed.
+  private static final int MIN_DEFLATE_BYTES = 1024;
+
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int INT = 2;
+  private static final int LONG = 3;
+  private static final int DOUBLE = 4;
+  private static final int FLOAT = 5;
+  private static final int TRUE = 6;
+  private static final int FALSE = 7;
+  private static final int SHORT = 8;
+  private static final int BYTE = 9;
+  private static final int CHARACTER = 10;
+  private static final int BYTES = 11;
+  private static final int BIG_DECIMAL = 12;
+  private static final int BIG_INTEGER = 13;
+  private static final int LOCAL_DATE = 14;
+  private static final int LOCAL_TIME = 15;
+  private static final int LOCAL_DATE_TIME = 16;
+  private static final int ZONED_DATE_TIME = 17;
+  private static final int SERIALIZED = 18;
+
+  private SampleCodec() {
+  }
+
+  /**
+   * Encodes the rows of a sample.
+   *
+   * @param rows of the sample.
+   * @return encoded sample.
+   * @throws IOException if a value can't be serialized.
+   */
+  public static byte[] encode(List<Row> rows) throws IOException {
+    Map<String, Integer> columnIds = new HashMap<>();
+    List<Writer> columns = new ArrayList<>();
+    Map<List<Integer>, Integer> shapeIds = new HashMap<>();
+    List<List<Integer>> shapes = new ArrayList<>();
+    Writer rowShapes = new Writer();
+
+    for (Row row : rows) {
+      List<Integer> shape = new ArrayList<>(row.width());
+      for (int i = 0; i < row.width(); i++) {
+        Object value;
+        try {
+          value = row.getValue(i);
+        } catch (IndexOutOfBoundsException e) {
+          // Rows created from the names of their columns have fewer values than columns until they are set.
+          return serialize(rows);
+        }
+        Integer column = columnIds.get(row.getColumn(i));
+        if (column == null) {
+          column = columns.size();
+          columnIds.put(row.getColumn(i), column);
+          columns.add(new Writer());
+        }
+        shape.add(column);
+        columns.get(column).writeValue(value);
+      }
+      Integer shapeId = shapeIds.get(shape);
+      if (shapeId == null) {
+        shapeId = shapes.size();
+        shapeIds.put(shape, shapeId);
+        shapes.add(shape);
+      }
+      rowShapes.writeVarInt(shapeId);
+    }
+
+    Writer body = new Writer();
+    body.writeVarInt(rows.size());
+    String[] names = new String[columns.size()];
+    for (Map.Entry<String, Integer> column : columnIds.entrySet()) {
+      names[column.getValue()] = column.getKey();
+    }
+    body.writeVarInt(names.length);
+    for (String name : names) {
+      body.writeUtf(name);
+    }
+    body.writeVarInt(shapes.size());
+    for (List<Integer> shape : shapes) {
+      body.writeVarInt(shape.size());
+      for (int column : shape) {
+        body.writeVarInt(column);
+      }
+    }
+    body.write(rowShapes);
+    for (Writer column : columns) {
+      body.writeVarInt(column.size());
+      body.write(column);
+    }
+
+    byte[] bytes = body.toByteArray();
+    int flags = 0;
+    if (bytes.length >= MIN_DEFLATE_BYTES) {
+      byte[] deflated = deflate(bytes);
+      if (deflated.length < bytes.length) {
+        bytes = deflated;
+        flags |= FLAG_DEFLATE;
+      }
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + MAGIC.length + 2);
+    out.write(MAGIC);
+    out.write(VERSION);
+    out.write(flags);
+    out.write(bytes);
+    return out.toByteArray();
+  }
+
+  /**
+   * Decodes a sample encoded by {@link #encode(List)} or with Java serialization.
+   *
+   * @param bytes of the encoded sample.
+   * @return rows of the sample.
+   * @throws IOException if the sample can't be decoded.
+   */
+  @SuppressWarnings("unchecked")
+  public static List<Row> decode(byte[] bytes) throws IOException {
+    if (!isEncoded(bytes)) {
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+        return (List<Row>) ois.readObject();
+      } catch (ClassNotFoundException e) {
+        throw new IOException("Unable to deserialize the sample.", e);
+      }
+    }
+
+    int version = bytes[MAGIC.length];
+    if (version != VERSION) {
+      throw new IOException(String.format("Version %d of the sample format is not supported.", version));
+    }
+    int flags = bytes[MAGIC.length + 1];
+    Reader reader = (flags & FLAG_DEFLATE) == 0 ? new Reader(bytes, MAGIC.length + 2, bytes.length) :
+      new Reader(inflate(Arrays.copyOfRange(bytes, MAGIC.length + 2, bytes.length)));
+    int size = reader.readVarInt();
+    String[] names = new String[reader.readVarInt()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = reader.readUtf();
+    }
+    int[][] shapes = new int[reader.readVarInt()][];
+    for (int i = 0; i < shapes.length; i++) {
+      shapes[i] = new int[reader.readVarInt()];
+      for (int j = 0; j < shapes[i].length; j++) {
+        shapes[i][j] = reader.readVarInt();
+      }
+    }
+    int[] rowShapes = new int[size];
+    for (int i = 0; i < size; i++) {
+      rowShapes[i] = reader.readVarInt();
+    }
+    Reader[] columns = new Reader[names.length];
+    for (int i = 0; i < columns.length; i++) {
+      int length = reader.readVarInt();
+      columns[i] = reader.slice(length);
+    }
+
+    List<Row> rows = new ArrayList<>(size);
+    for (int shape : rowShapes) {
+      Row row = new Row();
+      for (int column : shapes[shape]) {
+        row.add(names[column], columns[column].readValue());
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private static byte[] serialize(Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+      oos.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return true if the bytes are in the columnar format, false if they are Java serialized.
+   */
+  static boolean isEncoded(byte[] bytes) {
+    if (bytes.length < MAGIC.length + 2) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (bytes[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] deflate(byte[] bytes) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] bytes) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int length = inflater.inflate(buffer);
+        if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("The sample is truncated.");
+        }
+        out.write(buffer, 0, length);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new IOException("Unable to inflate the sample.", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Writes the values of a column, strings being dictionary encoded.
+   */
+  private static final class Writer extends ByteArrayOutputStream {
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    void writeValue(Object value) throws IOException {
+      if (value == null) {
+        write(NULL);
+      } else if (value instanceof String) {
+        write(STRING);
+        writeString((String) value);
+      } else if (value instanceof Integer) {
+        write(INT);
+        writeVarLong(zigZag((Integer) value));
+      } else if (value instanceof Long) {
+        write(LONG);
+        writeVarLong(zigZag((Long) value));
+      } else if (value instanceof Double) {
+        write(DOUBLE);
+        writeFixedLong(Double.doubleToRawLongBits((Double) value));
+      } else if (value instanceof Float) {
+        write(FLOAT);
+        writeVarInt(Float.floatToRawIntBits((Float) value));
+      } else if (value instanceof Boolean) {
+        write((Boolean) value ? TRUE : FALSE);
+      } else if (value instanceof Short) {
+        write(SHORT);
+        writeVarLong(zigZag((Short) value));
+      } else if (value instanceof Byte) {
+        write(BYTE);
+        write((Byte) value);
+      } else if (value instanceof Character) {
+        write(CHARACTER);
+        writeVarInt((Character) value);
+      } else if (value instanceof byte[]) {
+        write(BYTES);
+        writeBytes((byte[]) value);
+      } else if (value instanceof BigDecimal) {
+        write(BIG_DECIMAL);
+        writeVarLong(zigZag(((BigDecimal) value).scale()));
+        writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+      } else if (value instanceof BigInteger) {
+        write(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (value instanceof LocalDate) {
+        write(LOCAL_DATE);
+        writeVarLong(zigZag(((LocalDate) value).toEpochDay()));
+      } else if (value instanceof LocalTime) {
+        write(LOCAL_TIME);
+        writeVarLong(((LocalTime) value).toNanoOfDay());
+      } else if (value instanceof LocalDateTime) {
+        write(LOCAL_DATE_TIME);
+        writeVarLong(zigZag(((LocalDateTime) value).toLocalDate().toEpochDay()));
+        writeVarLong(((LocalDateTime) value).toLocalTime().toNanoOfDay());
+      } else if (value instanceof ZonedDateTime) {
+        ZonedDateTime dateTime = (ZonedDateTime) value;
+        write(ZONED_DATE_TIME);
+        writeVarLong(zigZag(dateTime.toLocalDate().toEpochDay()));
+        writeVarLong(dateTime.toLocalTime().toNanoOfDay());
+        writeVarLong(zigZag(dateTime.getOffset().getTotalSeconds()));
+        writeString(dateTime.getZone().getId());
+      } else {
+        write(SERIALIZED);
+        writeBytes(serialize(value));
+      }
+    }
+
+    /**
+     * Writes a reference to a string already written as <tt>2 * id + 1</tt>, otherwise its length as
+     * <tt>2 * length</tt> followed by its UTF-8 bytes.
+     */
+    void writeString(String value) {
+      Integer id = dictionary.get(value);
+      if (id != null) {
+        writeVarLong(2L * id + 1);
+        return;
+      }
+      dictionary.put(value, dictionary.size());
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(2L * bytes.length);
+      write(bytes, 0, bytes.length);
+    }
+
+    void writeUtf(String value) {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void writeBytes(byte[] bytes) {
+      writeVarInt(bytes.length);
+      write(bytes, 0, bytes.length);
+    }
+
+    void writeVarInt(int value) {
+      writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    void writeVarLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        write((int) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      write((int) value);
+    }
+
+    void writeFixedLong(long value) {
+      for (int i = 0; i < 8; i++) {
+        write((int) (value >>> (8 * i)));
+      }
+    }
+
+    void write(Writer writer) {
+      write(writer.buf, 0, writer.count);
+    }
+
+    private static long zigZag(long value) {
+      return (value << 1) ^ (value >> 63);
+    }
+  }
+
+  /**
+   * Reads the values of a column written by a {@link Writer}.
+   */
+  private static final class Reader {
+    private final byte[] bytes;
+    private final int end;
+    private final List<String> dictionary = new ArrayList<>();
+    private int position;
+
+    Reader(byte[] bytes) {
+      this(bytes, 0, bytes.length);
+    }
+
+    private Reader(byte[] bytes, int start, int end) {
+      this.bytes = bytes;
+      this.position = start;
+      this.end = end;
+    }
+
+    Reader slice(int length) throws IOException {
+      check(length);
+      Reader reader = new Reader(bytes, position, position + length);
+      position += length;
+      return reader;
+    }
+
+    Object readValue() throws IOException {
+      int type = readByte();
+      switch (type) {
+        case NULL:
+          return null;
+        case STRING:
+          return readString();
+        case INT:
+          return (int) unZigZag(readVarLong());
+        case LONG:
+          return unZigZag(readVarLong());
+        case DOUBLE:
+          return Double.longBitsToDouble(readFixedLong());
+        case FLOAT:
+          return Float.intBitsToFloat(readVarInt());
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case SHORT:
+          return (short) unZigZag(readVarLong());
+        case BYTE:
+          return (byte) readByte();
+        case CHARACTER:
+          return (char) readVarInt();
+        case BYTES:
+          return readBytes();
+        case BIG_DECIMAL: {
+          int scale = (int) unZigZag(readVarLong());
+          return new BigDecimal(new BigInteger(readBytes()), scale);
+        }
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case LOCAL_DATE:
+          return LocalDate.ofEpochDay(unZigZag(readVarLong()));
+        case LOCAL_TIME:
+          return LocalTime.ofNanoOfDay(readVarLong());
+        case LOCAL_DATE_TIME: {
+          LocalDate date = LocalDate.ofEpochDay(unZigZag(readVarLong()));
+          return LocalDateTime.of(date, LocalTime.ofNanoOfDay(readVarLong()));
+        }
+        case ZONED_DATE_TIME: {
+          LocalDate date = LocalDate.ofEpochDay(unZigZag(readVarLong()));
+          LocalDateTime dateTime = LocalDateTime.of(date, LocalTime.ofNanoOfDay(readVarLong()));
+          ZoneOffset offset = ZoneOffset.ofTotalSeconds((int) unZigZag(readVarLong()));
+          return ZonedDateTime.ofLocal(dateTime, ZoneId.of(readString()), offset);
+        }
+        case SERIALIZED:
+          return readSerialized();
+        default:
+          throw new IOException(String.format("Type %d of a value of the sample is not supported.", type));
+      }
+    }
+
+    private Object readSerialized() throws IOException {
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes()))) {
+        return ois.readObject();
+      } catch (ClassNotFoundException e) {
+        throw new IOException("Unable to deserialize a value of the sample.", e);
+      }
+    }
+
+    String readString() throws IOException {
+      long code = readVarLong();
+      if ((code & 1) == 1) {
+        long id = code >>> 1;
+        if (id >= dictionary.size()) {
+          throw new IOException("The sample refers to an unknown string.");
+        }
+        return dictionary.get((int) id);
+      }
+      int length = (int) (code >>> 1);
+      check(length);
+      String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+      position += length;
+      dictionary.add(value);
+      return value;
+    }
+
+    String readUtf() throws IOException {
+      return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    byte[] readBytes() throws IOException {
+      int length = readVarInt();
+      check(length);
+      byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+      position += length;
+      return value;
+    }
+
+    int readVarInt() throws IOException {
+      return (int) readVarLong();
+    }
+
+    long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("The sample has an invalid variable length number.");
+    }
+
+    long readFixedLong() throws IOException {
+      check(8);
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value |= (bytes[position++] & 0xFFL) << (8 * i);
+      }
+      return value;
+    }
+
+    int readByte() throws IOException {
+      check(1);
+      return bytes[position++] & 0xFF;
+    }
+
+    private void check(int length) throws IOException {
+      if (length < 0 || length > end - position) {
+        throw new IOException("The sample is truncated.");
+      }
+    }
+
+    private static long unZigZag(long value) {
+      return (value >>> 1) ^ -(value & 1);
+    }
+  }
+}
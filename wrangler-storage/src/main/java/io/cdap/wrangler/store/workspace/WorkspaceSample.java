@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.store.workspace;
+
+import io.cdap.wrangler.api.Row;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ObjIntConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * Rows read from the sample of a workspace, either all of them or a range, along with the number of rows and the
+ * version of the whole sample.
+ *
+ * <p>Rows read from storage are kept in the encoded chunks they were stored in, and each chunk is only decoded
+ * when it is reached while iterating over them, so that executions don't need to hold all the decoded rows of a
+ * large sample at once. The version only changes when the content of the sample does.</p>
+ */
+public final class WorkspaceSample {
+  private final long version;
+  private final int size;
+  private final List<byte[]> chunks;
+  private final List<Row> rows;
+  private final ObjIntConsumer<List<Row>> listener;
+
+  private WorkspaceSample(long version, int size, @Nullable List<byte[]> chunks, @Nullable List<Row> rows,
+                          @Nullable ObjIntConsumer<List<Row>> listener) {
+    this.version = version;
+    this.size = size;
+    this.chunks = chunks;
+    this.rows = rows;
+    this.listener = listener;
+  }
+
+  /**
+   * @param version of the sample
+   * @param size number of rows of the sample
+   * @param chunks encoded chunks holding the rows
+   */
+  static WorkspaceSample ofChunks(long version, int size, List<byte[]> chunks) {
+    return new WorkspaceSample(version, size, chunks, null, null);
+  }
+
+  /**
+   * @param version of the sample
+   * @param size number of rows of the sample
+   * @param rows decoded rows
+   */
+  static WorkspaceSample ofRows(long version, int size, List<Row> rows) {
+    return new WorkspaceSample(version, size, null, rows, null);
+  }
+
+  /**
+   * @param listener called with each chunk, and its index, once it is decoded and before it is returned
+   * @return a sample of the same rows, calling the listener as its chunks are decoded
+   */
+  WorkspaceSample withListener(ObjIntConsumer<List<Row>> listener) {
+    return new WorkspaceSample(version, size, chunks, rows, listener);
+  }
+
+  /**
+   * @return number of chunks holding the rows read
+   */
+  int getChunkCount() {
+    return rows != null ? 1 : chunks.size();
+  }
+
+  /**
+   * @return version of the sample, which changes whenever its content does
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return number of rows of the whole sample, which can be more than the number of rows read
+   */
+  public int getSampleSize() {
+    return size;
+  }
+
+  /**
+   * Returns the rows read in chunks of consecutive rows, each one decoded when the iteration reaches it. The rows
+   * are not shared with any cache, so they can be modified.
+   *
+   * @return chunks of the rows read
+   * @throws UncheckedIOException while iterating, if a chunk can't be decoded
+   */
+  public Iterable<List<Row>> getChunks() {
+    if (rows != null) {
+      return Collections.singletonList(rows);
+    }
+    return () -> new Iterator<List<Row>>() {
+      private int next;
+
+      @Override
+      public boolean hasNext() {
+        return next < chunks.size();
+      }
+
+      @Override
+      public List<Row> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int index = next++;
+        List<Row> chunk;
+        try {
+          chunk = SampleCodec.decode(chunks.get(index));
+        } catch (IOException e) {
+          throw new UncheckedIOException(String.format("Chunk %d of the sample can't be decoded.", index), e);
+        }
+        if (listener != null) {
+          listener.accept(chunk, index);
+        }
+        return chunk;
+      }
+    };
+  }
+
+  /**
+   * @return all the rows read, decoded at once
+   * @throws UncheckedIOException if a chunk can't be decoded
+   */
+  public List<Row> getRows() {
+    if (rows != null) {
+      return rows;
+    }
+    if (chunks.size() == 1) {
+      return getChunks().iterator().next();
+    }
+    List<Row> all = new ArrayList<>(size);
+    getChunks().forEach(all::addAll);
+    return all;
+  }
+}
@@ -32,17 +32,17 @@ import io.cdap.cdap.spi.data.table.field.Fields;
 import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import io.cdap.wrangler.api.Pair;
 import io.cdap.wrangler.api.Row;
 import io.cdap.wrangler.dataset.workspace.WorkspaceNotFoundException;
 import io.cdap.wrangler.proto.workspace.v2.Workspace;
 import io.cdap.wrangler.proto.workspace.v2.WorkspaceDetail;
 import io.cdap.wrangler.proto.workspace.v2.WorkspaceId;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
@@ -52,13 +52,19 @@ import javax.annotation.Nullable;
  */
 public class WorkspaceStore {
   private static final StructuredTableId TABLE_ID = new StructuredTableId("workspaces_store");
+  // samples are kept apart from the metadata of the workspaces, so that listing workspaces doesn't read them,
+  // and are split in chunks, see SampleChunks
+  private static final StructuredTableId SAMPLE_TABLE_ID = new StructuredTableId("workspace_samples_store");
   private static final String NAMESPACE_FIELD = "namespace";
   private static final String WORKSPACE_ID_FIELD = "workspace_id";
   // this field is to ensure the workspace information is correctly fetched if a namespace is recreated
   private static final String GENERATION_COL = "generation";
   private static final String CREATED_COL = "createdtimemillis";
   private static final String UPDATED_COL = "updatedtimemillis";
-  private static final String SAMPLE_COL = "sample";
+  // samples written before they had their own table, visible for testing
+  static final String SAMPLE_COL = "sample";
+  // number of workspaces of which the samples are moved to their own table in a single transaction
+  private static final int MIGRATION_BATCH_SIZE = 20;
   private static final String WORKSPACE_INFO_COL = "workspace_info";
 
   public static final StructuredTableSpecification WORKSPACE_TABLE_SPEC =
@@ -74,12 +80,35 @@ public class WorkspaceStore {
       .withPrimaryKeys(NAMESPACE_FIELD, GENERATION_COL, WORKSPACE_ID_FIELD)
       .build();
 
+  public static final StructuredTableSpecification SAMPLE_TABLE_SPEC =
+    new StructuredTableSpecification.Builder()
+      .withId(SAMPLE_TABLE_ID)
+      .withFields(Fields.stringType(NAMESPACE_FIELD),
+                  Fields.longType(GENERATION_COL),
+                  Fields.stringType(WORKSPACE_ID_FIELD),
+                  Fields.intType(SampleChunks.CHUNK_FIELD),
+                  Fields.bytesType(SampleChunks.SAMPLE_COL),
+                  Fields.stringType(SampleChunks.ROW_COUNTS_COL),
+                  Fields.longType(SampleChunks.VERSION_COL))
+      .withPrimaryKeys(NAMESPACE_FIELD, GENERATION_COL, WORKSPACE_ID_FIELD, SampleChunks.CHUNK_FIELD)
+      .build();
+
   private static final Gson GSON = new GsonBuilder()
                                      .registerTypeAdapter(Schema.class, new SchemaTypeAdapter()).create();
   private final TransactionRunner transactionRunner;
+  private final SampleCache samples;
 
   public WorkspaceStore(TransactionRunner transactionRunner) {
+    this(transactionRunner, null);
+  }
+
+  /**
+   * @param transactionRunner runner of the transactions on the workspace table
+   * @param samples cache of the decoded samples, shared by the stores of the service, null to always read them
+   */
+  public WorkspaceStore(TransactionRunner transactionRunner, @Nullable SampleCache samples) {
     this.transactionRunner = transactionRunner;
+    this.samples = samples;
   }
 
   /**
@@ -97,7 +126,8 @@ public class WorkspaceStore {
   }
 
   /**
-   * Get the workspace detail about the given workspace id
+   * Get the workspace detail about the given workspace id. The sample is only read from the table if it is not
+   * cached or the workspace has changed since it was.
    *
    * @param workspaceId the id of the workspace to look up
    * @return the workspace detail about the given workspace id
@@ -106,25 +136,80 @@ public class WorkspaceStore {
   public WorkspaceDetail getWorkspaceDetail(WorkspaceId workspaceId) throws WorkspaceNotFoundException {
     return TransactionRunners.run(transactionRunner, context -> {
       StructuredTable table = context.getTable(TABLE_ID);
-      Optional<StructuredRow> row = table.read(getWorkspaceKeys(workspaceId));
+      Collection<Field<?>> keys = getWorkspaceKeys(workspaceId);
+      Optional<StructuredRow> row = table.read(keys, Collections.singleton(WORKSPACE_INFO_COL));
       if (!row.isPresent()) {
         throw new WorkspaceNotFoundException(
           String.format("Workspace %s does not exist", workspaceId.getWorkspaceId()));
       }
 
-      Workspace workspace = GSON.fromJson(row.get().getString(WORKSPACE_INFO_COL), Workspace.class);
-      List<Row> rows = new ArrayList<>();
-      byte[] sample = row.get().getBytes(SAMPLE_COL);
+      String info = row.get().getString(WORKSPACE_INFO_COL);
+      Workspace workspace = GSON.fromJson(info, Workspace.class);
+      WorkspaceSample sample = samples == null ? null : samples.get(workspaceId, info);
       if (sample != null) {
-        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(sample))) {
-          rows = (List<Row>) ois.readObject();
-        }
+        return new WorkspaceDetail(workspace, sample.getRows());
+      }
+
+      sample = readSample(table, context.getTable(SAMPLE_TABLE_ID), keys);
+      List<Row> rows = sample.getRows();
+      if (samples != null) {
+        samples.put(workspaceId, info, sample.getVersion(), rows);
       }
 
       return new WorkspaceDetail(workspace, rows);
     }, WorkspaceNotFoundException.class);
   }
 
+  /**
+   * Get the sample of the given workspace. Unless the sample is cached, its chunks are read from the table and
+   * only decoded as they are iterated over, and the sample is cached once all of them were.
+   *
+   * @param workspaceId the id of the workspace to look up
+   * @return the sample of the workspace
+   * @throws WorkspaceNotFoundException if the workspace is not found
+   */
+  public WorkspaceSample getSample(WorkspaceId workspaceId) throws WorkspaceNotFoundException {
+    return TransactionRunners.run(transactionRunner, context -> {
+      StructuredTable table = context.getTable(TABLE_ID);
+      String info = getWorkspaceInfo(table, workspaceId, true);
+      WorkspaceSample sample = samples == null ? null : samples.get(workspaceId, info);
+      if (sample != null) {
+        return sample;
+      }
+      sample = readSample(table, context.getTable(SAMPLE_TABLE_ID), getWorkspaceKeys(workspaceId));
+      return samples == null ? sample : samples.load(workspaceId, info, sample);
+    }, WorkspaceNotFoundException.class);
+  }
+
+  /**
+   * Get rows of the sample of the given workspace. Only the chunks of the sample holding the rows are read,
+   * unless the sample is cached.
+   *
+   * @param workspaceId the id of the workspace to look up
+   * @param offset index of the first row to get
+   * @param limit maximum number of rows to get
+   * @return the rows from the offset, along with the size and version of the sample
+   * @throws WorkspaceNotFoundException if the workspace is not found
+   */
+  public WorkspaceSample getSample(WorkspaceId workspaceId, int offset, int limit) throws WorkspaceNotFoundException {
+    return TransactionRunners.run(transactionRunner, context -> {
+      StructuredTable table = context.getTable(TABLE_ID);
+      String info = getWorkspaceInfo(table, workspaceId, true);
+      WorkspaceSample sample = samples == null ? null : samples.get(workspaceId, info, offset, limit);
+      if (sample != null) {
+        return sample;
+      }
+      StructuredTable sampleTable = context.getTable(SAMPLE_TABLE_ID);
+      Collection<Field<?>> keys = getWorkspaceKeys(workspaceId);
+      SampleChunks.Manifest manifest = readManifest(table, sampleTable, keys);
+      if (manifest == null) {
+        return WorkspaceSample.ofRows(0L, 0, Collections.emptyList());
+      }
+      return WorkspaceSample.ofRows(manifest.getVersion(), manifest.getSize(), SampleChunks.read(
+        sampleTable, keys, manifest, Math.max(offset, 0), Math.max(limit, 0)));
+    }, WorkspaceNotFoundException.class);
+  }
+
   /**
    * Get all the workspaces in the given namespace
    *
@@ -145,6 +230,39 @@ public class WorkspaceStore {
     });
   }
 
+  /**
+   * Get a page of the workspaces in the given namespace, ordered by id.
+   *
+   * @param namespace the namespace to look up
+   * @param pageToken token returned with the previous page, null to get the first page
+   * @param pageSize maximum number of workspaces in the page
+   * @return the workspaces of the page and the token of the next page, null if it is the last page
+   */
+  public Pair<List<Workspace>, String> listWorkspaces(NamespaceSummary namespace, @Nullable String pageToken,
+                                                      int pageSize) {
+    return TransactionRunners.run(transactionRunner, context -> {
+      StructuredTable table = context.getTable(TABLE_ID);
+      Collection<Field<?>> namespaceKeys = getNamespaceKeys(namespace);
+      Range range = pageToken == null ? Range.singleton(namespaceKeys) :
+        Range.create(getWorkspaceKeys(new WorkspaceId(namespace, pageToken)), Range.Bound.EXCLUSIVE,
+                     namespaceKeys, Range.Bound.INCLUSIVE);
+      List<Workspace> workspaces = new ArrayList<>();
+      String nextPageToken = null;
+      // one more workspace is read to know if there is a next page
+      try (CloseableIterator<StructuredRow> rowIter = table.scan(range, pageSize + 1)) {
+        while (rowIter.hasNext()) {
+          StructuredRow row = rowIter.next();
+          if (workspaces.size() == pageSize) {
+            nextPageToken = workspaces.get(pageSize - 1).getWorkspaceId();
+            break;
+          }
+          workspaces.add(GSON.fromJson(row.getString(WORKSPACE_INFO_COL), Workspace.class));
+        }
+      }
+      return new Pair<>(workspaces, nextPageToken);
+    });
+  }
+
   /**
    * Create/update the workspace from given workspace.
    *
@@ -152,7 +270,16 @@ public class WorkspaceStore {
    * @param workspace workspace to create/update
    */
   public void saveWorkspace(WorkspaceId workspaceId, WorkspaceDetail workspace) {
-    saveWorkspace(workspaceId, workspace.getWorkspace(), workspace.getSampleAsBytes(), false);
+    SampleChunks sample;
+    try {
+      sample = SampleChunks.encode(workspace.getSample());
+    } catch (IOException e) {
+      throw new RuntimeException("Error getting bytes from sample", e);
+    }
+    String info = saveWorkspace(workspaceId, workspace.getWorkspace(), sample, false).getSecond();
+    if (samples != null) {
+      samples.put(workspaceId, info, sample.getManifest().getVersion(), workspace.getSample());
+    }
   }
 
   /**
@@ -162,7 +289,10 @@ public class WorkspaceStore {
    * @param workspace the new workspace meta to save
    */
   public void updateWorkspace(WorkspaceId workspaceId, Workspace workspace) {
-    saveWorkspace(workspaceId, workspace, null, true);
+    Pair<String, String> info = saveWorkspace(workspaceId, workspace, null, true);
+    if (samples != null) {
+      samples.update(workspaceId, info.getFirst(), info.getSecond());
+    }
   }
 
   /**
@@ -176,7 +306,30 @@ public class WorkspaceStore {
       StructuredTable table = context.getTable(TABLE_ID);
       getWorkspaceInternal(table, workspaceId, true);
       table.delete(getWorkspaceKeys(workspaceId));
+      SampleChunks.delete(context.getTable(SAMPLE_TABLE_ID), getWorkspaceKeys(workspaceId));
     }, WorkspaceNotFoundException.class);
+    if (samples != null) {
+      samples.invalidate(workspaceId);
+    }
+  }
+
+  /**
+   * Moves the samples of the workspaces of a namespace that were written before samples had their own table, so
+   * that listing the workspaces doesn't read them anymore. Workspaces are migrated a batch at a time, each batch in
+   * its own transaction. The stored metadata of the workspaces doesn't change, so cached samples remain valid.
+   *
+   * @param namespace the namespace of the workspaces
+   * @return the number of samples moved
+   */
+  public int migrateSamples(NamespaceSummary namespace) {
+    int migrated = 0;
+    String lastWorkspaceId = null;
+    do {
+      Pair<Integer, String> batch = migrateSamples(namespace, lastWorkspaceId);
+      migrated += batch.getFirst();
+      lastWorkspaceId = batch.getSecond();
+    } while (lastWorkspaceId != null);
+    return migrated;
   }
 
   // clean up all workspaces, only usable by tests, do not add @VisibleForTesting to not
@@ -185,14 +338,33 @@ public class WorkspaceStore {
     TransactionRunners.run(transactionRunner, context -> {
       StructuredTable table = context.getTable(TABLE_ID);
       table.deleteAll(Range.all());
+      context.getTable(SAMPLE_TABLE_ID).deleteAll(Range.all());
     });
+    if (samples != null) {
+      samples.clear();
+    }
   }
 
-  private void saveWorkspace(WorkspaceId workspaceId, Workspace workspace, @Nullable byte[] sample,
-                             boolean failIfNotFound) {
+  // write a sample the way it was written before samples had their own table, only usable by tests
+  void saveLegacySample(WorkspaceId workspaceId, List<Row> sample) {
     TransactionRunners.run(transactionRunner, context -> {
+      Collection<Field<?>> keys = getWorkspaceKeys(workspaceId);
+      SampleChunks.delete(context.getTable(SAMPLE_TABLE_ID), keys);
+      Collection<Field<?>> fields = new ArrayList<>(keys);
+      fields.add(Fields.bytesField(SAMPLE_COL, SampleCodec.encode(sample)));
+      context.getTable(TABLE_ID).upsert(fields);
+    });
+  }
+
+  /**
+   * @return the stored metadata of the workspace before and after the save, the first being null if it is new
+   */
+  private Pair<String, String> saveWorkspace(WorkspaceId workspaceId, Workspace workspace,
+                                             @Nullable SampleChunks sample, boolean failIfNotFound) {
+    return TransactionRunners.run(transactionRunner, context -> {
       StructuredTable table = context.getTable(TABLE_ID);
-      Workspace oldWorkspace  = getWorkspaceInternal(table, workspaceId, failIfNotFound);
+      String oldInfo = getWorkspaceInfo(table, workspaceId, failIfNotFound);
+      Workspace oldWorkspace = oldInfo == null ? null : GSON.fromJson(oldInfo, Workspace.class);
       Workspace newWorkspace = workspace;
 
       if (oldWorkspace != null) {
@@ -203,24 +375,112 @@ public class WorkspaceStore {
       Collection<Field<?>> fields = getWorkspaceKeys(workspaceId);
       fields.add(Fields.longField(CREATED_COL, newWorkspace.getCreatedTimeMillis()));
       fields.add(Fields.longField(UPDATED_COL, newWorkspace.getUpdatedTimeMillis()));
-      fields.add(Fields.stringField(WORKSPACE_INFO_COL, GSON.toJson(newWorkspace)));
+      String newInfo = GSON.toJson(newWorkspace);
+      fields.add(Fields.stringField(WORKSPACE_INFO_COL, newInfo));
 
-      if (sample == null) {
-        table.upsert(fields);
-        return;
+      if (sample != null) {
+        // samples written before they had their own table are removed along
+        fields.add(Fields.bytesField(SAMPLE_COL, null));
+        sample.write(context.getTable(SAMPLE_TABLE_ID), getWorkspaceKeys(workspaceId));
       }
-
-      fields.add(Fields.bytesField(SAMPLE_COL, sample));
       table.upsert(fields);
+      return new Pair<>(oldInfo, newInfo);
     });
   }
 
+  /**
+   * Moves the samples of a batch of workspaces, following the given one, to their own table.
+   *
+   * @param lastWorkspaceId id of the last workspace of the previous batch, null for the first batch
+   * @return the number of samples moved, and the id of the last workspace of the batch, null if it is the last one
+   */
+  private Pair<Integer, String> migrateSamples(NamespaceSummary namespace, @Nullable String lastWorkspaceId) {
+    return TransactionRunners.run(transactionRunner, context -> {
+      StructuredTable table = context.getTable(TABLE_ID);
+      StructuredTable sampleTable = context.getTable(SAMPLE_TABLE_ID);
+      Collection<Field<?>> namespaceKeys = getNamespaceKeys(namespace);
+      Range range = lastWorkspaceId == null ? Range.singleton(namespaceKeys) :
+        Range.create(getWorkspaceKeys(new WorkspaceId(namespace, lastWorkspaceId)), Range.Bound.EXCLUSIVE,
+                     namespaceKeys, Range.Bound.INCLUSIVE);
+      int migrated = 0;
+      int scanned = 0;
+      String last = null;
+      try (CloseableIterator<StructuredRow> rowIter = table.scan(range, MIGRATION_BATCH_SIZE)) {
+        while (rowIter.hasNext()) {
+          StructuredRow row = rowIter.next();
+          scanned++;
+          last = row.getString(WORKSPACE_ID_FIELD);
+          byte[] sample = row.getBytes(SAMPLE_COL);
+          if (sample != null) {
+            migrateSample(table, sampleTable, getWorkspaceKeys(new WorkspaceId(namespace, last)), sample);
+            migrated++;
+          }
+        }
+      }
+      return new Pair<>(migrated, scanned < MIGRATION_BATCH_SIZE ? null : last);
+    });
+  }
+
+  /**
+   * Reads the sample of a workspace, keeping its chunks encoded until they are iterated over.
+   *
+   * @return the sample
+   */
+  private WorkspaceSample readSample(StructuredTable table, StructuredTable sampleTable,
+                                     Collection<Field<?>> keys) throws IOException {
+    SampleChunks.Manifest manifest = readManifest(table, sampleTable, keys);
+    return manifest == null ? WorkspaceSample.ofRows(0L, 0, Collections.emptyList()) :
+      SampleChunks.read(sampleTable, keys, manifest);
+  }
+
+  /**
+   * Reads the manifest of the sample of a workspace. Samples written before they had their own table are moved
+   * to it.
+   *
+   * @return the manifest of the sample, null if the workspace has no sample
+   */
+  @Nullable
+  private SampleChunks.Manifest readManifest(StructuredTable table, StructuredTable sampleTable,
+                                             Collection<Field<?>> keys) throws IOException {
+    SampleChunks.Manifest manifest = SampleChunks.readManifest(sampleTable, keys);
+    if (manifest != null) {
+      return manifest;
+    }
+
+    Optional<StructuredRow> row = table.read(keys, Collections.singleton(SAMPLE_COL));
+    byte[] sample = row.isPresent() ? row.get().getBytes(SAMPLE_COL) : null;
+    return sample == null ? null : migrateSample(table, sampleTable, keys, sample);
+  }
+
+  /**
+   * Moves a sample written before samples had their own table to it.
+   *
+   * @param sample the sample, as it was written in the table of the workspaces
+   * @return the manifest of the sample
+   */
+  private SampleChunks.Manifest migrateSample(StructuredTable table, StructuredTable sampleTable,
+                                              Collection<Field<?>> keys, byte[] sample) throws IOException {
+    SampleChunks chunks = SampleChunks.encode(SampleCodec.decode(sample));
+    chunks.write(sampleTable, keys);
+    Collection<Field<?>> fields = new ArrayList<>(keys);
+    fields.add(Fields.bytesField(SAMPLE_COL, null));
+    table.upsert(fields);
+    return chunks.getManifest();
+  }
+
   // internal get method so the save, delete and get operation can all happen in single transaction
   @Nullable
   private Workspace getWorkspaceInternal(
     StructuredTable table, WorkspaceId workspaceId,
     boolean failIfNotFound) throws IOException, WorkspaceNotFoundException {
-    Optional<StructuredRow> row = table.read(getWorkspaceKeys(workspaceId));
+    String info = getWorkspaceInfo(table, workspaceId, failIfNotFound);
+    return info == null ? null : GSON.fromJson(info, Workspace.class);
+  }
+
+  @Nullable
+  private String getWorkspaceInfo(StructuredTable table, WorkspaceId workspaceId,
+                                  boolean failIfNotFound) throws IOException, WorkspaceNotFoundException {
+    Optional<StructuredRow> row = table.read(getWorkspaceKeys(workspaceId), Collections.singleton(WORKSPACE_INFO_COL));
     if (!row.isPresent()) {
       if (!failIfNotFound) {
         return null;
@@ -228,7 +488,7 @@ public class WorkspaceStore {
       throw new WorkspaceNotFoundException(String.format("Workspace %s does not exist", workspaceId.getWorkspaceId()));
     }
 
-    return GSON.fromJson(row.get().getString(WORKSPACE_INFO_COL), Workspace.class);
+    return row.get().getString(WORKSPACE_INFO_COL);
   }
 
   private Collection<Field<?>> getWorkspaceKeys(WorkspaceId workspace) {
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2024 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.wrangler.store.workspace;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.proto.workspace.v2.Workspace;
+import io.cdap.wrangler.proto.workspace.v2.WorkspaceDetail;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@link SampleCodec}
+ */
+public class SampleCodecTest {
+
+  @Test
+  public void testTypes() throws Exception {
+    Row row = new Row("string", "value");
+    row.add("null", null);
+    row.add("int", -42);
+    row.add("long", Long.MIN_VALUE);
+    row.add("double", -1.5d);
+    row.add("float", 2.25f);
+    row.add("boolean", true);
+    row.add("short", (short) -3);
+    row.add("byte", (byte) -4);
+    row.add("char", 'x');
+    row.add("decimal", new BigDecimal("-12345678901234567890.123"));
+    row.add("integer", new BigInteger("123456789012345678901234567890"));
+    row.add("date", LocalDate.of(1969, 7, 20));
+    row.add("time", LocalTime.of(20, 17, 40, 123));
+    row.add("datetime", LocalDateTime.of(2024, 2, 29, 23, 59));
+    row.add("zoned", ZonedDateTime.of(2024, 11, 3, 1, 30, 0, 0, ZoneId.of("America/Los_Angeles"))
+      .withLaterOffsetAtOverlap());
+    row.add("list", new ArrayList<>(Arrays.asList(1, "two")));
+    row.add("nested", new Row("inner", 1));
+    // A row can hold the same column more than once.
+    row.add("string", "other");
+
+    Row other = new Row("long", 7L);
+    other.add("string", "value");
+
+    List<Row> rows = Arrays.asList(row, other, new Row());
+    List<Row> decoded = SampleCodec.decode(SampleCodec.encode(rows));
+    Assert.assertEquals(rows, decoded);
+    Assert.assertEquals(row.getValue("zoned"), decoded.get(0).getValue("zoned"));
+    Assert.assertEquals(LocalDate.class, decoded.get(0).getValue("date").getClass());
+  }
+
+  @Test
+  public void testBytes() throws Exception {
+    List<Row> rows = Collections.singletonList(new Row("body", new byte[] { 1, 2, -3 }));
+    List<Row> decoded = SampleCodec.decode(SampleCodec.encode(rows));
+    Assert.assertArrayEquals(new byte[] { 1, 2, -3 }, (byte[]) decoded.get(0).getValue("body"));
+  }
+
+  @Test
+  public void testCompactAndCompatible() throws Exception {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      Row row = new Row("id", i);
+      row.add("name", "name-" + (i % 50));
+      row.add("body", String.format("%d,name-%d,%f", i, i % 50, i / 7.0));
+      rows.add(row);
+    }
+
+    byte[] serialized = new WorkspaceDetail(Workspace.builder("name", "id").build(), rows).getSampleAsBytes();
+    byte[] encoded = SampleCodec.encode(rows);
+    Assert.assertTrue(SampleCodec.isEncoded(encoded));
+    Assert.assertFalse(SampleCodec.isEncoded(serialized));
+    Assert.assertTrue(encoded.length * 3 < serialized.length);
+
+    // Samples stored with Java serialization are still decoded.
+    Assert.assertEquals(rows, SampleCodec.decode(serialized));
+    Assert.assertEquals(rows, SampleCodec.decode(encoded));
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncated() throws Exception {
+    List<Row> rows = Collections.singletonList(new Row("body", "value"));
+    byte[] encoded = SampleCodec.encode(rows);
+    SampleCodec.decode(Arrays.copyOf(encoded, encoded.length - 2));
+  }
+}
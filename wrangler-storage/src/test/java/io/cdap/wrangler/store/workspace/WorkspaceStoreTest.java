@@ -20,7 +20,13 @@ package io.cdap.wrangler.store.workspace;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.api.NamespaceSummary;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.spi.data.StructuredRow;
+import io.cdap.cdap.spi.data.StructuredTable;
+import io.cdap.cdap.spi.data.table.field.Range;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import io.cdap.cdap.test.SystemAppTestBase;
+import io.cdap.wrangler.api.Pair;
 import io.cdap.wrangler.api.Row;
 import io.cdap.wrangler.dataset.workspace.WorkspaceNotFoundException;
 import io.cdap.wrangler.proto.workspace.v2.SampleSpec;
@@ -33,8 +39,12 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class WorkspaceStoreTest extends SystemAppTestBase {
   private static WorkspaceStore store;
@@ -42,6 +52,7 @@ public class WorkspaceStoreTest extends SystemAppTestBase {
   @BeforeClass
   public static void setupTest() throws Exception {
     getStructuredTableAdmin().create(WorkspaceStore.WORKSPACE_TABLE_SPEC);
+    getStructuredTableAdmin().create(WorkspaceStore.SAMPLE_TABLE_SPEC);
     store = new WorkspaceStore(getTransactionRunner());
   }
 
@@ -161,6 +172,58 @@ public class WorkspaceStoreTest extends SystemAppTestBase {
     Assert.assertEquals(meta3, store.getWorkspace(id3));
   }
 
+  @Test
+  public void testSampleCache() throws Exception {
+    SampleCache samples = new SampleCache(1024 * 1024);
+    WorkspaceStore cachedStore = new WorkspaceStore(getTransactionRunner(), samples);
+    WorkspaceId id = new WorkspaceId(new NamespaceSummary("n1", "", 10L));
+    Workspace meta = Workspace.builder("name", id.getWorkspaceId()).build();
+    cachedStore.saveWorkspace(id, new WorkspaceDetail(meta, Collections.singletonList(new Row("body", "a"))));
+
+    // the sample is read from the cache, and modifying it doesn't modify the cached one
+    WorkspaceDetail detail = cachedStore.getWorkspaceDetail(id);
+    detail.getSample().get(0).setValue(0, "b");
+    Assert.assertEquals("a", cachedStore.getWorkspaceDetail(id).getSample().get(0).getValue("body"));
+    Assert.assertEquals(2, samples.getHits());
+
+    // updates keep the cached sample
+    cachedStore.updateWorkspace(id, Workspace.builder(meta).setDirectives(ImmutableList.of("d1")).build());
+    Assert.assertEquals(ImmutableList.of("d1"), cachedStore.getWorkspaceDetail(id).getWorkspace().getDirectives());
+    Assert.assertEquals(3, samples.getHits());
+
+    // changes made elsewhere are not hidden by the cache
+    store.saveWorkspace(id, new WorkspaceDetail(Workspace.builder(meta).setDirectives(ImmutableList.of("d2")).build(),
+                                                Collections.singletonList(new Row("body", "c"))));
+    detail = cachedStore.getWorkspaceDetail(id);
+    Assert.assertEquals("c", detail.getSample().get(0).getValue("body"));
+    Assert.assertEquals(ImmutableList.of("d2"), detail.getWorkspace().getDirectives());
+    Assert.assertEquals(1, samples.getMisses());
+
+    cachedStore.deleteWorkspace(id);
+    Assert.assertEquals(0, samples.getBytes());
+
+    // samples are evicted once they don't fit
+    SampleCache small = new SampleCache(1024);
+    for (int i = 0; i < 10; i++) {
+      small.put(new WorkspaceId(id.getNamespace(), "w" + i), "info", 0L,
+                Collections.singletonList(new Row("body", "a")));
+    }
+    Assert.assertTrue(small.getBytes() <= 1024);
+    Assert.assertTrue(small.getEvictions() > 0);
+    Assert.assertNull(small.get(new WorkspaceId(id.getNamespace(), "w0"), "info"));
+    Assert.assertNotNull(small.get(new WorkspaceId(id.getNamespace(), "w9"), "info"));
+
+    // byte arrays are copied, and samples with other values that can be modified in place are not cached
+    WorkspaceId bytesId = new WorkspaceId(id.getNamespace(), "bytes");
+    samples.put(bytesId, "info", 0L, Collections.singletonList(new Row("body", new byte[] { 1 })));
+    ((byte[]) samples.get(bytesId, "info").getRows().get(0).getValue("body"))[0] = 2;
+    Assert.assertArrayEquals(new byte[] { 1 },
+                             (byte[]) samples.get(bytesId, "info").getRows().get(0).getValue("body"));
+    WorkspaceId listId = new WorkspaceId(id.getNamespace(), "list");
+    samples.put(listId, "info", 0L, Collections.singletonList(new Row("body", new ArrayList<>(Arrays.asList("a")))));
+    Assert.assertNull(samples.get(listId, "info"));
+  }
+
   @Test
   public void testNamespaceGenerations() {
     NamespaceSummary nsGen1 = new NamespaceSummary("ns1", "", 1L);
@@ -187,4 +250,166 @@ public class WorkspaceStoreTest extends SystemAppTestBase {
     // test that listing with a different generation doesn't include the workspace
     Assert.assertTrue(store.listWorkspaces(nsGen2).isEmpty());
   }
+
+  @Test
+  public void testListPages() {
+    NamespaceSummary ns = new NamespaceSummary("n1", "", 10L);
+    Set<Workspace> expected = new HashSet<>();
+    for (int i = 0; i < 7; i++) {
+      WorkspaceId id = new WorkspaceId(ns);
+      Workspace meta = Workspace.builder("name" + i, id.getWorkspaceId()).build();
+      store.saveWorkspace(id, new WorkspaceDetail(meta, Collections.singletonList(new Row("body", "a"))));
+      expected.add(meta);
+    }
+    store.saveWorkspace(new WorkspaceId(new NamespaceSummary("n2", "", 10L)),
+                        new WorkspaceDetail(Workspace.builder("other", "other").build(), Collections.emptyList()));
+
+    // pages are read until there is no next page, and don't include workspaces from other namespaces
+    List<Workspace> listed = new ArrayList<>();
+    List<Integer> pageSizes = new ArrayList<>();
+    String pageToken = null;
+    do {
+      Pair<List<Workspace>, String> page = store.listWorkspaces(ns, pageToken, 3);
+      listed.addAll(page.getFirst());
+      pageSizes.add(page.getFirst().size());
+      pageToken = page.getSecond();
+    } while (pageToken != null);
+    Assert.assertEquals(ImmutableList.of(3, 3, 1), pageSizes);
+    Assert.assertEquals(7, listed.size());
+    Assert.assertEquals(expected, new HashSet<>(listed));
+
+    // a page of exactly the remaining workspaces is the last one
+    Pair<List<Workspace>, String> page = store.listWorkspaces(ns, null, 7);
+    Assert.assertEquals(7, page.getFirst().size());
+    Assert.assertNull(page.getSecond());
+    Assert.assertEquals(store.listWorkspaces(ns), page.getFirst());
+  }
+
+  @Test
+  public void testChunkedSample() throws Exception {
+    WorkspaceId id = new WorkspaceId(new NamespaceSummary("n1", "", 10L));
+    Workspace meta = Workspace.builder("name", id.getWorkspaceId()).build();
+    List<Row> sample = new ArrayList<>();
+    for (int i = 0; i < 2 * SampleChunks.CHUNK_ROWS + 500; i++) {
+      sample.add(new Row("body", "row" + i).add("index", i));
+    }
+    store.saveWorkspace(id, new WorkspaceDetail(meta, sample));
+    Assert.assertEquals(sample, store.getWorkspaceDetail(id).getSample());
+
+    // rows are read across chunks
+    WorkspaceSample page = store.getSample(id, SampleChunks.CHUNK_ROWS - 5, 10);
+    Assert.assertEquals(sample.subList(SampleChunks.CHUNK_ROWS - 5, SampleChunks.CHUNK_ROWS + 5), page.getRows());
+    Assert.assertEquals(sample.size(), page.getSampleSize());
+    page = store.getSample(id, sample.size() - 3, 10);
+    Assert.assertEquals(sample.subList(sample.size() - 3, sample.size()), page.getRows());
+    Assert.assertTrue(store.getSample(id, sample.size() + 10, 10).getRows().isEmpty());
+
+    // the whole sample is streamed a chunk at a time, and its version only changes with its content
+    WorkspaceSample whole = store.getSample(id);
+    List<Integer> chunkSizes = new ArrayList<>();
+    List<Row> streamed = new ArrayList<>();
+    for (List<Row> chunk : whole.getChunks()) {
+      chunkSizes.add(chunk.size());
+      streamed.addAll(chunk);
+    }
+    Assert.assertEquals(ImmutableList.of(SampleChunks.CHUNK_ROWS, SampleChunks.CHUNK_ROWS, 500), chunkSizes);
+    Assert.assertEquals(sample, streamed);
+    Assert.assertEquals(page.getVersion(), whole.getVersion());
+    store.updateWorkspace(id, Workspace.builder(meta).setDirectives(ImmutableList.of("d1")).build());
+    Assert.assertEquals(whole.getVersion(), store.getSample(id, 0, 1).getVersion());
+
+    // chunks larger than the maximum are split, and a smaller sample replaces all the chunks
+    char[] chars = new char[SampleChunks.MAX_CHUNK_BYTES / 3];
+    List<Row> large = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Arrays.fill(chars, (char) ('a' + i));
+      large.add(new Row("body", new String(chars)));
+    }
+    store.saveWorkspace(id, new WorkspaceDetail(meta, large));
+    Assert.assertEquals(large, store.getWorkspaceDetail(id).getSample());
+    Assert.assertEquals(large.subList(4, 5), store.getSample(id, 4, 1).getRows());
+    Assert.assertNotEquals(whole.getVersion(), store.getSample(id, 0, 1).getVersion());
+
+    store.saveWorkspace(id, new WorkspaceDetail(meta, Collections.emptyList()));
+    Assert.assertTrue(store.getWorkspaceDetail(id).getSample().isEmpty());
+    Assert.assertEquals(0, store.getSample(id, 0, 10).getSampleSize());
+  }
+
+  @Test
+  public void testMigrateSamples() throws Exception {
+    NamespaceSummary ns = new NamespaceSummary("n1", "", 10L);
+    List<Row> sample = ImmutableList.of(new Row("body", "a").add("index", 0), new Row("body", "b").add("index", 1));
+    // more workspaces than migrated in a single batch
+    List<WorkspaceId> ids = new ArrayList<>();
+    for (int i = 0; i < 45; i++) {
+      WorkspaceId id = new WorkspaceId(ns);
+      store.saveWorkspace(id, new WorkspaceDetail(Workspace.builder("name" + i, id.getWorkspaceId()).build(), sample));
+      store.saveLegacySample(id, sample);
+      ids.add(id);
+    }
+    WorkspaceId other = new WorkspaceId(new NamespaceSummary("n2", "", 1L));
+    store.saveWorkspace(other, new WorkspaceDetail(Workspace.builder("other", other.getWorkspaceId()).build(),
+                                                   sample));
+    store.saveLegacySample(other, sample);
+    long otherBytes = getWorkspaceSampleBytes() / 46;
+    Assert.assertTrue(otherBytes > 0);
+
+    // after the upgrade, listing the workspaces of the namespace reads no sample
+    Assert.assertEquals(45, store.migrateSamples(ns));
+    Assert.assertEquals(otherBytes, getWorkspaceSampleBytes());
+    Assert.assertEquals(45, store.listWorkspaces(ns).size());
+    for (WorkspaceId id : ids) {
+      Assert.assertEquals(sample, store.getSample(id).getRows());
+    }
+    Assert.assertEquals(0, store.migrateSamples(ns));
+
+    Assert.assertEquals(1, store.migrateSamples(other.getNamespace()));
+    Assert.assertEquals(0, getWorkspaceSampleBytes());
+    Assert.assertEquals(sample, store.getWorkspaceDetail(other).getSample());
+  }
+
+  @Test
+  public void testStreamedSampleCache() throws Exception {
+    SampleCache samples = new SampleCache(16 * 1024 * 1024);
+    WorkspaceStore cachedStore = new WorkspaceStore(getTransactionRunner(), samples);
+    WorkspaceId id = new WorkspaceId(new NamespaceSummary("n1", "", 10L));
+    Workspace meta = Workspace.builder("name", id.getWorkspaceId()).build();
+    List<Row> sample = new ArrayList<>();
+    for (int i = 0; i < SampleChunks.CHUNK_ROWS + 10; i++) {
+      sample.add(new Row("body", "row" + i));
+    }
+    // the sample is saved by another store, so it is not cached
+    store.saveWorkspace(id, new WorkspaceDetail(meta, sample));
+
+    // a partial iteration doesn't cache the sample, and modified rows are not cached
+    WorkspaceSample streamed = cachedStore.getSample(id);
+    streamed.getChunks().iterator().next().get(0).setValue(0, "modified");
+    Assert.assertEquals(0, samples.getBytes());
+
+    for (List<Row> chunk : cachedStore.getSample(id).getChunks()) {
+      chunk.forEach(row -> row.setValue(0, "modified"));
+    }
+    Assert.assertTrue(samples.getBytes() > 0);
+    WorkspaceSample cached = cachedStore.getSample(id, 0, Integer.MAX_VALUE);
+    Assert.assertEquals(sample, cached.getRows());
+    Assert.assertEquals(streamed.getVersion(), cached.getVersion());
+    Assert.assertEquals(1, samples.getHits());
+  }
+
+  /**
+   * @return the size of the samples held by the table of the workspaces, which are read when listing them
+   */
+  private static long getWorkspaceSampleBytes() {
+    return TransactionRunners.run(getTransactionRunner(), context -> {
+      StructuredTable table = context.getTable(WorkspaceStore.WORKSPACE_TABLE_SPEC.getTableId());
+      long bytes = 0;
+      try (CloseableIterator<StructuredRow> rows = table.scan(Range.all(), Integer.MAX_VALUE)) {
+        while (rows.hasNext()) {
+          byte[] sample = rows.next().getBytes(WorkspaceStore.SAMPLE_COL);
+          bytes += sample == null ? 0 : sample.length;
+        }
+      }
+      return bytes;
+    });
+  }
 }